@@ -5,6 +5,7 @@ plugins {
     id("com.github.hierynomus.license-report")
     id("io.github.sgtsilvio.gradle.defaults")
     id("de.undercouch.download")
+    id("me.champeau.jmh")
 }
 
 buildscript {
@@ -257,6 +258,23 @@ tasks.compileJava {
     )
 }
 
+/* ******************** benchmarks ******************** */
+
+// the benchmarks in src/jmh run against the main classes, outside the broker:
+//   ./gradlew jmh [-Pjmh.includes=<benchmark regex>]
+jmh {
+    jmhVersion.set(property("jmh.version").toString())
+    // allocation rate alongside time, so that codec and validator changes come with both
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    includes.addAll(providers.gradleProperty("jmh.includes").map { listOf(it) }.orElse(listOf<String>()))
+}
+
+dependencies {
+    // the broker provides the SDK to the extension, but the benchmarks run without one
+    jmh("com.hivemq:hivemq-extension-sdk:${hivemqExtension.sdkVersion.get()}")
+}
+
 /* ******************** debug run ******************** */
 
 val downloadHivemqCe by tasks.registering(de.undercouch.gradle.tasks.download.Download::class) {
@@ -12,7 +12,7 @@
  *   Ian Craggs - initial implementation
  ********************************************************************************"""
 
-import glob, sys, datetime
+import glob, sys, datetime, json
 
 reqfilename = "src/main/java/org/eclipse/sparkplug/tck/test/common/Requirements.java"
 
@@ -106,39 +106,63 @@ def setResult(results, assertion_id, test, timestamp, result):
     else:
         results[assertion_id] = test, timestamp, result
 
-def process_test(profile, test, timestamp, lines):
-    curline = lines.pop(0)
-    while curline.find("OVERALL") == -1:
-        assertion_id, result = curline.strip(";").split(maxsplit=1)
-        if assertion_id.startswith("Monitor:"):
-            assertion_id = assertion_id[len("Monitor:"):]
-        assertion_id = "ID_"+assertion_id.strip(":").upper().replace("-", "_")
-        result = result.strip(";\n")
-        if profile == "edge":
-            if assertion_id not in edgeids:
-                # probably a monitor check
-                if assertion_id not in hostids:
-                    print("Error: assertion not in hostids or edgeids:", assertion_id, profile, test)
-                else:
-                    setResult(hostresults, assertion_id, test, timestamp, result)
-            else:
-                setResult(edgeresults, assertion_id, test, timestamp, result)
-        elif profile == "host":
+def record_result(profile, test, timestamp, assertion_id, result):
+    if assertion_id.startswith("Monitor:"):
+        assertion_id = assertion_id[len("Monitor:"):]
+    assertion_id = "ID_"+assertion_id.strip(":").upper().replace("-", "_")
+    if profile == "edge":
+        if assertion_id not in edgeids:
+            # probably a monitor check
             if assertion_id not in hostids:
-                # probably a monitor check
-                if assertion_id not in edgeids:
-                    print("Error: assertion not in hostids or edgeids:", assertion_id, profile, test)
-                else:
-                    setResult(edgeresults, assertion_id, test, timestamp, result)
+                print("Error: assertion not in hostids or edgeids:", assertion_id, profile, test)
             else:
                 setResult(hostresults, assertion_id, test, timestamp, result)
-        elif profile == "broker":
-            if assertion_id not in brokerids:
-                print("Error: assertion not in brokerids:", assertion_id, profile, test)
+        else:
+            setResult(edgeresults, assertion_id, test, timestamp, result)
+    elif profile == "host":
+        if assertion_id not in hostids:
+            # probably a monitor check
+            if assertion_id not in edgeids:
+                print("Error: assertion not in hostids or edgeids:", assertion_id, profile, test)
             else:
-                setResult(brokerresults, assertion_id, test, timestamp, result)
+                setResult(edgeresults, assertion_id, test, timestamp, result)
+        else:
+            setResult(hostresults, assertion_id, test, timestamp, result)
+    elif profile == "broker":
+        if assertion_id not in brokerids:
+            print("Error: assertion not in brokerids:", assertion_id, profile, test)
+        else:
+            setResult(brokerresults, assertion_id, test, timestamp, result)
+
+def process_test(profile, test, timestamp, lines):
+    curline = lines.pop(0)
+    while curline.find("OVERALL") == -1:
+        assertion_id, result = curline.strip(";").split(maxsplit=1)
+        record_result(profile, test, timestamp, assertion_id, result.strip(";\n"))
         curline = lines.pop(0)
 
+def process_eventfile(lines):
+    # the result events written beside the log, one JSON object a line, so nothing needs to be split out of text
+    print("Processing result events...")
+    states = {"PASS": "PASS", "FAIL": "FAIL", "MAYBE": "MAYBE", "NOT_EXECUTED": "NOT EXECUTED"}
+    # every event from one run of a test has the same time, so a second time means a second run
+    runs = {}
+    info = []
+    for curline in lines:
+        if curline.strip() == "":
+            continue
+        event = json.loads(curline)
+        profile, test = event["profile"], event["test"]
+        times = runs.setdefault((profile, test), [])
+        if event["time"] not in times:
+            times.append(event["time"])
+            if len(times) == 2:
+                print("Warning: test", profile, test, "logged more than once")
+                info.append("<h4>Warning: test %s %s logged more than once. Any previously failing assertion will not be overwritten by a later success.</h4>" % (profile, test))
+        timestamp = datetime.datetime.fromtimestamp(event["time"] / 1000.0).strftime("%Y-%m-%d %H:%M:%S.%f")[:-3]
+        result = event.get("text", states.get(event["state"], event["state"]))
+        record_result(profile, test, timestamp, event["requirement"], result)
+    return info
 
 def process_logfile(lines):
     print("Processing logfile...")
@@ -292,7 +316,7 @@ def export_html(profile, results, reqs):
 if __name__ == "__main__":
 
     if len(sys.argv) < 2:
-        print("Test result file must be the first argument")
+        print("Test result file, or result event file ending .jsonl, must be the first argument")
         sys.exit()
 
     descs = getDescriptions()
@@ -342,7 +366,10 @@ if __name__ == "__main__":
     for edgeid in edgeids:
         edgeresults[edgeid] = None
 
-    warnings = process_logfile(loglines)
+    if logfilename.endswith(".jsonl"):
+        warnings = process_eventfile(loglines)
+    else:
+        warnings = process_logfile(loglines)
 
     pre = """
     <!DOCTYPE html>
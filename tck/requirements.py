@@ -50,6 +50,7 @@ public class Requirements {
 with xml.dom.minidom.parse(inputFile) as dom:
 
     assertions = 0
+    ids = []
     def traverse(node, assertion_id):
         global assertions
         
@@ -65,6 +66,7 @@ with xml.dom.minidom.parse(inputFile) as dom:
         elif assertion_id and node.nodeName == "text":
             upper_assertion_id = assertion_id.upper().replace("-", "_")
             outfile.write("    public final static String ID_%s = \"%s\";\n" % (upper_assertion_id, assertion_id))
+            ids.append("ID_" + upper_assertion_id)
             outfile.write("    public final static String %s = \"%s\";\n\n" % (upper_assertion_id, node.childNodes[0].data.replace("\"", "'")))
             
         for child in node.childNodes:
@@ -72,6 +74,12 @@ with xml.dom.minidom.parse(inputFile) as dom:
 
     traverse(dom, None)
 
+    # every id, so that results can be indexed by requirement rather than kept by name
+    outfile.write("    public final static String[] IDS = {\n")
+    for id in ids:
+        outfile.write("        %s,\n" % id)
+    outfile.write("    };\n")
+
 outfile.write("}\n// no of assertions %d\n" % assertions)
 outfile.close()
 
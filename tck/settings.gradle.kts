@@ -11,5 +11,6 @@ pluginManagement {
         id("com.github.hierynomus.license-report") version "${extra["plugin.license.version"]}"
         id("io.github.sgtsilvio.gradle.defaults") version "${extra["plugin.defaults.version"]}"
         id("de.undercouch.download") version "${extra["plugin.download.version"]}"
+        id("me.champeau.jmh") version "${extra["plugin.jmh.version"]}"
     }
 }
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.benchmark;
+
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DBIRTH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NBIRTH;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.sparkplug.impl.exception.message.SparkplugBPayloadEncoder;
+import org.eclipse.sparkplug.tck.test.Monitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+
+/**
+ * The Monitor checking one message end to end, from the PUBLISH packet through the topic and payload to the state
+ * of the edge node.
+ *
+ * The edge node, and for DDATA the device, is born before the benchmark, and the data messages then go round the
+ * sequence numbers in order, so that the Monitor sees a valid session. An NBIRTH benchmark is the same birth again
+ * and again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MonitorBenchmark {
+
+	private static final String CLIENT_ID = "benchmark";
+
+	private final PublishPacket[] packets = new PublishPacket[256];
+	private int next = 0;
+	private Monitor monitor;
+
+	@Setup(Level.Trial)
+	public void setUp(SyntheticPayloads payloads) throws Exception {
+		monitor = new Monitor(null) {
+			@Override
+			protected long getUTCwindow() {
+				return Long.MAX_VALUE;
+			}
+
+			@Override
+			public void log(String message) {
+				// there is no broker to publish the log to
+			}
+		};
+		if (payloads.messageType.equals(TOPIC_PATH_NBIRTH)) {
+			packets[0] = packet(payloads, TOPIC_PATH_NBIRTH, 0);
+			for (int i = 1; i < packets.length; i++) {
+				packets[i] = packets[0];
+			}
+			return;
+		}
+
+		monitor.publish(CLIENT_ID, packet(payloads, TOPIC_PATH_NBIRTH, 0));
+		long seq = 1;
+		if (payloads.messageType.startsWith("D")) {
+			monitor.publish(CLIENT_ID, packet(payloads, TOPIC_PATH_DBIRTH, seq++));
+		}
+		for (int i = 0; i < packets.length; i++) {
+			packets[i] = packet(payloads, payloads.messageType, (seq + i) % 256);
+		}
+	}
+
+	@Benchmark
+	public void publish() {
+		monitor.publish(CLIENT_ID, packets[next]);
+		next = (next + 1) % packets.length;
+	}
+
+	private static PublishPacket packet(SyntheticPayloads payloads, String messageType, long seq) throws Exception {
+		String topic = SyntheticPayloads.topic(messageType);
+		byte[] payload = new SparkplugBPayloadEncoder().getBytes(payloads.message(messageType, seq));
+		return publishPacket(topic, ByteBuffer.wrap(payload));
+	}
+
+	/*
+	 * The packets the broker hands to an extension are interfaces implemented inside the broker, so a packet here
+	 * answers only what the Monitor asks of it.
+	 */
+	private static PublishPacket publishPacket(String topic, ByteBuffer payload) {
+		return (PublishPacket) Proxy.newProxyInstance(PublishPacket.class.getClassLoader(),
+				new Class<?>[] { PublishPacket.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getTopic":
+							return topic;
+						case "getPayload":
+							return Optional.of(payload.asReadOnlyBuffer());
+						case "toString":
+							return topic;
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						case "equals":
+							return proxy == args[0];
+						default:
+							Class<?> type = method.getReturnType();
+							if (type == Optional.class) {
+								return Optional.empty();
+							} else if (type == boolean.class) {
+								return false;
+							} else if (type == int.class) {
+								return 0;
+							} else if (type == long.class) {
+								return 0L;
+							}
+							return null;
+					}
+				});
+	}
+}
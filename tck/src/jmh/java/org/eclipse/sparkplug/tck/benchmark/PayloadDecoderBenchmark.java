@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.sparkplug.impl.exception.SparkplugException;
+import org.eclipse.sparkplug.impl.exception.message.SparkplugBPayloadDecoder;
+import org.eclipse.sparkplug.impl.exception.model.SparkplugBPayload;
+import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.PayloadOrBuilder;
+import org.eclipse.sparkplug.tck.test.common.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding a payload, to the protobuf classes the tests read and to the model classes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadDecoderBenchmark {
+
+	private final SparkplugBPayloadDecoder decoder = new SparkplugBPayloadDecoder();
+
+	@Benchmark
+	public PayloadOrBuilder decode(SyntheticPayloads payloads) {
+		return Utils.decode(ByteBuffer.wrap(payloads.bytes));
+	}
+
+	@Benchmark
+	public SparkplugBPayload buildFromByteArray(SyntheticPayloads payloads) throws SparkplugException {
+		return decoder.buildFromByteArray(payloads.bytes);
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.sparkplug.impl.exception.message.SparkplugBPayloadEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding the model classes to a payload, through the protobuf builders or writing the wire format directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadEncoderBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean direct;
+
+	private SparkplugBPayloadEncoder encoder;
+
+	@Setup
+	public void setUp() {
+		encoder = new SparkplugBPayloadEncoder(direct);
+	}
+
+	@Benchmark
+	public byte[] getBytes(SyntheticPayloads payloads) throws Exception {
+		return encoder.getBytes(payloads.payload);
+	}
+}
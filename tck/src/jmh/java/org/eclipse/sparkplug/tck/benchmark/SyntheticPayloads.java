@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.benchmark;
+
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DBIRTH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NBIRTH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_ROOT_SP_BV_1_0;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.sparkplug.impl.exception.SparkplugException;
+import org.eclipse.sparkplug.impl.exception.message.SparkplugBPayloadEncoder;
+import org.eclipse.sparkplug.impl.exception.model.DataSet;
+import org.eclipse.sparkplug.impl.exception.model.DataSetDataType;
+import org.eclipse.sparkplug.impl.exception.model.Metric;
+import org.eclipse.sparkplug.impl.exception.model.Metric.MetricBuilder;
+import org.eclipse.sparkplug.impl.exception.model.MetricDataType;
+import org.eclipse.sparkplug.impl.exception.model.Row;
+import org.eclipse.sparkplug.impl.exception.model.SparkplugBPayload;
+import org.eclipse.sparkplug.impl.exception.model.Template;
+import org.eclipse.sparkplug.impl.exception.model.Value;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The payloads the benchmarks work on: one NBIRTH, NDATA or DDATA message of an edge node, built from the model
+ * classes and encoded once for each combination of the parameters.
+ *
+ * Every tenth metric is a data set and every tenth, offset by five, a template instance, when those are on. The
+ * rest cycle through the basic types. With aliases, births carry names and aliases and data messages aliases only.
+ */
+@State(Scope.Benchmark)
+public class SyntheticPayloads {
+
+	static final String GROUP_ID = "Benchmark";
+	static final String EDGE_NODE_ID = "Edge";
+	static final String DEVICE_ID = "Device";
+	static final String TEMPLATE_NAME = "Motor";
+
+	private static final int DATASET_ROWS = 20;
+
+	@Param({ "NBIRTH", "NDATA", "DDATA" })
+	public String messageType;
+
+	@Param({ "10", "100", "1000" })
+	public int metricCount;
+
+	@Param({ "true", "false" })
+	public boolean aliases;
+
+	@Param({ "false", "true" })
+	public boolean dataSets;
+
+	@Param({ "false", "true" })
+	public boolean templates;
+
+	/** the message being benchmarked */
+	public SparkplugBPayload payload;
+
+	/** the message, encoded */
+	public byte[] bytes;
+
+	public String topic;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		payload = message(messageType, 0);
+		bytes = new SparkplugBPayloadEncoder().getBytes(payload);
+		topic = topic(messageType);
+	}
+
+	static String topic(String messageType) {
+		String topic = TOPIC_ROOT_SP_BV_1_0 + "/" + GROUP_ID + "/" + messageType + "/" + EDGE_NODE_ID;
+		return messageType.startsWith("D") ? topic + "/" + DEVICE_ID : topic;
+	}
+
+	/**
+	 * @return a message of the parameters, with the given sequence number
+	 */
+	SparkplugBPayload message(String messageType, long seq) throws SparkplugException {
+		boolean birth = messageType.equals(TOPIC_PATH_NBIRTH) || messageType.equals(TOPIC_PATH_DBIRTH);
+		List<Metric> metrics = new ArrayList<>(metricCount + 3);
+		if (messageType.equals(TOPIC_PATH_NBIRTH)) {
+			metrics.add(new MetricBuilder("bdSeq", MetricDataType.Int64, 0L).createMetric());
+			metrics.add(new MetricBuilder("Node Control/Rebirth", MetricDataType.Boolean, false).createMetric());
+			if (templates) {
+				metrics.add(new MetricBuilder("_types_/" + TEMPLATE_NAME, MetricDataType.Template, motor(true, 0))
+						.createMetric());
+			}
+		}
+		for (int i = 0; i < metricCount; i++) {
+			metrics.add(metric(i, birth, seq));
+		}
+		return new SparkplugBPayload(new Date(), metrics, seq);
+	}
+
+	private Metric metric(int index, boolean birth, long seq) throws SparkplugException {
+		MetricBuilder builder;
+		String name = "metric/" + index;
+		if (dataSets && index % 10 == 9) {
+			builder = new MetricBuilder(name, MetricDataType.DataSet, table(index + seq));
+		} else if (templates && index % 10 == 4) {
+			builder = new MetricBuilder(name, MetricDataType.Template, motor(false, index + seq));
+		} else {
+			long value = index + seq;
+			switch (index % 6) {
+				case 0:
+					builder = new MetricBuilder(name, MetricDataType.Int32, (int) value);
+					break;
+				case 1:
+					builder = new MetricBuilder(name, MetricDataType.Double, value / 4.0);
+					break;
+				case 2:
+					builder = new MetricBuilder(name, MetricDataType.Boolean, value % 2 == 0);
+					break;
+				case 3:
+					builder = new MetricBuilder(name, MetricDataType.String, "value " + value);
+					break;
+				case 4:
+					builder = new MetricBuilder(name, MetricDataType.Int64, value * 1000);
+					break;
+				default:
+					builder = new MetricBuilder(name, MetricDataType.Float, value / 2.0f);
+			}
+		}
+		if (aliases) {
+			builder.alias((long) index);
+			if (!birth) {
+				builder.name(null);
+			}
+		}
+		return builder.createMetric();
+	}
+
+	private static DataSet table(long seed) throws SparkplugException {
+		DataSet.DataSetBuilder builder = new DataSet.DataSetBuilder(5).addColumnName("id").addColumnName("weight")
+				.addColumnName("batch").addColumnName("passed").addColumnName("time").addType(DataSetDataType.Int32)
+				.addType(DataSetDataType.Double).addType(DataSetDataType.String).addType(DataSetDataType.Boolean)
+				.addType(DataSetDataType.DateTime);
+		for (int row = 0; row < DATASET_ROWS; row++) {
+			long value = seed + row;
+			List<Value<?>> values = new ArrayList<>(5);
+			values.add(new Value<>(DataSetDataType.Int32, (int) value));
+			values.add(new Value<>(DataSetDataType.Double, value * 0.5));
+			values.add(new Value<>(DataSetDataType.String, "batch " + value));
+			values.add(new Value<>(DataSetDataType.Boolean, value % 3 == 0));
+			values.add(new Value<>(DataSetDataType.DateTime, new Date(value * 1000)));
+			builder.addRow(new Row(values));
+		}
+		return builder.createDataSet();
+	}
+
+	private static Template motor(boolean definition, long seed) throws SparkplugException {
+		Template.TemplateBuilder builder = new Template.TemplateBuilder().definition(definition)
+				.addMetric(new MetricBuilder("rpm", MetricDataType.Int32, (int) seed).createMetric())
+				.addMetric(new MetricBuilder("temperature", MetricDataType.Double, seed / 10.0).createMetric())
+				.addMetric(new MetricBuilder("running", MetricDataType.Boolean, seed % 2 == 0).createMetric());
+		if (definition) {
+			builder.version("1.0");
+		} else {
+			builder.templateRef(TEMPLATE_NAME);
+		}
+		return builder.createTemplate();
+	}
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.sparkplug.impl.exception.SparkplugException;
+import org.eclipse.sparkplug.impl.exception.model.Topic;
+import org.eclipse.sparkplug.tck.test.common.ParsedTopic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing a Sparkplug topic, into the model {@link Topic} and into the {@link ParsedTopic} the Monitor uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TopicBenchmark {
+
+	@Param({ "NBIRTH", "NDATA", "DDATA" })
+	public String messageType;
+
+	private String topic;
+
+	@Setup
+	public void setUp() {
+		topic = SyntheticPayloads.topic(messageType);
+	}
+
+	@Benchmark
+	public Topic parseTopic() throws SparkplugException {
+		return Topic.parseTopic(topic);
+	}
+
+	@Benchmark
+	public ParsedTopic parse() {
+		return ParsedTopic.parse(topic);
+	}
+}
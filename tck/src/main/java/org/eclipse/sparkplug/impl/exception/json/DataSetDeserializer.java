@@ -14,17 +14,14 @@
 package org.eclipse.sparkplug.impl.exception.json;
 
 import java.io.IOException;
-import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
+import org.eclipse.sparkplug.impl.exception.SparkplugErrorCode;
 import org.eclipse.sparkplug.impl.exception.SparkplugException;
+import org.eclipse.sparkplug.impl.exception.model.ColumnarDataSet;
 import org.eclipse.sparkplug.impl.exception.model.DataSet;
 import org.eclipse.sparkplug.impl.exception.model.DataSetDataType;
-import org.eclipse.sparkplug.impl.exception.model.Row;
-import org.eclipse.sparkplug.impl.exception.model.Value;
-import org.eclipse.sparkplug.impl.exception.model.DataSet.DataSetBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,7 +32,8 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 
 /**
- * A JSON deserializer for {@link DataSet} instances.
+ * A JSON deserializer for {@link DataSet} instances, which reads the rows straight into the columns of a
+ * {@link ColumnarDataSet}.
  */
 public class DataSetDeserializer extends StdDeserializer<DataSet> {
 
@@ -46,6 +44,13 @@ public class DataSetDeserializer extends StdDeserializer<DataSet> {
 	private static final String FIELD_NAMES = "columnNames";
 	private static final String FIELD_ROWS = "rows";
 
+	/**
+	 * Constructor, for {@link com.fasterxml.jackson.databind.annotation.JsonDeserialize}.
+	 */
+	public DataSetDeserializer() {
+		this(DataSet.class);
+	}
+
 	/**
 	 * Constructor.
 	 * 
@@ -59,12 +64,12 @@ public class DataSetDeserializer extends StdDeserializer<DataSet> {
 	public DataSet deserialize(JsonParser parser, DeserializationContext context)
 			throws IOException, JsonProcessingException {
 		JsonNode node = parser.getCodec().readTree(parser);
-		long size = (Long) node.get(FIELD_SIZE).numberValue();
-		DataSetBuilder builder = new DataSetBuilder(size);
+		long size = node.get(FIELD_SIZE).asLong();
+		List<String> namesList = new ArrayList<String>();
 		JsonNode namesNode = node.get(FIELD_NAMES);
 		if (namesNode.isArray()) {
 			for (JsonNode nameNode : namesNode) {
-				builder.addColumnName(nameNode.textValue());
+				namesList.add(nameNode.textValue());
 			}
 		}
 		JsonNode typesNode = node.get(FIELD_TYPES);
@@ -73,22 +78,28 @@ public class DataSetDeserializer extends StdDeserializer<DataSet> {
 			for (JsonNode typeNode : typesNode) {
 				typesList.add(DataSetDataType.valueOf(typeNode.textValue()));
 			}
-			builder.addTypes(typesList);
 		}
 		JsonNode rowsNode = node.get(FIELD_ROWS);
-		if (rowsNode.isArray()) {
-			for (JsonNode rowNode : rowsNode) {
-				List<Value<?>> values = new ArrayList<Value<?>>();
-				for (int i = 0; i < size; i++) {
-					JsonNode value = rowNode.get(i);
-					DataSetDataType type = typesList.get(i);
-					values.add(getValueFromNode(value, type));
+		try {
+			if (size != typesList.size()) {
+				throw new SparkplugException(SparkplugErrorCode.INVALID_ARGUMENT, "Invalid number of columns in data "
+						+ "set types: " + typesList.size() + " vs expected " + size);
+			}
+			ColumnarDataSet dataSet = new ColumnarDataSet(namesList, typesList,
+					rowsNode != null && rowsNode.isArray() ? rowsNode.size() : 0);
+			if (rowsNode != null && rowsNode.isArray()) {
+				for (JsonNode rowNode : rowsNode) {
+					if (rowNode.size() != size) {
+						throw new SparkplugException(SparkplugErrorCode.INVALID_ARGUMENT, "Invalid number of columns "
+								+ "in data set row: " + rowNode.size() + " vs expected " + size);
+					}
+					int row = dataSet.addRow();
+					for (int column = 0; column < size; column++) {
+						setCellFromNode(dataSet, row, column, rowNode.get(column), typesList.get(column));
+					}
 				}
-				builder.addRow(new Row(values));
 			}
-		}
-		try {
-			return builder.createDataSet();
+			return dataSet;
 		} catch (SparkplugException e) {
 			logger.error("Error deserializing DataSet ", e);
 		}
@@ -96,35 +107,46 @@ public class DataSetDeserializer extends StdDeserializer<DataSet> {
 	}
 
 	/*
-	 * Creates and returns a Value instance
+	 * Sets a cell straight into its column, leaving it null for a null node
 	 */
-	private Value<?> getValueFromNode(JsonNode nodeValue, DataSetDataType type) {
+	private void setCellFromNode(ColumnarDataSet dataSet, int row, int column, JsonNode nodeValue,
+			DataSetDataType type) throws SparkplugException {
+		if (nodeValue == null || nodeValue.isNull()) {
+			return;
+		}
 		switch (type) {
 			case Boolean:
-				return new Value<Boolean>(type, (boolean) nodeValue.asBoolean());
-			case DateTime:
-				return new Value<Date>(type, new Date(nodeValue.asLong()));
+				dataSet.setBoolean(row, column, nodeValue.asBoolean());
+				break;
 			case Double:
-				return new Value<Double>(type, nodeValue.asDouble());
+				dataSet.setDouble(row, column, nodeValue.asDouble());
+				break;
 			case Float:
-				return new Value<Float>(type, (float) nodeValue.asDouble());
+				dataSet.setFloat(row, column, (float) nodeValue.asDouble());
+				break;
+			case Int8:
 			case Int16:
+			case Int32:
+			case Int64:
 			case UInt8:
-				return new Value<Byte>(type, (byte) nodeValue.asInt());
 			case UInt16:
-			case Int32:
-				return new Value<Integer>(type, nodeValue.asInt());
 			case UInt32:
-			case Int64:
-				return new Value<Long>(type, (long) nodeValue.asLong());
+			case DateTime:
+				dataSet.setLong(row, column, nodeValue.asLong());
+				break;
+			case UInt64:
+				// the 64 bits of values beyond the range of a long
+				dataSet.setLong(row, column,
+						nodeValue.isBigInteger() ? nodeValue.bigIntegerValue().longValue() : nodeValue.asLong());
+				break;
 			case Text:
 			case String:
-				return new Value<String>(type, nodeValue.asText());
-			case UInt64:
-				return new Value<BigInteger>(type, BigInteger.valueOf(nodeValue.asLong()));
+				dataSet.setString(row, column, nodeValue.asText());
+				break;
 			case Unknown:
 			default:
-				return null;
+				throw new SparkplugException(SparkplugErrorCode.INVALID_ARGUMENT,
+						"Unsupported data set column type: " + type);
 		}
 	}
 }
@@ -0,0 +1,44 @@
+/********************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.eclipse.sparkplug.impl.exception.message;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.sparkplug.impl.exception.SparkplugParsingException;
+
+/**
+ * An interface for decoding payloads.
+ *
+ * @param <P> the type of payload.
+ */
+public interface PayloadDecoder<P> {
+
+	/**
+	 * Builds a payload from a byte array.
+	 *
+	 * @param bytes the bytes representing the payload
+	 * @return a payload object built from the byte array
+	 * @throws SparkplugParsingException
+	 */
+	public P buildFromByteArray(byte[] bytes) throws SparkplugParsingException;
+
+	/**
+	 * Builds a payload from the bytes between the position and the limit of a buffer, which are left unchanged.
+	 *
+	 * @param buffer the buffer holding the payload
+	 * @return a payload object built from the buffer
+	 * @throws SparkplugParsingException
+	 */
+	public P buildFromByteBuffer(ByteBuffer buffer) throws SparkplugParsingException;
+}
@@ -0,0 +1,483 @@
+/********************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.eclipse.sparkplug.impl.exception.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload;
+import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload.Metric;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * A read-only view of a Sparkplug B payload, read straight from the publish buffer.
+ *
+ * Creating a view walks the top level fields of the payload once, keeping the timestamp and seq and noting where each
+ * metric lies in the buffer, but skipping over the metrics themselves. The name, alias, timestamp and datatype of the
+ * metrics are read the first time one of them is asked for, again skipping over the values, properties, datasets and
+ * templates. Only {@link #getMetric(int)}, {@link #metrics()} and {@link #toPayload()} build protobuf objects, and
+ * once {@link #toPayload()} has decoded the whole payload the other two hand back its metrics rather than decoding
+ * them again.
+ *
+ * So a check which needs only the seq, the timestamp or the metric names costs a scan of the buffer, rather than
+ * building the whole Payload object tree.
+ *
+ * The buffer is not copied if it is backed by an accessible array or is direct. The read-only heap buffers which
+ * HiveMQ hands out are neither, so those are read through a small stream buffer instead.
+ */
+public class PayloadView {
+
+	private static final int STREAM_BUFFER_SIZE = 256;
+
+	private static final int PAYLOAD_TIMESTAMP = Payload.TIMESTAMP_FIELD_NUMBER;
+	private static final int PAYLOAD_METRICS = Payload.METRICS_FIELD_NUMBER;
+	private static final int PAYLOAD_SEQ = Payload.SEQ_FIELD_NUMBER;
+	private static final int PAYLOAD_UUID = Payload.UUID_FIELD_NUMBER;
+	private static final int PAYLOAD_BODY = Payload.BODY_FIELD_NUMBER;
+
+	private static final int METRIC_NAME = Metric.NAME_FIELD_NUMBER;
+	private static final int METRIC_ALIAS = Metric.ALIAS_FIELD_NUMBER;
+	private static final int METRIC_TIMESTAMP = Metric.TIMESTAMP_FIELD_NUMBER;
+	private static final int METRIC_DATATYPE = Metric.DATATYPE_FIELD_NUMBER;
+
+	// which of the header fields a metric has
+	private static final byte HAS_NAME = 1;
+	private static final byte HAS_ALIAS = 2;
+	private static final byte HAS_TIMESTAMP = 4;
+	private static final byte HAS_DATATYPE = 8;
+
+	private final @NotNull ByteBuffer buffer;
+	private final int size;
+
+	private final boolean hasTimestamp;
+	private final long timestamp;
+	private final boolean hasSeq;
+	private final long seq;
+	private final @Nullable String uuid;
+	private final int bodyStart;
+	private final int bodyLength;
+
+	// the offset and length in the buffer of each metric
+	private final @NotNull int[] metricStarts;
+	private final @NotNull int[] metricLengths;
+
+	// the metric headers, read on first use
+	private @Nullable byte[] metricFlags = null;
+	private @Nullable String[] metricNames;
+	private @Nullable long[] metricAliases;
+	private @Nullable long[] metricTimestamps;
+	private @Nullable int[] metricDatatypes;
+
+	// the whole payload, kept once it has been decoded
+	private @Nullable Payload payload = null;
+
+	private PayloadView(final @NotNull ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		this.size = buffer.remaining();
+
+		boolean hasTimestamp = false;
+		long timestamp = 0;
+		boolean hasSeq = false;
+		long seq = 0;
+		String uuid = null;
+		int bodyStart = -1;
+		int bodyLength = 0;
+		int[] starts = new int[8];
+		int[] lengths = new int[8];
+		int count = 0;
+
+		final CodedInputStream in = input(buffer, 0, buffer.remaining());
+		int tag;
+		while ((tag = in.readTag()) != 0) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+				case PAYLOAD_TIMESTAMP:
+					if (!isVarint(tag)) {
+						in.skipField(tag);
+						break;
+					}
+					timestamp = in.readUInt64();
+					hasTimestamp = true;
+					break;
+				case PAYLOAD_SEQ:
+					if (!isVarint(tag)) {
+						in.skipField(tag);
+						break;
+					}
+					seq = in.readUInt64();
+					hasSeq = true;
+					break;
+				case PAYLOAD_UUID:
+					if (!isLengthDelimited(tag)) {
+						in.skipField(tag);
+						break;
+					}
+					uuid = in.readString();
+					break;
+				case PAYLOAD_METRICS:
+					if (!isLengthDelimited(tag)) {
+						in.skipField(tag);
+						break;
+					}
+					final int length = in.readRawVarint32();
+					if (count == starts.length) {
+						starts = Arrays.copyOf(starts, count * 2);
+						lengths = Arrays.copyOf(lengths, count * 2);
+					}
+					starts[count] = in.getTotalBytesRead();
+					lengths[count++] = length;
+					in.skipRawBytes(length);
+					break;
+				case PAYLOAD_BODY:
+					if (!isLengthDelimited(tag)) {
+						in.skipField(tag);
+						break;
+					}
+					bodyLength = in.readRawVarint32();
+					bodyStart = in.getTotalBytesRead();
+					in.skipRawBytes(bodyLength);
+					break;
+				default:
+					in.skipField(tag);
+			}
+		}
+
+		this.hasTimestamp = hasTimestamp;
+		this.timestamp = timestamp;
+		this.hasSeq = hasSeq;
+		this.seq = seq;
+		this.uuid = uuid;
+		this.bodyStart = bodyStart;
+		this.bodyLength = bodyLength;
+		metricStarts = Arrays.copyOf(starts, count);
+		metricLengths = Arrays.copyOf(lengths, count);
+	}
+
+	/**
+	 * View a payload. The buffer is read from its position to its limit, and neither is changed.
+	 *
+	 * @throws InvalidProtocolBufferException if the top level of the payload is not valid protobuf
+	 */
+	public static @NotNull PayloadView of(final @NotNull ByteBuffer payload) throws InvalidProtocolBufferException {
+		try {
+			return new PayloadView(payload.slice());
+		} catch (InvalidProtocolBufferException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new InvalidProtocolBufferException(e);
+		}
+	}
+
+	/**
+	 * A protobuf input over part of a buffer, without copying the buffer where protobuf can avoid it.
+	 */
+	public static @NotNull CodedInputStream input(final @NotNull ByteBuffer buffer, final int offset,
+			final int length) {
+		if (buffer.hasArray()) {
+			return CodedInputStream.newInstance(buffer.array(), buffer.arrayOffset() + buffer.position() + offset,
+					length);
+		}
+		final ByteBuffer part = buffer.duplicate();
+		part.position(buffer.position() + offset).limit(buffer.position() + offset + length);
+		if (part.isDirect()) {
+			return CodedInputStream.newInstance(part);
+		}
+		return CodedInputStream.newInstance(new ByteBufferInputStream(part), STREAM_BUFFER_SIZE);
+	}
+
+	private static boolean isVarint(final int tag) {
+		return WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_VARINT;
+	}
+
+	private static boolean isLengthDelimited(final int tag) {
+		return WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED;
+	}
+
+	/**
+	 * @return the size of the encoded payload in bytes
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	public boolean hasTimestamp() {
+		return hasTimestamp;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public boolean hasSeq() {
+		return hasSeq;
+	}
+
+	public long getSeq() {
+		return seq;
+	}
+
+	public boolean hasUuid() {
+		return uuid != null;
+	}
+
+	public @Nullable String getUuid() {
+		return uuid;
+	}
+
+	public boolean hasBody() {
+		return bodyStart >= 0;
+	}
+
+	/**
+	 * @return a copy of the body, or null if there is none
+	 */
+	public @Nullable byte[] getBody() {
+		if (bodyStart < 0) {
+			return null;
+		}
+		final byte[] body = new byte[bodyLength];
+		final ByteBuffer part = buffer.duplicate();
+		part.position(buffer.position() + bodyStart);
+		part.get(body);
+		return body;
+	}
+
+	public int getMetricCount() {
+		return metricStarts.length;
+	}
+
+	public boolean hasMetricName(final int index) {
+		return (headers()[index] & HAS_NAME) != 0;
+	}
+
+	/**
+	 * @return the name of a metric, or null if it has none
+	 */
+	public @Nullable String getMetricName(final int index) {
+		headers();
+		return metricNames[index];
+	}
+
+	public boolean hasMetricAlias(final int index) {
+		return (headers()[index] & HAS_ALIAS) != 0;
+	}
+
+	public long getMetricAlias(final int index) {
+		headers();
+		return metricAliases[index];
+	}
+
+	public boolean hasMetricTimestamp(final int index) {
+		return (headers()[index] & HAS_TIMESTAMP) != 0;
+	}
+
+	public long getMetricTimestamp(final int index) {
+		headers();
+		return metricTimestamps[index];
+	}
+
+	public boolean hasMetricDatatype(final int index) {
+		return (headers()[index] & HAS_DATATYPE) != 0;
+	}
+
+	public int getMetricDatatype(final int index) {
+		headers();
+		return metricDatatypes[index];
+	}
+
+	/**
+	 * @return one metric, fully decoded
+	 */
+	public @NotNull Metric getMetric(final int index) throws InvalidProtocolBufferException {
+		final Payload decoded = decoded();
+		if (decoded != null) {
+			return decoded.getMetrics(index);
+		}
+		try {
+			return Metric.parseFrom(input(buffer, metricStarts[index], metricLengths[index]));
+		} catch (InvalidProtocolBufferException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new InvalidProtocolBufferException(e);
+		}
+	}
+
+	/**
+	 * Decode one metric into a builder, so that a caller decoding many metrics can clear and reuse the one builder.
+	 */
+	public void mergeMetric(final int index, final @NotNull Metric.Builder builder)
+			throws InvalidProtocolBufferException {
+		final Payload decoded = decoded();
+		if (decoded != null) {
+			builder.mergeFrom(decoded.getMetrics(index));
+			return;
+		}
+		try {
+			builder.mergeFrom(input(buffer, metricStarts[index], metricLengths[index]));
+		} catch (InvalidProtocolBufferException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new InvalidProtocolBufferException(e);
+		}
+	}
+
+	/**
+	 * The metrics in order. If the whole payload has been decoded these are its metrics, otherwise each is decoded
+	 * only when the iteration reaches it and not kept by the view, so that checking every metric of a birth or a
+	 * historical batch needs no more than one decoded metric at a time.
+	 *
+	 * The iterator's next method throws UncheckedIOException if a metric is not valid protobuf, which it can't once
+	 * {@link #toPayload()} has returned.
+	 */
+	public @NotNull Iterable<Metric> metrics() {
+		final Payload decoded = decoded();
+		if (decoded != null) {
+			return decoded.getMetricsList();
+		}
+		return () -> new Iterator<>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < metricStarts.length;
+			}
+
+			@Override
+			public Metric next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				try {
+					return getMetric(next++);
+				} catch (InvalidProtocolBufferException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * @return the whole payload, fully decoded the first time it is asked for and then kept
+	 */
+	public synchronized @NotNull Payload toPayload() throws InvalidProtocolBufferException {
+		if (payload == null) {
+			try {
+				payload = Payload.parseFrom(input(buffer, 0, buffer.remaining()));
+			} catch (InvalidProtocolBufferException e) {
+				throw e;
+			} catch (IOException e) {
+				throw new InvalidProtocolBufferException(e);
+			}
+		}
+		return payload;
+	}
+
+	private synchronized @Nullable Payload decoded() {
+		return payload;
+	}
+
+	private synchronized @NotNull byte[] headers() {
+		if (metricFlags != null) {
+			return metricFlags;
+		}
+		final int count = metricStarts.length;
+		final byte[] flags = new byte[count];
+		metricNames = new String[count];
+		metricAliases = new long[count];
+		metricTimestamps = new long[count];
+		metricDatatypes = new int[count];
+		for (int i = 0; i < count; ++i) {
+			try {
+				flags[i] = readHeader(i);
+			} catch (IOException e) {
+				// a malformed metric just has no header fields, the full decode will report it
+				flags[i] = 0;
+			}
+		}
+		metricFlags = flags;
+		return flags;
+	}
+
+	private byte readHeader(final int index) throws IOException {
+		byte flags = 0;
+		final CodedInputStream in = input(buffer, metricStarts[index], metricLengths[index]);
+		int tag;
+		while ((tag = in.readTag()) != 0) {
+			final int field = WireFormat.getTagFieldNumber(tag);
+			if (field == METRIC_NAME && isLengthDelimited(tag)) {
+				metricNames[index] = in.readString();
+				flags |= HAS_NAME;
+			} else if (field == METRIC_ALIAS && isVarint(tag)) {
+				metricAliases[index] = in.readUInt64();
+				flags |= HAS_ALIAS;
+			} else if (field == METRIC_TIMESTAMP && isVarint(tag)) {
+				metricTimestamps[index] = in.readUInt64();
+				flags |= HAS_TIMESTAMP;
+			} else if (field == METRIC_DATATYPE && isVarint(tag)) {
+				metricDatatypes[index] = in.readUInt32();
+				flags |= HAS_DATATYPE;
+			} else {
+				in.skipField(tag);
+			}
+		}
+		return flags;
+	}
+
+	/*
+	 * Reads a buffer which has no accessible array, such as a read-only heap buffer, without copying all of it.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+		private final @NotNull ByteBuffer buffer;
+
+		ByteBufferInputStream(final @NotNull ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset, final int length) {
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			final int n = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, n);
+			return n;
+		}
+
+		@Override
+		public long skip(final long n) {
+			final int skipped = (int) Math.min(n, buffer.remaining());
+			buffer.position(buffer.position() + skipped);
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
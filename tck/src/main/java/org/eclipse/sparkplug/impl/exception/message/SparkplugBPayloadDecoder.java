@@ -0,0 +1,566 @@
+/********************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.eclipse.sparkplug.impl.exception.message;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.sparkplug.impl.exception.SparkplugException;
+import org.eclipse.sparkplug.impl.exception.SparkplugParsingException;
+import org.eclipse.sparkplug.impl.exception.model.ColumnarDataSet;
+import org.eclipse.sparkplug.impl.exception.model.DataSet;
+import org.eclipse.sparkplug.impl.exception.model.DataSetDataType;
+import org.eclipse.sparkplug.impl.exception.model.File;
+import org.eclipse.sparkplug.impl.exception.model.MetaData;
+import org.eclipse.sparkplug.impl.exception.model.Metric;
+import org.eclipse.sparkplug.impl.exception.model.MetricDataType;
+import org.eclipse.sparkplug.impl.exception.model.Parameter;
+import org.eclipse.sparkplug.impl.exception.model.ParameterDataType;
+import org.eclipse.sparkplug.impl.exception.model.PrimitiveValues;
+import org.eclipse.sparkplug.impl.exception.model.PropertyDataType;
+import org.eclipse.sparkplug.impl.exception.model.PropertySet;
+import org.eclipse.sparkplug.impl.exception.model.PropertyValue;
+import org.eclipse.sparkplug.impl.exception.model.Row;
+import org.eclipse.sparkplug.impl.exception.model.SparkplugBPayload;
+import org.eclipse.sparkplug.impl.exception.model.Template;
+import org.eclipse.sparkplug.impl.exception.model.Value;
+import org.eclipse.sparkplug.tck.test.common.SparkplugBProto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * A {@link PayloadDecoder} implementation for decoding Sparkplug B payloads into the model classes.
+ *
+ * The payload is read through a {@link PayloadView}, so the top level fields are taken straight from the buffer and
+ * each metric is decoded on its own into a protobuf builder which is cleared and reused for the next one. Each thread
+ * using the decoder has its own builder, so one decoder can be shared and kept for the life of the application.
+ *
+ * Metric metadata and property sets are only converted if asked for. The value of a File metric is still built from
+ * the file name in its metadata. Payloads with at least the parallel threshold number of metrics have their metrics
+ * converted on the common fork-join pool, keeping their order.
+ */
+public class SparkplugBPayloadDecoder implements PayloadDecoder<SparkplugBPayload> {
+
+	private static final Logger logger = LoggerFactory.getLogger(SparkplugBPayloadDecoder.class.getName());
+
+	private final boolean decodeMetaData;
+	private final boolean decodeProperties;
+	private final int parallelThreshold;
+
+	// the reusable decoding context of each thread
+	private final ThreadLocal<SparkplugBProto.Payload.Metric.Builder> metricBuilders =
+			ThreadLocal.withInitial(SparkplugBProto.Payload.Metric::newBuilder);
+
+	/**
+	 * A decoder which converts everything, on the calling thread.
+	 */
+	public SparkplugBPayloadDecoder() {
+		this(true, true, 0);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param decodeMetaData whether to convert the metadata of metrics
+	 * @param decodeProperties whether to convert the property sets of metrics
+	 * @param parallelThreshold the number of metrics from which they are converted in parallel, or 0 never to
+	 */
+	public SparkplugBPayloadDecoder(boolean decodeMetaData, boolean decodeProperties, int parallelThreshold) {
+		super();
+		this.decodeMetaData = decodeMetaData;
+		this.decodeProperties = decodeProperties;
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	@Override
+	public SparkplugBPayload buildFromByteArray(byte[] bytes) throws SparkplugParsingException {
+		return buildFromByteBuffer(ByteBuffer.wrap(bytes));
+	}
+
+	@Override
+	public SparkplugBPayload buildFromByteBuffer(ByteBuffer buffer) throws SparkplugParsingException {
+		try {
+			return buildFromView(PayloadView.of(buffer));
+		} catch (InvalidProtocolBufferException e) {
+			throw new SparkplugParsingException("Failed to parse payload", e);
+		}
+	}
+
+	/**
+	 * Builds a payload from a view which has already been made, such as the one held by a publish envelope.
+	 */
+	public SparkplugBPayload buildFromView(PayloadView view) throws SparkplugParsingException {
+		SparkplugBPayload payload = new SparkplugBPayload();
+		if (view.hasTimestamp()) {
+			payload.setTimestamp(new Date(view.getTimestamp()));
+		}
+		if (view.hasSeq()) {
+			payload.setSeq(view.getSeq());
+		}
+		if (view.hasUuid()) {
+			payload.setUuid(view.getUuid());
+		}
+		if (view.hasBody()) {
+			payload.setBody(view.getBody());
+		}
+
+		int count = view.getMetricCount();
+		if (parallelThreshold > 0 && count >= parallelThreshold) {
+			try {
+				payload.setMetrics(IntStream.range(0, count).parallel().mapToObj(i -> {
+					try {
+						return convertMetric(view, i);
+					} catch (SparkplugParsingException e) {
+						throw new ConversionFailure(e);
+					}
+				}).collect(Collectors.toCollection(() -> new ArrayList<>(count))));
+			} catch (ConversionFailure e) {
+				throw e.getCause();
+			}
+		} else {
+			List<Metric> metrics = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				metrics.add(convertMetric(view, i));
+			}
+			payload.setMetrics(metrics);
+		}
+		return payload;
+	}
+
+	private Metric convertMetric(PayloadView view, int index) throws SparkplugParsingException {
+		SparkplugBProto.Payload.Metric.Builder builder = metricBuilders.get();
+		builder.clear();
+		try {
+			view.mergeMetric(index, builder);
+			return convertMetric(builder);
+		} catch (InvalidProtocolBufferException e) {
+			throw new SparkplugParsingException("Failed to parse metric " + index, e);
+		} catch (SparkplugParsingException e) {
+			throw e;
+		} catch (SparkplugException e) {
+			throw new SparkplugParsingException("Failed to convert metric " + index, e);
+		}
+	}
+
+	private Metric convertMetric(SparkplugBProto.Payload.MetricOrBuilder protoMetric) throws SparkplugException {
+		MetricDataType dataType = MetricDataType.fromInteger(protoMetric.getDatatype());
+
+		boolean hasValue = !protoMetric.getIsNull()
+				&& protoMetric.getValueCase() != SparkplugBProto.Payload.Metric.ValueCase.VALUE_NOT_SET;
+		// values of the basic types are set unboxed once the metric is made
+		boolean primitive = hasValue && PrimitiveValues.isPrimitive(dataType.toIntValue());
+		Object value = null;
+		if (hasValue && !primitive) {
+			value = getMetricValue(protoMetric, dataType);
+		}
+
+		MetaData metaData = null;
+		if (decodeMetaData && protoMetric.hasMetadata()) {
+			metaData = convertMetaData(protoMetric.getMetadata());
+		}
+
+		PropertySet properties = null;
+		if (decodeProperties && protoMetric.hasProperties()) {
+			properties = convertPropertySet(protoMetric.getProperties());
+		}
+
+		Metric metric = new Metric(protoMetric.hasName() ? protoMetric.getName() : null,
+				protoMetric.hasAlias() ? protoMetric.getAlias() : null,
+				protoMetric.hasTimestamp() ? new Date(protoMetric.getTimestamp()) : null, dataType,
+				protoMetric.hasIsHistorical() ? protoMetric.getIsHistorical() : null,
+				protoMetric.hasIsTransient() ? protoMetric.getIsTransient() : null, metaData, properties, value);
+		if (primitive) {
+			switch (dataType) {
+				case Float:
+					metric.setFloatValue(protoMetric.getFloatValue());
+					break;
+				case Double:
+					metric.setDoubleValue(protoMetric.getDoubleValue());
+					break;
+				case Boolean:
+					metric.setBooleanValue(protoMetric.getBooleanValue());
+					break;
+				default:
+					metric.setLongValue(getIntegerValue(dataType.toIntValue(), protoMetric.hasIntValue(),
+							protoMetric.getIntValue(), protoMetric.getLongValue()));
+			}
+		}
+		return metric;
+	}
+
+	private Object getMetricValue(SparkplugBProto.Payload.MetricOrBuilder protoMetric, MetricDataType dataType)
+			throws SparkplugException {
+		switch (dataType) {
+			case UUID:
+				return protoMetric.getStringValue();
+			case Bytes:
+				return protoMetric.getBytesValue().toByteArray();
+			case File:
+				String fileName = protoMetric.hasMetadata() ? protoMetric.getMetadata().getFileName() : null;
+				return new File(fileName, protoMetric.getBytesValue().toByteArray());
+			case DataSet:
+				return convertDataSet(protoMetric.getDatasetValue());
+			case Template:
+				return convertTemplate(protoMetric.getTemplateValue());
+			case Int8Array:
+			case Int16Array:
+			case Int32Array:
+			case Int64Array:
+			case UInt8Array:
+			case UInt16Array:
+			case UInt32Array:
+			case UInt64Array:
+			case FloatArray:
+			case DoubleArray:
+			case BooleanArray:
+			case StringArray:
+			case DateTimeArray:
+				return convertArray(protoMetric.getBytesValue(), dataType);
+			case Unknown:
+				logger.error("Unknown MetricDataType: " + protoMetric.getDatatype());
+				throw new SparkplugParsingException("Failed to decode metric datatype " + protoMetric.getDatatype());
+			default:
+				return getScalarValue(dataType.toIntValue(), protoMetric.hasIntValue(), protoMetric.getIntValue(),
+						protoMetric.getLongValue(), protoMetric.getFloatValue(), protoMetric.getDoubleValue(),
+						protoMetric.getBooleanValue(), protoMetric.getStringValue());
+		}
+	}
+
+	/*
+	 * The basic types have the same numbers in metrics, parameters, properties and datasets. Unsigned and narrower
+	 * integers may have been sent in either the int or the long field.
+	 */
+	private Object getScalarValue(int type, boolean hasIntValue, int intValue, long longValue, float floatValue,
+			double doubleValue, boolean booleanValue, String stringValue) throws SparkplugParsingException {
+		switch (type) {
+			case PrimitiveValues.FLOAT:
+				return floatValue;
+			case PrimitiveValues.DOUBLE:
+				return doubleValue;
+			case PrimitiveValues.BOOLEAN:
+				return booleanValue;
+			case 12: // String
+			case 14: // Text
+				return stringValue;
+			default:
+				if (!PrimitiveValues.isPrimitive(type)) {
+					logger.error("Unknown scalar type: " + type);
+					throw new SparkplugParsingException("Failed to decode value of type " + type);
+				}
+				return PrimitiveValues.box(type, getIntegerValue(type, hasIntValue, intValue, longValue));
+		}
+	}
+
+	/*
+	 * Narrows an integer to its type, as held by PrimitiveValues.
+	 */
+	private long getIntegerValue(int type, boolean hasIntValue, int intValue, long longValue) {
+		long integer = hasIntValue ? Integer.toUnsignedLong(intValue) : longValue;
+		switch (type) {
+			case PrimitiveValues.INT8:
+				return (byte) integer;
+			case PrimitiveValues.INT16:
+				return (short) integer;
+			case PrimitiveValues.INT32:
+				return (int) integer;
+			case PrimitiveValues.UINT8:
+				return integer & 0xff;
+			case PrimitiveValues.UINT16:
+				return integer & 0xffff;
+			case PrimitiveValues.UINT32:
+				return integer & 0xffffffffL;
+			default:
+				return integer;
+		}
+	}
+
+	private Object convertArray(ByteString bytes, MetricDataType dataType) throws SparkplugParsingException {
+		ByteBuffer buffer = bytes.asReadOnlyByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+		switch (dataType) {
+			case Int8Array:
+				Byte[] int8Array = new Byte[buffer.remaining()];
+				for (int i = 0; i < int8Array.length; i++) {
+					int8Array[i] = buffer.get();
+				}
+				return int8Array;
+			case Int16Array:
+				Short[] int16Array = new Short[buffer.remaining() / 2];
+				for (int i = 0; i < int16Array.length; i++) {
+					int16Array[i] = buffer.getShort();
+				}
+				return int16Array;
+			case Int32Array:
+				Integer[] int32Array = new Integer[buffer.remaining() / 4];
+				for (int i = 0; i < int32Array.length; i++) {
+					int32Array[i] = buffer.getInt();
+				}
+				return int32Array;
+			case Int64Array:
+				Long[] int64Array = new Long[buffer.remaining() / 8];
+				for (int i = 0; i < int64Array.length; i++) {
+					int64Array[i] = buffer.getLong();
+				}
+				return int64Array;
+			case UInt8Array:
+				Short[] uInt8Array = new Short[buffer.remaining()];
+				for (int i = 0; i < uInt8Array.length; i++) {
+					uInt8Array[i] = (short) Byte.toUnsignedInt(buffer.get());
+				}
+				return uInt8Array;
+			case UInt16Array:
+				Integer[] uInt16Array = new Integer[buffer.remaining() / 2];
+				for (int i = 0; i < uInt16Array.length; i++) {
+					uInt16Array[i] = Short.toUnsignedInt(buffer.getShort());
+				}
+				return uInt16Array;
+			case UInt32Array:
+				Long[] uInt32Array = new Long[buffer.remaining() / 4];
+				for (int i = 0; i < uInt32Array.length; i++) {
+					uInt32Array[i] = Integer.toUnsignedLong(buffer.getInt());
+				}
+				return uInt32Array;
+			case UInt64Array:
+				BigInteger[] uInt64Array = new BigInteger[buffer.remaining() / 8];
+				for (int i = 0; i < uInt64Array.length; i++) {
+					uInt64Array[i] = new BigInteger(Long.toUnsignedString(buffer.getLong()));
+				}
+				return uInt64Array;
+			case FloatArray:
+				Float[] floatArray = new Float[buffer.remaining() / 4];
+				for (int i = 0; i < floatArray.length; i++) {
+					floatArray[i] = buffer.getFloat();
+				}
+				return floatArray;
+			case DoubleArray:
+				Double[] doubleArray = new Double[buffer.remaining() / 8];
+				for (int i = 0; i < doubleArray.length; i++) {
+					doubleArray[i] = buffer.getDouble();
+				}
+				return doubleArray;
+			case BooleanArray:
+				// The first 4 bytes is the number of booleans in the array, then the booleans packed high bit first
+				if (buffer.remaining() < 4) {
+					throw new SparkplugParsingException("Boolean array is too short");
+				}
+				int length = buffer.getInt();
+				if (length < 0 || (length + 7) / 8 > buffer.remaining()) {
+					throw new SparkplugParsingException("Boolean array length " + length + " is too long");
+				}
+				Boolean[] booleanArray = new Boolean[length];
+				int start = buffer.position();
+				for (int i = 0; i < length; i++) {
+					booleanArray[i] = (buffer.get(start + i / 8) & (128 >> (i % 8))) != 0;
+				}
+				return booleanArray;
+			case StringArray:
+				// Null terminated UTF-8 strings
+				byte[] stringBytes = bytes.toByteArray();
+				List<String> strings = new ArrayList<>();
+				int from = 0;
+				for (int i = 0; i < stringBytes.length; i++) {
+					if (stringBytes[i] == 0) {
+						strings.add(new String(stringBytes, from, i - from, StandardCharsets.UTF_8));
+						from = i + 1;
+					}
+				}
+				return strings.toArray(new String[0]);
+			case DateTimeArray:
+				Date[] dateTimeArray = new Date[buffer.remaining() / 8];
+				for (int i = 0; i < dateTimeArray.length; i++) {
+					dateTimeArray[i] = new Date(buffer.getLong());
+				}
+				return dateTimeArray;
+			default:
+				throw new SparkplugParsingException("Not an array type: " + dataType);
+		}
+	}
+
+	private DataSet convertDataSet(SparkplugBProto.Payload.DataSet protoDataSet) throws SparkplugException {
+		List<DataSetDataType> types = new ArrayList<>(protoDataSet.getTypesCount());
+		boolean columnar = protoDataSet.getColumnsCount() == protoDataSet.getTypesCount()
+				&& protoDataSet.getNumOfColumns() == protoDataSet.getTypesCount();
+		for (int type : protoDataSet.getTypesList()) {
+			DataSetDataType dataSetDataType = DataSetDataType.fromInteger(type);
+			columnar &= dataSetDataType != DataSetDataType.Unknown;
+			types.add(dataSetDataType);
+		}
+		for (SparkplugBProto.Payload.DataSet.Row protoRow : protoDataSet.getRowsList()) {
+			columnar &= protoRow.getElementsCount() == types.size();
+		}
+		if (columnar) {
+			return convertColumns(protoDataSet, types);
+		}
+
+		// A malformed data set is kept as it was sent, for the tests to report on
+
+		List<Row> rows = new ArrayList<>(protoDataSet.getRowsCount());
+		for (SparkplugBProto.Payload.DataSet.Row protoRow : protoDataSet.getRowsList()) {
+			List<Value<?>> values = new ArrayList<>(protoRow.getElementsCount());
+			for (int i = 0; i < protoRow.getElementsCount(); i++) {
+				DataSetDataType type = i < types.size() ? types.get(i) : DataSetDataType.Unknown;
+				values.add(convertDataSetValue(protoRow.getElements(i), type));
+			}
+			rows.add(new Row(values));
+		}
+
+		return new DataSet(protoDataSet.getNumOfColumns(), new ArrayList<>(protoDataSet.getColumnsList()), types,
+				rows);
+	}
+
+	private ColumnarDataSet convertColumns(SparkplugBProto.Payload.DataSet protoDataSet, List<DataSetDataType> types)
+			throws SparkplugException {
+		ColumnarDataSet dataSet =
+				new ColumnarDataSet(protoDataSet.getColumnsList(), types, protoDataSet.getRowsCount());
+		for (SparkplugBProto.Payload.DataSet.Row protoRow : protoDataSet.getRowsList()) {
+			int row = dataSet.addRow();
+			for (int column = 0; column < types.size(); column++) {
+				SparkplugBProto.Payload.DataSet.DataSetValue protoValue = protoRow.getElements(column);
+				if (protoValue
+						.getValueCase() == SparkplugBProto.Payload.DataSet.DataSetValue.ValueCase.VALUE_NOT_SET) {
+					continue;
+				}
+				int type = dataSet.getColumnType(column);
+				switch (type) {
+					case PrimitiveValues.FLOAT:
+						dataSet.setFloat(row, column, protoValue.getFloatValue());
+						break;
+					case PrimitiveValues.DOUBLE:
+						dataSet.setDouble(row, column, protoValue.getDoubleValue());
+						break;
+					case PrimitiveValues.BOOLEAN:
+						dataSet.setBoolean(row, column, protoValue.getBooleanValue());
+						break;
+					case 12: // String
+					case 14: // Text
+						dataSet.setString(row, column, protoValue.getStringValue());
+						break;
+					default:
+						dataSet.setLong(row, column, getIntegerValue(type, protoValue.hasIntValue(),
+								protoValue.getIntValue(), protoValue.getLongValue()));
+				}
+			}
+		}
+		return dataSet;
+	}
+
+	private Value<?> convertDataSetValue(SparkplugBProto.Payload.DataSet.DataSetValue protoValue,
+			DataSetDataType type) throws SparkplugException {
+		if (protoValue.getValueCase() == SparkplugBProto.Payload.DataSet.DataSetValue.ValueCase.VALUE_NOT_SET) {
+			return new Value<>(type, null);
+		}
+		Object value = getScalarValue(type.toIntValue(), protoValue.hasIntValue(), protoValue.getIntValue(),
+				protoValue.getLongValue(), protoValue.getFloatValue(), protoValue.getDoubleValue(),
+				protoValue.getBooleanValue(), protoValue.getStringValue());
+		type.checkType(value);
+		return new Value<>(type, value);
+	}
+
+	private Template convertTemplate(SparkplugBProto.Payload.Template protoTemplate) throws SparkplugException {
+		List<Metric> metrics = new ArrayList<>(protoTemplate.getMetricsCount());
+		for (SparkplugBProto.Payload.Metric protoMetric : protoTemplate.getMetricsList()) {
+			metrics.add(convertMetric(protoMetric));
+		}
+
+		List<Parameter> parameters = new ArrayList<>(protoTemplate.getParametersCount());
+		for (SparkplugBProto.Payload.Template.Parameter protoParameter : protoTemplate.getParametersList()) {
+			ParameterDataType type = ParameterDataType.fromInteger(protoParameter.getType());
+			Object value = null;
+			if (protoParameter
+					.getValueCase() != SparkplugBProto.Payload.Template.Parameter.ValueCase.VALUE_NOT_SET) {
+				value = getScalarValue(type.toIntValue(), protoParameter.hasIntValue(), protoParameter.getIntValue(),
+						protoParameter.getLongValue(), protoParameter.getFloatValue(),
+						protoParameter.getDoubleValue(), protoParameter.getBooleanValue(),
+						protoParameter.getStringValue());
+			}
+			parameters.add(new Parameter(protoParameter.getName(), type, value));
+		}
+
+		return new Template(protoTemplate.hasVersion() ? protoTemplate.getVersion() : null,
+				protoTemplate.hasTemplateRef() ? protoTemplate.getTemplateRef() : null,
+				protoTemplate.getIsDefinition(), metrics, parameters);
+	}
+
+	private MetaData convertMetaData(SparkplugBProto.Payload.MetaData protoMetaData) {
+		return new MetaData(protoMetaData.hasIsMultiPart() ? protoMetaData.getIsMultiPart() : null,
+				protoMetaData.hasContentType() ? protoMetaData.getContentType() : null,
+				protoMetaData.hasSize() ? protoMetaData.getSize() : null,
+				protoMetaData.hasSeq() ? protoMetaData.getSeq() : null,
+				protoMetaData.hasFileName() ? protoMetaData.getFileName() : null,
+				protoMetaData.hasFileType() ? protoMetaData.getFileType() : null,
+				protoMetaData.hasMd5() ? protoMetaData.getMd5() : null,
+				protoMetaData.hasDescription() ? protoMetaData.getDescription() : null);
+	}
+
+	private PropertySet convertPropertySet(SparkplugBProto.Payload.PropertySet protoPropertySet)
+			throws SparkplugException {
+		PropertySet propertySet = new PropertySet();
+		int count = Math.min(protoPropertySet.getKeysCount(), protoPropertySet.getValuesCount());
+		for (int i = 0; i < count; i++) {
+			SparkplugBProto.Payload.PropertyValue protoValue = protoPropertySet.getValues(i);
+			PropertyDataType type = PropertyDataType.fromInteger(protoValue.getType());
+			Object value = null;
+			if (!protoValue.getIsNull()) {
+				switch (type) {
+					case PropertySet:
+						value = convertPropertySet(protoValue.getPropertysetValue());
+						break;
+					case PropertySetList:
+						List<PropertySet> setList = new ArrayList<>();
+						for (SparkplugBProto.Payload.PropertySet protoSet : protoValue.getPropertysetsValue()
+								.getPropertysetList()) {
+							setList.add(convertPropertySet(protoSet));
+						}
+						value = setList;
+						break;
+					case Unknown:
+						logger.error("Unknown PropertyDataType: " + protoValue.getType());
+						throw new SparkplugParsingException("Failed to decode property type " + protoValue.getType());
+					default:
+						value = getScalarValue(type.toIntValue(), protoValue.hasIntValue(), protoValue.getIntValue(),
+								protoValue.getLongValue(), protoValue.getFloatValue(), protoValue.getDoubleValue(),
+								protoValue.getBooleanValue(), protoValue.getStringValue());
+				}
+			}
+			propertySet.put(protoPropertySet.getKeys(i), new PropertyValue(type, value));
+		}
+		return propertySet;
+	}
+
+	/*
+	 * Carries a conversion failure out of the parallel stream.
+	 */
+	private static class ConversionFailure extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		ConversionFailure(SparkplugParsingException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized SparkplugParsingException getCause() {
+			return (SparkplugParsingException) super.getCause();
+		}
+	}
+}
@@ -15,6 +15,7 @@ package org.eclipse.sparkplug.impl.exception.message;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
@@ -22,6 +23,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.eclipse.sparkplug.impl.exception.model.ColumnarDataSet;
 import org.eclipse.sparkplug.impl.exception.model.DataSet;
 import org.eclipse.sparkplug.impl.exception.model.DataSetDataType;
 import org.eclipse.sparkplug.impl.exception.model.File;
@@ -29,6 +31,7 @@ import org.eclipse.sparkplug.impl.exception.model.MetaData;
 import org.eclipse.sparkplug.impl.exception.model.Metric;
 import org.eclipse.sparkplug.impl.exception.model.Parameter;
 import org.eclipse.sparkplug.impl.exception.model.ParameterDataType;
+import org.eclipse.sparkplug.impl.exception.model.PrimitiveValues;
 import org.eclipse.sparkplug.impl.exception.model.PropertyDataType;
 import org.eclipse.sparkplug.impl.exception.model.PropertySet;
 import org.eclipse.sparkplug.impl.exception.model.PropertyValue;
@@ -41,19 +44,83 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
 
 /**
- * A {@link PayloadDecode} implementation for encoding Sparkplug B payloads.
+ * A {@link PayloadEncoder} implementation for encoding Sparkplug B payloads.
+ *
+ * By default {@link #getBytes} builds the protobuf message and serializes it. In direct mode, and always for
+ * {@link #encode(SparkplugBPayload, ByteBuffer)}, the wire format is written straight from the payload with no protobuf
+ * objects and no copies of the byte values, giving the same bytes.
  */
 public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayload> {
 
 	private static final Logger logger = LoggerFactory.getLogger(SparkplugBPayloadEncoder.class.getName());
 
+	// each thread reuses its own writer and the size table it has grown
+	private static final ThreadLocal<SparkplugBPayloadWriter> writers =
+			ThreadLocal.withInitial(SparkplugBPayloadWriter::new);
+
+	private final boolean direct;
+
 	public SparkplugBPayloadEncoder() {
+		this(false);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param direct whether {@link #getBytes} writes the wire format directly rather than through protobuf builders
+	 */
+	public SparkplugBPayloadEncoder(boolean direct) {
 		super();
+		this.direct = direct;
+	}
+
+	/**
+	 * Returns the number of bytes a payload encodes to.
+	 *
+	 * @param payload a payload object
+	 * @return the encoded size in bytes
+	 * @throws IOException
+	 */
+	public int getSerializedSize(SparkplugBPayload payload) throws IOException {
+		return writers.get().computeSize(payload);
+	}
+
+	/**
+	 * Writes a payload into a buffer, from its position. The buffer's position is moved past the payload.
+	 *
+	 * The returned buffer holds just the payload, between its position and limit, and shares the content of the buffer
+	 * passed in, so can be given to Builders.publish().payload(...) as it is. A direct buffer is written without any
+	 * intermediate array.
+	 *
+	 * @param payload a payload object
+	 * @param buffer the buffer to write into
+	 * @return a buffer holding the encoded payload
+	 * @throws IOException
+	 * @throws BufferOverflowException if the payload does not fit in the space remaining in the buffer
+	 */
+	public ByteBuffer encode(SparkplugBPayload payload, ByteBuffer buffer) throws IOException {
+		SparkplugBPayloadWriter writer = writers.get();
+		int size = writer.computeSize(payload);
+		if (size > buffer.remaining()) {
+			throw new BufferOverflowException();
+		}
+		ByteBuffer encoded = buffer.slice();
+		encoded.limit(size);
+		writer.write(payload, CodedOutputStream.newInstance(encoded.duplicate()));
+		buffer.position(buffer.position() + size);
+		return encoded;
 	}
 
 	public byte[] getBytes(SparkplugBPayload payload) throws IOException {
+		if (direct) {
+			SparkplugBPayloadWriter writer = writers.get();
+			byte[] bytes = new byte[writer.computeSize(payload)];
+			writer.write(payload, CodedOutputStream.newInstance(bytes));
+			return bytes;
+		}
 
 		SparkplugBProto.Payload.Builder protoMsg = SparkplugBProto.Payload.newBuilder();
 
@@ -209,7 +276,7 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 						builder.setIntValue((int) Integer.toUnsignedLong((Integer) value.getValue()));
 						break;
 					case UInt32:
-						builder.setLongValue(Long.parseUnsignedLong(Long.toUnsignedString((Long) value.getValue())));
+						builder.setLongValue((Long) value.getValue());
 						break;
 					case UInt64:
 						builder.setLongValue(bigIntegerToUnsignedLong((BigInteger) value.getValue()));
@@ -282,7 +349,7 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 					builder.setIntValue((int) Integer.toUnsignedLong((Integer) value));
 					break;
 				case UInt32:
-					builder.setLongValue(Long.valueOf(Long.toUnsignedString(((BigInteger) value).longValue())));
+					builder.setLongValue(((Number) value).longValue());
 					break;
 				case UInt64:
 					builder.setLongValue(bigIntegerToUnsignedLong((BigInteger) value));
@@ -307,7 +374,9 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 		// Set the data type
 		metricBuilder.setDatatype(metric.getDataType().toIntValue());
 
-		if (metric.getValue() == null) {
+		if (metric.hasPrimitiveValue()) {
+			setPrimitiveValue(metricBuilder, metric.getDataType().toIntValue(), metric.getValueBits());
+		} else if (metric.getValue() == null) {
 			metricBuilder.setIsNull(true);
 		} else {
 			switch (metric.getDataType()) {
@@ -349,7 +418,7 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 					metricBuilder.setIntValue((int) Integer.toUnsignedLong((Integer) metric.getValue()));
 					break;
 				case UInt32:
-					metricBuilder.setLongValue(Long.parseUnsignedLong(Long.toUnsignedString((Long) metric.getValue())));
+					metricBuilder.setLongValue((Long) metric.getValue());
 					break;
 				case UInt64:
 					metricBuilder.setLongValue(bigIntegerToUnsignedLong((BigInteger) metric.getValue()));
@@ -389,7 +458,9 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 
 					// Dataset rows
 					List<Row> rows = dataSet.getRows();
-					if (rows != null && !rows.isEmpty()) {
+					if (dataSet instanceof ColumnarDataSet) {
+						convertColumns((ColumnarDataSet) dataSet, dataSetBuilder);
+					} else if (rows != null && !rows.isEmpty()) {
 						for (Row row : rows) {
 							SparkplugBProto.Payload.DataSet.Row.Builder protoRowBuilder =
 									SparkplugBProto.Payload.DataSet.Row.newBuilder();
@@ -613,6 +684,28 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 		return metricBuilder;
 	}
 
+	private void setPrimitiveValue(SparkplugBProto.Payload.Metric.Builder metricBuilder, int type, long bits) {
+		switch (type) {
+			case PrimitiveValues.FLOAT:
+				metricBuilder.setFloatValue(Float.intBitsToFloat((int) bits));
+				break;
+			case PrimitiveValues.DOUBLE:
+				metricBuilder.setDoubleValue(Double.longBitsToDouble(bits));
+				break;
+			case PrimitiveValues.BOOLEAN:
+				metricBuilder.setBooleanValue(bits != 0);
+				break;
+			case PrimitiveValues.INT64:
+			case PrimitiveValues.UINT32:
+			case PrimitiveValues.UINT64:
+			case PrimitiveValues.DATETIME:
+				metricBuilder.setLongValue(bits);
+				break;
+			default:
+				metricBuilder.setIntValue((int) bits);
+		}
+	}
+
 	private SparkplugBProto.Payload.Metric.Builder setMetaData(SparkplugBProto.Payload.Metric.Builder metricBuilder,
 			Metric metric) throws Exception {
 		// If the builder has been built already - use it
@@ -650,6 +743,51 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 		return metricBuilder;
 	}
 
+	private void convertColumns(ColumnarDataSet dataSet, SparkplugBProto.Payload.DataSet.Builder dataSetBuilder) {
+		int columnCount = dataSet.getTypes().size();
+		if (columnCount == 0) {
+			return;
+		}
+		for (int row = 0; row < dataSet.getRowCount(); row++) {
+			SparkplugBProto.Payload.DataSet.Row.Builder protoRowBuilder =
+					SparkplugBProto.Payload.DataSet.Row.newBuilder();
+			for (int column = 0; column < columnCount; column++) {
+				SparkplugBProto.Payload.DataSet.DataSetValue.Builder protoValueBuilder =
+						protoRowBuilder.addElementsBuilder();
+				if (dataSet.isNull(row, column)) {
+					continue;
+				}
+				switch (dataSet.getColumnType(column)) {
+					case PrimitiveValues.FLOAT:
+						protoValueBuilder.setFloatValue(dataSet.getFloat(row, column));
+						break;
+					case PrimitiveValues.DOUBLE:
+						protoValueBuilder.setDoubleValue(dataSet.getDouble(row, column));
+						break;
+					case PrimitiveValues.BOOLEAN:
+						protoValueBuilder.setBooleanValue(dataSet.getBoolean(row, column));
+						break;
+					case PrimitiveValues.INT64:
+					case PrimitiveValues.UINT32:
+					case PrimitiveValues.UINT64:
+					case PrimitiveValues.DATETIME:
+						protoValueBuilder.setLongValue(dataSet.getLong(row, column));
+						break;
+					case PrimitiveValues.INT8:
+					case PrimitiveValues.INT16:
+					case PrimitiveValues.INT32:
+					case PrimitiveValues.UINT8:
+					case PrimitiveValues.UINT16:
+						protoValueBuilder.setIntValue(dataSet.getInt(row, column));
+						break;
+					default:
+						protoValueBuilder.setStringValue(dataSet.getString(row, column));
+				}
+			}
+			dataSetBuilder.addRows(protoRowBuilder);
+		}
+	}
+
 	private SparkplugBProto.Payload.DataSet.DataSetValue.Builder convertDataSetValue(Value<?> value) throws Exception {
 		SparkplugBProto.Payload.DataSet.DataSetValue.Builder protoValueBuilder =
 				SparkplugBProto.Payload.DataSet.DataSetValue.newBuilder();
@@ -698,7 +836,7 @@ public class SparkplugBPayloadEncoder implements PayloadEncoder<SparkplugBPayloa
 				if (value == null || value.getValue() == null) {
 					return protoValueBuilder;
 				}
-				protoValueBuilder.setLongValue(Long.parseUnsignedLong(Long.toUnsignedString((Long) value.getValue())));
+				protoValueBuilder.setLongValue((Long) value.getValue());
 				break;
 			case UInt64:
 				if (value == null || value.getValue() == null) {
@@ -0,0 +1,708 @@
+/********************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.eclipse.sparkplug.impl.exception.message;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.sparkplug.impl.exception.SparkplugInvalidTypeException;
+import org.eclipse.sparkplug.impl.exception.model.ColumnarDataSet;
+import org.eclipse.sparkplug.impl.exception.model.DataSet;
+import org.eclipse.sparkplug.impl.exception.model.DataSetDataType;
+import org.eclipse.sparkplug.impl.exception.model.File;
+import org.eclipse.sparkplug.impl.exception.model.MetaData;
+import org.eclipse.sparkplug.impl.exception.model.Metric;
+import org.eclipse.sparkplug.impl.exception.model.MetricDataType;
+import org.eclipse.sparkplug.impl.exception.model.Parameter;
+import org.eclipse.sparkplug.impl.exception.model.PrimitiveValues;
+import org.eclipse.sparkplug.impl.exception.model.PropertyDataType;
+import org.eclipse.sparkplug.impl.exception.model.PropertySet;
+import org.eclipse.sparkplug.impl.exception.model.PropertyValue;
+import org.eclipse.sparkplug.impl.exception.model.Row;
+import org.eclipse.sparkplug.impl.exception.model.SparkplugBPayload;
+import org.eclipse.sparkplug.impl.exception.model.Template;
+import org.eclipse.sparkplug.impl.exception.model.Value;
+import org.eclipse.sparkplug.tck.test.common.SparkplugBProto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Writes a {@link SparkplugBPayload} in the Sparkplug B wire format without building protobuf objects.
+ *
+ * The payload is walked twice by the same code: first with no output, to add up the size of every nested message, and
+ * then writing to a {@link CodedOutputStream}, taking the length prefix of each nested message from the sizes found
+ * the first time. Both walks meet the nested messages in the same order, so the sizes are kept in a flat array. The
+ * fields are written in field number order, as protobuf does, so the bytes are the same as those from the builders.
+ *
+ * An instance keeps its size array between payloads, so is not thread safe.
+ */
+class SparkplugBPayloadWriter {
+
+	private static final Logger logger = LoggerFactory.getLogger(SparkplugBPayloadWriter.class.getName());
+
+	private static final int LENGTH_DELIMITED = WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+	// the offsets of the value fields from the int value field, which is first
+	private static final int INT_VALUE = 0;
+	private static final int LONG_VALUE = 1;
+	private static final int FLOAT_VALUE = 2;
+	private static final int DOUBLE_VALUE = 3;
+	private static final int BOOLEAN_VALUE = 4;
+	private static final int STRING_VALUE = 5;
+
+	// the nested message sizes, in the order the messages are met
+	private int[] sizes = new int[64];
+	private int sizeCount = 0;
+	private int nextSize = 0;
+
+	// null while sizing
+	private CodedOutputStream out = null;
+	private int size = 0;
+
+	/**
+	 * Finds the encoded size of a payload, which must be called before each {@link #write}.
+	 */
+	int computeSize(SparkplugBPayload payload) throws IOException {
+		out = null;
+		size = 0;
+		sizeCount = 0;
+		try {
+			writePayload(payload);
+		} catch (SparkplugInvalidTypeException e) {
+			logger.error("Invalid value", e);
+			throw new IOException("Failed to encode", e);
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the payload last passed to {@link #computeSize}.
+	 */
+	void write(SparkplugBPayload payload, CodedOutputStream output) throws IOException {
+		out = output;
+		nextSize = 0;
+		try {
+			writePayload(payload);
+			out.flush();
+		} catch (SparkplugInvalidTypeException e) {
+			logger.error("Invalid value", e);
+			throw new IOException("Failed to encode", e);
+		} finally {
+			out = null;
+		}
+	}
+
+	private void writePayload(SparkplugBPayload payload) throws IOException, SparkplugInvalidTypeException {
+		if (payload.getTimestamp() != null) {
+			uint64(SparkplugBProto.Payload.TIMESTAMP_FIELD_NUMBER, payload.getTimestamp().getTime());
+		}
+		for (Metric metric : payload.getMetrics()) {
+			int place = beginMessage(SparkplugBProto.Payload.METRICS_FIELD_NUMBER);
+			writeMetric(metric);
+			endMessage(SparkplugBProto.Payload.METRICS_FIELD_NUMBER, place);
+		}
+		if (payload.getSeq() != null) {
+			uint64(SparkplugBProto.Payload.SEQ_FIELD_NUMBER, payload.getSeq());
+		}
+		if (payload.getUuid() != null) {
+			string(SparkplugBProto.Payload.UUID_FIELD_NUMBER, payload.getUuid());
+		}
+		if (payload.getBody() != null) {
+			bytes(SparkplugBProto.Payload.BODY_FIELD_NUMBER, payload.getBody());
+		}
+	}
+
+	private void writeMetric(Metric metric) throws IOException, SparkplugInvalidTypeException {
+		if (metric.hasName()) {
+			string(SparkplugBProto.Payload.Metric.NAME_FIELD_NUMBER, metric.getName());
+		}
+		if (metric.hasAlias()) {
+			uint64(SparkplugBProto.Payload.Metric.ALIAS_FIELD_NUMBER, metric.getAlias());
+		}
+		if (metric.getTimestamp() != null) {
+			uint64(SparkplugBProto.Payload.Metric.TIMESTAMP_FIELD_NUMBER, metric.getTimestamp().getTime());
+		}
+		uint32(SparkplugBProto.Payload.Metric.DATATYPE_FIELD_NUMBER, metric.getDataType().toIntValue());
+		if (metric.getIsHistorical() != null) {
+			bool(SparkplugBProto.Payload.Metric.IS_HISTORICAL_FIELD_NUMBER, metric.isHistorical());
+		}
+		if (metric.getIsTransient() != null) {
+			bool(SparkplugBProto.Payload.Metric.IS_TRANSIENT_FIELD_NUMBER, metric.isTransient());
+		}
+		boolean primitive = metric.hasPrimitiveValue();
+		if (metric.getIsNull() != null) {
+			bool(SparkplugBProto.Payload.Metric.IS_NULL_FIELD_NUMBER, metric.isNull());
+		} else if (!primitive && metric.getValue() == null) {
+			bool(SparkplugBProto.Payload.Metric.IS_NULL_FIELD_NUMBER, true);
+		}
+
+		// a file carries its name in the metadata, which the metric's own metadata may override
+		String fileName = null;
+		if (metric.getDataType() == MetricDataType.File && !primitive && metric.getValue() != null) {
+			fileName = ((File) metric.getValue()).getFileName();
+		}
+		if (metric.getMetaData() != null || fileName != null) {
+			int place = beginMessage(SparkplugBProto.Payload.Metric.METADATA_FIELD_NUMBER);
+			writeMetaData(metric.getMetaData(), fileName);
+			endMessage(SparkplugBProto.Payload.Metric.METADATA_FIELD_NUMBER, place);
+		}
+		if (metric.getProperties() != null) {
+			int place = beginMessage(SparkplugBProto.Payload.Metric.PROPERTIES_FIELD_NUMBER);
+			writePropertySet(metric.getProperties());
+			endMessage(SparkplugBProto.Payload.Metric.PROPERTIES_FIELD_NUMBER, place);
+		}
+		if (primitive) {
+			writeBits(SparkplugBProto.Payload.Metric.INT_VALUE_FIELD_NUMBER, metric.getDataType().toIntValue(),
+					metric.getValueBits());
+		} else if (metric.getValue() != null) {
+			writeMetricValue(metric.getDataType(), metric.getValue());
+		}
+	}
+
+	private void writeMetaData(MetaData metaData, String fileName) throws IOException, SparkplugInvalidTypeException {
+		if (metaData != null && metaData.isMultiPart() != null) {
+			bool(SparkplugBProto.Payload.MetaData.IS_MULTI_PART_FIELD_NUMBER, metaData.isMultiPart());
+		}
+		if (metaData != null && metaData.getContentType() != null) {
+			string(SparkplugBProto.Payload.MetaData.CONTENT_TYPE_FIELD_NUMBER, metaData.getContentType());
+		}
+		if (metaData != null && metaData.getSize() != null) {
+			uint64(SparkplugBProto.Payload.MetaData.SIZE_FIELD_NUMBER, metaData.getSize());
+		}
+		if (metaData != null && metaData.getSeq() != null) {
+			uint64(SparkplugBProto.Payload.MetaData.SEQ_FIELD_NUMBER, metaData.getSeq());
+		}
+		if (metaData != null && metaData.getFileName() != null) {
+			fileName = metaData.getFileName();
+		}
+		if (fileName != null) {
+			string(SparkplugBProto.Payload.MetaData.FILE_NAME_FIELD_NUMBER, fileName);
+		}
+		if (metaData != null && metaData.getFileType() != null) {
+			string(SparkplugBProto.Payload.MetaData.FILE_TYPE_FIELD_NUMBER, metaData.getFileType());
+		}
+		if (metaData != null && metaData.getMd5() != null) {
+			string(SparkplugBProto.Payload.MetaData.MD5_FIELD_NUMBER, metaData.getMd5());
+		}
+		if (metaData != null && metaData.getDescription() != null) {
+			string(SparkplugBProto.Payload.MetaData.DESCRIPTION_FIELD_NUMBER, metaData.getDescription());
+		}
+	}
+
+	private void writePropertySet(PropertySet propertySet) throws IOException, SparkplugInvalidTypeException {
+		Map<String, PropertyValue> map = propertySet.getPropertyMap();
+		// protobuf writes all the keys and then all the values
+		for (String key : map.keySet()) {
+			string(SparkplugBProto.Payload.PropertySet.KEYS_FIELD_NUMBER, key);
+		}
+		for (String key : map.keySet()) {
+			int place = beginMessage(SparkplugBProto.Payload.PropertySet.VALUES_FIELD_NUMBER);
+			writePropertyValue(map.get(key));
+			endMessage(SparkplugBProto.Payload.PropertySet.VALUES_FIELD_NUMBER, place);
+		}
+	}
+
+	private void writePropertyValue(PropertyValue value) throws IOException, SparkplugInvalidTypeException {
+		PropertyDataType type = value.getType();
+		uint32(SparkplugBProto.Payload.PropertyValue.TYPE_FIELD_NUMBER, type.toIntValue());
+		if (value.hasPrimitiveValue()) {
+			writeBits(SparkplugBProto.Payload.PropertyValue.INT_VALUE_FIELD_NUMBER, type.toIntValue(),
+					value.getValueBits());
+			return;
+		}
+		if (value.getValue() == null) {
+			bool(SparkplugBProto.Payload.PropertyValue.IS_NULL_FIELD_NUMBER, true);
+			return;
+		}
+		switch (type) {
+			case PropertySet:
+				int place = beginMessage(SparkplugBProto.Payload.PropertyValue.PROPERTYSET_VALUE_FIELD_NUMBER);
+				writePropertySet((PropertySet) value.getValue());
+				endMessage(SparkplugBProto.Payload.PropertyValue.PROPERTYSET_VALUE_FIELD_NUMBER, place);
+				break;
+			case PropertySetList:
+				int listPlace = beginMessage(SparkplugBProto.Payload.PropertyValue.PROPERTYSETS_VALUE_FIELD_NUMBER);
+				for (Object propertySet : (List<?>) value.getValue()) {
+					int setPlace = beginMessage(SparkplugBProto.Payload.PropertySetList.PROPERTYSET_FIELD_NUMBER);
+					writePropertySet((PropertySet) propertySet);
+					endMessage(SparkplugBProto.Payload.PropertySetList.PROPERTYSET_FIELD_NUMBER, setPlace);
+				}
+				endMessage(SparkplugBProto.Payload.PropertyValue.PROPERTYSETS_VALUE_FIELD_NUMBER, listPlace);
+				break;
+			case Unknown:
+				logger.error("Unknown PropertyDataType: " + type);
+				throw new IOException("Failed to convert value " + type);
+			default:
+				writeScalar(SparkplugBProto.Payload.PropertyValue.INT_VALUE_FIELD_NUMBER, type.toIntValue(),
+						value.getValue());
+		}
+	}
+
+	private void writeParameter(Parameter parameter) throws IOException, SparkplugInvalidTypeException {
+		string(SparkplugBProto.Payload.Template.Parameter.NAME_FIELD_NUMBER, parameter.getName());
+		uint32(SparkplugBProto.Payload.Template.Parameter.TYPE_FIELD_NUMBER, parameter.getType().toIntValue());
+		if (parameter.hasPrimitiveValue()) {
+			writeBits(SparkplugBProto.Payload.Template.Parameter.INT_VALUE_FIELD_NUMBER,
+					parameter.getType().toIntValue(), parameter.getValueBits());
+			return;
+		}
+		Object value = parameter.getValue();
+		if (value == null && parameter.getType().toIntValue() == MetricDataType.String.toIntValue()) {
+			value = "";
+		}
+		if (value != null) {
+			writeScalar(SparkplugBProto.Payload.Template.Parameter.INT_VALUE_FIELD_NUMBER,
+					parameter.getType().toIntValue(), value);
+		}
+	}
+
+	private void writeMetricValue(MetricDataType type, Object value) throws IOException, SparkplugInvalidTypeException {
+		switch (type) {
+			case UUID:
+				string(SparkplugBProto.Payload.Metric.STRING_VALUE_FIELD_NUMBER, (String) value);
+				break;
+			case Bytes:
+				bytes(SparkplugBProto.Payload.Metric.BYTES_VALUE_FIELD_NUMBER, (byte[]) value);
+				break;
+			case File:
+				bytes(SparkplugBProto.Payload.Metric.BYTES_VALUE_FIELD_NUMBER, ((File) value).getBytes());
+				break;
+			case DataSet:
+				int dataSetPlace = beginMessage(SparkplugBProto.Payload.Metric.DATASET_VALUE_FIELD_NUMBER);
+				writeDataSet((DataSet) value);
+				endMessage(SparkplugBProto.Payload.Metric.DATASET_VALUE_FIELD_NUMBER, dataSetPlace);
+				break;
+			case Template:
+				int templatePlace = beginMessage(SparkplugBProto.Payload.Metric.TEMPLATE_VALUE_FIELD_NUMBER);
+				writeTemplate((Template) value);
+				endMessage(SparkplugBProto.Payload.Metric.TEMPLATE_VALUE_FIELD_NUMBER, templatePlace);
+				break;
+			case Int8Array:
+			case Int16Array:
+			case Int32Array:
+			case Int64Array:
+			case UInt8Array:
+			case UInt16Array:
+			case UInt32Array:
+			case UInt64Array:
+			case FloatArray:
+			case DoubleArray:
+			case BooleanArray:
+			case StringArray:
+			case DateTimeArray:
+				writeArray(type, value);
+				break;
+			case Unknown:
+				logger.error("Unsupported MetricDataType: " + type);
+				throw new IOException("Failed to encode");
+			default:
+				writeScalar(SparkplugBProto.Payload.Metric.INT_VALUE_FIELD_NUMBER, type.toIntValue(), value);
+		}
+	}
+
+	/*
+	 * The basic types have the same numbers for metrics, parameters, properties and datasets, and each of those has
+	 * the six basic value fields in the same order from the int value.
+	 */
+	private void writeScalar(int intField, int type, Object value) throws IOException, SparkplugInvalidTypeException {
+		if (PrimitiveValues.isPrimitive(type)) {
+			writeBits(intField, type, PrimitiveValues.toBits(type, value));
+		} else if (type == MetricDataType.String.toIntValue() || type == MetricDataType.Text.toIntValue()) {
+			string(intField + STRING_VALUE, (String) value);
+		} else {
+			logger.error("Unknown Type: " + type);
+			throw new IOException("Failed to encode");
+		}
+	}
+
+	private void writeBits(int intField, int type, long bits) throws IOException {
+		switch (type) {
+			case PrimitiveValues.INT64:
+			case PrimitiveValues.UINT32:
+			case PrimitiveValues.UINT64:
+			case PrimitiveValues.DATETIME:
+				uint64(intField + LONG_VALUE, bits);
+				break;
+			case PrimitiveValues.FLOAT:
+				if (out == null) {
+					size += CodedOutputStream.computeFixed32Size(intField + FLOAT_VALUE, (int) bits);
+				} else {
+					out.writeFixed32(intField + FLOAT_VALUE, (int) bits);
+				}
+				break;
+			case PrimitiveValues.DOUBLE:
+				if (out == null) {
+					size += CodedOutputStream.computeFixed64Size(intField + DOUBLE_VALUE, bits);
+				} else {
+					out.writeFixed64(intField + DOUBLE_VALUE, bits);
+				}
+				break;
+			case PrimitiveValues.BOOLEAN:
+				bool(intField + BOOLEAN_VALUE, bits != 0);
+				break;
+			default:
+				uint32(intField + INT_VALUE, (int) bits);
+		}
+	}
+
+	private void writeDataSet(DataSet dataSet) throws IOException, SparkplugInvalidTypeException {
+		uint64(SparkplugBProto.Payload.DataSet.NUM_OF_COLUMNS_FIELD_NUMBER, dataSet.getNumOfColumns());
+		if (dataSet.getColumnNames() != null) {
+			for (String name : dataSet.getColumnNames()) {
+				string(SparkplugBProto.Payload.DataSet.COLUMNS_FIELD_NUMBER, name);
+			}
+		}
+		if (dataSet.getTypes() != null) {
+			for (DataSetDataType type : dataSet.getTypes()) {
+				uint32(SparkplugBProto.Payload.DataSet.TYPES_FIELD_NUMBER, type.toIntValue());
+			}
+		}
+		if (dataSet instanceof ColumnarDataSet) {
+			writeColumns((ColumnarDataSet) dataSet);
+		} else if (dataSet.getRows() != null) {
+			for (Row row : dataSet.getRows()) {
+				List<Value<?>> values = row.getValues();
+				if (values == null || values.isEmpty()) {
+					continue;
+				}
+				int rowPlace = beginMessage(SparkplugBProto.Payload.DataSet.ROWS_FIELD_NUMBER);
+				for (Value<?> value : values) {
+					int valuePlace = beginMessage(SparkplugBProto.Payload.DataSet.Row.ELEMENTS_FIELD_NUMBER);
+					if (value.hasPrimitiveValue()) {
+						writeBits(SparkplugBProto.Payload.DataSet.DataSetValue.INT_VALUE_FIELD_NUMBER,
+								value.getType().toIntValue(), value.getValueBits());
+					} else if (value.getValue() != null) {
+						if (value.getType() == DataSetDataType.Unknown) {
+							logger.error("Unknown DataSetDataType DataType: " + value.getType());
+							throw new IOException("Failed to convert value " + value.getType());
+						}
+						writeScalar(SparkplugBProto.Payload.DataSet.DataSetValue.INT_VALUE_FIELD_NUMBER,
+								value.getType().toIntValue(), value.getValue());
+					}
+					endMessage(SparkplugBProto.Payload.DataSet.Row.ELEMENTS_FIELD_NUMBER, valuePlace);
+				}
+				endMessage(SparkplugBProto.Payload.DataSet.ROWS_FIELD_NUMBER, rowPlace);
+			}
+		}
+	}
+
+	/*
+	 * Writes the rows cell by cell from the columns, without making the rows of the view.
+	 */
+	private void writeColumns(ColumnarDataSet dataSet) throws IOException, SparkplugInvalidTypeException {
+		int columnCount = dataSet.getTypes().size();
+		if (columnCount == 0) {
+			return;
+		}
+		int rowCount = dataSet.getRowCount();
+		for (int row = 0; row < rowCount; row++) {
+			int rowPlace = beginMessage(SparkplugBProto.Payload.DataSet.ROWS_FIELD_NUMBER);
+			for (int column = 0; column < columnCount; column++) {
+				int valuePlace = beginMessage(SparkplugBProto.Payload.DataSet.Row.ELEMENTS_FIELD_NUMBER);
+				if (!dataSet.isNull(row, column)) {
+					int type = dataSet.getColumnType(column);
+					if (PrimitiveValues.isPrimitive(type)) {
+						writeBits(SparkplugBProto.Payload.DataSet.DataSetValue.INT_VALUE_FIELD_NUMBER, type,
+								dataSet.getValueBits(row, column));
+					} else {
+						string(SparkplugBProto.Payload.DataSet.DataSetValue.STRING_VALUE_FIELD_NUMBER,
+								dataSet.getString(row, column));
+					}
+				}
+				endMessage(SparkplugBProto.Payload.DataSet.Row.ELEMENTS_FIELD_NUMBER, valuePlace);
+			}
+			endMessage(SparkplugBProto.Payload.DataSet.ROWS_FIELD_NUMBER, rowPlace);
+		}
+	}
+
+	private void writeTemplate(Template template) throws IOException, SparkplugInvalidTypeException {
+		if (template.getVersion() != null) {
+			string(SparkplugBProto.Payload.Template.VERSION_FIELD_NUMBER, template.getVersion());
+		}
+		if (template.getMetrics() != null) {
+			for (Metric metric : template.getMetrics()) {
+				int place = beginMessage(SparkplugBProto.Payload.Template.METRICS_FIELD_NUMBER);
+				writeMetric(metric);
+				endMessage(SparkplugBProto.Payload.Template.METRICS_FIELD_NUMBER, place);
+			}
+		}
+		if (template.getParameters() != null) {
+			for (Parameter parameter : template.getParameters()) {
+				int place = beginMessage(SparkplugBProto.Payload.Template.PARAMETERS_FIELD_NUMBER);
+				writeParameter(parameter);
+				endMessage(SparkplugBProto.Payload.Template.PARAMETERS_FIELD_NUMBER, place);
+			}
+		}
+		if (template.getTemplateRef() != null) {
+			string(SparkplugBProto.Payload.Template.TEMPLATE_REF_FIELD_NUMBER, template.getTemplateRef());
+		}
+		bool(SparkplugBProto.Payload.Template.IS_DEFINITION_FIELD_NUMBER, template.isDefinition());
+	}
+
+	/*
+	 * Arrays are written little endian into the bytes value, straight from the array.
+	 */
+	private void writeArray(MetricDataType type, Object value) throws IOException {
+		final int field = SparkplugBProto.Payload.Metric.BYTES_VALUE_FIELD_NUMBER;
+		switch (type) {
+			case Int8Array:
+				Byte[] int8Array = (Byte[]) value;
+				if (beginBytes(field, int8Array.length)) {
+					for (Byte element : int8Array) {
+						out.writeRawByte(element);
+					}
+				}
+				break;
+			case Int16Array:
+				Short[] int16Array = (Short[]) value;
+				if (beginBytes(field, int16Array.length * 2)) {
+					for (Short element : int16Array) {
+						writeShort(element);
+					}
+				}
+				break;
+			case Int32Array:
+				Integer[] int32Array = (Integer[]) value;
+				if (beginBytes(field, int32Array.length * 4)) {
+					for (Integer element : int32Array) {
+						out.writeFixed32NoTag(element);
+					}
+				}
+				break;
+			case Int64Array:
+				Long[] int64Array = (Long[]) value;
+				if (beginBytes(field, int64Array.length * 8)) {
+					for (Long element : int64Array) {
+						out.writeFixed64NoTag(element);
+					}
+				}
+				break;
+			case UInt8Array:
+				Short[] uInt8Array = (Short[]) value;
+				if (beginBytes(field, uInt8Array.length)) {
+					for (Short element : uInt8Array) {
+						out.writeRawByte((byte) (element & 0xffff));
+					}
+				}
+				break;
+			case UInt16Array:
+				Integer[] uInt16Array = (Integer[]) value;
+				if (beginBytes(field, uInt16Array.length * 2)) {
+					for (Integer element : uInt16Array) {
+						writeShort((short) (element & 0xffffffff));
+					}
+				}
+				break;
+			case UInt32Array:
+				Long[] uInt32Array = (Long[]) value;
+				if (beginBytes(field, uInt32Array.length * 4)) {
+					for (Long element : uInt32Array) {
+						out.writeFixed32NoTag((int) (element & 0xffffffffffffffffL));
+					}
+				}
+				break;
+			case UInt64Array:
+				BigInteger[] uInt64Array = (BigInteger[]) value;
+				if (beginBytes(field, uInt64Array.length * 8)) {
+					for (BigInteger element : uInt64Array) {
+						out.writeFixed64NoTag(bigIntegerToUnsignedLong(element));
+					}
+				}
+				break;
+			case FloatArray:
+				Float[] floatArray = (Float[]) value;
+				if (beginBytes(field, floatArray.length * 4)) {
+					for (Float element : floatArray) {
+						out.writeFixed32NoTag(Float.floatToRawIntBits(element));
+					}
+				}
+				break;
+			case DoubleArray:
+				Double[] doubleArray = (Double[]) value;
+				if (beginBytes(field, doubleArray.length * 8)) {
+					for (Double element : doubleArray) {
+						out.writeFixed64NoTag(Double.doubleToRawLongBits(element));
+					}
+				}
+				break;
+			case BooleanArray:
+				// The first 4 bytes is the number of booleans in the array, then the booleans packed high bit first
+				Boolean[] booleanArray = (Boolean[]) value;
+				int numberOfBytes = (booleanArray.length + 7) / 8;
+				if (beginBytes(field, 4 + numberOfBytes)) {
+					out.writeFixed32NoTag(booleanArray.length);
+					for (int i = 0; i < numberOfBytes; i++) {
+						byte nextByte = 0;
+						for (int bit = 0; bit < 8; bit++) {
+							int index = i * 8 + bit;
+							if (index < booleanArray.length && booleanArray[index]) {
+								nextByte |= (128 >> bit);
+							}
+						}
+						out.writeRawByte(nextByte);
+					}
+				}
+				break;
+			case StringArray:
+				// Null terminated UTF-8 strings
+				String[] stringArray = (String[]) value;
+				int length = 0;
+				for (String element : stringArray) {
+					length += utf8Length(element) + 1;
+				}
+				if (beginBytes(field, length)) {
+					for (String element : stringArray) {
+						out.writeRawBytes(element.getBytes(StandardCharsets.UTF_8));
+						out.writeRawByte(0);
+					}
+				}
+				break;
+			case DateTimeArray:
+				Date[] dateTimeArray = (Date[]) value;
+				if (beginBytes(field, dateTimeArray.length * 8)) {
+					for (Date element : dateTimeArray) {
+						out.writeFixed64NoTag(element.getTime());
+					}
+				}
+				break;
+			default:
+				throw new IOException("Not an array type: " + type);
+		}
+	}
+
+	private void writeShort(short value) throws IOException {
+		out.writeRawByte((byte) value);
+		out.writeRawByte((byte) (value >> 8));
+	}
+
+	/**
+	 * Starts a nested message field.
+	 *
+	 * @return the place of the message's size, to pass to {@link #endMessage}
+	 */
+	private int beginMessage(int field) throws IOException {
+		if (out == null) {
+			if (sizeCount == sizes.length) {
+				sizes = Arrays.copyOf(sizes, sizeCount * 2);
+			}
+			// the place holds the size of the enclosing message so far, until this one's size is known
+			sizes[sizeCount] = size;
+			size = 0;
+			return sizeCount++;
+		}
+		out.writeTag(field, LENGTH_DELIMITED);
+		out.writeUInt32NoTag(sizes[nextSize++]);
+		return nextSize - 1;
+	}
+
+	private void endMessage(int field, int place) {
+		if (out == null) {
+			int length = size;
+			size = sizes[place] + CodedOutputStream.computeTagSize(field)
+					+ CodedOutputStream.computeUInt32SizeNoTag(length) + length;
+			sizes[place] = length;
+		}
+	}
+
+	/**
+	 * Starts a bytes field of a known length.
+	 *
+	 * @return true if the bytes are to be written, false when only sizing
+	 */
+	private boolean beginBytes(int field, int length) throws IOException {
+		if (out == null) {
+			size += CodedOutputStream.computeTagSize(field) + CodedOutputStream.computeUInt32SizeNoTag(length) + length;
+			return false;
+		}
+		out.writeTag(field, LENGTH_DELIMITED);
+		out.writeUInt32NoTag(length);
+		return true;
+	}
+
+	private void uint32(int field, int value) throws IOException {
+		if (out == null) {
+			size += CodedOutputStream.computeUInt32Size(field, value);
+		} else {
+			out.writeUInt32(field, value);
+		}
+	}
+
+	private void uint64(int field, long value) throws IOException {
+		if (out == null) {
+			size += CodedOutputStream.computeUInt64Size(field, value);
+		} else {
+			out.writeUInt64(field, value);
+		}
+	}
+
+	private void bool(int field, boolean value) throws IOException {
+		if (out == null) {
+			size += CodedOutputStream.computeBoolSize(field, value);
+		} else {
+			out.writeBool(field, value);
+		}
+	}
+
+	private void string(int field, String value) throws IOException {
+		if (out == null) {
+			size += CodedOutputStream.computeStringSize(field, value);
+		} else {
+			out.writeString(field, value);
+		}
+	}
+
+	private void bytes(int field, byte[] value) throws IOException {
+		if (out == null) {
+			size += CodedOutputStream.computeByteArraySize(field, value);
+		} else {
+			out.writeByteArray(field, value);
+		}
+	}
+
+	private static int utf8Length(String string) {
+		int length = 0;
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+					&& Character.isLowSurrogate(string.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	private static long bigIntegerToUnsignedLong(BigInteger bigInteger) {
+		BigInteger bref = BigInteger.ONE.shiftLeft(64);
+		if (bigInteger.compareTo(BigInteger.ZERO) < 0)
+			bigInteger = bigInteger.add(bref);
+		if (bigInteger.compareTo(bref) >= 0 || bigInteger.compareTo(BigInteger.ZERO) < 0)
+			throw new RuntimeException("Out of range: " + bigInteger);
+		return bigInteger.longValue();
+	}
+}
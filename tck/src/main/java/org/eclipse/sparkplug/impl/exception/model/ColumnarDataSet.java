@@ -0,0 +1,475 @@
+/********************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.eclipse.sparkplug.impl.exception.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.sparkplug.impl.exception.SparkplugErrorCode;
+import org.eclipse.sparkplug.impl.exception.SparkplugException;
+import org.eclipse.sparkplug.impl.exception.SparkplugInvalidTypeException;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * A {@link DataSet} held by column, each column in an array of the primitive type of its {@link DataSetDataType} with
+ * a bitmap of which of its cells are null.
+ *
+ * A table of thousands of rows is then a handful of arrays, rather than a {@link Row} and a boxed {@link Value} for
+ * every cell. Cells are read and written by row and column index with the typed getters and setters, which hold
+ * values as described in {@link PrimitiveValues}.
+ *
+ * {@link #getRows()} gives a view of the rows for code written against {@link DataSet}. Each row is made when it is
+ * got, and adding a row to the view adds it to the columns. The columns themselves are fixed when the data set is
+ * made.
+ */
+public class ColumnarDataSet extends DataSet {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final int[] columnTypes;
+	private final Object[] columns;
+	private long[][] nulls;
+	private int rowCount = 0;
+	private int capacity;
+
+	/**
+	 * Constructor
+	 *
+	 * @param columnNames the names of the columns
+	 * @param types the types of the columns
+	 * @param capacity the number of rows to make room for
+	 * @throws SparkplugException if the names and types differ in number, or a type is Unknown
+	 */
+	public ColumnarDataSet(List<String> columnNames, List<DataSetDataType> types, int capacity)
+			throws SparkplugException {
+		super(types.size(), new ArrayList<>(columnNames), new ArrayList<>(types), null);
+		if (columnNames.size() != types.size()) {
+			throw new SparkplugException(SparkplugErrorCode.INVALID_ARGUMENT,
+					"Invalid number of columns in data set column names: " + columnNames.size() + " vs expected "
+							+ types.size());
+		}
+		this.capacity = Math.max(capacity, 1);
+		columnTypes = new int[types.size()];
+		columns = new Object[types.size()];
+		nulls = new long[types.size()][];
+		for (int i = 0; i < columns.length; i++) {
+			columnTypes[i] = types.get(i).toIntValue();
+			columns[i] = newColumn(types.get(i), this.capacity);
+			nulls[i] = new long[bitmapLength(this.capacity)];
+		}
+	}
+
+	public ColumnarDataSet(List<String> columnNames, List<DataSetDataType> types) throws SparkplugException {
+		this(columnNames, types, DEFAULT_CAPACITY);
+	}
+
+	private static Object newColumn(DataSetDataType type, int capacity) throws SparkplugException {
+		switch (type) {
+			case Int8:
+				return new byte[capacity];
+			case Int16:
+			case UInt8:
+				return new short[capacity];
+			case Int32:
+			case UInt16:
+				return new int[capacity];
+			case Int64:
+			case UInt32:
+			case UInt64:
+			case DateTime:
+				return new long[capacity];
+			case Float:
+				return new float[capacity];
+			case Double:
+				return new double[capacity];
+			case Boolean:
+				return new boolean[capacity];
+			case String:
+			case Text:
+				return new String[capacity];
+			case Unknown:
+			default:
+				throw new SparkplugException(SparkplugErrorCode.INVALID_ARGUMENT,
+						"Unsupported data set column type: " + type);
+		}
+	}
+
+	private static int bitmapLength(int capacity) {
+		return (capacity + 63) / 64;
+	}
+
+	@JsonIgnore
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Adds a row with every cell null.
+	 *
+	 * @return the index of the new row
+	 */
+	public int addRow() {
+		if (rowCount == capacity) {
+			grow();
+		}
+		for (long[] bitmap : nulls) {
+			bitmap[rowCount >> 6] |= 1L << rowCount;
+		}
+		return rowCount++;
+	}
+
+	private void grow() {
+		capacity = capacity * 2;
+		for (int i = 0; i < columns.length; i++) {
+			Object column = columns[i];
+			if (column instanceof byte[]) {
+				columns[i] = Arrays.copyOf((byte[]) column, capacity);
+			} else if (column instanceof short[]) {
+				columns[i] = Arrays.copyOf((short[]) column, capacity);
+			} else if (column instanceof int[]) {
+				columns[i] = Arrays.copyOf((int[]) column, capacity);
+			} else if (column instanceof long[]) {
+				columns[i] = Arrays.copyOf((long[]) column, capacity);
+			} else if (column instanceof float[]) {
+				columns[i] = Arrays.copyOf((float[]) column, capacity);
+			} else if (column instanceof double[]) {
+				columns[i] = Arrays.copyOf((double[]) column, capacity);
+			} else if (column instanceof boolean[]) {
+				columns[i] = Arrays.copyOf((boolean[]) column, capacity);
+			} else {
+				columns[i] = Arrays.copyOf((String[]) column, capacity);
+			}
+			nulls[i] = Arrays.copyOf(nulls[i], bitmapLength(capacity));
+		}
+	}
+
+	/**
+	 * @return the type number of a column
+	 */
+	public int getColumnType(int column) {
+		return columnTypes[column];
+	}
+
+	public boolean isNull(int row, int column) {
+		checkRow(row);
+		return (nulls[column][row >> 6] & (1L << row)) != 0;
+	}
+
+	public void setNull(int row, int column) {
+		checkRow(row);
+		nulls[column][row >> 6] |= 1L << row;
+		if (columns[column] instanceof String[]) {
+			((String[]) columns[column])[row] = null;
+		}
+	}
+
+	/**
+	 * Sets a cell of an integer column, or a DateTime in milliseconds since the epoch.
+	 *
+	 * @throws SparkplugInvalidTypeException if the column is of another type, or the value is out of its range
+	 */
+	public void setLong(int row, int column, long value) throws SparkplugInvalidTypeException {
+		setBits(row, column, PrimitiveValues.fromLong(columnTypes[column], value));
+	}
+
+	public void setInt(int row, int column, int value) throws SparkplugInvalidTypeException {
+		setBits(row, column, PrimitiveValues.fromLong(columnTypes[column], value));
+	}
+
+	public void setFloat(int row, int column, float value) throws SparkplugInvalidTypeException {
+		setBits(row, column, PrimitiveValues.fromFloat(columnTypes[column], value));
+	}
+
+	public void setDouble(int row, int column, double value) throws SparkplugInvalidTypeException {
+		setBits(row, column, PrimitiveValues.fromDouble(columnTypes[column], value));
+	}
+
+	public void setBoolean(int row, int column, boolean value) throws SparkplugInvalidTypeException {
+		setBits(row, column, PrimitiveValues.fromBoolean(columnTypes[column], value));
+	}
+
+	/**
+	 * Sets a cell of a String or Text column. A null value makes the cell null.
+	 *
+	 * @throws SparkplugInvalidTypeException if the column is of another type
+	 */
+	public void setString(int row, int column, String value) throws SparkplugInvalidTypeException {
+		if (!(columns[column] instanceof String[])) {
+			throw new SparkplugInvalidTypeException(String.class);
+		}
+		if (value == null) {
+			setNull(row, column);
+			return;
+		}
+		checkRow(row);
+		((String[]) columns[column])[row] = value;
+		nulls[column][row >> 6] &= ~(1L << row);
+	}
+
+	/**
+	 * Sets a cell from a boxed value, of the class of the column's type, or null.
+	 *
+	 * @throws SparkplugInvalidTypeException if the value is not of the class of the column's type
+	 */
+	public void setValue(int row, int column, Object value) throws SparkplugInvalidTypeException {
+		if (value == null) {
+			setNull(row, column);
+		} else if (columns[column] instanceof String[]) {
+			if (!(value instanceof String)) {
+				throw new SparkplugInvalidTypeException(value.getClass());
+			}
+			setString(row, column, (String) value);
+		} else {
+			DataSetDataType.fromInteger(columnTypes[column]).checkType(value);
+			setBits(row, column, PrimitiveValues.toBits(columnTypes[column], value));
+		}
+	}
+
+	private void setBits(int row, int column, long bits) {
+		checkRow(row);
+		Object array = columns[column];
+		switch (columnTypes[column]) {
+			case PrimitiveValues.INT8:
+				((byte[]) array)[row] = (byte) bits;
+				break;
+			case PrimitiveValues.INT16:
+			case PrimitiveValues.UINT8:
+				((short[]) array)[row] = (short) bits;
+				break;
+			case PrimitiveValues.INT32:
+			case PrimitiveValues.UINT16:
+				((int[]) array)[row] = (int) bits;
+				break;
+			case PrimitiveValues.FLOAT:
+				((float[]) array)[row] = Float.intBitsToFloat((int) bits);
+				break;
+			case PrimitiveValues.DOUBLE:
+				((double[]) array)[row] = Double.longBitsToDouble(bits);
+				break;
+			case PrimitiveValues.BOOLEAN:
+				((boolean[]) array)[row] = bits != 0;
+				break;
+			default:
+				((long[]) array)[row] = bits;
+		}
+		nulls[column][row >> 6] &= ~(1L << row);
+	}
+
+	/**
+	 * @return a cell of a column of a basic type which is not null, held as described in {@link PrimitiveValues}
+	 */
+	public long getValueBits(int row, int column) {
+		checkRow(row);
+		Object array = columns[column];
+		switch (columnTypes[column]) {
+			case PrimitiveValues.INT8:
+				return ((byte[]) array)[row];
+			case PrimitiveValues.INT16:
+			case PrimitiveValues.UINT8:
+				return ((short[]) array)[row];
+			case PrimitiveValues.INT32:
+			case PrimitiveValues.UINT16:
+				return ((int[]) array)[row];
+			case PrimitiveValues.FLOAT:
+				return Float.floatToRawIntBits(((float[]) array)[row]);
+			case PrimitiveValues.DOUBLE:
+				return Double.doubleToRawLongBits(((double[]) array)[row]);
+			case PrimitiveValues.BOOLEAN:
+				return ((boolean[]) array)[row] ? 1 : 0;
+			default:
+				if (!(array instanceof long[])) {
+					throw new ClassCastException("Not a column of a basic type: " + column);
+				}
+				return ((long[]) array)[row];
+		}
+	}
+
+	public long getLong(int row, int column) {
+		return getValueBits(row, column);
+	}
+
+	public int getInt(int row, int column) {
+		return (int) getValueBits(row, column);
+	}
+
+	public float getFloat(int row, int column) {
+		return (float) PrimitiveValues.toDouble(columnTypes[column], getValueBits(row, column));
+	}
+
+	public double getDouble(int row, int column) {
+		return PrimitiveValues.toDouble(columnTypes[column], getValueBits(row, column));
+	}
+
+	public boolean getBoolean(int row, int column) {
+		return getValueBits(row, column) != 0;
+	}
+
+	public String getString(int row, int column) {
+		checkRow(row);
+		return ((String[]) columns[column])[row];
+	}
+
+	/**
+	 * @return a cell boxed into the class of its column's type, or null
+	 */
+	public Object getValue(int row, int column) {
+		if (isNull(row, column)) {
+			return null;
+		}
+		if (columns[column] instanceof String[]) {
+			return ((String[]) columns[column])[row];
+		}
+		return PrimitiveValues.box(columnTypes[column], getValueBits(row, column));
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= rowCount) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+		}
+	}
+
+	/**
+	 * @return a view of the rows, each made as it is got
+	 */
+	@Override
+	public List<Row> getRows() {
+		return new AbstractList<Row>() {
+			@Override
+			public Row get(int index) {
+				checkRow(index);
+				List<Value<?>> values = new ArrayList<>(columns.length);
+				for (int column = 0; column < columns.length; column++) {
+					values.add(new Value<>(getTypes().get(column), getValue(index, column)));
+				}
+				return new Row(values);
+			}
+
+			@Override
+			public int size() {
+				return rowCount;
+			}
+
+			@Override
+			public void add(int index, Row row) {
+				ColumnarDataSet.this.addRow(index, row);
+			}
+
+			@Override
+			public Row remove(int index) {
+				return removeRow(index);
+			}
+		};
+	}
+
+	/**
+	 * Adds a row at the end, from its values.
+	 *
+	 * @throws IllegalArgumentException if the row has the wrong number of values, or a value of the wrong class
+	 */
+	@Override
+	public void addRow(Row row) {
+		List<Value<?>> values = row.getValues();
+		if (values.size() != columns.length) {
+			throw new IllegalArgumentException("Invalid number of columns in data set row: " + values.size()
+					+ " vs expected: " + columns.length);
+		}
+		int index = addRow();
+		try {
+			for (int column = 0; column < columns.length; column++) {
+				Value<?> value = values.get(column);
+				if (value.hasPrimitiveValue() && PrimitiveValues.isPrimitive(columnTypes[column])) {
+					setBits(index, column, value.getValueBits());
+				} else {
+					setValue(index, column, value.getValue());
+				}
+			}
+		} catch (SparkplugInvalidTypeException e) {
+			rowCount--;
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Rows can only be added at the end.
+	 */
+	@Override
+	public void addRow(int index, Row row) {
+		if (index != rowCount) {
+			throw new UnsupportedOperationException("Rows of a columnar data set can only be added at the end");
+		}
+		addRow(row);
+	}
+
+	@Override
+	public Row removeRow(int index) {
+		Row removed = getRows().get(index);
+		for (int column = 0; column < columns.length; column++) {
+			Object array = columns[column];
+			System.arraycopy(array, index + 1, array, index, rowCount - index - 1);
+			long[] bitmap = nulls[column];
+			for (int row = index; row < rowCount - 1; row++) {
+				int next = row + 1;
+				if ((bitmap[next >> 6] & (1L << next)) != 0) {
+					bitmap[row >> 6] |= 1L << row;
+				} else {
+					bitmap[row >> 6] &= ~(1L << row);
+				}
+			}
+		}
+		rowCount--;
+		return removed;
+	}
+
+	/**
+	 * The rows of the view are made as they are got, so cannot be found again by identity.
+	 */
+	@Override
+	public boolean removeRow(Row row) {
+		throw new UnsupportedOperationException("Remove the rows of a columnar data set by index");
+	}
+
+	/**
+	 * Replaces all the rows.
+	 */
+	@Override
+	public void setRows(List<Row> rows) {
+		rowCount = 0;
+		for (Row row : rows) {
+			addRow(row);
+		}
+	}
+
+	@Override
+	public void setNumOfColumns(long numOfColumns) {
+		throw new UnsupportedOperationException("The columns of a columnar data set are fixed");
+	}
+
+	@Override
+	public void setTypes(List<DataSetDataType> types) {
+		throw new UnsupportedOperationException("The columns of a columnar data set are fixed");
+	}
+
+	@Override
+	public void addType(DataSetDataType type) {
+		throw new UnsupportedOperationException("The columns of a columnar data set are fixed");
+	}
+
+	@Override
+	public void addType(int index, DataSetDataType type) {
+		throw new UnsupportedOperationException("The columns of a columnar data set are fixed");
+	}
+}
@@ -149,7 +149,7 @@ public class DataSet {
 		builder.append(", types=");
 		builder.append(types);
 		builder.append(", rows=");
-		builder.append(rows);
+		builder.append(getRows());
 		builder.append("]");
 		return builder.toString();
 	}
@@ -70,6 +70,10 @@ public class Metric {
 
 	private Boolean isNull = null;
 
+	// a value of a basic type set by one of the typed setters, held unboxed as in PrimitiveValues
+	private boolean primitive = false;
+	private long bits;
+
 	public Metric() {
 	};
 
@@ -154,14 +158,90 @@ public class Metric {
 	}
 
 	public Object getValue() {
-		return value;
+		return primitive ? PrimitiveValues.box(dataType.toIntValue(), bits) : value;
 	}
 
 	public void setValue(Object value) {
 		this.value = value;
+		primitive = false;
 		isNull = (value == null);
 	}
 
+	/**
+	 * @return whether the value was set by one of the typed setters, and so is held without boxing
+	 */
+	public boolean hasPrimitiveValue() {
+		return primitive;
+	}
+
+	/**
+	 * Sets the value of a metric of an integer type, or of a DateTime in milliseconds since the epoch.
+	 *
+	 * @throws SparkplugInvalidTypeException if the metric is of another type, or the value is out of its range
+	 */
+	public void setLongValue(long value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromLong(dataType.toIntValue(), value));
+	}
+
+	public void setIntValue(int value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromLong(dataType.toIntValue(), value));
+	}
+
+	public void setFloatValue(float value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromFloat(dataType.toIntValue(), value));
+	}
+
+	public void setDoubleValue(double value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromDouble(dataType.toIntValue(), value));
+	}
+
+	public void setBooleanValue(boolean value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromBoolean(dataType.toIntValue(), value));
+	}
+
+	private void setBits(long bits) {
+		this.bits = bits;
+		this.value = null;
+		primitive = true;
+		isNull = false;
+	}
+
+	/**
+	 * @return the value of a metric of a basic type which is not null, held as described in {@link PrimitiveValues}
+	 */
+	@JsonIgnore
+	public long getValueBits() throws SparkplugInvalidTypeException {
+		return primitive ? bits : PrimitiveValues.toBits(dataType.toIntValue(), value);
+	}
+
+	/**
+	 * @return the value of a metric of an integer type, or a DateTime in milliseconds since the epoch
+	 */
+	@JsonIgnore
+	public long getLongValue() throws SparkplugInvalidTypeException {
+		return getValueBits();
+	}
+
+	@JsonIgnore
+	public int getIntValue() throws SparkplugInvalidTypeException {
+		return (int) getValueBits();
+	}
+
+	@JsonIgnore
+	public float getFloatValue() throws SparkplugInvalidTypeException {
+		return (float) PrimitiveValues.toDouble(dataType.toIntValue(), getValueBits());
+	}
+
+	@JsonIgnore
+	public double getDoubleValue() throws SparkplugInvalidTypeException {
+		return PrimitiveValues.toDouble(dataType.toIntValue(), getValueBits());
+	}
+
+	@JsonIgnore
+	public boolean getBooleanValue() throws SparkplugInvalidTypeException {
+		return getValueBits() != 0;
+	}
+
 	public PropertySet getProperties() {
 		return this.properties;
 	}
@@ -257,7 +337,7 @@ public class Metric {
 		} else if (dataType == MetricDataType.UInt64Array) {
 			builder.append(Arrays.toString((BigInteger[]) value));
 		} else {
-			builder.append(value);
+			builder.append(getValue());
 		}
 		builder.append(", isNull=");
 		builder.append(isNull);
@@ -279,6 +359,10 @@ public class Metric {
 		private MetaData metaData = null;
 		private PropertySet properties = null;
 		private Object value;
+		private Class<?> primitiveType = null;
+		private long longValue;
+		private double doubleValue;
+		private boolean copiedBits = false;
 
 		public MetricBuilder(String name, MetricDataType dataType, Object value) {
 			this.name = name;
@@ -318,7 +402,13 @@ public class Metric {
 							: null;
 					break;
 				default:
-					this.value = metric.getValue();
+					if (metric.hasPrimitiveValue()) {
+						// already checked against the type, so copied as it is held
+						this.copiedBits = true;
+						this.longValue = metric.bits;
+					} else {
+						this.value = metric.getValue();
+					}
 			}
 		}
 
@@ -364,11 +454,59 @@ public class Metric {
 
 		public MetricBuilder value(Object value) {
 			this.value = value;
+			this.primitiveType = null;
+			this.copiedBits = false;
+			return this;
+		}
+
+		/**
+		 * Sets the value of an integer or DateTime metric without boxing it. The type is checked by
+		 * {@link #createMetric()}.
+		 */
+		public MetricBuilder longValue(long value) {
+			return primitive(long.class, value, 0);
+		}
+
+		public MetricBuilder intValue(int value) {
+			return primitive(long.class, value, 0);
+		}
+
+		public MetricBuilder floatValue(float value) {
+			return primitive(float.class, 0, value);
+		}
+
+		public MetricBuilder doubleValue(double value) {
+			return primitive(double.class, 0, value);
+		}
+
+		public MetricBuilder booleanValue(boolean value) {
+			return primitive(boolean.class, value ? 1 : 0, 0);
+		}
+
+		private MetricBuilder primitive(Class<?> type, long longValue, double doubleValue) {
+			this.value = null;
+			this.copiedBits = false;
+			this.primitiveType = type;
+			this.longValue = longValue;
+			this.doubleValue = doubleValue;
 			return this;
 		}
 
 		public Metric createMetric() throws SparkplugInvalidTypeException {
-			return new Metric(name, alias, timestamp, dataType, isHistorical, isTransient, metaData, properties, value);
+			Metric metric =
+					new Metric(name, alias, timestamp, dataType, isHistorical, isTransient, metaData, properties, value);
+			if (copiedBits) {
+				metric.setBits(longValue);
+			} else if (primitiveType == long.class) {
+				metric.setLongValue(longValue);
+			} else if (primitiveType == float.class) {
+				metric.setFloatValue((float) doubleValue);
+			} else if (primitiveType == double.class) {
+				metric.setDoubleValue(doubleValue);
+			} else if (primitiveType == boolean.class) {
+				metric.setBooleanValue(longValue != 0);
+			}
+			return metric;
 		}
 	}
 }
@@ -18,6 +18,7 @@ import java.util.Objects;
 import org.eclipse.sparkplug.impl.exception.SparkplugInvalidTypeException;
 
 import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSetter;
 
@@ -44,6 +45,10 @@ public class Parameter {
 	@JsonProperty("value")
 	private Object value;
 
+	// a value of a basic type set by one of the typed setters, held unboxed as in PrimitiveValues
+	private boolean primitive = false;
+	private long bits;
+
 	public Parameter() {
 	}
 
@@ -83,11 +88,83 @@ public class Parameter {
 	}
 
 	public Object getValue() {
-		return value;
+		return primitive ? PrimitiveValues.box(type.toIntValue(), bits) : value;
 	}
 
 	public void setValue(Object value) {
 		this.value = value;
+		primitive = false;
+	}
+
+	/**
+	 * @return whether the value was set by one of the typed setters, and so is held without boxing
+	 */
+	public boolean hasPrimitiveValue() {
+		return primitive;
+	}
+
+	/**
+	 * Sets the value of a parameter of an integer type, or of a DateTime in milliseconds since the epoch.
+	 *
+	 * @throws SparkplugInvalidTypeException if the type is another, or the value is out of its range
+	 */
+	public void setLongValue(long value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromLong(type.toIntValue(), value));
+	}
+
+	public void setIntValue(int value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromLong(type.toIntValue(), value));
+	}
+
+	public void setFloatValue(float value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromFloat(type.toIntValue(), value));
+	}
+
+	public void setDoubleValue(double value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromDouble(type.toIntValue(), value));
+	}
+
+	public void setBooleanValue(boolean value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromBoolean(type.toIntValue(), value));
+	}
+
+	private void setBits(long bits) {
+		this.bits = bits;
+		this.value = null;
+		primitive = true;
+	}
+
+	/**
+	 * @return the value of a basic type which is not null, held as described in {@link PrimitiveValues}
+	 */
+	@JsonIgnore
+	public long getValueBits() throws SparkplugInvalidTypeException {
+		return primitive ? bits : PrimitiveValues.toBits(type.toIntValue(), value);
+	}
+
+	@JsonIgnore
+	public long getLongValue() throws SparkplugInvalidTypeException {
+		return getValueBits();
+	}
+
+	@JsonIgnore
+	public int getIntValue() throws SparkplugInvalidTypeException {
+		return (int) getValueBits();
+	}
+
+	@JsonIgnore
+	public float getFloatValue() throws SparkplugInvalidTypeException {
+		return (float) PrimitiveValues.toDouble(type.toIntValue(), getValueBits());
+	}
+
+	@JsonIgnore
+	public double getDoubleValue() throws SparkplugInvalidTypeException {
+		return PrimitiveValues.toDouble(type.toIntValue(), getValueBits());
+	}
+
+	@JsonIgnore
+	public boolean getBooleanValue() throws SparkplugInvalidTypeException {
+		return getValueBits() != 0;
 	}
 
 	@Override
@@ -100,7 +177,7 @@ public class Parameter {
 		}
 		Parameter param = (Parameter) object;
 		return Objects.equals(name, param.getName()) && Objects.equals(type, param.getType())
-				&& Objects.equals(value, param.getValue());
+				&& Objects.equals(getValue(), param.getValue());
 	}
 
 	@Override
@@ -111,7 +188,7 @@ public class Parameter {
 		builder.append(", type=");
 		builder.append(type);
 		builder.append(", value=");
-		builder.append(value);
+		builder.append(getValue());
 		builder.append("]");
 		return builder.toString();
 	}
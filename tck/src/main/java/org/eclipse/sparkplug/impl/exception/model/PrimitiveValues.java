@@ -0,0 +1,223 @@
+/********************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.eclipse.sparkplug.impl.exception.model;
+
+import java.math.BigInteger;
+import java.util.Date;
+
+import org.eclipse.sparkplug.impl.exception.SparkplugInvalidTypeException;
+
+/**
+ * Unboxed values of the basic types, shared by {@link Metric}, {@link Parameter}, {@link PropertyValue} and
+ * {@link Value}.
+ *
+ * The basic types have the same numbers in {@link MetricDataType}, {@link ParameterDataType},
+ * {@link PropertyDataType} and {@link DataSetDataType}, so a value is handled here by its type number. It is held in a
+ * long as:
+ * <ul>
+ * <li>the value itself for the integer types, unsigned for the unsigned ones, and the 64 bits of a UInt64</li>
+ * <li>milliseconds since the epoch for a DateTime</li>
+ * <li>the raw bits of a Float or Double</li>
+ * <li>1 or 0 for a Boolean</li>
+ * </ul>
+ */
+public final class PrimitiveValues {
+
+	public static final int INT8 = 1;
+	public static final int INT16 = 2;
+	public static final int INT32 = 3;
+	public static final int INT64 = 4;
+	public static final int UINT8 = 5;
+	public static final int UINT16 = 6;
+	public static final int UINT32 = 7;
+	public static final int UINT64 = 8;
+	public static final int FLOAT = 9;
+	public static final int DOUBLE = 10;
+	public static final int BOOLEAN = 11;
+	public static final int DATETIME = 13;
+
+	private static final BigInteger TWO_TO_64 = BigInteger.ONE.shiftLeft(64);
+
+	private PrimitiveValues() {
+	}
+
+	/**
+	 * @return whether values of a type can be held unboxed
+	 */
+	public static boolean isPrimitive(int type) {
+		return (type >= INT8 && type <= BOOLEAN) || type == DATETIME;
+	}
+
+	/**
+	 * Checks an integer against the range of an integer type, or a DateTime.
+	 *
+	 * @return the value as held
+	 * @throws SparkplugInvalidTypeException if the type is not an integer type, or the value is out of its range
+	 */
+	public static long fromLong(int type, long value) throws SparkplugInvalidTypeException {
+		boolean valid;
+		switch (type) {
+			case INT8:
+				valid = value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE;
+				break;
+			case INT16:
+				valid = value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+				break;
+			case INT32:
+				valid = value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+				break;
+			case UINT8:
+				valid = value >= 0 && value <= 0xff;
+				break;
+			case UINT16:
+				valid = value >= 0 && value <= 0xffff;
+				break;
+			case UINT32:
+				valid = value >= 0 && value <= 0xffffffffL;
+				break;
+			case INT64:
+			case UINT64:
+			case DATETIME:
+				valid = true;
+				break;
+			default:
+				valid = false;
+		}
+		if (!valid) {
+			throw new SparkplugInvalidTypeException(long.class);
+		}
+		return value;
+	}
+
+	public static long fromFloat(int type, float value) throws SparkplugInvalidTypeException {
+		if (type != FLOAT) {
+			throw new SparkplugInvalidTypeException(float.class);
+		}
+		return Float.floatToRawIntBits(value);
+	}
+
+	public static long fromDouble(int type, double value) throws SparkplugInvalidTypeException {
+		if (type != DOUBLE) {
+			throw new SparkplugInvalidTypeException(double.class);
+		}
+		return Double.doubleToRawLongBits(value);
+	}
+
+	public static long fromBoolean(int type, boolean value) throws SparkplugInvalidTypeException {
+		if (type != BOOLEAN) {
+			throw new SparkplugInvalidTypeException(boolean.class);
+		}
+		return value ? 1 : 0;
+	}
+
+	/**
+	 * Unboxes a value of a basic type, taking unsigned values the way the encoder always has.
+	 *
+	 * @throws ClassCastException if the value is not of the class of the type
+	 * @throws SparkplugInvalidTypeException if a UInt64 value is out of its range
+	 */
+	public static long toBits(int type, Object value) throws SparkplugInvalidTypeException {
+		switch (type) {
+			case INT8:
+				return (Byte) value;
+			case INT16:
+				return (Short) value;
+			case INT32:
+				return (Integer) value;
+			case UINT8:
+				return Short.toUnsignedInt((Short) value);
+			case UINT16:
+				return (Integer) value;
+			case INT64:
+			case UINT32:
+				// older callers have given a BigInteger for a UInt32 parameter
+				return ((Number) value).longValue();
+			case UINT64:
+				BigInteger bigInteger = (BigInteger) value;
+				if (bigInteger.signum() < 0) {
+					bigInteger = bigInteger.add(TWO_TO_64);
+				}
+				if (bigInteger.compareTo(TWO_TO_64) >= 0 || bigInteger.signum() < 0) {
+					throw new SparkplugInvalidTypeException(BigInteger.class);
+				}
+				return bigInteger.longValue();
+			case FLOAT:
+				return Float.floatToRawIntBits((Float) value);
+			case DOUBLE:
+				return Double.doubleToRawLongBits((Double) value);
+			case BOOLEAN:
+				return toBoolean(value) ? 1 : 0;
+			case DATETIME:
+				return ((Date) value).getTime();
+			default:
+				throw new ClassCastException("Not a basic type: " + type);
+		}
+	}
+
+	/**
+	 * Boxes a value held as bits into the class of its type.
+	 */
+	public static Object box(int type, long bits) {
+		switch (type) {
+			case INT8:
+				return (byte) bits;
+			case INT16:
+			case UINT8:
+				return (short) bits;
+			case INT32:
+			case UINT16:
+				return (int) bits;
+			case INT64:
+			case UINT32:
+				return bits;
+			case UINT64:
+				return new BigInteger(Long.toUnsignedString(bits));
+			case FLOAT:
+				return Float.intBitsToFloat((int) bits);
+			case DOUBLE:
+				return Double.longBitsToDouble(bits);
+			case BOOLEAN:
+				return bits != 0;
+			case DATETIME:
+				return new Date(bits);
+			default:
+				throw new IllegalArgumentException("Not a basic type: " + type);
+		}
+	}
+
+	/**
+	 * @return a value held as bits as a double, widening a Float and converting an integer
+	 */
+	public static double toDouble(int type, long bits) {
+		switch (type) {
+			case FLOAT:
+				return Float.intBitsToFloat((int) bits);
+			case DOUBLE:
+				return Double.longBitsToDouble(bits);
+			case UINT64:
+				return bits >= 0 ? bits : new BigInteger(Long.toUnsignedString(bits)).doubleValue();
+			default:
+				return bits;
+		}
+	}
+
+	private static boolean toBoolean(Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue() != 0;
+		} else if (value instanceof String) {
+			return Boolean.parseBoolean(value.toString());
+		}
+		return (Boolean) value;
+	}
+}
@@ -28,6 +28,10 @@ public class PropertyValue {
 	private Object value;
 	private Boolean isNull = null;
 
+	// a value of a basic type set by one of the typed setters, held unboxed as in PrimitiveValues
+	private boolean primitive = false;
+	private long bits;
+
 	public PropertyValue() {
 	}
 
@@ -54,14 +58,87 @@ public class PropertyValue {
 	}
 
 	public Object getValue() {
-		return value;
+		return primitive ? PrimitiveValues.box(type.toIntValue(), bits) : value;
 	}
 
 	public void setValue(Object value) {
 		this.value = value;
+		primitive = false;
 		isNull = (value == null) ? true : false;
 	}
 
+	/**
+	 * @return whether the value was set by one of the typed setters, and so is held without boxing
+	 */
+	public boolean hasPrimitiveValue() {
+		return primitive;
+	}
+
+	/**
+	 * Sets the value of a property of an integer type, or of a DateTime in milliseconds since the epoch.
+	 *
+	 * @throws SparkplugInvalidTypeException if the type is another, or the value is out of its range
+	 */
+	public void setLongValue(long value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromLong(type.toIntValue(), value));
+	}
+
+	public void setIntValue(int value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromLong(type.toIntValue(), value));
+	}
+
+	public void setFloatValue(float value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromFloat(type.toIntValue(), value));
+	}
+
+	public void setDoubleValue(double value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromDouble(type.toIntValue(), value));
+	}
+
+	public void setBooleanValue(boolean value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromBoolean(type.toIntValue(), value));
+	}
+
+	private void setBits(long bits) {
+		this.bits = bits;
+		this.value = null;
+		primitive = true;
+		isNull = false;
+	}
+
+	/**
+	 * @return the value of a basic type which is not null, held as described in {@link PrimitiveValues}
+	 */
+	@JsonIgnore
+	public long getValueBits() throws SparkplugInvalidTypeException {
+		return primitive ? bits : PrimitiveValues.toBits(type.toIntValue(), value);
+	}
+
+	@JsonIgnore
+	public long getLongValue() throws SparkplugInvalidTypeException {
+		return getValueBits();
+	}
+
+	@JsonIgnore
+	public int getIntValue() throws SparkplugInvalidTypeException {
+		return (int) getValueBits();
+	}
+
+	@JsonIgnore
+	public float getFloatValue() throws SparkplugInvalidTypeException {
+		return (float) PrimitiveValues.toDouble(type.toIntValue(), getValueBits());
+	}
+
+	@JsonIgnore
+	public double getDoubleValue() throws SparkplugInvalidTypeException {
+		return PrimitiveValues.toDouble(type.toIntValue(), getValueBits());
+	}
+
+	@JsonIgnore
+	public boolean getBooleanValue() throws SparkplugInvalidTypeException {
+		return getValueBits() != 0;
+	}
+
 	@JsonIgnore
 	public Boolean isNull() {
 		return isNull;
@@ -76,7 +153,7 @@ public class PropertyValue {
 			return false;
 		}
 		PropertyValue propValue = (PropertyValue) object;
-		return Objects.equals(type, propValue.getType()) && Objects.equals(value, propValue.getValue());
+		return Objects.equals(type, propValue.getType()) && Objects.equals(getValue(), propValue.getValue());
 	}
 
 	@Override
@@ -85,7 +162,7 @@ public class PropertyValue {
 		builder.append("PropertyValue [type=");
 		builder.append(type);
 		builder.append(", value=");
-		builder.append(value);
+		builder.append(getValue());
 		builder.append(", isNull=");
 		builder.append(isNull);
 		builder.append("]");
@@ -171,31 +171,34 @@ public class Topic {
 						"Invalid Sparkplug topic String: ''" + topicString);
 			}
 
-			String[] splitTopic = topicString.split("/");
-			if (splitTopic.length == 3) {
-				if (SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX.equals(splitTopic[0])
-						&& SparkplugMeta.SPARKPLUG_TOPIC_HOST_STATE_TOKEN.equals(splitTopic[1])) {
-					return new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX, splitTopic[2], MessageType.STATE);
+			TopicLevels splitTopic = new TopicLevels(topicString);
+			boolean sparkplugB = splitTopic.levelEquals(0, SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX);
+			if (splitTopic.getLevelCount() == 3) {
+				if (sparkplugB && splitTopic.levelEquals(1, SparkplugMeta.SPARKPLUG_TOPIC_HOST_STATE_TOKEN)) {
+					return new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX, splitTopic.getLevel(2),
+							MessageType.STATE);
 				} else {
 					throw new SparkplugException(SparkplugErrorCode.INVALID_ARGUMENT,
 							"Invalid Sparkplug STATE topic String: ''" + topicString);
 				}
-			} else if (splitTopic.length == 4) {
-				MessageType messageType = MessageType.parseMessageType(splitTopic[2]);
-				if (SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX.equals(splitTopic[0]) && (messageType == MessageType.NBIRTH
-						|| messageType == MessageType.NCMD || messageType == MessageType.NDATA
-						|| messageType == MessageType.NDEATH || messageType == MessageType.NRECORD)) {
-					return new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX, splitTopic[1], splitTopic[3], messageType);
+			} else if (splitTopic.getLevelCount() == 4) {
+				MessageType messageType = MessageType.parseMessageType(splitTopic.getLevel(2));
+				if (sparkplugB && (messageType == MessageType.NBIRTH || messageType == MessageType.NCMD
+						|| messageType == MessageType.NDATA || messageType == MessageType.NDEATH
+						|| messageType == MessageType.NRECORD)) {
+					return new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX, splitTopic.getLevel(1),
+							splitTopic.getLevel(3), messageType);
 				} else {
 					throw new SparkplugException(SparkplugErrorCode.INVALID_ARGUMENT,
 							"Invalid Sparkplug Edge Node topic String: ''" + topicString);
 				}
-			} else if (splitTopic.length == 5) {
-				MessageType messageType = MessageType.parseMessageType(splitTopic[2]);
-				if (SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX.equals(splitTopic[0]) && (messageType == MessageType.DBIRTH
-						|| messageType == MessageType.DCMD || messageType == MessageType.DDATA
-						|| messageType == MessageType.DDEATH || messageType == MessageType.DRECORD)) {
-					return new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX, splitTopic[1], splitTopic[3], messageType);
+			} else if (splitTopic.getLevelCount() == 5) {
+				MessageType messageType = MessageType.parseMessageType(splitTopic.getLevel(2));
+				if (sparkplugB && (messageType == MessageType.DBIRTH || messageType == MessageType.DCMD
+						|| messageType == MessageType.DDATA || messageType == MessageType.DDEATH
+						|| messageType == MessageType.DRECORD)) {
+					return new Topic(SparkplugMeta.SPARKPLUG_B_TOPIC_PREFIX, splitTopic.getLevel(1),
+							splitTopic.getLevel(3), splitTopic.getLevel(4), messageType);
 				} else {
 					throw new SparkplugException(SparkplugErrorCode.INVALID_ARGUMENT,
 							"Invalid Sparkplug Device topic String: ''" + topicString);
@@ -0,0 +1,104 @@
+/********************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.eclipse.sparkplug.impl.exception.model;
+
+/**
+ * An MQTT topic split into its levels, without copying the topic. The levels are held as offsets into the topic
+ * string, and only copied out when asked for.
+ *
+ * Unlike String.split, empty levels are kept, including a trailing one, as they are in MQTT.
+ */
+public class TopicLevels {
+
+	private final String topic;
+
+	/**
+	 * The start of each level, then one past the end of the topic
+	 */
+	private final int[] starts;
+
+	public TopicLevels(String topic) {
+		this.topic = topic;
+
+		int count = 1;
+		for (int i = 0; i < topic.length(); ++i) {
+			if (topic.charAt(i) == '/') {
+				++count;
+			}
+		}
+		starts = new int[count + 1];
+		int level = 1;
+		for (int i = 0; i < topic.length(); ++i) {
+			if (topic.charAt(i) == '/') {
+				starts[level++] = i + 1;
+			}
+		}
+		starts[count] = topic.length() + 1;
+	}
+
+	public String getTopic() {
+		return topic;
+	}
+
+	public int getLevelCount() {
+		return starts.length - 1;
+	}
+
+	/**
+	 * Returns the offset in the topic of the first character of a level
+	 *
+	 * @param level the level, from 0
+	 * @return the offset
+	 */
+	public int getLevelStart(int level) {
+		return starts[level];
+	}
+
+	/**
+	 * Returns the offset in the topic one past the last character of a level
+	 *
+	 * @param level the level, from 0
+	 * @return the offset
+	 */
+	public int getLevelEnd(int level) {
+		return starts[level + 1] - 1;
+	}
+
+	/**
+	 * Returns a level as a new String
+	 *
+	 * @param level the level, from 0
+	 * @return the level
+	 */
+	public String getLevel(int level) {
+		return topic.substring(getLevelStart(level), getLevelEnd(level));
+	}
+
+	/**
+	 * Returns whether a level is exactly the given String, without extracting it from the topic
+	 *
+	 * @param level the level, from 0
+	 * @param value the String to compare the level with
+	 * @return true if the level is equal to the value
+	 */
+	public boolean levelEquals(int level, String value) {
+		final int start = getLevelStart(level);
+		return getLevelEnd(level) - start == value.length() && topic.startsWith(value, start);
+	}
+
+	@Override
+	public String toString() {
+		return topic;
+	}
+}
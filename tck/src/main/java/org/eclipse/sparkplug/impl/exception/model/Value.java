@@ -13,11 +13,19 @@
 
 package org.eclipse.sparkplug.impl.exception.model;
 
+import org.eclipse.sparkplug.impl.exception.SparkplugInvalidTypeException;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class Value<V> {
 
 	private DataSetDataType type;
 	private V value;
 
+	// a value of a basic type set by one of the typed setters, held unboxed as in PrimitiveValues
+	private boolean primitive = false;
+	private long bits;
+
 	public Value() {
 		super();
 	}
@@ -36,12 +44,89 @@ public class Value<V> {
 		this.type = type;
 	}
 
+	/**
+	 * A value set by one of the typed setters is boxed into the class of its type.
+	 */
+	@SuppressWarnings("unchecked")
 	public V getValue() {
-		return value;
+		return primitive ? (V) PrimitiveValues.box(type.toIntValue(), bits) : value;
 	}
 
 	public void setValue(V value) {
 		this.value = value;
+		primitive = false;
+	}
+
+	/**
+	 * @return whether the value was set by one of the typed setters, and so is held without boxing
+	 */
+	@JsonIgnore
+	public boolean hasPrimitiveValue() {
+		return primitive;
+	}
+
+	/**
+	 * Sets the value of a data set value of an integer type, or of a DateTime in milliseconds since the epoch.
+	 *
+	 * @throws SparkplugInvalidTypeException if the type is another, or the value is out of its range
+	 */
+	public void setLongValue(long value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromLong(type.toIntValue(), value));
+	}
+
+	public void setIntValue(int value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromLong(type.toIntValue(), value));
+	}
+
+	public void setFloatValue(float value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromFloat(type.toIntValue(), value));
+	}
+
+	public void setDoubleValue(double value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromDouble(type.toIntValue(), value));
+	}
+
+	public void setBooleanValue(boolean value) throws SparkplugInvalidTypeException {
+		setBits(PrimitiveValues.fromBoolean(type.toIntValue(), value));
+	}
+
+	private void setBits(long bits) {
+		this.bits = bits;
+		this.value = null;
+		primitive = true;
+	}
+
+	/**
+	 * @return the value of a basic type which is not null, held as described in {@link PrimitiveValues}
+	 */
+	@JsonIgnore
+	public long getValueBits() throws SparkplugInvalidTypeException {
+		return primitive ? bits : PrimitiveValues.toBits(type.toIntValue(), value);
+	}
+
+	@JsonIgnore
+	public long getLongValue() throws SparkplugInvalidTypeException {
+		return getValueBits();
+	}
+
+	@JsonIgnore
+	public int getIntValue() throws SparkplugInvalidTypeException {
+		return (int) getValueBits();
+	}
+
+	@JsonIgnore
+	public float getFloatValue() throws SparkplugInvalidTypeException {
+		return (float) PrimitiveValues.toDouble(type.toIntValue(), getValueBits());
+	}
+
+	@JsonIgnore
+	public double getDoubleValue() throws SparkplugInvalidTypeException {
+		return PrimitiveValues.toDouble(type.toIntValue(), getValueBits());
+	}
+
+	@JsonIgnore
+	public boolean getBooleanValue() throws SparkplugInvalidTypeException {
+		return getValueBits() != 0;
 	}
 
 	@Override
@@ -50,7 +135,7 @@ public class Value<V> {
 		builder.append("Value [type=");
 		builder.append(type);
 		builder.append(", value=");
-		builder.append(value);
+		builder.append(getValue());
 		builder.append("]");
 		return builder.toString();
 	}
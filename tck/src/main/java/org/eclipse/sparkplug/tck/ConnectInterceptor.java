@@ -13,15 +13,21 @@
 
 package org.eclipse.sparkplug.tck;
 
+import java.nio.ByteBuffer;
+
+import org.eclipse.sparkplug.tck.capture.CaptureLog;
+import org.eclipse.sparkplug.tck.jfr.ClientConnectEvent;
 import org.eclipse.sparkplug.tck.test.TCK;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.interceptor.connect.ConnectInboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.connect.parameter.ConnectInboundInput;
 import com.hivemq.extension.sdk.api.interceptor.connect.parameter.ConnectInboundOutput;
 import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.connect.WillPublishPacket;
 
 /**
  * @author Ian Craggs
@@ -32,9 +38,15 @@ public class ConnectInterceptor implements ConnectInboundInterceptor {
 	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
 
 	private final @NotNull TCK theTCK;
+	private final @Nullable CaptureLog capture;
 
 	public ConnectInterceptor(final @NotNull TCK theTCK) {
+		this(theTCK, null);
+	}
+
+	public ConnectInterceptor(final @NotNull TCK theTCK, final @Nullable CaptureLog capture) {
 		this.theTCK = theTCK;
+		this.capture = capture;
 	}
 
 	@Override
@@ -50,8 +62,23 @@ public class ConnectInterceptor implements ConnectInboundInterceptor {
 			logger.debug("\tKeep Alive {}", connectInboundInput.getConnectPacket().getKeepAlive());
 
 			final ConnectPacket packet = connectInboundInput.getConnectPacket();
+			if (capture != null) {
+				capture.connect(clientId, packet);
+			}
 			theTCK.connect(clientId, packet);
 
+			final ClientConnectEvent event = new ClientConnectEvent();
+			if (event.shouldCommit()) {
+				final WillPublishPacket will = packet.getWillPublish().orElse(null);
+				if (will == null) {
+					event.commit(clientId, null, null, null, 0);
+				} else {
+					// the will topic is recorded as it is, not parsed as a Sparkplug topic
+					event.setWillTopic(will.getTopic());
+					event.commit(clientId, null, null, null, will.getPayload().map(ByteBuffer::remaining).orElse(0));
+				}
+			}
+
 		} catch (final Exception e) {
 			logger.error("Connect Exception", e);
 		}
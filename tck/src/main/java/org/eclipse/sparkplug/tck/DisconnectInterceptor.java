@@ -14,10 +14,13 @@
 package org.eclipse.sparkplug.tck;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.interceptor.disconnect.DisconnectInboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.disconnect.parameter.DisconnectInboundInput;
 import com.hivemq.extension.sdk.api.interceptor.disconnect.parameter.DisconnectInboundOutput;
 import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import org.eclipse.sparkplug.tck.capture.CaptureLog;
+import org.eclipse.sparkplug.tck.jfr.ClientDisconnectEvent;
 import org.eclipse.sparkplug.tck.test.TCK;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,9 +34,15 @@ public class DisconnectInterceptor implements DisconnectInboundInterceptor {
     private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
 
     private final @NotNull TCK theTCK;
+    private final @Nullable CaptureLog capture;
 
     public DisconnectInterceptor(final @NotNull TCK theTCK) {
+        this(theTCK, null);
+    }
+
+    public DisconnectInterceptor(final @NotNull TCK theTCK, final @Nullable CaptureLog capture) {
         this.theTCK = theTCK;
+        this.capture = capture;
     }
 
     @Override
@@ -45,7 +54,16 @@ public class DisconnectInterceptor implements DisconnectInboundInterceptor {
             logger.debug("Inbound disconnect from '{}'", clientId);
 
             final DisconnectPacket packet = disconnectInboundInput.getDisconnectPacket();
+            if (capture != null) {
+                capture.disconnect(clientId, packet);
+            }
             theTCK.disconnect(clientId, packet);
+
+            final ClientDisconnectEvent event = new ClientDisconnectEvent();
+            if (event.shouldCommit()) {
+                event.setReasonCode(packet.getReasonCode().name());
+                event.commit(clientId, null, null, null, 0);
+            }
         } catch (final Exception e) {
             logger.error("Disconnect Exception", e);
         }
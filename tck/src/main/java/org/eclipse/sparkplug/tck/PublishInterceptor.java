@@ -15,17 +15,19 @@ package org.eclipse.sparkplug.tck;
 
 import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_CONSOLE_TEST_CONTROL_TOPIC;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_LOG_TOPIC;
-import static org.eclipse.sparkplug.tck.test.common.Utils.tokenize;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
+import org.eclipse.sparkplug.tck.capture.CaptureLog;
+import org.eclipse.sparkplug.tck.jfr.InboundPublishEvent;
+import org.eclipse.sparkplug.tck.metrics.LatencyHistogram;
 import org.eclipse.sparkplug.tck.test.TCK;
-import org.eclipse.sparkplug.tck.test.common.Constants.Profile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.interceptor.publish.PublishInboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.publish.PublishOutboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundInput;
@@ -43,53 +45,60 @@ public class PublishInterceptor implements PublishInboundInterceptor {
 	private final static @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
 
 	private final TCK theTCK;
+	private final @Nullable CaptureLog capture;
+	private final @NotNull LatencyHistogram inboundPublish;
 
 	public PublishInterceptor(final @NotNull TCK theTCK) {
+		this(theTCK, null);
+	}
+
+	public PublishInterceptor(final @NotNull TCK theTCK, final @Nullable CaptureLog capture) {
 		this.theTCK = theTCK;
+		this.capture = capture;
+		this.inboundPublish = theTCK.getMetrics().inboundPublish();
 	}
 
 	@Override
 	public void onInboundPublish(final @NotNull PublishInboundInput publishInboundInput,
 			final @NotNull PublishInboundOutput publishInboundOutput) {
+		final InboundPublishEvent event = new InboundPublishEvent();
+		event.begin();
+		final long start = System.nanoTime();
 		try {
 			final String clientId = publishInboundInput.getClientInformation().getClientId();
 			final PublishPacket packet = publishInboundInput.getPublishPacket();
 			final String topic = packet.getTopic();
 			logger.debug("Inbound publish from '{}' at {} ", clientId, topic);
+			if (capture != null) {
+				capture.publish(clientId, packet);
+			}
 			if (packet.getPayload().isPresent()) {
+				// only the TCK's own topics need the payload as a string, everything else is left to the TCK,
+				// which drops it straight away if no test is interested in the topic
 				final ByteBuffer payloadByteBuffer = packet.getPayload().get();
-				final String payload = StandardCharsets.UTF_8.decode(payloadByteBuffer).toString();
-				logger.trace("\tPayload {}", payload);
+				if (logger.isTraceEnabled()) {
+					logger.trace("\tPayload {}", decode(payloadByteBuffer));
+				}
 
-				if (topic.equals(TCK_LOG_TOPIC)) {
-					logger.debug(clientId + ": " + payload); // display log message
+				if (topic.equals(TCK_LOG_TOPIC) && logger.isDebugEnabled()) {
+					logger.debug(clientId + ": " + decode(payloadByteBuffer)); // display log message
 				}
 
 				if (topic.equals(TCK_CONSOLE_TEST_CONTROL_TOPIC)) {
-					String cmd = "NEW_TEST";
-					if (payload.toUpperCase().startsWith(cmd)) {
-						final String[] strings = tokenize(payload.trim());
-						if (strings.length < 3) {
-							throw new RuntimeException("New test syntax is: NEW_TEST profile testname <parameters>");
-						}
-
-						final int no_parms = strings.length - 3;
-						final String[] parms = new String[no_parms];
-						if (no_parms > 0) {
-							System.arraycopy(strings, 3, parms, 0, no_parms);
-						}
-						theTCK.newTest(Profile.valueOf(strings[1].toUpperCase()), strings[2], parms);
-					} else {
-						cmd = "END_TEST";
-						if (payload.toUpperCase().trim().equals(cmd)) {
-							theTCK.endTest();
-						}
-					}
+					theTCK.control(decode(payloadByteBuffer));
 				} else
 					theTCK.publish(clientId, packet);
 			}
+			event.end();
+			event.commit(clientId, topic, packet.getPayload().map(ByteBuffer::remaining).orElse(0));
 		} catch (final Exception e) {
 			logger.error("Publish Exception", e);
+		} finally {
+			inboundPublish.record(System.nanoTime() - start);
 		}
 	}
+
+	private static @NotNull String decode(final @NotNull ByteBuffer payload) {
+		return StandardCharsets.UTF_8.decode(payload.duplicate()).toString();
+	}
 }
\ No newline at end of file
@@ -13,11 +13,13 @@
 
 package org.eclipse.sparkplug.tck;
 
+import org.eclipse.sparkplug.tck.capture.CaptureLog;
 import org.eclipse.sparkplug.tck.test.TCK;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.events.client.ClientLifecycleEventListener;
 import com.hivemq.extension.sdk.api.events.client.parameters.AuthenticationSuccessfulInput;
 import com.hivemq.extension.sdk.api.events.client.parameters.ConnectionStartInput;
@@ -27,9 +29,15 @@ public class SparkplugClientLifecycleEventListener implements ClientLifecycleEve
 
 	private final static @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
 	private final TCK theTCK;
+	private final @Nullable CaptureLog capture;
 
 	public SparkplugClientLifecycleEventListener(TCK aTCK) {
+		this(aTCK, null);
+	}
+
+	public SparkplugClientLifecycleEventListener(TCK aTCK, @Nullable CaptureLog capture) {
 		theTCK = aTCK;
+		this.capture = capture;
 	}
 
 	@Override
@@ -48,6 +56,9 @@ public class SparkplugClientLifecycleEventListener implements ClientLifecycleEve
 	@Override
 	public void onDisconnect(DisconnectEventInput disconnectEventInput) {
 		// logger.info("Client {} disconnected.", disconnectEventInput.getClientInformation().getClientId());
+		if (capture != null) {
+			capture.connectionClosed(disconnectEventInput.getClientInformation().getClientId(), disconnectEventInput);
+		}
 		theTCK.onDisconnect(disconnectEventInput);
 	}
 }
\ No newline at end of file
@@ -13,22 +13,30 @@
 
 package org.eclipse.sparkplug.tck;
 
+import org.eclipse.sparkplug.tck.capture.CaptureLog;
 import org.eclipse.sparkplug.tck.test.TCK;
 
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.events.client.ClientLifecycleEventListenerProvider;
 import com.hivemq.extension.sdk.api.events.client.parameters.ClientLifecycleEventListenerProviderInput;
 
 public class SparkplugClientLifecycleEventListenerProvider implements ClientLifecycleEventListenerProvider {
 
 	TCK theTCK;
+	private final @Nullable CaptureLog capture;
 
 	public SparkplugClientLifecycleEventListenerProvider(TCK aTCK) {
+		this(aTCK, null);
+	}
+
+	public SparkplugClientLifecycleEventListenerProvider(TCK aTCK, @Nullable CaptureLog capture) {
 		theTCK = aTCK;
+		this.capture = capture;
 	}
 
 	@Override
 	public SparkplugClientLifecycleEventListener getClientLifecycleEventListener(
 			ClientLifecycleEventListenerProviderInput input) {
-		return new SparkplugClientLifecycleEventListener(theTCK);
+		return new SparkplugClientLifecycleEventListener(theTCK, capture);
 	}
 }
\ No newline at end of file
@@ -13,6 +13,7 @@
 
 package org.eclipse.sparkplug.tck;
 
+import org.eclipse.sparkplug.tck.capture.CaptureLog;
 import org.eclipse.sparkplug.tck.test.TCK;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +35,9 @@ public class SparkplugHiveMQExtension implements ExtensionMain {
 
 	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
 
+	private TCK aTCK = null;
+	private CaptureLog capture = null;
+
 	@Override
 	public void extensionStart(final @NotNull ExtensionStartInput extensionStartInput,
 			final @NotNull ExtensionStartOutput extensionStartOutput) {
@@ -41,14 +45,17 @@ public class SparkplugHiveMQExtension implements ExtensionMain {
 		try {
 			logger.info("Starting Sparkplug TCK Extension");
 
-			final TCK aTCK = new TCK();
+			aTCK = new TCK();
+
+			// off unless sparkplug.tck.capture.dir is set
+			capture = CaptureLog.fromSystemProperties();
 
-			final ConnectInterceptor connectInterceptor = new ConnectInterceptor(aTCK);
+			final ConnectInterceptor connectInterceptor = new ConnectInterceptor(aTCK, capture);
 			Services.interceptorRegistry().setConnectInboundInterceptorProvider(input -> connectInterceptor);
 
-			final SubscribeInterceptor subscribeInterceptor = new SubscribeInterceptor(aTCK);
-			final PublishInterceptor publishInterceptor = new PublishInterceptor(aTCK);
-			final DisconnectInterceptor disconnectInterceptor = new DisconnectInterceptor(aTCK);
+			final SubscribeInterceptor subscribeInterceptor = new SubscribeInterceptor(aTCK, capture);
+			final PublishInterceptor publishInterceptor = new PublishInterceptor(aTCK, capture);
+			final DisconnectInterceptor disconnectInterceptor = new DisconnectInterceptor(aTCK, capture);
 
 			// create a new client initializer
 			final ClientInitializer clientInitializer = (initializerInput, clientContext) -> {
@@ -62,7 +69,7 @@ public class SparkplugHiveMQExtension implements ExtensionMain {
 			Services.initializerRegistry().setClientInitializer(clientInitializer);
 
 			Services.eventRegistry()
-					.setClientLifecycleEventListener(new SparkplugClientLifecycleEventListenerProvider(aTCK));
+					.setClientLifecycleEventListener(new SparkplugClientLifecycleEventListenerProvider(aTCK, capture));
 
 		} catch (final Exception e) {
 			logger.error("Exception thrown at extension start: ", e);
@@ -73,5 +80,11 @@ public class SparkplugHiveMQExtension implements ExtensionMain {
 	public void extensionStop(final @NotNull ExtensionStopInput extensionStopInput,
 			final @NotNull ExtensionStopOutput extensionStopOutput) {
 		logger.info("Stopping Sparkplug TCK Extension");
+		if (aTCK != null) {
+			aTCK.shutdown();
+		}
+		if (capture != null) {
+			capture.close();
+		}
 	}
 }
\ No newline at end of file
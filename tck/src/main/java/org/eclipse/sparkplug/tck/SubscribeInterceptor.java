@@ -13,6 +13,7 @@
 
 package org.eclipse.sparkplug.tck;
 
+import org.eclipse.sparkplug.tck.capture.CaptureLog;
 import org.eclipse.sparkplug.tck.test.TCK;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,11 +28,17 @@ public class SubscribeInterceptor implements SubscribeInboundInterceptor {
 
 	private static Logger logger = LoggerFactory.getLogger("Sparkplug");
 	private TCK theTCK = null;
+	private CaptureLog capture = null;
 
 	public SubscribeInterceptor(TCK aTCK) {
 		theTCK = aTCK;
 	}
 
+	public SubscribeInterceptor(TCK aTCK, CaptureLog capture) {
+		theTCK = aTCK;
+		this.capture = capture;
+	}
+
 	@Override
 	public void onInboundSubscribe(@NotNull SubscribeInboundInput subscribeInboundInput,
 			@NotNull SubscribeInboundOutput subscribeInboundOutput) {
@@ -43,6 +50,9 @@ public class SubscribeInterceptor implements SubscribeInboundInterceptor {
 			logger.debug("Inbound subscribe from '{}' topic {}", clientId,
 					packet.getSubscriptions().get(0).getTopicFilter());
 
+			if (capture != null) {
+				capture.subscribe(clientId, packet);
+			}
 			theTCK.subscribe(clientId, packet);
 		} catch (Exception e) {
 			logger.error("Exception", e);
@@ -0,0 +1,359 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.connect.WillPublishPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.SubscribePacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.Subscription;
+
+/**
+ * Appends the MQTT events seen by the interceptors to a binary log, so that a run can be replayed through the TCK
+ * afterwards with {@link CaptureReplay}.
+ *
+ * The log is a directory of segment files, capture-000000.seg, capture-000001.seg and so on, each memory-mapped at
+ * its full size when it is started. A segment begins with a header: the int {@link #MAGIC}, the short
+ * {@link #VERSION}, a short of zero and the wall clock time the log was opened, as a long of milliseconds. The
+ * records follow, each an int length and then that many bytes: a byte event type, a long of nanoseconds since the
+ * log was opened from the monotonic clock, the client identifier and the fields of the packet. Strings and byte
+ * arrays are an int length, -1 for none, and the bytes. The length of a record is written after its contents, so a
+ * length of zero, which the unused part of a segment holds, marks the end.
+ *
+ * Publishes are recorded with their topic, QoS, retain flag and payload; connects with the MQTT version, clean start,
+ * session expiry, keep alive, user name and will message, but never the password; subscribes with the topic filter,
+ * QoS, no local and retain as published flags of each subscription; and disconnects with the reason code. The
+ * closing of a connection is recorded too, however it closed, with the reason code if there was one, so that a
+ * replay sees the end of sessions whose clients never sent a disconnect.
+ */
+public class CaptureLog implements Closeable {
+
+	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	public static final int MAGIC = 0x53504341; // "SPCA"
+	public static final short VERSION = 1;
+
+	static final int HEADER_BYTES = 16;
+	static final byte CONNECT = 1;
+	static final byte SUBSCRIBE = 2;
+	static final byte PUBLISH = 3;
+	static final byte DISCONNECT = 4;
+	static final byte CONNECTION_CLOSED = 5;
+
+	static final String SEGMENT_PREFIX = "capture-";
+	static final String SEGMENT_SUFFIX = ".seg";
+
+	public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+	// the record length and event type, and the timestamp
+	private static final int RECORD_OVERHEAD = 4 + 1 + 8;
+
+	private final @NotNull Path directory;
+	private final long segmentBytes;
+	private final long startMillis = System.currentTimeMillis();
+	private final long startNanos = System.nanoTime();
+
+	private @Nullable FileChannel channel = null;
+	private @Nullable MappedByteBuffer segment = null;
+	private int segmentNumber;
+	private boolean closed = false;
+
+	public CaptureLog(final @NotNull Path directory, final long segmentBytes) throws IOException {
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		Files.createDirectories(directory);
+		// carry on after the segments of earlier runs, rather than overwrite them
+		final List<Path> existing = CaptureReader.segments(directory);
+		segmentNumber = existing.isEmpty() ? 0 : segmentNumber(existing.get(existing.size() - 1)) + 1;
+	}
+
+	/**
+	 * Create a capture log configured from the system properties sparkplug.tck.capture.dir, the directory to write
+	 * the segments to, and sparkplug.tck.capture.segmentBytes.
+	 *
+	 * @return the log, or null if capture is off, which it is unless the directory is set
+	 */
+	public static @Nullable CaptureLog fromSystemProperties() {
+		final String dir = System.getProperty("sparkplug.tck.capture.dir");
+		if (dir == null || dir.isBlank()) {
+			return null;
+		}
+		final long segmentBytes = Long.getLong("sparkplug.tck.capture.segmentBytes", DEFAULT_SEGMENT_BYTES);
+		try {
+			final CaptureLog log = new CaptureLog(Paths.get(dir), segmentBytes);
+			logger.info("Capturing MQTT events to {}", dir);
+			return log;
+		} catch (IOException e) {
+			logger.error("Could not open the capture log in {}", dir, e);
+			return null;
+		}
+	}
+
+	public @NotNull Path getDirectory() {
+		return directory;
+	}
+
+	public void connect(final @NotNull String clientId, final @NotNull ConnectPacket packet) {
+		final byte[] client = utf8(clientId);
+		final byte[] version = utf8(packet.getMqttVersion().name());
+		final byte[] userName = packet.getUserName().map(CaptureLog::utf8).orElse(null);
+		final Optional<WillPublishPacket> will = packet.getWillPublish();
+		final byte[] willTopic = will.map(w -> utf8(w.getTopic())).orElse(null);
+		final ByteBuffer willPayload = will.flatMap(PublishPacket::getPayload).orElse(null);
+
+		int size = length(client) + length(version) + 1 + 8 + 4 + length(userName) + 1;
+		if (will.isPresent()) {
+			size += length(willTopic) + 1 + 1 + length(willPayload) + 8;
+		}
+		synchronized (this) {
+			final ByteBuffer out = begin(CONNECT, size);
+			if (out == null) {
+				return;
+			}
+			put(out, client);
+			put(out, version);
+			out.put(flag(packet.getCleanStart()));
+			out.putLong(packet.getSessionExpiryInterval());
+			out.putInt(packet.getKeepAlive());
+			put(out, userName);
+			out.put(flag(will.isPresent()));
+			if (will.isPresent()) {
+				put(out, willTopic);
+				out.put((byte) will.get().getQos().getQosNumber());
+				out.put(flag(will.get().getRetain()));
+				put(out, willPayload);
+				out.putLong(will.get().getWillDelay());
+			}
+			end(out);
+		}
+	}
+
+	public void subscribe(final @NotNull String clientId, final @NotNull SubscribePacket packet) {
+		final byte[] client = utf8(clientId);
+		final List<Subscription> subscriptions = packet.getSubscriptions();
+		final byte[][] filters = new byte[subscriptions.size()][];
+
+		int size = length(client) + 4 + 4;
+		for (int i = 0; i < filters.length; i++) {
+			filters[i] = utf8(subscriptions.get(i).getTopicFilter());
+			size += length(filters[i]) + 1 + 1 + 1;
+		}
+		synchronized (this) {
+			final ByteBuffer out = begin(SUBSCRIBE, size);
+			if (out == null) {
+				return;
+			}
+			put(out, client);
+			out.putInt(packet.getPacketId());
+			out.putInt(filters.length);
+			for (int i = 0; i < filters.length; i++) {
+				final Subscription subscription = subscriptions.get(i);
+				put(out, filters[i]);
+				out.put((byte) subscription.getQos().getQosNumber());
+				out.put(flag(subscription.getNoLocal()));
+				out.put(flag(subscription.getRetainAsPublished()));
+			}
+			end(out);
+		}
+	}
+
+	public void publish(final @NotNull String clientId, final @NotNull PublishPacket packet) {
+		final byte[] client = utf8(clientId);
+		final byte[] topic = utf8(packet.getTopic());
+		final ByteBuffer payload = packet.getPayload().orElse(null);
+
+		final int size = length(client) + length(topic) + 1 + 1 + length(payload);
+		synchronized (this) {
+			final ByteBuffer out = begin(PUBLISH, size);
+			if (out == null) {
+				return;
+			}
+			put(out, client);
+			put(out, topic);
+			out.put((byte) packet.getQos().getQosNumber());
+			out.put(flag(packet.getRetain()));
+			put(out, payload);
+			end(out);
+		}
+	}
+
+	public void disconnect(final @NotNull String clientId, final @NotNull DisconnectPacket packet) {
+		final byte[] client = utf8(clientId);
+		final byte[] reasonCode = utf8(packet.getReasonCode().name());
+
+		final int size = length(client) + length(reasonCode);
+		synchronized (this) {
+			final ByteBuffer out = begin(DISCONNECT, size);
+			if (out == null) {
+				return;
+			}
+			put(out, client);
+			put(out, reasonCode);
+			end(out);
+		}
+	}
+
+	/**
+	 * Record that a client's connection has closed, which the broker reports whether or not the client sent a
+	 * disconnect.
+	 */
+	public void connectionClosed(final @NotNull String clientId, final @NotNull DisconnectEventInput input) {
+		final byte[] client = utf8(clientId);
+		final byte[] reasonCode = input.getReasonCode().map(code -> utf8(code.name())).orElse(null);
+
+		final int size = length(client) + length(reasonCode);
+		synchronized (this) {
+			final ByteBuffer out = begin(CONNECTION_CLOSED, size);
+			if (out == null) {
+				return;
+			}
+			put(out, client);
+			put(out, reasonCode);
+			end(out);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+			closeSegment();
+		}
+	}
+
+	/*
+	 * Make room for a record of the given size, starting a new segment if it doesn't fit in this one, and write all
+	 * but its length, which end() adds once the contents are in place.
+	 */
+	private @Nullable ByteBuffer begin(final byte type, final int size) {
+		if (closed) {
+			return null;
+		}
+		try {
+			// leave room for the length of the next record, which marks the end while it is zero
+			if (segment == null || segment.remaining() < RECORD_OVERHEAD + size + 4) {
+				startSegment(Math.max(segmentBytes, HEADER_BYTES + RECORD_OVERHEAD + size + 4));
+			}
+		} catch (IOException e) {
+			logger.error("Capture log stopped: could not start segment {} in {}", segmentNumber, directory, e);
+			closed = true;
+			closeSegment();
+			return null;
+		}
+		segment.mark();
+		segment.position(segment.position() + 4);
+		segment.put(type);
+		segment.putLong(System.nanoTime() - startNanos);
+		return segment;
+	}
+
+	private void end(final @NotNull ByteBuffer out) {
+		final int end = out.position();
+		out.reset();
+		final int start = out.position();
+		out.putInt(start, end - start - 4);
+		out.position(end);
+	}
+
+	private void startSegment(final long size) throws IOException {
+		closeSegment();
+		final Path path = directory.resolve(segmentName(segmentNumber++));
+		channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		segment.putInt(MAGIC);
+		segment.putShort(VERSION);
+		segment.putShort((short) 0);
+		segment.putLong(startMillis);
+		logger.debug("Capture log segment {} started", path);
+	}
+
+	private void closeSegment() {
+		if (segment != null) {
+			segment.force();
+			segment = null;
+		}
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				logger.error("Could not close capture log segment", e);
+			}
+			channel = null;
+		}
+	}
+
+	static @NotNull String segmentName(final int number) {
+		return String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+	}
+
+	static int segmentNumber(final @NotNull Path segment) {
+		final String name = segment.getFileName().toString();
+		return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	private static byte[] utf8(final @NotNull String string) {
+		return string.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte flag(final boolean value) {
+		return value ? (byte) 1 : (byte) 0;
+	}
+
+	private static int length(final @Nullable byte[] bytes) {
+		return 4 + (bytes == null ? 0 : bytes.length);
+	}
+
+	private static int length(final @Nullable ByteBuffer bytes) {
+		return 4 + (bytes == null ? 0 : bytes.remaining());
+	}
+
+	private static void put(final @NotNull ByteBuffer out, final @Nullable byte[] bytes) {
+		if (bytes == null) {
+			out.putInt(-1);
+		} else {
+			out.putInt(bytes.length);
+			out.put(bytes);
+		}
+	}
+
+	private static void put(final @NotNull ByteBuffer out, final @Nullable ByteBuffer bytes) {
+		if (bytes == null) {
+			out.putInt(-1);
+		} else {
+			out.putInt(bytes.remaining());
+			out.put(bytes.duplicate());
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.client.parameter.ClientInformation;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.connect.WillPublishPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectReasonCode;
+import com.hivemq.extension.sdk.api.packets.general.MqttVersion;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.SubscribePacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.Subscription;
+
+/**
+ * Reads the events of a {@link CaptureLog} back, segment by segment in the order they were written.
+ *
+ * The segments are memory-mapped read only, and payloads are handed out as slices of the mapping rather than copied.
+ * A segment still being written can be read: the events up to the last complete one are returned.
+ */
+public class CaptureReader implements Closeable {
+
+	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	private final @NotNull List<Path> segments;
+	private int next = 0;
+	private @Nullable ByteBuffer segment = null;
+	private long startMillis = 0;
+
+	public CaptureReader(final @NotNull Path directory) throws IOException {
+		segments = segments(directory);
+	}
+
+	/**
+	 * @return the segment files in the directory, in the order they were written
+	 */
+	public static @NotNull List<Path> segments(final @NotNull Path directory) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return new ArrayList<>();
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> {
+				final String name = path.getFileName().toString();
+				return name.startsWith(CaptureLog.SEGMENT_PREFIX) && name.endsWith(CaptureLog.SEGMENT_SUFFIX);
+			}).sorted(Comparator.comparingInt(CaptureLog::segmentNumber)).collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * @return the next event, or null when there are no more
+	 */
+	public @Nullable CapturedEvent next() throws IOException {
+		while (true) {
+			if (segment != null) {
+				final CapturedEvent event = read(segment);
+				if (event != null) {
+					return event;
+				}
+				segment = null;
+			}
+			if (next == segments.size()) {
+				return null;
+			}
+			segment = open(segments.get(next++));
+		}
+	}
+
+	@Override
+	public void close() {
+		segment = null;
+		next = segments.size();
+	}
+
+	private @Nullable ByteBuffer open(final @NotNull Path path) throws IOException {
+		final MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// the mapping stays valid after the channel is closed
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (mapped.remaining() < CaptureLog.HEADER_BYTES || mapped.getInt() != CaptureLog.MAGIC) {
+			logger.error("{} is not a capture log segment", path);
+			return null;
+		}
+		final short version = mapped.getShort();
+		if (version != CaptureLog.VERSION) {
+			logger.error("Capture log segment {} is version {}, not {}", path, version, CaptureLog.VERSION);
+			return null;
+		}
+		mapped.getShort();
+		startMillis = mapped.getLong();
+		return mapped;
+	}
+
+	private @Nullable CapturedEvent read(final @NotNull ByteBuffer in) {
+		if (in.remaining() < 4) {
+			return null;
+		}
+		final int length = in.getInt();
+		if (length <= 0 || length > in.remaining()) {
+			return null; // the end of what has been written
+		}
+		final ByteBuffer record = in.slice();
+		record.limit(length);
+		in.position(in.position() + length);
+
+		final byte type = record.get();
+		final long nanos = record.getLong();
+		final String clientId = string(record);
+		final Map<String, Object> values = new HashMap<>();
+		switch (type) {
+			case CaptureLog.CONNECT:
+				values.put("getClientId", clientId);
+				values.put("getMqttVersion", MqttVersion.valueOf(string(record)));
+				values.put("getCleanStart", record.get() != 0);
+				values.put("getSessionExpiryInterval", record.getLong());
+				values.put("getKeepAlive", record.getInt());
+				values.put("getUserName", string(record));
+				if (record.get() != 0) {
+					final Map<String, Object> will = new HashMap<>();
+					will.put("getTopic", string(record));
+					will.put("getQos", Qos.valueOf(record.get()));
+					will.put("getRetain", record.get() != 0);
+					will.put("getPayload", bytes(record));
+					will.put("getWillDelay", record.getLong());
+					will.put("getTimestamp", startMillis + nanos / 1_000_000L);
+					values.put("getWillPublish", CapturedEvent.packet(WillPublishPacket.class, will));
+				}
+				return new CapturedEvent(CapturedEvent.Type.CONNECT, startMillis, nanos, clientId,
+						CapturedEvent.packet(ConnectPacket.class, values));
+			case CaptureLog.SUBSCRIBE:
+				values.put("getPacketId", record.getInt());
+				final int count = record.getInt();
+				final List<Subscription> subscriptions = new ArrayList<>(count);
+				for (int i = 0; i < count; i++) {
+					final Map<String, Object> subscription = new HashMap<>();
+					subscription.put("getTopicFilter", string(record));
+					subscription.put("getQos", Qos.valueOf(record.get()));
+					subscription.put("getNoLocal", record.get() != 0);
+					subscription.put("getRetainAsPublished", record.get() != 0);
+					subscriptions.add(CapturedEvent.packet(Subscription.class, subscription));
+				}
+				values.put("getSubscriptions", subscriptions);
+				return new CapturedEvent(CapturedEvent.Type.SUBSCRIBE, startMillis, nanos, clientId,
+						CapturedEvent.packet(SubscribePacket.class, values));
+			case CaptureLog.PUBLISH:
+				values.put("getTopic", string(record));
+				values.put("getQos", Qos.valueOf(record.get()));
+				values.put("getRetain", record.get() != 0);
+				values.put("getPayload", bytes(record));
+				values.put("getTimestamp", startMillis + nanos / 1_000_000L);
+				return new CapturedEvent(CapturedEvent.Type.PUBLISH, startMillis, nanos, clientId,
+						CapturedEvent.packet(PublishPacket.class, values));
+			case CaptureLog.DISCONNECT:
+				values.put("getReasonCode", DisconnectReasonCode.valueOf(string(record)));
+				return new CapturedEvent(CapturedEvent.Type.DISCONNECT, startMillis, nanos, clientId,
+						CapturedEvent.packet(DisconnectPacket.class, values));
+			case CaptureLog.CONNECTION_CLOSED:
+				final String reasonCode = string(record);
+				values.put("getReasonCode", reasonCode == null ? null : DisconnectReasonCode.valueOf(reasonCode));
+				values.put("getClientInformation",
+						CapturedEvent.packet(ClientInformation.class, Map.of("getClientId", clientId)));
+				return new CapturedEvent(CapturedEvent.Type.CONNECTION_CLOSED, startMillis, nanos, clientId,
+						CapturedEvent.packet(DisconnectEventInput.class, values));
+			default:
+				logger.error("Unknown capture log record type {}, skipping it", type);
+				return read(in);
+		}
+	}
+
+	private static @Nullable ByteBuffer bytes(final @NotNull ByteBuffer in) {
+		final int length = in.getInt();
+		if (length < 0) {
+			return null;
+		}
+		final ByteBuffer bytes = in.slice();
+		bytes.limit(length);
+		in.position(in.position() + length);
+		return bytes.asReadOnlyBuffer();
+	}
+
+	private static @Nullable String string(final @NotNull ByteBuffer in) {
+		final ByteBuffer bytes = bytes(in);
+		return bytes == null ? null : StandardCharsets.UTF_8.decode(bytes).toString();
+	}
+}
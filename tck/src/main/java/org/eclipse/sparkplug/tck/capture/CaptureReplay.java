@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.capture;
+
+import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_CONSOLE_TEST_CONTROL_TOPIC;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.sparkplug.tck.test.Results;
+import org.eclipse.sparkplug.tck.test.TCK;
+import org.eclipse.sparkplug.tck.test.TCKTest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.SubscribePacket;
+
+/**
+ * Feeds the events of a {@link CaptureLog} back through the TCK, or through a single test such as the Monitor.
+ *
+ * Events are replayed in the order they were captured, either as fast as they can be taken or spaced out as they
+ * were captured, scaled by a speed factor: 2 replays twice as fast as real time, 0.5 at half speed. Segments from
+ * different runs of the broker are replayed one after the other, with no wait between.
+ *
+ * Run from the command line, the events are replayed through a Monitor and its results printed:
+ *
+ * <pre>
+ * java -cp sparkplug-tck.jar:... org.eclipse.sparkplug.tck.capture.CaptureReplay &lt;directory&gt; [speed]
+ * </pre>
+ *
+ * The Monitor checks payload timestamps against the time each event was captured rather than the time now. To replay
+ * many captures at once, use {@link OfflineValidator}.
+ */
+public class CaptureReplay {
+
+	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	/**
+	 * Where the replayed events go: the methods of the interceptor callbacks.
+	 */
+	public interface Target {
+		void connect(@NotNull String clientId, @NotNull ConnectPacket packet);
+
+		void subscribe(@NotNull String clientId, @NotNull SubscribePacket packet);
+
+		void publish(@NotNull String clientId, @NotNull PublishPacket packet);
+
+		void disconnect(@NotNull String clientId, @NotNull DisconnectPacket packet);
+
+		/**
+		 * The client's connection has closed, whether or not it sent a disconnect, as the broker's client lifecycle
+		 * listeners are told
+		 */
+		default void connectionClosed(final @NotNull String clientId, final @NotNull DisconnectEventInput input) {
+		}
+
+		/**
+		 * Called before each event with the wall clock time it was captured at, for targets which check timestamps
+		 */
+		default void time(final long millis) {
+		}
+	}
+
+	private final @NotNull Path directory;
+	private final double speed;
+
+	/**
+	 * @param speed how fast to replay relative to the time the events were captured, or 0 for as fast as possible
+	 */
+	public CaptureReplay(final @NotNull Path directory, final double speed) {
+		if (speed < 0) {
+			throw new IllegalArgumentException("Invalid replay speed " + speed);
+		}
+		this.directory = directory;
+		this.speed = speed;
+	}
+
+	/**
+	 * A target which hands the events to the TCK as the interceptors do, including the test control messages, so
+	 * that the tests started and ended during the capture are started and ended again.
+	 */
+	public static @NotNull Target of(final @NotNull TCK tck) {
+		return new Target() {
+			@Override
+			public void connect(final @NotNull String clientId, final @NotNull ConnectPacket packet) {
+				tck.connect(clientId, packet);
+			}
+
+			@Override
+			public void subscribe(final @NotNull String clientId, final @NotNull SubscribePacket packet) {
+				tck.subscribe(clientId, packet);
+			}
+
+			@Override
+			public void publish(final @NotNull String clientId, final @NotNull PublishPacket packet) {
+				if (packet.getPayload().isEmpty()) {
+					return;
+				}
+				if (packet.getTopic().equals(TCK_CONSOLE_TEST_CONTROL_TOPIC)) {
+					tck.control(StandardCharsets.UTF_8.decode(packet.getPayload().get()).toString());
+				} else {
+					tck.publish(clientId, packet);
+				}
+			}
+
+			@Override
+			public void disconnect(final @NotNull String clientId, final @NotNull DisconnectPacket packet) {
+				tck.disconnect(clientId, packet);
+			}
+
+			@Override
+			public void connectionClosed(final @NotNull String clientId, final @NotNull DisconnectEventInput input) {
+				tck.onDisconnect(input);
+			}
+		};
+	}
+
+	/**
+	 * A target which hands the events straight to one test. Test control messages are left out.
+	 */
+	public static @NotNull Target of(final @NotNull TCKTest test) {
+		return new Target() {
+			@Override
+			public void connect(final @NotNull String clientId, final @NotNull ConnectPacket packet) {
+				test.connect(clientId, packet);
+			}
+
+			@Override
+			public void subscribe(final @NotNull String clientId, final @NotNull SubscribePacket packet) {
+				test.subscribe(clientId, packet);
+			}
+
+			@Override
+			public void publish(final @NotNull String clientId, final @NotNull PublishPacket packet) {
+				if (packet.getPayload().isPresent() && !packet.getTopic().equals(TCK_CONSOLE_TEST_CONTROL_TOPIC)) {
+					test.publish(clientId, packet);
+				}
+			}
+
+			@Override
+			public void disconnect(final @NotNull String clientId, final @NotNull DisconnectPacket packet) {
+				test.disconnect(clientId, packet);
+			}
+
+			@Override
+			public void connectionClosed(final @NotNull String clientId, final @NotNull DisconnectEventInput input) {
+				test.onDisconnect(input);
+			}
+		};
+	}
+
+	/**
+	 * Replay every event in the capture log to the target
+	 *
+	 * @return the number of events replayed
+	 */
+	public long replay(final @NotNull Target target) throws IOException, InterruptedException {
+		long count = 0;
+		long runStartMillis = -1;
+		long firstNanos = 0;
+		long replayStart = 0;
+		try (CaptureReader reader = new CaptureReader(directory)) {
+			CapturedEvent event;
+			while ((event = reader.next()) != null) {
+				if (speed > 0) {
+					if (event.getStartMillis() != runStartMillis) {
+						// the first event of a run goes straight away
+						runStartMillis = event.getStartMillis();
+						firstNanos = event.getNanos();
+						replayStart = System.nanoTime();
+					} else {
+						final long due = replayStart + (long) ((event.getNanos() - firstNanos) / speed);
+						final long wait = due - System.nanoTime();
+						if (wait > 0) {
+							TimeUnit.NANOSECONDS.sleep(wait);
+						}
+					}
+				}
+				target.time(event.getTimeMillis());
+				dispatch(event, target);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static void dispatch(final @NotNull CapturedEvent event, final @NotNull Target target) {
+		try {
+			switch (event.getType()) {
+				case CONNECT:
+					target.connect(event.getClientId(), event.getConnectPacket());
+					break;
+				case SUBSCRIBE:
+					target.subscribe(event.getClientId(), event.getSubscribePacket());
+					break;
+				case PUBLISH:
+					target.publish(event.getClientId(), event.getPublishPacket());
+					break;
+				case DISCONNECT:
+					target.disconnect(event.getClientId(), event.getDisconnectPacket());
+					break;
+				case CONNECTION_CLOSED:
+					target.connectionClosed(event.getClientId(), event.getDisconnectEventInput());
+					break;
+			}
+		} catch (final Exception e) {
+			logger.error("Replay of {} failed", event, e);
+		}
+	}
+
+	public static void main(final String[] args) throws Exception {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: CaptureReplay <capture directory> [speed, 0 for as fast as possible]");
+			System.exit(2);
+		}
+		final double speed = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+
+		final OfflineMonitor monitor = new OfflineMonitor(OfflineMonitor.DEFAULT_UTC_WINDOW);
+		final long start = System.nanoTime();
+		final long count = new CaptureReplay(Paths.get(args[0]), speed).replay(monitor);
+		final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		logger.info("Replayed {} events in {} ms", count, millis);
+		System.out.println(Results.getSummary(monitor.getResults()));
+	}
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.capture;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.packets.subscribe.SubscribePacket;
+
+/**
+ * An event read back from a {@link CaptureLog}, with its packet rebuilt from what was recorded.
+ *
+ * The packets are proxies for the extension SDK interfaces, as is the lifecycle event input of a connection closing.
+ * Each recorded field is returned by its getter, and any getter for something that wasn't recorded returns an empty
+ * or zero value.
+ */
+public class CapturedEvent {
+
+	public enum Type {
+		CONNECT,
+		SUBSCRIBE,
+		PUBLISH,
+		DISCONNECT,
+		CONNECTION_CLOSED
+	}
+
+	private final @NotNull Type type;
+	private final long startMillis;
+	private final long nanos;
+	private final @NotNull String clientId;
+	private final @NotNull Object packet;
+
+	CapturedEvent(final @NotNull Type type, final long startMillis, final long nanos, final @NotNull String clientId,
+			final @NotNull Object packet) {
+		this.type = type;
+		this.startMillis = startMillis;
+		this.nanos = nanos;
+		this.clientId = clientId;
+		this.packet = packet;
+	}
+
+	public @NotNull Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the wall clock time, in milliseconds, at which the capture log this event is in was opened
+	 */
+	public long getStartMillis() {
+		return startMillis;
+	}
+
+	/**
+	 * @return the time of the event in nanoseconds since the capture log was opened, from the monotonic clock
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * @return the approximate wall clock time of the event, in milliseconds
+	 */
+	public long getTimeMillis() {
+		return startMillis + nanos / 1_000_000L;
+	}
+
+	public @NotNull String getClientId() {
+		return clientId;
+	}
+
+	public @NotNull ConnectPacket getConnectPacket() {
+		return (ConnectPacket) packet;
+	}
+
+	public @NotNull SubscribePacket getSubscribePacket() {
+		return (SubscribePacket) packet;
+	}
+
+	public @NotNull PublishPacket getPublishPacket() {
+		return (PublishPacket) packet;
+	}
+
+	public @NotNull DisconnectPacket getDisconnectPacket() {
+		return (DisconnectPacket) packet;
+	}
+
+	/**
+	 * @return the closing of a connection, with the client information and the reason code, if there was one
+	 */
+	public @NotNull DisconnectEventInput getDisconnectEventInput() {
+		return (DisconnectEventInput) packet;
+	}
+
+	@Override
+	public String toString() {
+		return type + " " + clientId + " at " + nanos + ": " + packet;
+	}
+
+	/*
+	 * A packet of the given interface returning the recorded values. Buffers are handed out as duplicates, so that
+	 * reading one doesn't use it up for the next caller.
+	 */
+	static <T> @NotNull T packet(final @NotNull Class<T> type, final @NotNull Map<String, Object> values) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			final String name = method.getName();
+			final Class<?> returns = method.getReturnType();
+			if (values.containsKey(name)) {
+				final Object value = values.get(name);
+				if (value instanceof ByteBuffer) {
+					final ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+					return returns == Optional.class ? Optional.of(buffer) : buffer;
+				}
+				return returns == Optional.class && !(value instanceof Optional) ? Optional.ofNullable(value) : value;
+			}
+			switch (name) {
+				case "toString":
+					return type.getSimpleName() + values;
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+			}
+			if (returns == Optional.class) {
+				return Optional.empty();
+			} else if (returns == boolean.class) {
+				return false;
+			} else if (returns == int.class) {
+				return 0;
+			} else if (returns == long.class) {
+				return 0L;
+			} else if (returns == List.class) {
+				return List.of();
+			}
+			return null;
+		}));
+	}
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.capture;
+
+import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_CONSOLE_TEST_CONTROL_TOPIC;
+
+import org.eclipse.sparkplug.tck.test.Monitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectPacket;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+
+/**
+ * A Monitor which runs without a broker or the TCK console, taking its events from a capture log.
+ *
+ * Payload timestamps are checked against the time each event was captured, as the broker would have checked them,
+ * and log messages go to the logger instead of the console.
+ *
+ * Sessions end when the connection closed record of the client is replayed, or at its disconnect packet for captures
+ * made before connection closes were recorded.
+ */
+class OfflineMonitor extends Monitor implements CaptureReplay.Target {
+
+	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	static final long DEFAULT_UTC_WINDOW = 60000;
+
+	private final long UTCwindow;
+	private long time = 0;
+
+	OfflineMonitor(final long UTCwindow) {
+		super(null);
+		this.UTCwindow = UTCwindow;
+	}
+
+	@Override
+	public void time(final long millis) {
+		time = millis;
+	}
+
+	@Override
+	public void publish(final @NotNull String clientId, final @NotNull PublishPacket packet) {
+		if (packet.getPayload().isPresent() && !packet.getTopic().equals(TCK_CONSOLE_TEST_CONTROL_TOPIC)) {
+			super.publish(clientId, packet);
+		}
+	}
+
+	@Override
+	public void disconnect(final @NotNull String clientId, final @NotNull DisconnectPacket packet) {
+		super.disconnect(clientId, packet);
+		clientDisconnected(clientId);
+	}
+
+	@Override
+	public void connectionClosed(final @NotNull String clientId, final @NotNull DisconnectEventInput input) {
+		clientDisconnected(clientId);
+	}
+
+	@Override
+	protected long getUTCwindow() {
+		return UTCwindow;
+	}
+
+	@Override
+	protected long currentTimeMillis() {
+		return time;
+	}
+
+	@Override
+	public void log(final String message) {
+		logger.info("Monitor: {}", message);
+	}
+}
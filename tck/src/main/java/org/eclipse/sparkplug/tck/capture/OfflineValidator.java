@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.capture;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.sparkplug.tck.test.common.ResultRegistry;
+import org.eclipse.sparkplug.tck.test.common.ResultRegistry.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * Checks captured traffic against the Monitor's assertions from the command line, with no broker running.
+ *
+ * Each capture, a directory of {@link CaptureLog} segments, is replayed through its own Monitor as fast as it can be
+ * read. The events of one capture have to be taken in order, but separate captures share nothing, so they are
+ * validated in parallel on a fork-join pool.
+ *
+ * <pre>
+ * java -cp sparkplug-tck.jar:... org.eclipse.sparkplug.tck.capture.OfflineValidator [-threads n] [-window ms] &lt;path&gt;...
+ * </pre>
+ *
+ * A path is either a capture directory or a directory whose subdirectories, at any depth, hold the captures. The
+ * results of each capture are printed with the assertions that failed, followed by the totals. The exit status is 1
+ * if any assertion failed or a capture could not be read.
+ *
+ * The per-profile tests need the broker's services to publish and to look up retained messages, so only the Monitor's
+ * assertions are checked.
+ */
+public class OfflineValidator {
+
+	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	/**
+	 * The outcome of validating one capture
+	 */
+	public static class Report {
+		private final @NotNull Path capture;
+		private final long events;
+		private final long millis;
+		private final @Nullable ResultRegistry results;
+		private final @Nullable Exception error;
+
+		Report(final @NotNull Path capture, final long events, final long millis,
+				final @Nullable ResultRegistry results, final @Nullable Exception error) {
+			this.capture = capture;
+			this.events = events;
+			this.millis = millis;
+			this.results = results;
+			this.error = error;
+		}
+
+		public @NotNull Path getCapture() {
+			return capture;
+		}
+
+		public long getEvents() {
+			return events;
+		}
+
+		public long getMillis() {
+			return millis;
+		}
+
+		/**
+		 * @return the Monitor's results, or null if the capture could not be read
+		 */
+		public @Nullable ResultRegistry getResults() {
+			return results;
+		}
+
+		public @Nullable Exception getError() {
+			return error;
+		}
+
+		/**
+		 * @return how many results are in each state
+		 */
+		public @NotNull Map<State, Integer> getCounts() {
+			final Map<State, Integer> counts = new EnumMap<>(State.class);
+			if (results != null) {
+				results.forEachResult((key, state, text) -> counts.merge(state, 1, Integer::sum));
+			}
+			return counts;
+		}
+
+		public boolean isFailed() {
+			return error != null || getCounts().containsKey(State.FAIL);
+		}
+	}
+
+	private final long UTCwindow;
+
+	public OfflineValidator(final long UTCwindow) {
+		this.UTCwindow = UTCwindow;
+	}
+
+	/**
+	 * @return the capture directories at or under the path, in name order
+	 */
+	public static @NotNull List<Path> findCaptures(final @NotNull Path path) throws IOException {
+		if (!CaptureReader.segments(path).isEmpty()) {
+			return List.of(path);
+		}
+		final List<Path> captures = new ArrayList<>();
+		try (Stream<Path> directories = Files.walk(path)) {
+			for (Path directory : directories.filter(Files::isDirectory).sorted().collect(Collectors.toList())) {
+				if (!CaptureReader.segments(directory).isEmpty()) {
+					captures.add(directory);
+				}
+			}
+		}
+		return captures;
+	}
+
+	/**
+	 * Replay one capture through a new Monitor
+	 */
+	public @NotNull Report validate(final @NotNull Path capture) {
+		final OfflineMonitor monitor = new OfflineMonitor(UTCwindow);
+		final long start = System.nanoTime();
+		try {
+			final long events = new CaptureReplay(capture, 0).replay(monitor);
+			return new Report(capture, events, elapsed(start), monitor.getResults(), null);
+		} catch (IOException | RuntimeException e) {
+			logger.error("Validation of {} failed", capture, e);
+			return new Report(capture, 0, elapsed(start), null, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new Report(capture, 0, elapsed(start), null, e);
+		}
+	}
+
+	/**
+	 * Validate the captures in parallel on a pool of the given number of threads
+	 *
+	 * @return the reports, in the order of the captures
+	 */
+	public @NotNull List<Report> validate(final @NotNull List<Path> captures, final int threads)
+			throws InterruptedException, ExecutionException {
+		final ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			// a parallel stream started from within a pool runs its tasks on that pool
+			return pool.submit(() -> captures.parallelStream().map(this::validate).collect(Collectors.toList())).get();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static long elapsed(final long start) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	private static @NotNull String counts(final @NotNull Map<State, Integer> counts) {
+		return String.format("%d passed, %d failed, %d maybe", counts.getOrDefault(State.PASS, 0),
+				counts.getOrDefault(State.FAIL, 0), counts.getOrDefault(State.MAYBE, 0));
+	}
+
+	private static void usage() {
+		System.err.println("Usage: OfflineValidator [-threads n] [-window ms] <capture path>...");
+		System.exit(2);
+	}
+
+	public static void main(final String[] args) throws Exception {
+		int threads = Runtime.getRuntime().availableProcessors();
+		long window = OfflineMonitor.DEFAULT_UTC_WINDOW;
+		final List<Path> paths = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-window") && i + 1 < args.length) {
+				window = Long.parseLong(args[++i]);
+			} else if (args[i].startsWith("-")) {
+				usage();
+			} else {
+				paths.add(Paths.get(args[i]));
+			}
+		}
+		if (paths.isEmpty() || threads < 1) {
+			usage();
+		}
+
+		final List<Path> captures = new ArrayList<>();
+		for (Path path : paths) {
+			captures.addAll(findCaptures(path));
+		}
+		if (captures.isEmpty()) {
+			System.err.println("No captures found in " + paths);
+			System.exit(2);
+		}
+
+		final long start = System.nanoTime();
+		final List<Report> reports = new OfflineValidator(window).validate(captures, threads);
+		final long millis = elapsed(start);
+
+		final Map<State, Integer> totals = new EnumMap<>(State.class);
+		long events = 0;
+		boolean failed = false;
+		for (Report report : reports) {
+			events += report.getEvents();
+			failed |= report.isFailed();
+			if (report.getError() != null) {
+				System.out.println(report.getCapture() + ": ERROR " + report.getError());
+				continue;
+			}
+			final Map<State, Integer> counts = report.getCounts();
+			counts.forEach((state, count) -> totals.merge(state, count, Integer::sum));
+			System.out.println(report.getCapture() + ": " + report.getEvents() + " events, " + counts(counts));
+			report.getResults().forEachResult((key, state, text) -> {
+				if (state == State.FAIL) {
+					System.out.println("    " + key + ": " + text);
+				}
+			});
+		}
+		System.out.println(String.format("%d captures, %d events in %d ms: %s", reports.size(), events, millis,
+				counts(totals)));
+		System.exit(failed ? 1 : 0);
+	}
+}
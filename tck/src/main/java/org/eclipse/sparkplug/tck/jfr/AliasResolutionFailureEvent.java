@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A metric sent by alias alone, with an alias the birth certificate did not declare.
+ */
+@Name("org.eclipse.sparkplug.tck.AliasResolutionFailure")
+@Label("Alias Resolution Failure")
+@Category({ "Sparkplug", "Validation" })
+@Description("A metric sent by alias alone, with an alias the birth certificate did not declare.")
+public class AliasResolutionFailureEvent extends SparkplugEvent {
+
+	@Label("Message Type")
+	String messageType;
+
+	@Label("Alias")
+	long alias;
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An MQTT connect, with the topic and payload size of its will message if it has one. The will topic is kept as it is
+ * rather than split into Sparkplug ids.
+ */
+@Name("org.eclipse.sparkplug.tck.ClientConnect")
+@Label("Client Connect")
+@Category({ "Sparkplug", "Interceptor" })
+@Description("An MQTT connect, with the topic and payload size of its will message.")
+public class ClientConnectEvent extends SparkplugEvent {
+
+	@Label("Will Topic")
+	String willTopic;
+
+	public void setWillTopic(final String willTopic) {
+		this.willTopic = willTopic;
+	}
+}
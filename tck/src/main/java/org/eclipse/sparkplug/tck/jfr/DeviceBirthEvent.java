@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A DBIRTH seen by the Monitor.
+ */
+@Name("org.eclipse.sparkplug.tck.DeviceBirth")
+@Label("Device Birth")
+@Category({ "Sparkplug", "Session" })
+@Description("A DBIRTH seen by the Monitor.")
+public class DeviceBirthEvent extends SparkplugEvent {
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The decoding of one Sparkplug B payload, either in full or into a lazy view of its metrics.
+ */
+@Name("org.eclipse.sparkplug.tck.PayloadDecode")
+@Label("Payload Decode")
+@Category({ "Sparkplug", "Validation" })
+@Description("The decoding of one Sparkplug B payload.")
+public class PayloadDecodeEvent extends SparkplugEvent {
+
+	@Label("View")
+	@Description("Whether the payload was indexed for lazy reading rather than decoded in full")
+	boolean view;
+
+	@Label("Valid")
+	boolean valid;
+
+	public void setView(final boolean view) {
+		this.view = view;
+	}
+
+	public void setValid(final boolean valid) {
+		this.valid = valid;
+	}
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.jfr;
+
+import org.eclipse.sparkplug.tck.test.common.ParsedTopic;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * The fields every Sparkplug flight recorder event has: who sent the message and how big its payload was.
+ *
+ * The commit methods fill the fields in only if the event is being recorded, so when the flight recorder is off, or
+ * the event is disabled, an event costs no more than its allocation, which the JIT can usually remove.
+ */
+public abstract class SparkplugEvent extends Event {
+
+	@Label("Client Id")
+	String clientId;
+
+	@Label("Group Id")
+	String groupId;
+
+	@Label("Edge Node Id")
+	String edgeNodeId;
+
+	@Label("Device Id")
+	String deviceId;
+
+	@Label("Payload Size")
+	@DataAmount
+	int payloadSize;
+
+	/**
+	 * Commit the event if it is being recorded, taking the ids from the topic.
+	 */
+	public void commit(final @Nullable String clientId, final @NotNull String topic, final int payloadSize) {
+		if (shouldCommit()) {
+			final ParsedTopic parsed = ParsedTopic.parse(topic);
+			commit(clientId, parsed.getGroupId(), parsed.getEdgeNodeId(), parsed.getDeviceId(), payloadSize);
+		}
+	}
+
+	public void commit(final @Nullable String clientId, final @Nullable String groupId,
+			final @Nullable String edgeNodeId, final @Nullable String deviceId, final int payloadSize) {
+		if (shouldCommit()) {
+			this.clientId = clientId;
+			this.groupId = groupId;
+			this.edgeNodeId = edgeNodeId;
+			this.deviceId = deviceId;
+			this.payloadSize = payloadSize;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.jfr;
+
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DBIRTH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DDEATH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NBIRTH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NDEATH;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * The flight recorder events raised by the Monitor, which knows an edge node by its key, group_id:edge_node_id.
+ */
+public class SparkplugEvents {
+
+	private SparkplugEvents() {
+	}
+
+	/**
+	 * Record a birth or death of an edge node or device. Other message types are ignored.
+	 */
+	public static void session(final @NotNull String messageType, final @Nullable String clientId,
+			final @NotNull String groupId, final @NotNull String edgeNodeKey, final @Nullable String deviceId,
+			final int payloadSize) {
+		final SparkplugEvent event;
+		switch (messageType) {
+			case TOPIC_PATH_NBIRTH:
+				event = new EdgeNodeBirthEvent();
+				break;
+			case TOPIC_PATH_NDEATH:
+				event = new EdgeNodeDeathEvent();
+				break;
+			case TOPIC_PATH_DBIRTH:
+				event = new DeviceBirthEvent();
+				break;
+			case TOPIC_PATH_DDEATH:
+				event = new DeviceDeathEvent();
+				break;
+			default:
+				return;
+		}
+		if (event.shouldCommit()) {
+			event.commit(clientId, groupId, edgeNodeId(groupId, edgeNodeKey), deviceId, payloadSize);
+		}
+	}
+
+	public static void sequenceGap(final @NotNull String messageType, final @NotNull String groupId,
+			final @NotNull String edgeNodeKey, final @Nullable String deviceId, final long expected, final long actual,
+			final int payloadSize) {
+		final SequenceGapEvent event = new SequenceGapEvent();
+		if (event.shouldCommit()) {
+			event.messageType = messageType;
+			event.expected = expected;
+			event.actual = actual;
+			event.commit(null, groupId, edgeNodeId(groupId, edgeNodeKey), deviceId, payloadSize);
+		}
+	}
+
+	public static void aliasResolutionFailure(final @NotNull String messageType, final @NotNull String groupId,
+			final @NotNull String edgeNodeKey, final @Nullable String deviceId, final long alias,
+			final int payloadSize) {
+		final AliasResolutionFailureEvent event = new AliasResolutionFailureEvent();
+		if (event.shouldCommit()) {
+			event.messageType = messageType;
+			event.alias = alias;
+			event.commit(null, groupId, edgeNodeId(groupId, edgeNodeKey), deviceId, payloadSize);
+		}
+	}
+
+	private static @NotNull String edgeNodeId(final @NotNull String groupId, final @NotNull String edgeNodeKey) {
+		return edgeNodeKey.startsWith(groupId) && edgeNodeKey.length() > groupId.length()
+				? edgeNodeKey.substring(groupId.length() + 1)
+				: edgeNodeKey;
+	}
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One TCK test, from being started by the console to being ended.
+ */
+@Name("org.eclipse.sparkplug.tck.Test")
+@Label("TCK Test")
+@Category({ "Sparkplug", "Test" })
+@Description("One TCK test, from being started to being ended.")
+public class TestEvent extends Event {
+
+	@Label("Profile")
+	String profile;
+
+	@Label("Test")
+	String test;
+
+	@Label("Parameters")
+	String parameters;
+
+	public TestEvent(final String profile, final String test, final String parameters) {
+		this.profile = profile;
+		this.test = test;
+		this.parameters = parameters;
+	}
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+/**
+ * A histogram of durations in nanoseconds which any number of threads can record into without locking.
+ *
+ * Each power of two is split into four buckets, so a percentile read from the histogram is at most a quarter out,
+ * whatever the range of the durations. Recording is an increment of one bucket and of the count and total, and a
+ * compare-and-set of the maximum only when it grows.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+	private final @NotNull AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final @NotNull LongAdder count = new LongAdder();
+	private final @NotNull LongAdder total = new LongAdder();
+	private final @NotNull AtomicLong max = new AtomicLong();
+
+	/**
+	 * The state of a histogram at one moment, in microseconds.
+	 */
+	public static class Snapshot {
+		private final long count;
+		private final double meanMicros;
+		private final double p50Micros;
+		private final double p99Micros;
+		private final double maxMicros;
+
+		@ConstructorProperties({ "count", "meanMicros", "p50Micros", "p99Micros", "maxMicros" })
+		public Snapshot(final long count, final double meanMicros, final double p50Micros, final double p99Micros,
+				final double maxMicros) {
+			this.count = count;
+			this.meanMicros = meanMicros;
+			this.p50Micros = p50Micros;
+			this.p99Micros = p99Micros;
+			this.maxMicros = maxMicros;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMeanMicros() {
+			return meanMicros;
+		}
+
+		public double getP50Micros() {
+			return p50Micros;
+		}
+
+		public double getP99Micros() {
+			return p99Micros;
+		}
+
+		public double getMaxMicros() {
+			return maxMicros;
+		}
+	}
+
+	public void record(final long nanos) {
+		final long value = Math.max(0, nanos);
+		buckets.incrementAndGet(bucket(value));
+		count.increment();
+		total.add(value);
+		if (value > max.get()) {
+			max.accumulateAndGet(value, Math::max);
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Read the histogram. Values recorded while it is being read may be counted in some parts and not others.
+	 */
+	public @NotNull Snapshot snapshot() {
+		final long[] counts = new long[BUCKETS];
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			n += counts[i];
+		}
+		if (n == 0) {
+			return new Snapshot(0, 0, 0, 0, 0);
+		}
+		// the top of a bucket can be above anything recorded in it
+		final long highest = max.get();
+		return new Snapshot(n, micros(total.sum()) / Math.max(1, count.sum()),
+				micros(Math.min(percentile(counts, n, 0.5), highest)),
+				micros(Math.min(percentile(counts, n, 0.99), highest)), micros(highest));
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		total.reset();
+		max.set(0);
+	}
+
+	/*
+	 * The top of the bucket the given fraction of the values fall at or below
+	 */
+	private static long percentile(final long[] counts, final long n, final double fraction) {
+		final long rank = (long) Math.ceil(n * fraction);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return highest(i);
+			}
+		}
+		return highest(counts.length - 1);
+	}
+
+	/*
+	 * Values below SUB_BUCKETS have a bucket each. Above that, the bits after the leading one choose one of the
+	 * SUB_BUCKETS buckets of its power of two.
+	 */
+	static int bucket(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	static long highest(final int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		final int shift = bucket / SUB_BUCKETS - 1;
+		final long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + ((1L << shift) - 1);
+	}
+
+	private static double micros(final long nanos) {
+		return nanos / 1000.0;
+	}
+}
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.metrics;
+
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DBIRTH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DCMD;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DDATA;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DDEATH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NBIRTH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NCMD;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NDATA;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NDEATH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_STATE;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * What the TCK extension costs the broker: how long the publish interceptor holds up the broker's threads, how long
+ * payloads take to decode, how long the Monitor takes over each type of message and how much session state it
+ * keeps.
+ *
+ * Everything is recorded into {@link LatencyHistogram}s, which take no locks, so the recording threads never wait on
+ * each other or on a reader. The metrics can be read through JMX once {@link #register()} has been called, and as
+ * JSON from {@link #toJson()}. The TCK publishes that on SPARKPLUG_TCK/METRICS every sparkplug.tck.metrics.interval
+ * seconds if the property is set, but not by default, so that the TCK adds no messages of its own to a run unless
+ * asked to.
+ */
+public class TCKMetrics implements TCKMetricsMXBean {
+
+	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	public static final @NotNull String OBJECT_NAME = "org.eclipse.sparkplug.tck:type=Metrics";
+
+	public static final long DEFAULT_INTERVAL = 0;
+
+	// messages on any other topic under the Sparkplug namespace
+	static final @NotNull String OTHER = "OTHER";
+
+	private static final @NotNull String[] MESSAGE_TYPES = { TOPIC_PATH_NBIRTH, TOPIC_PATH_NDEATH, TOPIC_PATH_NDATA,
+			TOPIC_PATH_NCMD, TOPIC_PATH_DBIRTH, TOPIC_PATH_DDEATH, TOPIC_PATH_DDATA, TOPIC_PATH_DCMD, TOPIC_PATH_STATE,
+			OTHER };
+
+	private static final @NotNull JsonFactory jsonFactory = new JsonFactory();
+
+	private final @NotNull LatencyHistogram inboundPublish = new LatencyHistogram();
+	private final @NotNull LatencyHistogram decode = new LatencyHistogram();
+	private final @NotNull Map<String, LatencyHistogram> handlers;
+	private final long interval;
+
+	private volatile @NotNull Supplier<Map<String, Integer>> sessionState = Map::of;
+	private @Nullable ObjectName registered = null;
+
+	public TCKMetrics() {
+		this(0);
+	}
+
+	/**
+	 * @param interval how often the metrics are to be published, in seconds, or 0 for never
+	 */
+	public TCKMetrics(final long interval) {
+		this.interval = interval;
+		final Map<String, LatencyHistogram> handlers = new LinkedHashMap<>();
+		for (String type : MESSAGE_TYPES) {
+			handlers.put(type, new LatencyHistogram());
+		}
+		this.handlers = Collections.unmodifiableMap(handlers);
+	}
+
+	/**
+	 * Create metrics configured from the system property sparkplug.tck.metrics.interval, the number of seconds
+	 * between publishes of the metrics, 0, the default, to not publish them.
+	 */
+	public static @NotNull TCKMetrics fromSystemProperties() {
+		return new TCKMetrics(Math.max(0, Long.getLong("sparkplug.tck.metrics.interval", DEFAULT_INTERVAL)));
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	public @NotNull LatencyHistogram inboundPublish() {
+		return inboundPublish;
+	}
+
+	public @NotNull LatencyHistogram decode() {
+		return decode;
+	}
+
+	/**
+	 * @param messageType the message type from a Sparkplug topic, such as NBIRTH or STATE
+	 * @return the histogram for the Monitor's handling of that type
+	 */
+	public @NotNull LatencyHistogram handler(final @NotNull String messageType) {
+		final LatencyHistogram handler = handlers.get(messageType);
+		return handler != null ? handler : handlers.get(OTHER);
+	}
+
+	/**
+	 * @param sessionState supplies the size of each of the Monitor's session state maps, by name
+	 */
+	public void setSessionState(final @NotNull Supplier<Map<String, Integer>> sessionState) {
+		this.sessionState = sessionState;
+	}
+
+	@Override
+	public @NotNull LatencyHistogram.Snapshot getInboundPublish() {
+		return inboundPublish.snapshot();
+	}
+
+	@Override
+	public @NotNull LatencyHistogram.Snapshot getDecode() {
+		return decode.snapshot();
+	}
+
+	@Override
+	public @NotNull Map<String, LatencyHistogram.Snapshot> getMonitorHandlers() {
+		final Map<String, LatencyHistogram.Snapshot> snapshots = new LinkedHashMap<>();
+		handlers.forEach((type, histogram) -> snapshots.put(type, histogram.snapshot()));
+		return snapshots;
+	}
+
+	@Override
+	public @NotNull Map<String, Long> getMessages() {
+		final Map<String, Long> messages = new LinkedHashMap<>();
+		handlers.forEach((type, histogram) -> messages.put(type, histogram.getCount()));
+		return messages;
+	}
+
+	@Override
+	public @NotNull Map<String, Integer> getSessionState() {
+		return sessionState.get();
+	}
+
+	@Override
+	public void reset() {
+		inboundPublish.reset();
+		decode.reset();
+		handlers.values().forEach(LatencyHistogram::reset);
+	}
+
+	/**
+	 * Make the metrics readable through the platform MBean server.
+	 */
+	public synchronized void register() {
+		if (registered != null) {
+			return;
+		}
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				// left behind by an earlier start of the extension in the same broker
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(this, name);
+			registered = name;
+		} catch (JMException e) {
+			logger.error("Could not register the TCK metrics with JMX", e);
+		}
+	}
+
+	public synchronized void unregister() {
+		if (registered == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+		} catch (JMException e) {
+			logger.error("Could not unregister the TCK metrics from JMX", e);
+		}
+		registered = null;
+	}
+
+	/**
+	 * @return the metrics as one JSON object, with times in microseconds
+	 */
+	public @NotNull String toJson() {
+		final StringWriter out = new StringWriter();
+		try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+			json.writeStartObject();
+			json.writeNumberField("timestamp", System.currentTimeMillis());
+			writeSnapshot(json, "inboundPublish", inboundPublish.snapshot());
+			writeSnapshot(json, "decode", decode.snapshot());
+			json.writeObjectFieldStart("monitorHandlers");
+			for (Map.Entry<String, LatencyHistogram> handler : handlers.entrySet()) {
+				final LatencyHistogram.Snapshot snapshot = handler.getValue().snapshot();
+				if (snapshot.getCount() > 0) {
+					writeSnapshot(json, handler.getKey(), snapshot);
+				}
+			}
+			json.writeEndObject();
+			json.writeObjectFieldStart("sessionState");
+			for (Map.Entry<String, Integer> size : getSessionState().entrySet()) {
+				json.writeNumberField(size.getKey(), size.getValue());
+			}
+			json.writeEndObject();
+			json.writeEndObject();
+		} catch (IOException e) {
+			// a StringWriter doesn't throw
+			throw new IllegalStateException(e);
+		}
+		return out.toString();
+	}
+
+	private static void writeSnapshot(final @NotNull JsonGenerator json, final @NotNull String name,
+			final @NotNull LatencyHistogram.Snapshot snapshot) throws IOException {
+		json.writeObjectFieldStart(name);
+		json.writeNumberField("count", snapshot.getCount());
+		json.writeNumberField("meanMicros", snapshot.getMeanMicros());
+		json.writeNumberField("p50Micros", snapshot.getP50Micros());
+		json.writeNumberField("p99Micros", snapshot.getP99Micros());
+		json.writeNumberField("maxMicros", snapshot.getMaxMicros());
+		json.writeEndObject();
+	}
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link TCKMetrics}, registered as org.eclipse.sparkplug.tck:type=Metrics.
+ */
+public interface TCKMetricsMXBean {
+
+	/**
+	 * @return the time the broker's threads spend in the publish interceptor
+	 */
+	LatencyHistogram.Snapshot getInboundPublish();
+
+	/**
+	 * @return the time taken to decode Sparkplug B payloads
+	 */
+	LatencyHistogram.Snapshot getDecode();
+
+	/**
+	 * @return the time the Monitor takes to handle each type of message, by message type
+	 */
+	Map<String, LatencyHistogram.Snapshot> getMonitorHandlers();
+
+	/**
+	 * @return the number of messages the Monitor has handled, by message type
+	 */
+	Map<String, Long> getMessages();
+
+	/**
+	 * @return the number of entries in each of the Monitor's session state maps
+	 */
+	Map<String, Integer> getSessionState();
+
+	void reset();
+}
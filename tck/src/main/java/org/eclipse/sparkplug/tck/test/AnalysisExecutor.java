@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test;
+
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DCMD;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NCMD;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.sparkplug.tck.test.common.ParsedTopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * Runs the TCK's analysis of broker events off the broker's own threads.
+ *
+ * Work is sharded over a fixed number of lanes, each a bounded queue served by a single thread. Everything for one
+ * edge node (group_id/edge_node_id) goes to the same lane, so its messages are analysed in the order the broker saw
+ * them, while different edge nodes are analysed in parallel. Events which have no Sparkplug topic (connects,
+ * disconnects, subscribes, STATE messages) follow the lane last used for their client, so that an edge node's
+ * disconnect is never analysed ahead of its last publish.
+ *
+ * With zero lanes, the default, everything is run inline on the caller's thread, as before. Lanes change when the
+ * tests see events relative to each other and to the broker, so they are only used when asked for.
+ */
+public class AnalysisExecutor {
+
+	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	/**
+	 * What to do when a lane's queue is full.
+	 */
+	public enum OverflowPolicy {
+		/** wait for room in the queue, which holds up the broker thread delivering the event */
+		BLOCK,
+		/** throw the event away without analysing it, and count it */
+		DROP
+	}
+
+	private final @NotNull Lane[] lanes;
+	private final @NotNull OverflowPolicy policy;
+	private final @NotNull ConcurrentHashMap<String, Integer> clientLanes = new ConcurrentHashMap<>();
+	private final @NotNull AtomicLong dropped = new AtomicLong();
+
+	public AnalysisExecutor(final int laneCount, final int queueSize, final @NotNull OverflowPolicy policy) {
+		this.policy = policy;
+		this.lanes = new Lane[Math.max(0, laneCount)];
+		for (int i = 0; i < lanes.length; ++i) {
+			lanes[i] = new Lane(i, queueSize);
+		}
+		logger.info("Sparkplug analysis using {} lane(s), queue size {}, overflow policy {}", lanes.length, queueSize,
+				policy);
+	}
+
+	/**
+	 * Create an executor configured from the system properties sparkplug.tck.analysis.lanes, 0 unless set,
+	 * sparkplug.tck.analysis.queueSize and sparkplug.tck.analysis.overflow.
+	 */
+	public static @NotNull AnalysisExecutor fromSystemProperties() {
+		final int laneCount = Integer.getInteger("sparkplug.tck.analysis.lanes", 0);
+		final int queueSize = Integer.getInteger("sparkplug.tck.analysis.queueSize", 10000);
+		OverflowPolicy policy = OverflowPolicy.BLOCK;
+		final String overflow = System.getProperty("sparkplug.tck.analysis.overflow");
+		if (overflow != null) {
+			try {
+				policy = OverflowPolicy.valueOf(overflow.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.error("Unknown analysis overflow policy {}, using {}", overflow, policy);
+			}
+		}
+		return new AnalysisExecutor(laneCount, queueSize, policy);
+	}
+
+	public boolean isInline() {
+		return lanes.length == 0;
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Queue the analysis of a publish.
+	 *
+	 * @param clientId the client which sent the publish
+	 * @param topic the topic of the publish, which chooses the lane for Sparkplug edge node and device topics
+	 * @param task the analysis to run
+	 */
+	public void submitPublish(final @NotNull String clientId, final @NotNull String topic,
+			final @NotNull Runnable task) {
+		if (isInline()) {
+			task.run();
+			return;
+		}
+		final ParsedTopic parsed = ParsedTopic.parse(topic);
+		final int lane;
+		if (parsed.getEdgeNode() != null) {
+			lane = laneFor(parsed.getEdgeNode().getKey());
+			final String messageType = parsed.getMessageType();
+			if (!TOPIC_PATH_NCMD.equals(messageType) && !TOPIC_PATH_DCMD.equals(messageType)) {
+				// the client is the edge node itself rather than a host application commanding it, so its other
+				// events follow it to this lane, even if it was given another when it connected
+				clientLanes.put(clientId, lane);
+			}
+		} else {
+			lane = clientLane(clientId);
+		}
+		submit(lane, task);
+	}
+
+	/**
+	 * Queue the analysis of a connect. A Sparkplug will message ties the client to the lane of its edge node.
+	 *
+	 * @param clientId the client which is connecting
+	 * @param willTopic the topic of the will message, or null if there is none
+	 * @param task the analysis to run
+	 */
+	public void submitConnect(final @NotNull String clientId, final @Nullable String willTopic,
+			final @NotNull Runnable task) {
+		if (isInline()) {
+			task.run();
+			return;
+		}
+		final ParsedTopic.EdgeNode edgeNode = willTopic == null ? null : ParsedTopic.parse(willTopic).getEdgeNode();
+		if (edgeNode != null) {
+			clientLanes.put(clientId, laneFor(edgeNode.getKey()));
+		}
+		submit(clientLane(clientId), task);
+	}
+
+	/**
+	 * Queue the analysis of the end of a client's connection. Once that has run the client is no longer tied to a
+	 * lane, unless it has connected again and been given another in the meantime.
+	 *
+	 * @param clientId the client which has gone
+	 * @param task the analysis to run
+	 */
+	public void submitDisconnect(final @NotNull String clientId, final @NotNull Runnable task) {
+		if (isInline()) {
+			task.run();
+			return;
+		}
+		final int lane = clientLane(clientId);
+		submit(lane, () -> {
+			try {
+				task.run();
+			} finally {
+				clientLanes.remove(clientId, lane);
+			}
+		});
+	}
+
+	/**
+	 * Queue the analysis of any other event for a client.
+	 */
+	public void submit(final @NotNull String clientId, final @NotNull Runnable task) {
+		if (isInline()) {
+			task.run();
+			return;
+		}
+		submit(clientLane(clientId), task);
+	}
+
+	/**
+	 * @return true if the calling thread is one of the lanes, analysing an event
+	 */
+	public boolean isLane() {
+		for (Lane lane : lanes) {
+			if (lane.thread == Thread.currentThread()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Wait until everything queued so far has been analysed, or the timeout has passed. Must not be called from a
+	 * lane thread.
+	 *
+	 * @return true if everything was analysed in time
+	 */
+	public boolean drain(final long timeout, final @NotNull TimeUnit unit) throws InterruptedException {
+		if (isInline()) {
+			return true;
+		}
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		final CountDownLatch latch = new CountDownLatch(lanes.length);
+		for (Lane lane : lanes) {
+			if (!lane.queue.offer(latch::countDown, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Analyse what has been queued, waiting no longer than the timeout, then stop the lanes.
+	 */
+	public void shutdown(final long timeout, final @NotNull TimeUnit unit) {
+		try {
+			if (!drain(timeout, unit)) {
+				logger.warn("Analysis lanes stopped with events still queued");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (Lane lane : lanes) {
+			lane.thread.interrupt();
+		}
+	}
+
+	private void submit(final int lane, final @NotNull Runnable task) {
+		final BlockingQueue<Runnable> queue = lanes[lane].queue;
+		if (policy == OverflowPolicy.BLOCK) {
+			try {
+				queue.put(task);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.error("Interrupted waiting to queue analysis on lane {}", lane);
+			}
+		} else if (!queue.offer(task)) {
+			final long count = dropped.incrementAndGet();
+			if (count == 1 || count % 1000 == 0) {
+				logger.warn("Analysis lane {} is full, {} event(s) dropped so far", lane, count);
+			}
+		}
+	}
+
+	private int clientLane(final @NotNull String clientId) {
+		return clientLanes.computeIfAbsent(clientId, this::laneFor);
+	}
+
+	private int laneFor(final @NotNull String key) {
+		return Math.floorMod(key.hashCode(), lanes.length);
+	}
+
+	private static class Lane {
+		private final @NotNull BlockingQueue<Runnable> queue;
+		private final @NotNull Thread thread;
+
+		Lane(final int index, final int queueSize) {
+			queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+			thread = new Thread(this::run, "Sparkplug-analysis-" + index);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		private void run() {
+			while (!Thread.currentThread().isInterrupted()) {
+				final Runnable task;
+				try {
+					task = queue.take();
+				} catch (InterruptedException e) {
+					break;
+				}
+				try {
+					task.run();
+				} catch (final Exception e) {
+					logger.error("Analysis Exception", e);
+				}
+			}
+		}
+	}
+}
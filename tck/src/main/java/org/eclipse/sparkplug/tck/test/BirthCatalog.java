@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload.Metric;
+import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload.Template;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * The metrics declared by one NBIRTH or DBIRTH, indexed so that each metric in the data messages which follow can be
+ * checked against the birth in constant time, however many metrics the edge node or device has.
+ *
+ * A catalog is filled as the birth is read and is not changed afterwards; a rebirth builds a new one. Each
+ * metric name is given an index, from 0 to {@link #size()} - 1, by which other per-metric state such as the
+ * {@link LastValueCache} can be kept in arrays.
+ */
+class BirthCatalog {
+
+	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	private final @NotNull Map<String, Integer> indexByName;
+	private final @NotNull Map<Long, String> aliasToName;
+	private final @NotNull Set<String> templateDefinitions = new HashSet<>();
+	private int size = 0;
+
+	/**
+	 * An empty catalog, to be filled by {@link #add(Metric)} as the birth's metrics are read.
+	 *
+	 * @param expected the number of metrics in the birth, so the maps never rehash while being filled
+	 */
+	BirthCatalog(final int expected) {
+		final int capacity = (int) (expected / 0.75f) + 1;
+		indexByName = new HashMap<>(capacity);
+		aliasToName = new HashMap<>(capacity);
+	}
+
+	/**
+	 * Declare the next metric of the birth. Only its name, alias and whether it is a template definition are kept,
+	 * not the metric itself.
+	 *
+	 * @return the index given to the metric
+	 */
+	int add(final @NotNull Metric metric) {
+		final int index = size++;
+		// a name repeated in the birth keeps the index of its last declaration
+		indexByName.put(metric.getName(), index);
+
+		if (metric.hasAlias()) {
+			logger.debug("Creating alias: {} -> {}", metric.getAlias(), metric.getName());
+			aliasToName.put(metric.getAlias(), metric.getName());
+		}
+
+		if (metric.hasTemplateValue()) {
+			Template template = metric.getTemplateValue();
+			if (template.hasIsDefinition() && !template.hasTemplateRef()) {
+				templateDefinitions.add(metric.getName());
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return whether the birth declared a metric of this name
+	 */
+	boolean hasMetric(final @Nullable String name) {
+		return name != null && indexByName.containsKey(name);
+	}
+
+	/**
+	 * @return the index of the metric of this name, or -1 if the birth did not declare it
+	 */
+	int indexOf(final @Nullable String name) {
+		Integer index = name == null ? null : indexByName.get(name);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the number of indexes this catalog has handed out
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the name the birth gave to an alias, or null if the alias was not declared
+	 */
+	@Nullable
+	String nameOf(final long alias) {
+		return aliasToName.get(alias);
+	}
+
+	/**
+	 * @return whether the birth contains a template definition of this name for instances to refer to
+	 */
+	boolean isTemplateDefinition(final @NotNull String name) {
+		return templateDefinitions.contains(name);
+	}
+
+	/**
+	 * Resolve the name of a metric from a data message, which may carry only its alias.
+	 */
+	@Nullable
+	String resolveName(final @NotNull Metric metric) {
+		if (!metric.hasName() && metric.hasAlias()) {
+			String name = nameOf(metric.getAlias());
+			logger.debug("Got currentMetricName from alias: {} -> {}", metric.getAlias(), name);
+			return name;
+		}
+		return metric.getName();
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test;
+
+import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload.Metric;
+
+import com.google.protobuf.ByteString;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+
+/**
+ * The last value reported for each metric of one edge node or device, used for the report by exception checks.
+ *
+ * Slots are numbered by the metric's index in the {@link BirthCatalog} of the birth which declared it. For each slot
+ * only the kind of value and 64 bits are kept: the value itself for the numeric and boolean types, and a hash of it for
+ * strings, bytes, datasets, templates and extensions. So two values are equal if they are of the same kind and have
+ * the same 64 bits, which for the hashed kinds can very occasionally report a change as no change.
+ *
+ * Timestamps, names and aliases are not compared, only the values.
+ */
+class LastValueCache {
+
+	// kinds other than the value case numbers of Metric
+	private static final byte EMPTY = 0; // no value seen yet
+	private static final byte NULL = -1; // is_null set
+	private static final byte NOT_SET = -2; // neither a value nor is_null
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final @NotNull byte[] kinds;
+	private final @NotNull long[] values;
+
+	LastValueCache(final int size) {
+		kinds = new byte[size];
+		values = new long[size];
+	}
+
+	/**
+	 * @return whether a value has been stored for this slot
+	 */
+	boolean hasValue(final int index) {
+		return kinds[index] != EMPTY;
+	}
+
+	/**
+	 * Store the value of a metric, replacing the last one.
+	 *
+	 * @return whether the value differs from the last one stored, or true if there was none
+	 */
+	boolean update(final int index, final @NotNull Metric metric) {
+		final byte kind = kindOf(metric);
+		final long value = valueOf(kind, metric);
+		final boolean changed = kinds[index] != kind || values[index] != value;
+		kinds[index] = kind;
+		values[index] = value;
+		return changed;
+	}
+
+	private static byte kindOf(final @NotNull Metric metric) {
+		if (metric.hasIsNull() && metric.getIsNull()) {
+			return NULL;
+		}
+		final Metric.ValueCase valueCase = metric.getValueCase();
+		return valueCase == Metric.ValueCase.VALUE_NOT_SET ? NOT_SET : (byte) valueCase.getNumber();
+	}
+
+	private static long valueOf(final byte kind, final @NotNull Metric metric) {
+		if (kind == NULL || kind == NOT_SET) {
+			return 0L;
+		}
+		switch (metric.getValueCase()) {
+			case INT_VALUE:
+				return metric.getIntValue();
+			case LONG_VALUE:
+				return metric.getLongValue();
+			case FLOAT_VALUE:
+				return Float.floatToIntBits(metric.getFloatValue());
+			case DOUBLE_VALUE:
+				return Double.doubleToLongBits(metric.getDoubleValue());
+			case BOOLEAN_VALUE:
+				return metric.getBooleanValue() ? 1L : 0L;
+			case STRING_VALUE:
+				return hash(metric.getStringValue());
+			case BYTES_VALUE:
+				return hash(metric.getBytesValue());
+			case DATASET_VALUE:
+				return hash(metric.getDatasetValue().hashCode(), metric.getDatasetValue().getSerializedSize());
+			case TEMPLATE_VALUE:
+				return hash(metric.getTemplateValue().hashCode(), metric.getTemplateValue().getSerializedSize());
+			case EXTENSION_VALUE:
+				return hash(metric.getExtensionValue().hashCode(), metric.getExtensionValue().getSerializedSize());
+			default:
+				return 0L;
+		}
+	}
+
+	/*
+	 * 64 bit FNV-1a, so that equal strings need not be kept to be compared
+	 */
+	private static long hash(final @NotNull String value) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < value.length(); ++i) {
+			hash ^= value.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static long hash(final @NotNull ByteString value) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < value.size(); ++i) {
+			hash ^= value.byteAt(i) & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/*
+	 * Protobuf messages memoize both their hash code and serialized size
+	 */
+	private static long hash(final int hashCode, final int size) {
+		return ((long) hashCode << 32) | (size & 0xffffffffL);
+	}
+}
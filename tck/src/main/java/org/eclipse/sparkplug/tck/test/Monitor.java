@@ -13,7 +13,6 @@
 
 package org.eclipse.sparkplug.tck.test;
 
-import static org.eclipse.sparkplug.tck.test.common.Constants.FAIL;
 import static org.eclipse.sparkplug.tck.test.common.Constants.NOT_EXECUTED;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DBIRTH;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DDATA;
@@ -115,22 +114,28 @@ import static org.eclipse.sparkplug.tck.test.common.Requirements.TOPIC_STRUCTURE
 import static org.eclipse.sparkplug.tck.test.common.Requirements.TOPIC_STRUCTURE_NAMESPACE_VALID_GROUP_ID;
 import static org.eclipse.sparkplug.tck.test.common.Utils.checkUTC;
 import static org.eclipse.sparkplug.tck.test.common.Utils.getNextSeq;
+import static org.eclipse.sparkplug.tck.test.common.Utils.getPayloadView;
 import static org.eclipse.sparkplug.tck.test.common.Utils.getSparkplugPayload;
 import static org.eclipse.sparkplug.tck.test.common.Utils.setResult;
 import static org.eclipse.sparkplug.tck.test.common.Utils.setResultIfNotFail;
 import static org.eclipse.sparkplug.tck.test.common.Utils.setShouldResultIfNotFail;
 
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Optional;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.eclipse.sparkplug.impl.exception.message.PayloadView;
+import org.eclipse.sparkplug.tck.jfr.SparkplugEvents;
+import org.eclipse.sparkplug.tck.metrics.TCKMetrics;
 import org.eclipse.sparkplug.tck.sparkplug.Sections;
-import org.eclipse.sparkplug.tck.test.common.Constants;
+import org.eclipse.sparkplug.tck.test.SessionStateStore.DeviceState;
+import org.eclipse.sparkplug.tck.test.SessionStateStore.EdgeNodeState;
+import org.eclipse.sparkplug.tck.test.common.ParsedTopic;
+import org.eclipse.sparkplug.tck.test.common.ResultRegistry;
 import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.DataType;
 import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload.Metric;
 import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload.Template;
@@ -168,7 +173,7 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 	private static Logger logger = LoggerFactory.getLogger("Sparkplug");
 	protected static final String TEST_FAILED_FOR_ASSERTION = "Monitor: Test failed for assertion ";
 	private static final @NotNull String NAMESPACE = TOPIC_ROOT_SP_BV_1_0;
-	private final TreeMap<String, String> testResults = new TreeMap<>();
+	private final ResultRegistry testResults = new ResultRegistry();
 	private final @NotNull List<String> testIds = List.of(ID_INTRO_EDGE_NODE_ID_UNIQUENESS,
 			ID_TOPIC_STRUCTURE_NAMESPACE_DUPLICATE_DEVICE_ID_ACROSS_EDGE_NODE,
 			ID_TOPIC_STRUCTURE_NAMESPACE_UNIQUE_EDGE_NODE_DESCRIPTOR, ID_TOPIC_STRUCTURE_NAMESPACE_UNIQUE_DEVICE_ID,
@@ -191,52 +196,30 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 			ID_PAYLOADS_NDATA_SEQ_INC, ID_PAYLOADS_DDATA_SEQ_INC, ID_TOPIC_STRUCTURE_NAMESPACE_A,
 			ID_PAYLOADS_DDEATH_SEQ_INC, ID_PAYLOADS_NBIRTH_SEQ,
 			ID_MESSAGE_FLOW_DEVICE_BIRTH_PUBLISH_DBIRTH_PAYLOAD_SEQ);
+	private final @NotNull List<String> labelledTestIds =
+			testIds.stream().map(id -> "Monitor:" + id).collect(Collectors.toUnmodifiableList());
 
-	// edge_node_id to clientid
-	private HashMap<String, String> edge_nodes = new HashMap<>();
-
-	// clientid to edge_node_id
-	private HashMap<String, String> clientids = new HashMap<>();
-
-	// edge_node_id to device_id
-	private HashMap<String, HashSet<String>> edge_to_devices = new HashMap<>();
-
-	// edge_node_id to sequence number
-	private HashMap<String, Long> edgeBdSeqs = new HashMap<String, Long>();
-
-	// edge_node_id to last sequence number
-	private HashMap<String, Long> edgeSeqs = new HashMap<>();
-
-	private HashMap<String, List<Metric>> edgeBirthMetrics = new HashMap<String, List<Metric>>();
-	private HashMap<String, List<Metric>> deviceBirthMetrics = new HashMap<String, List<Metric>>();
-
-	private HashMap<String, List<Metric>> edgeLastMetrics = new HashMap<String, List<Metric>>();
-	private HashMap<String, List<Metric>> deviceLastMetrics = new HashMap<String, List<Metric>>();
-
-	private HashMap<String, Map<Long, String>> edgeAliasMaps = new HashMap<>();
-
-	// host application id to sequence number
-	private HashMap<String, Long> hostTimestamps = new HashMap<String, Long>();
-
-	// host application id to MQTT client id
-	HashMap<String, String> hostClientids = new HashMap<String, String>();
-
-	// device/edge ids lowercase to original
-	HashMap<String, String> lowerGroupIds = new HashMap<String, String>();
-	HashMap<String, String> lowerEdgeIds = new HashMap<String, String>();
-	HashMap<String, String> lowerDeviceIds = new HashMap<String, String>();
+	private final SessionStateStore sessions = new SessionStateStore();
 
 	private Results results = null;
 
-	private boolean ignoreBdSeqNumCheck = false;
+	private final TCKMetrics metrics;
+
+	private volatile boolean ignoreBdSeqNumCheck = false;
 
-	private boolean ignoreSeqNumCheck = false;
+	private volatile boolean ignoreSeqNumCheck = false;
 
-	private boolean ignoreDupHostCheck = false;
+	private volatile boolean ignoreDupHostCheck = false;
 
 	public Monitor(Results results) {
+		this(results, new TCKMetrics());
+	}
+
+	public Monitor(Results results, TCKMetrics metrics) {
 		logger.info("Sparkplug TCK message monitor 1.0");
 		this.results = results;
+		this.metrics = metrics;
+		metrics.setSessionState(sessions::sizes);
 		clearResults();
 	}
 
@@ -262,6 +245,28 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 		return testIds.toArray(new String[0]);
 	}
 
+	/*
+	 * Only Sparkplug messages are checked, and Sparkplug A ones only to say they shouldn't be there
+	 */
+	@Override
+	public @NotNull List<String> getTopicFilters() {
+		return List.of("spAv1.0/#", NAMESPACE + "/#");
+	}
+
+	/*
+	 * The allowed difference between a payload timestamp and now, in milliseconds
+	 */
+	protected long getUTCwindow() {
+		return results.getConfig().UTCwindow;
+	}
+
+	/*
+	 * The time payload timestamps are checked against: now, unless the messages are being replayed
+	 */
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
 	public void setIgnoreBdSeqNumCheck(boolean ignoreBdSeqNumCheck) {
 		this.ignoreBdSeqNumCheck = ignoreBdSeqNumCheck;
 	}
@@ -275,21 +280,32 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 	}
 
 	public boolean hasEdgeNode(String groupId, String edgeNodeId) {
-		return edge_nodes.containsKey(groupId + ":" + edgeNodeId);
+		String edgeId = groupId + ":" + edgeNodeId;
+		EdgeNodeState edge = sessions.findEdgeNode(edgeId);
+		if (edge == null) {
+			return false;
+		}
+		synchronized (sessions.lockFor(edgeId)) {
+			return edge.clientId != null;
+		}
 	}
 
 	public boolean hasDevice(String groupId, String edgeNodeId, String deviceId) {
-		logger.info("Monitor edge {} ", edge_nodes.keySet().toString());
 		String edgeId = groupId + ":" + edgeNodeId;
-		return edge_to_devices.containsKey(edgeId) && edge_to_devices.get(edgeId).contains(deviceId);
+		EdgeNodeState edge = sessions.findEdgeNode(edgeId);
+		if (edge == null) {
+			return false;
+		}
+		synchronized (sessions.lockFor(edgeId)) {
+			logger.info("Monitor edge {} devices {}", edgeId, edge.devices);
+			return edge.devices != null && edge.devices.contains(deviceId);
+		}
 	}
 
-	public TreeMap<String, String> getResults() {
-		TreeMap<String, String> labelledResults = new TreeMap<>();
+	public ResultRegistry getResults() {
+		ResultRegistry labelledResults = new ResultRegistry();
 		for (int i = 0; i < testIds.size(); ++i) {
-			if (testResults.containsKey(testIds.get(i))) {
-				labelledResults.put("Monitor:" + testIds.get(i), testResults.get(testIds.get(i)));
-			}
+			labelledResults.copy(testResults, testIds.get(i), labelledTestIds.get(i));
 		}
 		return labelledResults;
 	}
@@ -310,36 +326,38 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 	// under all circumstances.
 	@Override
 	public void onDisconnect(DisconnectEventInput disconnectEventInput) {
-		String clientid = disconnectEventInput.getClientInformation().getClientId();
+		clientDisconnected(disconnectEventInput.getClientInformation().getClientId());
+	}
+
+	/**
+	 * End the session of an edge node or host application whose client has gone. Calling this again for a client
+	 * which has already gone does nothing.
+	 */
+	protected void clientDisconnected(String clientid) {
 		logger.debug("Monitor: Client {} disconnected.", clientid);
 
-		String edge_node_id = (String) clientids.get(clientid);
+		String edge_node_id = sessions.clientids.get(clientid);
 		if (edge_node_id != null) {
-			logger.info("Monitor: removing edge node {} for client id {} on disconnect", edge_node_id, clientid);
-			if (clientids.remove(clientid) == null) {
-				logger.error("Monitor: Error removing clientid {} on disconnect", clientid);
-			}
-			if (edge_nodes.remove(edge_node_id) == null) {
-				logger.error("Monitor: Error removing edge_node_id {} on disconnect", edge_node_id);
-			}
-
-			HashSet<String> devices = (HashSet<String>) edge_to_devices.get(edge_node_id);
-			logger.debug("Monitor: devices for edge_node_id {} were {}", edge_node_id, devices);
-			if (edge_to_devices.remove(edge_node_id) == null) {
-				logger.error("Monitor: Error removing edge_node_id {} from edge_to_devices on disconnect",
-						edge_node_id);
-			}
-		}
-
-		if (hostClientids.values().contains(clientid)) {
-			// remove hostid - clientid relation
-			for (String hostid : hostClientids.keySet()) {
-				if (hostClientids.get(hostid).equals(clientid)) {
-					hostClientids.remove(hostid);
-					break;
+			synchronized (sessions.lockFor(edge_node_id)) {
+				logger.info("Monitor: removing edge node {} for client id {} on disconnect", edge_node_id, clientid);
+				if (!sessions.clientids.remove(clientid, edge_node_id)) {
+					logger.error("Monitor: Error removing clientid {} on disconnect", clientid);
+				}
+				EdgeNodeState edge = sessions.edgeNode(edge_node_id);
+				if (edge.clientId == null) {
+					logger.error("Monitor: Error removing edge_node_id {} on disconnect", edge_node_id);
 				}
+				logger.debug("Monitor: devices for edge_node_id {} were {}", edge_node_id, edge.devices);
+				if (edge.devices == null) {
+					logger.error("Monitor: Error removing edge_node_id {} from edge_to_devices on disconnect",
+							edge_node_id);
+				}
+				edge.died();
 			}
 		}
+
+		// remove hostid - clientid relation
+		sessions.hostClientids.values().remove(clientid);
 	}
 
 	@SpecAssertion(
@@ -370,44 +388,47 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 		if (willPublishPacketOptional.isPresent()) {
 			WillPublishPacket willPublishPacket = willPublishPacketOptional.get();
 			String willTopic = willPublishPacket.getTopic();
-			String[] levels = willTopic.split("/");
-			if (levels.length >= 3 && levels[2].equals(TOPIC_PATH_NDEATH)) {
+			ParsedTopic levels = ParsedTopic.parse(willTopic);
+			if (levels.getEdgeNode() != null && TOPIC_PATH_NDEATH.equals(levels.getMessageType())) {
 
 				// this is an edge node connect
 				PayloadOrBuilder payload = getSparkplugPayload(willPublishPacket);
 
 				List<Metric> metrics = payload.getMetricsList();
-				String id = levels[1] + "/" + levels[3]; // group_id + edge_node_id
-				ListIterator<Metric> metricIterator = metrics.listIterator();
-				while (metricIterator.hasNext()) {
-					Metric current = metricIterator.next();
-					if (current.getName().equals("bdSeq") && current.hasLongValue()) {
-						long bdseq = current.getLongValue();
-						if (edgeBdSeqs.get(id) != null) {
-							if (!ignoreBdSeqNumCheck) {
-								if (!setResultIfNotFail(testResults, bdseq == getNextSeq(edgeBdSeqs.get(id)),
-										ID_TOPICS_NBIRTH_BDSEQ_INCREMENT, TOPICS_NBIRTH_BDSEQ_INCREMENT)) {
-									log(TEST_FAILED_FOR_ASSERTION + ID_TOPICS_NBIRTH_BDSEQ_INCREMENT + ": edge id: "
-											+ id);
-									log("INFO: Actual bdseq: " + bdseq + " expected bdseq: "
-											+ getNextSeq(edgeBdSeqs.get(id)));
-								}
-								if (!setResultIfNotFail(testResults, bdseq == getNextSeq(edgeBdSeqs.get(id)),
-										ID_MESSAGE_FLOW_EDGE_NODE_BIRTH_PUBLISH_WILL_MESSAGE_PAYLOAD_BDSEQ,
-										MESSAGE_FLOW_EDGE_NODE_BIRTH_PUBLISH_WILL_MESSAGE_PAYLOAD_BDSEQ)) {
-									log(TEST_FAILED_FOR_ASSERTION
-											+ ID_MESSAGE_FLOW_EDGE_NODE_BIRTH_PUBLISH_WILL_MESSAGE_PAYLOAD_BDSEQ
-											+ ": edge id: " + id);
-									log("INFO: Actual bdseq: " + bdseq + " expected bdseq: "
-											+ getNextSeq(edgeBdSeqs.get(id)));
+				String id = levels.getEdgeNode().getKey(); // group_id + edge_node_id
+				synchronized (sessions.lockFor(id)) {
+					EdgeNodeState edge = sessions.edgeNode(id);
+					ListIterator<Metric> metricIterator = metrics.listIterator();
+					while (metricIterator.hasNext()) {
+						Metric current = metricIterator.next();
+						if (current.getName().equals("bdSeq") && current.hasLongValue()) {
+							long bdseq = current.getLongValue();
+							if (edge.bdSeq != null) {
+								if (!ignoreBdSeqNumCheck) {
+									if (!setResultIfNotFail(testResults, bdseq == getNextSeq(edge.bdSeq),
+											ID_TOPICS_NBIRTH_BDSEQ_INCREMENT, TOPICS_NBIRTH_BDSEQ_INCREMENT)) {
+										log(TEST_FAILED_FOR_ASSERTION + ID_TOPICS_NBIRTH_BDSEQ_INCREMENT
+												+ ": edge id: " + id);
+										log("INFO: Actual bdseq: " + bdseq + " expected bdseq: "
+												+ getNextSeq(edge.bdSeq));
+									}
+									if (!setResultIfNotFail(testResults, bdseq == getNextSeq(edge.bdSeq),
+											ID_MESSAGE_FLOW_EDGE_NODE_BIRTH_PUBLISH_WILL_MESSAGE_PAYLOAD_BDSEQ,
+											MESSAGE_FLOW_EDGE_NODE_BIRTH_PUBLISH_WILL_MESSAGE_PAYLOAD_BDSEQ)) {
+										log(TEST_FAILED_FOR_ASSERTION
+												+ ID_MESSAGE_FLOW_EDGE_NODE_BIRTH_PUBLISH_WILL_MESSAGE_PAYLOAD_BDSEQ
+												+ ": edge id: " + id);
+										log("INFO: Actual bdseq: " + bdseq + " expected bdseq: "
+												+ getNextSeq(edge.bdSeq));
+									}
 								}
 							}
+							edge.bdSeq = bdseq;
 						}
-						edgeBdSeqs.put(id, bdseq);
 					}
 				}
-			} else if (levels[0].equals(TOPIC_ROOT_SP_BV_1_0) && levels[1].equals(TOPIC_PATH_STATE)) {
-				String hostid = levels[2];
+			} else if (levels.isState()) {
+				String hostid = levels.getHostApplicationId();
 				ObjectMapper mapper = new ObjectMapper();
 				String payloadString = StandardCharsets.UTF_8.decode(willPublishPacket.getPayload().get()).toString();
 				boolean isValidPayload = true;
@@ -426,7 +447,7 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 						JsonNode timestampNode = json.get("timestamp");
 						long timestamp = -1;
 						if (timestampNode.isLong()
-								&& Utils.checkUTC(timestampNode.longValue(), results.getConfig().UTCwindow)) {
+								&& Utils.checkUTC(timestampNode.longValue(), currentTimeMillis(), getUTCwindow())) {
 							timestamp = timestampNode.longValue();
 						} else {
 							setResultIfNotFail(testResults, false, ID_HOST_TOPIC_PHID_BIRTH_PAYLOAD,
@@ -437,44 +458,44 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 						}
 
 						if (!setResultIfNotFail(testResults,
-								timestampNode.isLong()
-										&& Utils.checkUTC(timestampNode.longValue(), results.getConfig().UTCwindow),
+								timestampNode.isLong() && Utils.checkUTC(timestampNode.longValue(),
+										currentTimeMillis(), getUTCwindow()),
 								ID_HOST_TOPIC_PHID_DEATH_PAYLOAD_TIMESTAMP_CONNECT,
 								HOST_TOPIC_PHID_DEATH_PAYLOAD_TIMESTAMP_CONNECT)) {
 							log(TEST_FAILED_FOR_ASSERTION + ID_HOST_TOPIC_PHID_DEATH_PAYLOAD_TIMESTAMP_CONNECT
 									+ ": host id: " + hostid + " with timestamp=" + timestamp);
 						}
 
-						if (hostTimestamps.get(hostid) != null) {
-							if (!setResultIfNotFail(testResults, timestamp >= hostTimestamps.get(hostid),
+						Long lastTimestamp = sessions.hostTimestamps.put(hostid, timestamp);
+						if (lastTimestamp != null) {
+							if (!setResultIfNotFail(testResults, timestamp >= lastTimestamp,
 									ID_PAYLOADS_STATE_WILL_MESSAGE_PAYLOAD, PAYLOADS_STATE_WILL_MESSAGE_PAYLOAD)) {
 								log(TEST_FAILED_FOR_ASSERTION + ID_PAYLOADS_STATE_WILL_MESSAGE_PAYLOAD + ": host id: "
 										+ hostid + " received timestamp=" + timestamp + " expected >= "
-										+ hostTimestamps.get(hostid));
+										+ lastTimestamp);
 							}
-							if (!setResultIfNotFail(testResults, timestamp >= hostTimestamps.get(hostid),
+							if (!setResultIfNotFail(testResults, timestamp >= lastTimestamp,
 									ID_PAYLOADS_STATE_WILL_MESSAGE_PAYLOAD,
 									HOST_TOPIC_PHID_DEATH_PAYLOAD_TIMESTAMP_CONNECT)) {
 								log(TEST_FAILED_FOR_ASSERTION + ID_PAYLOADS_STATE_WILL_MESSAGE_PAYLOAD + ": host id: "
 										+ hostid + " received timestamp=" + timestamp + " expected >= "
-										+ hostTimestamps.get(hostid));
+										+ lastTimestamp);
 							}
-							if (!setResultIfNotFail(testResults, timestamp >= hostTimestamps.get(hostid),
+							if (!setResultIfNotFail(testResults, timestamp >= lastTimestamp,
 									ID_HOST_TOPIC_PHID_BIRTH_PAYLOAD, HOST_TOPIC_PHID_BIRTH_PAYLOAD)) {
 								log(TEST_FAILED_FOR_ASSERTION + ID_HOST_TOPIC_PHID_BIRTH_PAYLOAD + ": host id: "
 										+ hostid + " received timestamp=" + timestamp + " expected >= "
-										+ hostTimestamps.get(hostid));
+										+ lastTimestamp);
 							}
-							if (!setResultIfNotFail(testResults, timestamp >= hostTimestamps.get(hostid),
+							if (!setResultIfNotFail(testResults, timestamp >= lastTimestamp,
 									ID_OPERATIONAL_BEHAVIOR_HOST_APPLICATION_CONNECT_WILL_PAYLOAD,
 									OPERATIONAL_BEHAVIOR_HOST_APPLICATION_CONNECT_WILL_PAYLOAD)) {
 								log(TEST_FAILED_FOR_ASSERTION
 										+ ID_OPERATIONAL_BEHAVIOR_HOST_APPLICATION_CONNECT_WILL_PAYLOAD + ": host id: "
 										+ hostid + " received timestamp=" + timestamp + " expected >= "
-										+ hostTimestamps.get(hostid));
+										+ lastTimestamp);
 							}
 						}
-						hostTimestamps.put(hostid, (long) timestamp);
 
 					}
 				}
@@ -508,67 +529,94 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 			log("Warning - non-standard Sparkplug A message received");
 			testResult(ID_TOPIC_STRUCTURE_NAMESPACE_A, setResult(false, TOPIC_STRUCTURE_NAMESPACE_A));
 		} else if (topic.startsWith(NAMESPACE)) {
-			String[] topicParts = topic.split("/");
+			ParsedTopic topicParts = ParsedTopic.parse(topic);
 			// topic is spBv1.0/group_id/message_type/edge_node_id/[device_id]"
 			// or spBv1.0/STATE/hostid
 
 			checkTopic(topicParts);
 
-			if (topicParts.length > 5 || topicParts.length < 3) {
+			if (topicParts.getLevelCount() > 5 || topicParts.getLevelCount() < 3) {
 				return;
 			}
 
-			if (topicParts.length == 3 && Constants.TOPIC_PATH_STATE.equals(topicParts[1])) {
+			if (topicParts.isState()) {
 				if (packet.getPayload().isPresent()) {
+					final long start = System.nanoTime();
 					String payloadString = StandardCharsets.UTF_8.decode(packet.getPayload().get()).toString();
 					handleSTATE(clientId, topic, payloadString);
+					metrics.handler(TOPIC_PATH_STATE).record(System.nanoTime() - start);
 				}
 				return;
 			}
 
-			String device_id = null;
-			String group_id = topicParts[1];
-			String message_type = topicParts[2];
-			String edge_node_id = topicParts[3];
-			if (topicParts.length == 5) {
-				device_id = topicParts[topicParts.length - 1];
+			if (topicParts.getEdgeNode() == null) {
+				return; // spBv1.0/x/y is not a valid topic
 			}
+			String device_id = topicParts.getDeviceId();
+			String group_id = topicParts.getGroupId();
+			String message_type = topicParts.getMessageType();
 
 			// Uniqueness for edge node ids is within group id, so
 			// we add the group_id to the edge node id as a shortcut to make it so.
-			edge_node_id = group_id + ":" + edge_node_id;
+			String edge_node_id = topicParts.getEdgeNode().getKey();
 
-			PayloadOrBuilder payload = getSparkplugPayload(packet);
+			// the handlers read the payload through the view, decoding one metric at a time
+			PayloadView view = getPayloadView(packet);
 
-			if (payload.hasTimestamp()) {
-				setResultIfNotFail(testResults, checkUTC(payload.getTimestamp(), results.getConfig().UTCwindow),
+			if (view != null && view.hasTimestamp()) {
+				setResultIfNotFail(testResults, checkUTC(view.getTimestamp(), currentTimeMillis(), getUTCwindow()),
 						ID_PAYLOADS_TIMESTAMP_IN_UTC, PAYLOADS_TIMESTAMP_IN_UTC);
 			}
 
-			// if we have more than one MQTT client id with the same edge node id then it's an error
-			if (message_type.equals(TOPIC_PATH_NBIRTH)) {
-				handleNBIRTH(group_id, edge_node_id, clientId, payload);
-			} else if (message_type.equals(TOPIC_PATH_NDEATH)) {
-				handleNDEATH(group_id, edge_node_id, clientId);
-			} else if (message_type.equals(TOPIC_PATH_NDATA)) {
-				handleNDATA(group_id, edge_node_id, payload);
-			} else if (message_type.equals(TOPIC_PATH_DBIRTH)) {
-				handleDBIRTH(group_id, edge_node_id, device_id, payload);
-			} else if (message_type.equals(TOPIC_PATH_DDEATH)) {
-				handleDDEATH(group_id, edge_node_id, device_id, payload);
-			} else if (message_type.equals(TOPIC_PATH_DDATA)) {
-				handleDDATA(group_id, edge_node_id, device_id, payload);
-			} else {
-				logger.info("Monitor: *** {} *** {}/{} {}", message_type, group_id, edge_node_id,
-						(device_id == null) ? "" : device_id);
+			// the handlers change the state as they go through the metrics, so the payload is decoded before they
+			// start. The view keeps the decode, and the test reading the same publish gets it from there.
+			if (view != null && readsMetrics(message_type) && getSparkplugPayload(packet) == null) {
+				logger.warn("Monitor: skipping {} for {}/{}{} which is not valid protobuf", message_type, group_id,
+						edge_node_id, (device_id == null) ? "" : "/" + device_id);
+				return;
+			}
+
+			// the handlers work on the state of this one edge node and its devices
+			synchronized (sessions.lockFor(edge_node_id)) {
+				EdgeNodeState edge = sessions.edgeNode(edge_node_id);
+				final long start = System.nanoTime();
+
+				// if we have more than one MQTT client id with the same edge node id then it's an error
+				if (message_type.equals(TOPIC_PATH_NBIRTH)) {
+					handleNBIRTH(group_id, edge_node_id, edge, clientId, view);
+				} else if (message_type.equals(TOPIC_PATH_NDEATH)) {
+					handleNDEATH(group_id, edge_node_id, edge, clientId);
+				} else if (message_type.equals(TOPIC_PATH_NDATA)) {
+					handleNDATA(group_id, edge_node_id, edge, view);
+				} else if (message_type.equals(TOPIC_PATH_DBIRTH)) {
+					handleDBIRTH(group_id, edge_node_id, edge, device_id, view);
+				} else if (message_type.equals(TOPIC_PATH_DDEATH)) {
+					handleDDEATH(group_id, edge_node_id, edge, device_id, view);
+				} else if (message_type.equals(TOPIC_PATH_DDATA)) {
+					handleDDATA(group_id, edge_node_id, edge, device_id, view);
+				} else {
+					logger.info("Monitor: *** {} *** {}/{} {}", message_type, group_id, edge_node_id,
+							(device_id == null) ? "" : device_id);
+				}
+				metrics.handler(message_type).record(System.nanoTime() - start);
+				SparkplugEvents.session(message_type, clientId, group_id, edge_node_id, device_id,
+						view != null ? view.getSize() : 0);
 			}
 		}
 	}
 
+	private static boolean readsMetrics(String message_type) {
+		return message_type.equals(TOPIC_PATH_NBIRTH) || message_type.equals(TOPIC_PATH_NDATA)
+				|| message_type.equals(TOPIC_PATH_DBIRTH) || message_type.equals(TOPIC_PATH_DDATA);
+	}
+
 	private void testResult(String id, String state) {
 		// Don't override a failing test fail
-		if (testResults.get(id) != null && !((String) testResults.get(id)).startsWith(FAIL)) {
-			testResults.put(id, state);
+		synchronized (testResults) {
+			ResultRegistry.State current = testResults.getState(id);
+			if (current != null && current != ResultRegistry.State.FAIL) {
+				testResults.put(id, state);
+			}
 		}
 	}
 
@@ -608,40 +656,38 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 	@SpecAssertion(
 			section = Sections.TOPICS_DEVICE_ID_ELEMENT,
 			id = ID_TOPIC_STRUCTURE_NAMESPACE_DEVICE_ID_NON_ASSOCIATED_MESSAGE_TYPES)
-	public void checkTopic(String[] elements) {
+	public void checkTopic(ParsedTopic elements) {
 		Boolean result = false;
-		if (elements[0].equals(TOPIC_ROOT_SP_BV_1_0) && elements[1].equals(TOPIC_PATH_STATE)) {
-			if (elements.length == 3) {
+		if (elements.isSparkplugB() && elements.getLevelCount() >= 2 && elements.levelEquals(1, TOPIC_PATH_STATE)) {
+			if (elements.getLevelCount() == 3) {
 				result = true;
 			}
 			testResult(ID_TOPIC_STRUCTURE, setResult(result, TOPIC_STRUCTURE));
 		} else {
-			if (elements.length < 4) {
+			if (elements.getLevelCount() < 4) {
 				testResult(ID_TOPIC_STRUCTURE, setResult(false, "(too few topic elements)"));
 			} else {
-				String namespace = elements[0];
-				String group_id = elements[1];
-				String message_type = elements[2];
-				String edge_node_id = elements[3];
-				String device_id = null;
-				if (elements.length >= 5) {
-					device_id = elements[4];
-				}
+				String group_id = elements.getGroupId();
+				String message_type = elements.getMessageType();
+				String edge_node_id = elements.getEdgeNodeId();
+				String device_id = elements.getDeviceId();
 
 				if (message_type.equals("DBIRTH") || message_type.equals("DDEATH") || message_type.equals("DDATA")
 						|| message_type.equals("DCMD")) {
 
-					testResult(ID_TOPIC_STRUCTURE_NAMESPACE_DEVICE_ID_ASSOCIATED_MESSAGE_TYPES, setResult(
-							elements.length == 5, TOPIC_STRUCTURE_NAMESPACE_DEVICE_ID_ASSOCIATED_MESSAGE_TYPES));
-					result = (elements.length == 5) ? true : false;
+					testResult(ID_TOPIC_STRUCTURE_NAMESPACE_DEVICE_ID_ASSOCIATED_MESSAGE_TYPES,
+							setResult(elements.getLevelCount() == 5,
+									TOPIC_STRUCTURE_NAMESPACE_DEVICE_ID_ASSOCIATED_MESSAGE_TYPES));
+					result = (elements.getLevelCount() == 5) ? true : false;
 				}
 
 				if (message_type.equals("NBIRTH") || message_type.equals("NDEATH") || message_type.equals("NDATA")
 						|| message_type.equals("NCMD")) {
 
-					testResult(ID_TOPIC_STRUCTURE_NAMESPACE_DEVICE_ID_NON_ASSOCIATED_MESSAGE_TYPES, setResult(
-							elements.length == 4, TOPIC_STRUCTURE_NAMESPACE_DEVICE_ID_NON_ASSOCIATED_MESSAGE_TYPES));
-					result = (elements.length == 4) ? true : false;
+					testResult(ID_TOPIC_STRUCTURE_NAMESPACE_DEVICE_ID_NON_ASSOCIATED_MESSAGE_TYPES,
+							setResult(elements.getLevelCount() == 4,
+									TOPIC_STRUCTURE_NAMESPACE_DEVICE_ID_NON_ASSOCIATED_MESSAGE_TYPES));
+					result = (elements.getLevelCount() == 4) ? true : false;
 				}
 				testResult(ID_TOPIC_STRUCTURE, setResult(result, TOPIC_STRUCTURE));
 
@@ -727,9 +773,10 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 	@SpecAssertion(
 			section = Sections.OPERATIONAL_BEHAVIOR_CASE_SENSITIVITY,
 			id = ID_CASE_SENSITIVITY_SPARKPLUG_IDS)
-	private void handleNBIRTH(String group_id, String edge_node_id, String clientId, PayloadOrBuilder payload) {
+	private void handleNBIRTH(String group_id, String edge_node_id, EdgeNodeState edge, String clientId,
+			PayloadView payload) {
 		logger.info("Monitor: *** NBIRTH *** {}/{} {}", group_id, edge_node_id, clientId);
-		String client_id = (String) edge_nodes.get(edge_node_id);
+		String client_id = edge.clientId;
 		if (client_id != null && !client_id.equals(clientId)) {
 			logger.error("Monitor: two clientids {} {} using the same group_id/edge_node_id {}", client_id, clientId,
 					edge_node_id);
@@ -740,73 +787,55 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 					setResult(false, PAYLOADS_NBIRTH_EDGE_NODE_DESCRIPTOR));
 		} else {
 			logger.info("Monitor: adding edge node {} for client id {} on NBIRTH", edge_node_id, clientId);
-			edge_nodes.put(edge_node_id, clientId);
-			clientids.put(clientId, edge_node_id);
-			edge_to_devices.put(edge_node_id, new HashSet<String>());
+			edge.born(clientId);
+			sessions.clientids.put(clientId, edge_node_id);
 		}
 
-		boolean lowerResult = true;
-
 		String lowGroupId = group_id.toLowerCase();
-		if (lowerGroupIds.containsKey(lowGroupId)) {
-			lowerResult = group_id.equals(lowerGroupIds.get(lowGroupId));
-		} else {
-			lowerGroupIds.put(lowGroupId, group_id);
-		}
+		String knownGroupId = sessions.lowerGroupIds.computeIfAbsent(lowGroupId, k -> group_id);
+		boolean lowerResult = group_id.equals(knownGroupId);
 		setShouldResultIfNotFail(testResults, lowerResult, ID_CASE_SENSITIVITY_SPARKPLUG_IDS,
-				CASE_SENSITIVITY_SPARKPLUG_IDS + " group ids: " + group_id + " " + lowerGroupIds.get(lowGroupId));
+				CASE_SENSITIVITY_SPARKPLUG_IDS + " group ids: " + group_id + " " + knownGroupId);
 
 		String lowEdgeId = edge_node_id.toLowerCase();
-		if (lowerEdgeIds.containsKey(lowEdgeId)) {
-			lowerResult = edge_node_id.equals(lowerEdgeIds.get(lowEdgeId));
-		} else {
-			lowerEdgeIds.put(lowEdgeId, edge_node_id);
-		}
+		String knownEdgeId = sessions.lowerEdgeIds.computeIfAbsent(lowEdgeId, k -> edge_node_id);
+		lowerResult = edge_node_id.equals(knownEdgeId);
 		setShouldResultIfNotFail(testResults, lowerResult, ID_CASE_SENSITIVITY_SPARKPLUG_IDS,
-				CASE_SENSITIVITY_SPARKPLUG_IDS + " edge ids: " + edge_node_id + " " + lowerEdgeIds.get(lowEdgeId));
+				CASE_SENSITIVITY_SPARKPLUG_IDS + " edge ids: " + edge_node_id + " " + knownEdgeId);
+
+		if (payload == null) {
+			testResults.put(ID_PAYLOADS_NBIRTH_SEQ, setResult(false, PAYLOADS_NBIRTH_SEQ));
+			edge.birth = null;
+			edge.lastValues = null;
+			return;
+		}
 
-		String id = group_id + "/" + edge_node_id;
 		if (payload.hasSeq()) {
 			if (payload.getSeq() > 255 || payload.getSeq() < 0) {
 				testResults.put(ID_PAYLOADS_NBIRTH_SEQ, setResult(false, PAYLOADS_NBIRTH_SEQ));
 			}
-			edgeSeqs.put(id, payload.getSeq());
+			edge.seq = payload.getSeq();
 			testResults.put(ID_PAYLOADS_NBIRTH_SEQ, setResult(true, PAYLOADS_NBIRTH_SEQ));
 		} else {
 			testResults.put(ID_PAYLOADS_NBIRTH_SEQ, setResult(false, PAYLOADS_NBIRTH_SEQ));
 		}
 
-		if (payload != null) {
-			edgeBirthMetrics.put(id, payload.getMetricsList());
+		edge.birth = new BirthCatalog(payload.getMetricCount());
+		edge.lastValues = new LastValueCache(payload.getMetricCount());
 
-			long lastHistoricalTimestamp = 0L;
-			List<Metric> metrics = payload.getMetricsList();
-			ListIterator<Metric> metricIterator = metrics.listIterator();
-			boolean aliasMapInitialized = false;
-			while (metricIterator.hasNext()) {
-				Metric current = metricIterator.next();
-
-				if (current.hasAlias()) {
-					Map<Long, String> aliasMap = edgeAliasMaps.get(id);
-					if (!aliasMapInitialized) {
-						aliasMap = edgeAliasMaps.computeIfAbsent(id, (k) -> new HashMap<>());
-						aliasMap.clear();
-						aliasMapInitialized = true;
-					}
-
-					logger.debug("Creating alias: {} -> {}", current.getAlias(), current.getName());
-					aliasMap.put(current.getAlias(), current.getName());
-				}
+		long lastHistoricalTimestamp = 0L;
+		// the catalog is filled one metric at a time, so no birth is ever held fully decoded
+		for (Metric current : payload.metrics()) {
+			edge.lastValues.update(edge.birth.add(current), current);
 
-				if (current.hasIsHistorical() && current.getIsHistorical() == false) {
-					if (!setResultIfNotFail(testResults, current.getTimestamp() >= lastHistoricalTimestamp,
-							ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_ORDER,
-							OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_ORDER)) {
-						log(TEST_FAILED_FOR_ASSERTION + ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_ORDER
-								+ ": metric name: " + current.getName());
-					}
-					lastHistoricalTimestamp = current.getTimestamp();
+			if (current.hasIsHistorical() && current.getIsHistorical() == false) {
+				if (!setResultIfNotFail(testResults, current.getTimestamp() >= lastHistoricalTimestamp,
+						ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_ORDER,
+						OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_ORDER)) {
+					log(TEST_FAILED_FOR_ASSERTION + ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_ORDER
+							+ ": metric name: " + current.getName());
 				}
+				lastHistoricalTimestamp = current.getTimestamp();
 			}
 		}
 	}
@@ -818,9 +847,9 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 			section = Sections.PAYLOADS_B_NBIRTH,
 			id = ID_PAYLOADS_NBIRTH_EDGE_NODE_DESCRIPTOR)
 
-	private void handleNDEATH(String group_id, String edge_node_id, String clientId) {
+	private void handleNDEATH(String group_id, String edge_node_id, EdgeNodeState edge, String clientId) {
 		logger.info("Monitor: *** NDEATH *** {}/{} {}", group_id, edge_node_id, clientId);
-		String found_client_id = (String) edge_nodes.get(edge_node_id);
+		String found_client_id = edge.clientId;
 
 		if (found_client_id != null && !found_client_id.equals(clientId)) {
 			logger.error("Monitor: two clientids {} {} using the same groups_id/edge_node_id {}", found_client_id,
@@ -832,23 +861,22 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 					setResult(false, PAYLOADS_NBIRTH_EDGE_NODE_DESCRIPTOR));
 		} else {
 			logger.info("Monitor: removing edge node {} for client id {} on NDEATH", edge_node_id, clientId);
-			if (clientids.remove(clientId) == null) {
+			if (sessions.clientids.remove(clientId) == null) {
 				logger.info("Monitor: Error removing clientid {} on NDEATH", clientId);
 			}
-			if (edge_nodes.remove(edge_node_id) == null) {
+			if (edge.clientId == null) {
 				logger.info("Monitor: Error removing edge_node_id {} on NDEATH", edge_node_id);
 			}
 
-			HashSet<String> devices = (HashSet<String>) edge_to_devices.get(edge_node_id);
-			logger.info("Monitor: devices for edge_node_id {} were {}", edge_node_id, devices);
-			if (edge_to_devices.remove(edge_node_id) == null) {
+			logger.info("Monitor: devices for edge_node_id {} were {}", edge_node_id, edge.devices);
+			if (edge.devices == null) {
 				logger.error("Monitor: Error removing edge_node_id {} from edge_to_devices on disconnect",
 						edge_node_id);
 			}
+			edge.died();
 		}
 
-		String id = group_id + "/" + edge_node_id;
-		edgeSeqs.remove(id);
+		edge.seq = null;
 	}
 
 	@SpecAssertion(
@@ -875,19 +903,21 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 	@SpecAssertion(
 			section = Sections.PAYLOADS_B_PAYLOAD,
 			id = ID_PAYLOADS_SEQUENCE_NUM_INCREMENTING)
-	private void handleNDATA(String group_id, String edge_node_id, PayloadOrBuilder payload) {
+	private void handleNDATA(String group_id, String edge_node_id, EdgeNodeState edge, PayloadView payload) {
 		logger.info("Monitor: *** NDATA *** {}/{}", group_id, edge_node_id);
 
 		boolean correct_seq = false;
 		if (payload.hasSeq()) {
-			String id = group_id + "/" + edge_node_id;
-			if (edgeSeqs.get(id) != null) {
-				long expectedSeq = getNextSeq((Long) edgeSeqs.get(id));
+			if (edge.seq != null) {
+				long expectedSeq = getNextSeq(edge.seq);
 				if (payload.getSeq() == expectedSeq) {
 					correct_seq = true;
+				} else {
+					SparkplugEvents.sequenceGap(TOPIC_PATH_NDATA, group_id, edge_node_id, null, expectedSeq,
+							payload.getSeq(), payload.getSize());
 				}
 			}
-			edgeSeqs.put(id, payload.getSeq());
+			edge.seq = payload.getSeq();
 		}
 		if (ignoreSeqNumCheck) {
 			setResultIfNotFail(testResults, true, ID_PAYLOADS_NDATA_SEQ_INC, PAYLOADS_NDATA_SEQ_INC);
@@ -900,29 +930,19 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 		}
 
 		long lastHistoricalTimestamp = 0L;
-		List<Metric> metrics = payload.getMetricsList();
-		String id = group_id + "/" + edge_node_id;
-		ListIterator<Metric> metricIterator = metrics.listIterator();
-		while (metricIterator.hasNext()) {
-			Metric current = metricIterator.next();
+		// a historical batch may be large, so its metrics are decoded one at a time
+		for (Metric current : payload.metrics()) {
+			BirthCatalog birth = edge.birth;
 
 			// Get the metric name if aliases are used and set it as needed
-			String currentMetricName = current.getName();
-			if (!current.hasName() && current.hasAlias()) {
-				currentMetricName = edgeAliasMaps.get(id).get(current.getAlias());
-				logger.debug("Got currentMetricName from alias: {} -> {}", current.getAlias(), currentMetricName);
+			String currentMetricName = birth != null ? birth.resolveName(current) : current.getName();
+			if (currentMetricName == null) {
+				SparkplugEvents.aliasResolutionFailure(TOPIC_PATH_NDATA, group_id, edge_node_id, null,
+						current.getAlias(), payload.getSize());
 			}
 
-			List<Metric> birthMetrics = edgeBirthMetrics.get(id);
-			if (birthMetrics != null) {
-				boolean found = false;
-				// look for the current metric name in the birth metrics
-				for (Metric birth : birthMetrics) {
-					if (birth.getName().equals(currentMetricName)) {
-						found = true;
-						break;
-					}
-				}
+			if (birth != null) {
+				boolean found = birth.hasMetric(currentMetricName);
 
 				if (!setResultIfNotFail(testResults, found, ID_TOPICS_NBIRTH_METRIC_REQS, TOPICS_NBIRTH_METRIC_REQS)) {
 					log(TEST_FAILED_FOR_ASSERTION + ID_TOPICS_NBIRTH_METRIC_REQS + ": metric name: "
@@ -935,28 +955,13 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 				}
 			}
 
-			if (current.getDatatype() == DataType.Template.getNumber()) {
+			if (birth != null && current.getDatatype() == DataType.Template.getNumber()) {
 				if (current.hasTemplateValue()) {
 					Template template = current.getTemplateValue();
 					// instances must have a reference
 					if (template.hasTemplateRef()) {
-						boolean found = false;
-						String templateName = template.getTemplateRef();
-						// look for the template in the birth metrics
-						for (Metric birth : birthMetrics) {
-							if (birth.getName().equals(templateName)) {
-
-								if (birth.hasTemplateValue()) {
-									Template templatedef = birth.getTemplateValue();
-									if (templatedef.hasIsDefinition() && templatedef.hasIsDefinition()
-											&& !templatedef.hasTemplateRef()) {
-										found = true;
-										break;
-									}
-								}
-
-							}
-						}
+						// look for the template definition in the birth metrics
+						boolean found = birth.isTemplateDefinition(template.getTemplateRef());
 						if (!setResultIfNotFail(testResults, found, ID_TOPICS_NBIRTH_TEMPLATES,
 								TOPICS_NBIRTH_TEMPLATES)) {
 							log(TEST_FAILED_FOR_ASSERTION + ID_TOPICS_NBIRTH_TEMPLATES + ": metric name: "
@@ -976,37 +981,26 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 				lastHistoricalTimestamp = current.getTimestamp();
 			}
 
-			List<Metric> lastMetrics = edgeLastMetrics.get(id);
-			if (lastMetrics != null) {
-				boolean found = false;
-				// look for the current metric name in the last metrics
-				for (Metric last : lastMetrics) {
-					// Get the metric name if aliases are used and set it as needed
-					String lastMetricName = last.getName();
-					if (!last.hasName() && last.hasAlias()) {
-						lastMetricName = edgeAliasMaps.get(id).get(last.getAlias());
+			int index = birth != null ? birth.indexOf(currentMetricName) : -1;
+			if (index >= 0 && edge.lastValues != null) {
+				// compare with the last value reported for the same metric
+				boolean known = edge.lastValues.hasValue(index);
+				boolean changed = edge.lastValues.update(index, current);
+				if (known) {
+					if (!setShouldResultIfNotFail(testResults, changed,
+							ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_CHANGE,
+							OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_CHANGE)) {
+						log(TEST_FAILED_FOR_ASSERTION + ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_CHANGE
+								+ ": metric name: " + currentMetricName);
 					}
-
-					if (lastMetricName.equals(currentMetricName)) {
-						found = true;
-
-						if (!setShouldResultIfNotFail(testResults, !metricsEqual(current, last),
-								ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_CHANGE,
-								OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_CHANGE)) {
-							log(TEST_FAILED_FOR_ASSERTION + ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_NBIRTH_CHANGE
-									+ ": metric name: " + currentMetricName);
-						}
-						if (!setShouldResultIfNotFail(testResults, !metricsEqual(current, last),
-								ID_PRINCIPLES_RBE_RECOMMENDED, PRINCIPLES_RBE_RECOMMENDED)) {
-							log(TEST_FAILED_FOR_ASSERTION + ID_PRINCIPLES_RBE_RECOMMENDED + ": metric name: "
-									+ currentMetricName);
-						}
-						break;
+					if (!setShouldResultIfNotFail(testResults, changed,
+							ID_PRINCIPLES_RBE_RECOMMENDED, PRINCIPLES_RBE_RECOMMENDED)) {
+						log(TEST_FAILED_FOR_ASSERTION + ID_PRINCIPLES_RBE_RECOMMENDED + ": metric name: "
+								+ currentMetricName);
 					}
 				}
 			}
 		}
-		edgeLastMetrics.put(id, metrics);
 	}
 
 	@SpecAssertion(
@@ -1030,12 +1024,13 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 	@SpecAssertion(
 			section = Sections.OPERATIONAL_BEHAVIOR_CASE_SENSITIVITY,
 			id = ID_CASE_SENSITIVITY_SPARKPLUG_IDS)
-	private void handleDBIRTH(String group_id, String edge_node_id, String device_id, PayloadOrBuilder payload) {
+	private void handleDBIRTH(String group_id, String edge_node_id, EdgeNodeState edge, String device_id,
+			PayloadView payload) {
 		logger.info("Monitor: *** DBIRTH *** {}/{}/{}", group_id, edge_node_id, device_id);
-		if (!edge_to_devices.keySet().contains(edge_node_id)) {
+		if (edge.devices == null) {
 			logger.error("Monitor: DBIRTH before NBIRTH");
 		} else {
-			HashSet<String> devices = (HashSet<String>) edge_to_devices.get(edge_node_id);
+			Set<String> devices = edge.devices;
 			if (devices.contains(device_id)) {
 				logger.error("Monitor: edge_node {} using device_id {} twice", edge_node_id, device_id);
 				testResults.put(ID_TOPIC_STRUCTURE_NAMESPACE_UNIQUE_DEVICE_ID,
@@ -1050,41 +1045,28 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 			}
 		}
 
-		boolean lowerResult = true;
-
 		String lowGroupId = group_id.toLowerCase();
-		if (lowerGroupIds.containsKey(lowGroupId)) {
-			lowerResult = group_id.equals(lowerGroupIds.get(lowGroupId));
-		} else {
-			lowerGroupIds.put(lowGroupId, group_id);
-		}
+		String knownGroupId = sessions.lowerGroupIds.computeIfAbsent(lowGroupId, k -> group_id);
+		boolean lowerResult = group_id.equals(knownGroupId);
 		setShouldResultIfNotFail(testResults, lowerResult, ID_CASE_SENSITIVITY_SPARKPLUG_IDS,
-				CASE_SENSITIVITY_SPARKPLUG_IDS + " group ids: " + group_id + " " + lowerGroupIds.get(lowGroupId));
+				CASE_SENSITIVITY_SPARKPLUG_IDS + " group ids: " + group_id + " " + knownGroupId);
 
 		String lowEdgeId = edge_node_id.toLowerCase();
-		if (lowerEdgeIds.containsKey(lowEdgeId)) {
-			lowerResult = edge_node_id.equals(lowerEdgeIds.get(lowEdgeId));
-		} else {
-			lowerEdgeIds.put(lowEdgeId, edge_node_id);
-		}
+		String knownEdgeId = sessions.lowerEdgeIds.computeIfAbsent(lowEdgeId, k -> edge_node_id);
+		lowerResult = edge_node_id.equals(knownEdgeId);
 		setShouldResultIfNotFail(testResults, lowerResult, ID_CASE_SENSITIVITY_SPARKPLUG_IDS,
-				CASE_SENSITIVITY_SPARKPLUG_IDS + " edge ids: " + edge_node_id + " " + lowerEdgeIds.get(lowEdgeId));
+				CASE_SENSITIVITY_SPARKPLUG_IDS + " edge ids: " + edge_node_id + " " + knownEdgeId);
 
 		String lowDeviceId = device_id.toLowerCase();
-		if (lowerDeviceIds.containsKey(lowDeviceId)) {
-			lowerResult = device_id.equals(lowerDeviceIds.get(lowDeviceId));
-		} else {
-			lowerDeviceIds.put(lowDeviceId, device_id);
-		}
+		String knownDeviceId = sessions.lowerDeviceIds.computeIfAbsent(lowDeviceId, k -> device_id);
+		lowerResult = device_id.equals(knownDeviceId);
 		setShouldResultIfNotFail(testResults, lowerResult, ID_CASE_SENSITIVITY_SPARKPLUG_IDS,
-				CASE_SENSITIVITY_SPARKPLUG_IDS + " device ids: " + device_id + " " + lowerDeviceIds.get(lowDeviceId));
+				CASE_SENSITIVITY_SPARKPLUG_IDS + " device ids: " + device_id + " " + knownDeviceId);
 
 		// record sequence numbers for checking
 		if (payload.hasSeq()) {
-			String id = group_id + "/" + edge_node_id;
-
-			if (edgeSeqs.get(id) != null) {
-				long expectedSeq = getNextSeq((Long) edgeSeqs.get(id));
+			if (edge.seq != null) {
+				long expectedSeq = getNextSeq(edge.seq);
 				if (payload.getSeq() == expectedSeq) {
 					if (testResults.get(ID_PAYLOADS_DBIRTH_SEQ_INC) == null) {
 						testResults.put(ID_PAYLOADS_DBIRTH_SEQ_INC, setResult(true, PAYLOADS_DBIRTH_SEQ_INC));
@@ -1094,12 +1076,14 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 								setResult(true, MESSAGE_FLOW_DEVICE_BIRTH_PUBLISH_DBIRTH_PAYLOAD_SEQ));
 					}
 				} else {
+					SparkplugEvents.sequenceGap(TOPIC_PATH_DBIRTH, group_id, edge_node_id, device_id, expectedSeq,
+							payload.getSeq(), payload.getSize());
 					testResults.put(ID_PAYLOADS_DBIRTH_SEQ_INC, setResult(false, PAYLOADS_DBIRTH_SEQ_INC));
 					testResults.put(ID_MESSAGE_FLOW_DEVICE_BIRTH_PUBLISH_DBIRTH_PAYLOAD_SEQ,
 							setResult(false, MESSAGE_FLOW_DEVICE_BIRTH_PUBLISH_DBIRTH_PAYLOAD_SEQ));
 				}
 			}
-			edgeSeqs.put(id, payload.getSeq());
+			edge.seq = payload.getSeq();
 		} else {
 			testResults.put(ID_PAYLOADS_DBIRTH_SEQ_INC, setResult(false, PAYLOADS_DBIRTH_SEQ_INC));
 			testResults.put(ID_MESSAGE_FLOW_DEVICE_BIRTH_PUBLISH_DBIRTH_PAYLOAD_SEQ,
@@ -1107,28 +1091,13 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 		}
 
 		if (payload != null) {
-			String id = group_id + "/" + edge_node_id + "/" + device_id;
-			deviceBirthMetrics.put(id, payload.getMetricsList());
-			deviceLastMetrics.put(id, payload.getMetricsList());
+			DeviceState device = edge.device(device_id);
+			device.birth = new BirthCatalog(payload.getMetricCount());
+			device.lastValues = new LastValueCache(payload.getMetricCount());
 
 			long lastHistoricalTimestamp = 0L;
-			List<Metric> metrics = payload.getMetricsList();
-			ListIterator<Metric> metricIterator = metrics.listIterator();
-			boolean aliasMapInitialized = false;
-			while (metricIterator.hasNext()) {
-				Metric current = metricIterator.next();
-
-				if (current.hasAlias()) {
-					Map<Long, String> aliasMap = edgeAliasMaps.get(id);
-					if (!aliasMapInitialized) {
-						aliasMap = edgeAliasMaps.computeIfAbsent(id, (k) -> new HashMap<>());
-						aliasMap.clear();
-						aliasMapInitialized = true;
-					}
-
-					logger.debug("Creating alias: {} -> {}", current.getAlias(), current.getName());
-					aliasMap.put(current.getAlias(), current.getName());
-				}
+			for (Metric current : payload.metrics()) {
+				device.lastValues.update(device.birth.add(current), current);
 
 				if (current.hasIsHistorical() && current.getIsHistorical() == false) {
 					if (!setResultIfNotFail(testResults, current.getTimestamp() >= lastHistoricalTimestamp,
@@ -1146,12 +1115,13 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 	@SpecAssertion(
 			section = Sections.PAYLOADS_B_DDEATH,
 			id = ID_PAYLOADS_DDEATH_SEQ_INC)
-	private void handleDDEATH(String group_id, String edge_node_id, String device_id, PayloadOrBuilder payload) {
+	private void handleDDEATH(String group_id, String edge_node_id, EdgeNodeState edge, String device_id,
+			PayloadView payload) {
 		logger.info("Monitor: *** DDEATH *** {}/{}/{}", group_id, edge_node_id, device_id);
-		if (!edge_to_devices.keySet().contains(edge_node_id)) {
+		if (edge.devices == null) {
 			logger.error("Monitor: DDEATH received but no edge_node_id recorded");
 		} else {
-			HashSet<String> devices = (HashSet<String>) edge_to_devices.get(edge_node_id);
+			Set<String> devices = edge.devices;
 			if (!devices.contains(device_id)) {
 				logger.error("Monitor: DDEATH before DBIRTH for device {} on edge {}", device_id, edge_node_id);
 			} else {
@@ -1161,19 +1131,19 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 		}
 
 		if (payload != null && payload.hasSeq()) {
-			String id = group_id + "/" + edge_node_id;
-
-			if (edgeSeqs.get(id) != null) {
-				long expectedSeq = getNextSeq((Long) edgeSeqs.get(id));
+			if (edge.seq != null) {
+				long expectedSeq = getNextSeq(edge.seq);
 				if (payload.getSeq() == expectedSeq) {
 					if (testResults.get(ID_PAYLOADS_DDEATH_SEQ_INC) == null) {
 						testResults.put(ID_PAYLOADS_DDEATH_SEQ_INC, setResult(true, PAYLOADS_DDEATH_SEQ_INC));
 					}
 				} else {
+					SparkplugEvents.sequenceGap(TOPIC_PATH_DDEATH, group_id, edge_node_id, device_id, expectedSeq,
+							payload.getSeq(), payload.getSize());
 					testResults.put(ID_PAYLOADS_DDEATH_SEQ_INC, setResult(false, PAYLOADS_DDEATH_SEQ_INC));
 				}
 			}
-			edgeSeqs.put(id, payload.getSeq());
+			edge.seq = payload.getSeq();
 		} else {
 			testResults.put(ID_PAYLOADS_DDEATH_SEQ_INC, setResult(false, PAYLOADS_DDEATH_SEQ_INC));
 		}
@@ -1203,19 +1173,22 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 	@SpecAssertion(
 			section = Sections.PAYLOADS_B_PAYLOAD,
 			id = ID_PAYLOADS_SEQUENCE_NUM_INCREMENTING)
-	private void handleDDATA(String group_id, String edge_node_id, String device_id, PayloadOrBuilder payload) {
+	private void handleDDATA(String group_id, String edge_node_id, EdgeNodeState edge, String device_id,
+			PayloadView payload) {
 		logger.info("Monitor: *** DDATA *** {}/{}/{}", group_id, edge_node_id, device_id);
 
 		boolean correct_seq = false;
 		if (payload.hasSeq()) {
-			String id = group_id + "/" + edge_node_id;
-			if (edgeSeqs.get(id) != null) {
-				long expectedSeq = getNextSeq((Long) edgeSeqs.get(id));
+			if (edge.seq != null) {
+				long expectedSeq = getNextSeq(edge.seq);
 				if (payload.getSeq() == expectedSeq) {
 					correct_seq = true;
+				} else {
+					SparkplugEvents.sequenceGap(TOPIC_PATH_DDATA, group_id, edge_node_id, device_id, expectedSeq,
+							payload.getSeq(), payload.getSize());
 				}
 			}
-			edgeSeqs.put(id, payload.getSeq());
+			edge.seq = payload.getSeq();
 		}
 		if (ignoreSeqNumCheck) {
 			setResultIfNotFail(testResults, true, ID_PAYLOADS_NDATA_SEQ_INC, PAYLOADS_NDATA_SEQ_INC);
@@ -1227,30 +1200,28 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 					PAYLOADS_SEQUENCE_NUM_INCREMENTING);
 		}
 
+		// a device only has state once it has sent a DBIRTH, and only counts as born until its DDEATH
+		DeviceState device =
+				edge.devices != null && edge.devices.contains(device_id) ? edge.findDevice(device_id) : null;
+		if (device == null) {
+			logger.info("Monitor: DDATA for {}/{}/{} which has not sent a DBIRTH, skipping its metrics", group_id,
+					edge_node_id, device_id);
+			return;
+		}
+
 		long lastHistoricalTimestamp = 0L;
-		List<Metric> metrics = payload.getMetricsList();
-		String id = group_id + "/" + edge_node_id + "/" + device_id;
-		ListIterator<Metric> metricIterator = metrics.listIterator();
-		while (metricIterator.hasNext()) {
-			Metric current = metricIterator.next();
+		for (Metric current : payload.metrics()) {
+			BirthCatalog birth = device.birth;
 
 			// Get the metric name if aliases are used and set it as needed
-			String currentMetricName = current.getName();
-			if (!current.hasName() && current.hasAlias()) {
-				currentMetricName = edgeAliasMaps.get(id).get(current.getAlias());
-				logger.debug("Got currentMetricName from alias: {} -> {}", current.getAlias(), currentMetricName);
+			String currentMetricName = birth != null ? birth.resolveName(current) : current.getName();
+			if (currentMetricName == null) {
+				SparkplugEvents.aliasResolutionFailure(TOPIC_PATH_DDATA, group_id, edge_node_id, device_id,
+						current.getAlias(), payload.getSize());
 			}
 
-			List<Metric> birthMetrics = deviceBirthMetrics.get(id);
-			if (birthMetrics != null) {
-				boolean found = false;
-				// look for the current metric name in the birth metrics
-				for (Metric birth : birthMetrics) {
-					if (birth.getName().equals(currentMetricName)) {
-						found = true;
-						break;
-					}
-				}
+			if (birth != null) {
+				boolean found = birth.hasMetric(currentMetricName);
 
 				if (!setResultIfNotFail(testResults, found, ID_TOPICS_DBIRTH_METRIC_REQS, TOPICS_DBIRTH_METRIC_REQS)) {
 					log(TEST_FAILED_FOR_ASSERTION + ID_TOPICS_DBIRTH_METRIC_REQS + ": metric name: "
@@ -1263,38 +1234,6 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 				}
 			}
 
-			List<Metric> eBirthMetrics = edgeBirthMetrics.get(id);
-			if (eBirthMetrics != null && current.getDatatype() == DataType.Template.getNumber()) {
-				if (current.hasTemplateValue()) {
-					Template template = current.getTemplateValue();
-					// instances must have a reference
-					if (template.hasTemplateRef()) {
-						boolean found = false;
-						String templateName = template.getTemplateRef();
-						// look for the template in the birth metrics
-						for (Metric birth : eBirthMetrics) {
-							if (birth.getName().equals(templateName)) {
-
-								if (birth.hasTemplateValue()) {
-									Template templatedef = birth.getTemplateValue();
-									if (templatedef.hasIsDefinition() && templatedef.hasIsDefinition()
-											&& !templatedef.hasTemplateRef()) {
-										found = true;
-										break;
-									}
-								}
-
-							}
-						}
-						if (!setResultIfNotFail(testResults, found, ID_TOPICS_NBIRTH_TEMPLATES,
-								TOPICS_NBIRTH_TEMPLATES)) {
-							log(TEST_FAILED_FOR_ASSERTION + ID_TOPICS_NBIRTH_TEMPLATES + ": metric name: "
-									+ currentMetricName);
-						}
-					}
-				}
-			}
-
 			if (current.hasIsHistorical() && current.getIsHistorical() == false) {
 				if (!setResultIfNotFail(testResults, current.getTimestamp() >= lastHistoricalTimestamp,
 						ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_DBIRTH_ORDER,
@@ -1305,36 +1244,26 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 				lastHistoricalTimestamp = current.getTimestamp();
 			}
 
-			List<Metric> lastMetrics = deviceLastMetrics.get(id);
-			if (lastMetrics != null) {
-				boolean found = false;
-				// look for the current metric name in the last metrics
-				for (Metric last : lastMetrics) {
-					// Get the metric name if aliases are used and set it as needed
-					String lastMetricName = last.getName();
-					if (!last.hasName() && last.hasAlias()) {
-						lastMetricName = edgeAliasMaps.get(id).get(last.getAlias());
+			int index = birth != null ? birth.indexOf(currentMetricName) : -1;
+			if (index >= 0 && device.lastValues != null) {
+				// compare with the last value reported for the same metric
+				boolean known = device.lastValues.hasValue(index);
+				boolean changed = device.lastValues.update(index, current);
+				if (known) {
+					if (!setShouldResultIfNotFail(testResults, changed,
+							ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_DBIRTH_CHANGE,
+							OPERATIONAL_BEHAVIOR_DATA_PUBLISH_DBIRTH_CHANGE)) {
+						log(TEST_FAILED_FOR_ASSERTION + ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_DBIRTH_CHANGE
+								+ ": metric name: " + currentMetricName);
 					}
-
-					if (lastMetricName.equals(currentMetricName)) {
-						found = true;
-						if (!setShouldResultIfNotFail(testResults, !metricsEqual(current, last),
-								ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_DBIRTH_CHANGE,
-								OPERATIONAL_BEHAVIOR_DATA_PUBLISH_DBIRTH_CHANGE)) {
-							log(TEST_FAILED_FOR_ASSERTION + ID_OPERATIONAL_BEHAVIOR_DATA_PUBLISH_DBIRTH_CHANGE
-									+ ": metric name: " + currentMetricName);
-						}
-						if (!setShouldResultIfNotFail(testResults, !metricsEqual(current, last),
-								ID_PRINCIPLES_RBE_RECOMMENDED, PRINCIPLES_RBE_RECOMMENDED)) {
-							log(TEST_FAILED_FOR_ASSERTION + ID_PRINCIPLES_RBE_RECOMMENDED + ": metric name: "
-									+ currentMetricName);
-						}
-						break;
+					if (!setShouldResultIfNotFail(testResults, changed,
+							ID_PRINCIPLES_RBE_RECOMMENDED, PRINCIPLES_RBE_RECOMMENDED)) {
+						log(TEST_FAILED_FOR_ASSERTION + ID_PRINCIPLES_RBE_RECOMMENDED + ": metric name: "
+								+ currentMetricName);
 					}
 				}
 			}
 		}
-		deviceLastMetrics.put(id, metrics);
 	}
 
 	@SpecAssertion(
@@ -1370,18 +1299,15 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 				if (online.isBoolean()) {
 					boolean check = true;
 					boolean state = online.booleanValue();
-					String hostClientid = hostClientids.get(hostid);
 					if (state) {
+						String hostClientid = sessions.hostClientids.put(hostid, clientId);
 						if (hostClientid != null) {
 							if (hostClientid.equals(clientId)) {
 								check = false; // two different clientids with the same hostid online
 							}
 						}
-						hostClientids.put(hostid, clientId);
 					} else {
-						if (hostClientid != null) {
-							hostClientids.remove(hostid);
-						} else {
+						if (sessions.hostClientids.remove(hostid) == null) {
 							// didn't find host online but it might not be an error
 						}
 					}
@@ -1391,41 +1317,4 @@ public class Monitor extends TCKTest implements ClientLifecycleEventListener {
 			}
 		}
 	}
-
-	private boolean metricsEqual(Metric metricOne, Metric metricTwo) {
-		/*
-		 * We don't use the metric equals methods because it includes a timestamp check too.
-		 * We should consider metrics equal even if the timestamp has been updated.
-		 * - Wes Johnson
-		 */
-		if (metricOne == null && metricTwo == null) {
-			logger.debug("metricOne and metricTwo are null");
-			return true;
-		} else if (metricOne != null && metricTwo == null) {
-			logger.debug("metricOne is not null and metricTwo is null");
-			return false;
-		} else if (metricOne == null && metricTwo != null) {
-			logger.debug("metricOne is null and metricTwo is not null");
-			return false;
-		} else {
-			logger.debug("metricOne and metricTwo are not null");
-			if (metricOne.getAlias() == metricTwo.getAlias() && metricOne.getName() == metricTwo.getName()
-					&& metricOne.getBooleanValue() == metricTwo.getBooleanValue()
-					&& metricOne.getBytesValue() == metricTwo.getBytesValue()
-					&& metricOne.getDatasetValue() == metricTwo.getDatasetValue()
-					&& metricOne.getDoubleValue() == metricTwo.getDoubleValue()
-					&& metricOne.getFloatValue() == metricTwo.getFloatValue()
-					&& metricOne.getIntValue() == metricTwo.getIntValue()
-					&& metricOne.getLongValue() == metricTwo.getLongValue()
-					&& metricOne.getStringValue() == metricTwo.getStringValue()
-					&& metricOne.getTemplateValue() == metricTwo.getTemplateValue()) {
-				// Metrics are considered equal if the name, alias, and values are equal
-				logger.trace("Metrics match...");
-				return true;
-			} else {
-				logger.trace("Metrics don't match...");
-				return false;
-			}
-		}
-	}
 }
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.sparkplug.tck.test.common.ResultRegistry.State;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * Running counts of result events, by requirement and by profile.
+ *
+ * Events are counted as they are added and then dropped, so the counts over any number of runs take the same memory as
+ * the counts over one, and can be read at any point. The main method counts the events in result event files, JSON
+ * lines or binary, and prints the totals:
+ *
+ * <pre>
+ * java org.eclipse.sparkplug.tck.test.ResultAggregator SparkplugTCKresults.jsonl ...
+ * </pre>
+ */
+public class ResultAggregator {
+
+	/**
+	 * The number of results in each state.
+	 */
+	public static class Counts {
+		private final long[] counts = new long[State.values().length];
+		private @Nullable State last = null;
+
+		void add(final @NotNull State state) {
+			++counts[state.ordinal()];
+			last = state;
+		}
+
+		public long get(final @NotNull State state) {
+			return counts[state.ordinal()];
+		}
+
+		public long getTotal() {
+			long total = 0;
+			for (long count : counts) {
+				total += count;
+			}
+			return total;
+		}
+
+		/**
+		 * @return the state of the most recent result, or null if there have been none
+		 */
+		public @Nullable State getLast() {
+			return last;
+		}
+
+		@Override
+		public String toString() {
+			return "PASS " + get(State.PASS) + " FAIL " + get(State.FAIL) + " MAYBE " + get(State.MAYBE)
+					+ " NOT EXECUTED " + get(State.NOT_EXECUTED);
+		}
+	}
+
+	private final @NotNull Map<String, Counts> byRequirement = new TreeMap<>();
+	private final @NotNull Map<String, Counts> byProfile = new TreeMap<>();
+	private long events = 0;
+
+	public synchronized void add(final @NotNull ResultEvent event) {
+		byRequirement.computeIfAbsent(event.getRequirement(), k -> new Counts()).add(event.getState());
+		byProfile.computeIfAbsent(event.getProfile(), k -> new Counts()).add(event.getState());
+		++events;
+	}
+
+	public synchronized long getEventCount() {
+		return events;
+	}
+
+	public synchronized @Nullable Counts getRequirement(final @NotNull String requirement) {
+		return byRequirement.get(requirement);
+	}
+
+	public synchronized @Nullable Counts getProfile(final @NotNull String profile) {
+		return byProfile.get(profile);
+	}
+
+	/**
+	 * Add the events in a file of JSON lines, one line at a time. Blank lines are skipped.
+	 */
+	public void addJsonLines(final @NotNull BufferedReader reader) throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (!line.isBlank()) {
+				add(ResultEvent.fromJson(line));
+			}
+		}
+	}
+
+	/**
+	 * Add the events in a file of binary records, up to the end of the stream.
+	 */
+	public void addBinary(final @NotNull DataInputStream in) throws IOException {
+		while (true) {
+			in.mark(1);
+			if (in.read() < 0) {
+				return;
+			}
+			in.reset();
+			add(ResultEvent.readFrom(in));
+		}
+	}
+
+	public synchronized @NotNull StringBuilder getSummary() {
+		final StringBuilder summary = new StringBuilder();
+		summary.append("Result events: ").append(events).append(System.lineSeparator());
+		for (Map.Entry<String, Counts> profile : byProfile.entrySet()) {
+			summary.append("Profile ").append(profile.getKey()).append(": ").append(profile.getValue())
+					.append(System.lineSeparator());
+		}
+		for (Map.Entry<String, Counts> requirement : byRequirement.entrySet()) {
+			summary.append(requirement.getKey()).append(": ").append(requirement.getValue()).append("; last ")
+					.append(requirement.getValue().getLast()).append(System.lineSeparator());
+		}
+		return summary;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: ResultAggregator <result event file>...");
+			System.exit(1);
+		}
+		final ResultAggregator aggregator = new ResultAggregator();
+		for (String filename : args) {
+			// rotated files have a timestamp suffix, so tell the format by the content: binary starts with the version
+			final boolean binary;
+			try (FileInputStream in = new FileInputStream(filename)) {
+				binary = in.read() == ResultEvent.BINARY_VERSION;
+			}
+			if (binary) {
+				try (DataInputStream in =
+						new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+					aggregator.addBinary(in);
+				} catch (EOFException e) {
+					System.err.println("Truncated result event file " + filename);
+				}
+			} else {
+				try (BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+					aggregator.addJsonLines(reader);
+				}
+			}
+		}
+		System.out.print(aggregator.getSummary());
+	}
+}
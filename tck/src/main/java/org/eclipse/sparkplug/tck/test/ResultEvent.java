@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.eclipse.sparkplug.tck.test.common.ResultRegistry.State;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * The result of one assertion in one test run.
+ *
+ * Written one to a line as JSON:
+ *
+ * <pre>
+ * {"time":1660000000000,"profile":"edge","test":"SendData","requirement":"payloads-ndata-seq-inc","state":"PASS"}
+ * </pre>
+ *
+ * with a "text" field too for any result which is more than just its state. Or in the binary format, which is a
+ * version byte followed by the same fields, the state as its ordinal and the strings in modified UTF-8 as written by
+ * {@link DataOutput#writeUTF(String)}.
+ */
+public class ResultEvent {
+
+	public static final int BINARY_VERSION = 1;
+
+	private static final @NotNull JsonFactory jsonFactory = new JsonFactory();
+	private static final @NotNull State[] STATES = State.values();
+
+	private final long time;
+	private final @NotNull String profile;
+	private final @NotNull String test;
+	private final @NotNull String requirement;
+	private final @NotNull State state;
+	private final @Nullable String text;
+
+	public ResultEvent(final long time, final @NotNull String profile, final @NotNull String test,
+			final @NotNull String requirement, final @NotNull State state, final @Nullable String text) {
+		this.time = time;
+		this.profile = profile;
+		this.test = test;
+		this.requirement = requirement;
+		this.state = state;
+		// a bare state, like most passes, says nothing more
+		this.text = text == null || text.equals(state.getText()) ? null : text;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return broker, edge or host
+	 */
+	public @NotNull String getProfile() {
+		return profile;
+	}
+
+	public @NotNull String getTest() {
+		return test;
+	}
+
+	/**
+	 * @return the requirement id, without any "Monitor:" label
+	 */
+	public @NotNull String getRequirement() {
+		return requirement;
+	}
+
+	public @NotNull State getState() {
+		return state;
+	}
+
+	public @Nullable String getText() {
+		return text;
+	}
+
+	public @NotNull String toJson() {
+		final StringWriter out = new StringWriter(128);
+		try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+			json.writeStartObject();
+			json.writeNumberField("time", time);
+			json.writeStringField("profile", profile);
+			json.writeStringField("test", test);
+			json.writeStringField("requirement", requirement);
+			json.writeStringField("state", state.name());
+			if (text != null) {
+				json.writeStringField("text", text);
+			}
+			json.writeEndObject();
+		} catch (IOException e) {
+			// a StringWriter does not throw
+			throw new IllegalStateException(e);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Parse one line written by {@link #toJson()}. Unknown fields are skipped.
+	 */
+	public static @NotNull ResultEvent fromJson(final @NotNull String line) throws IOException {
+		long time = 0;
+		String profile = "";
+		String test = "";
+		String requirement = null;
+		State state = State.OTHER;
+		String text = null;
+		try (JsonParser json = jsonFactory.createParser(line)) {
+			if (json.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Result event is not a JSON object: " + line);
+			}
+			while (json.nextToken() == JsonToken.FIELD_NAME) {
+				final String field = json.getCurrentName();
+				json.nextToken();
+				switch (field) {
+					case "time":
+						time = json.getLongValue();
+						break;
+					case "profile":
+						profile = json.getText();
+						break;
+					case "test":
+						test = json.getText();
+						break;
+					case "requirement":
+						requirement = json.getText();
+						break;
+					case "state":
+						state = stateOf(json.getText());
+						break;
+					case "text":
+						text = json.getText();
+						break;
+					default:
+						json.skipChildren();
+				}
+			}
+		}
+		if (requirement == null) {
+			throw new IOException("Result event has no requirement: " + line);
+		}
+		return new ResultEvent(time, profile, test, requirement, state, text);
+	}
+
+	public void writeTo(final @NotNull DataOutput out) throws IOException {
+		out.writeByte(BINARY_VERSION);
+		out.writeLong(time);
+		out.writeUTF(profile);
+		out.writeUTF(test);
+		out.writeUTF(requirement);
+		out.writeByte(state.ordinal());
+		out.writeBoolean(text != null);
+		if (text != null) {
+			out.writeUTF(text);
+		}
+	}
+
+	public static @NotNull ResultEvent readFrom(final @NotNull DataInput in) throws IOException {
+		final int version = in.readUnsignedByte();
+		if (version != BINARY_VERSION) {
+			throw new IOException("Unknown result event version " + version);
+		}
+		final long time = in.readLong();
+		final String profile = in.readUTF();
+		final String test = in.readUTF();
+		final String requirement = in.readUTF();
+		final int state = in.readUnsignedByte();
+		final String text = in.readBoolean() ? in.readUTF() : null;
+		return new ResultEvent(time, profile, test, requirement, state < STATES.length ? STATES[state] : State.OTHER,
+				text);
+	}
+
+	private static @NotNull State stateOf(final @NotNull String name) {
+		try {
+			return State.valueOf(name);
+		} catch (IllegalArgumentException e) {
+			return State.OTHER;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return toJson();
+	}
+}
@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * Appends lines to the result log from a thread of its own.
+ *
+ * The log file is opened once and kept open. Lines are queued by {@link #write(String)}, or binary records by
+ * {@link #write(byte[])}, and the writer thread takes everything queued at once and writes it in a single write call,
+ * so a burst of results costs one write however many lines it has. How often the file is forced to disk is set by the {@link FsyncPolicy}.
+ *
+ * The log can be rotated when it reaches a size or an age: the current file is renamed with a timestamp suffix and a
+ * new one started under the same name.
+ */
+public class ResultLogWriter {
+
+	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	private static final int MAX_BATCH = 1024;
+	private static final long POLL_MILLIS = 1000;
+	private static final @NotNull Object STOP = new Object();
+
+	/**
+	 * When to force written results to disk.
+	 */
+	public enum FsyncPolicy {
+		/** leave it to the operating system */
+		NONE,
+		/** after every batch of lines */
+		BATCH,
+		/** at most once every fsync interval */
+		INTERVAL
+	}
+
+	private final @NotNull BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+	private final @NotNull FsyncPolicy fsyncPolicy;
+	private final long fsyncIntervalMillis;
+	private final @NotNull Thread thread;
+
+	// only used on the writer thread
+	private @Nullable FileChannel channel = null;
+	private long size = 0;
+	private long openedAt = 0;
+	private long lastSync = 0;
+	private boolean unsynced = false;
+
+	private volatile @NotNull String filename;
+	private volatile long rotateBytes;
+	private volatile long rotateMillis;
+
+	public ResultLogWriter(final @NotNull String filename, final @NotNull FsyncPolicy fsyncPolicy,
+			final long fsyncIntervalMillis, final long rotateBytes, final long rotateMillis) {
+		this.filename = filename;
+		this.fsyncPolicy = fsyncPolicy;
+		this.fsyncIntervalMillis = fsyncIntervalMillis;
+		this.rotateBytes = rotateBytes;
+		this.rotateMillis = rotateMillis;
+		thread = new Thread(this::run, "Sparkplug-result-log");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Create a writer configured from the system properties sparkplug.tck.results.fsync (NONE, BATCH or INTERVAL),
+	 * sparkplug.tck.results.fsyncInterval (milliseconds), sparkplug.tck.results.rotateBytes and
+	 * sparkplug.tck.results.rotateSeconds. Rotation is off unless one of the rotate properties is set.
+	 */
+	public static @NotNull ResultLogWriter fromSystemProperties(final @NotNull String filename) {
+		FsyncPolicy policy = FsyncPolicy.NONE;
+		final String fsync = System.getProperty("sparkplug.tck.results.fsync");
+		if (fsync != null) {
+			try {
+				policy = FsyncPolicy.valueOf(fsync.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.error("Unknown result log fsync policy {}, using {}", fsync, policy);
+			}
+		}
+		final long interval = Long.getLong("sparkplug.tck.results.fsyncInterval", 1000L);
+		final long rotateBytes = Long.getLong("sparkplug.tck.results.rotateBytes", 0L);
+		final long rotateMillis = Long.getLong("sparkplug.tck.results.rotateSeconds", 0L) * 1000L;
+		return new ResultLogWriter(filename, policy, interval, rotateBytes, rotateMillis);
+	}
+
+	public @NotNull String getFilename() {
+		return filename;
+	}
+
+	/**
+	 * Queue a line for the log. The line separator is added.
+	 */
+	public void write(final @NotNull String line) {
+		queue.add(line);
+	}
+
+	/**
+	 * Queue a record for the log, written as it is with nothing added.
+	 */
+	public void write(final @NotNull byte[] record) {
+		queue.add(record);
+	}
+
+	/**
+	 * Switch to another log file, and set when it is to be rotated. Lines already queued go to the old file.
+	 *
+	 * @param rotateBytes rotate when the file reaches this size, or 0 never to rotate on size
+	 * @param rotateMillis rotate when the file is this old, or 0 never to rotate on age
+	 */
+	public void setFile(final @NotNull String newFilename, final long rotateBytes, final long rotateMillis) {
+		queue.add((Runnable) () -> {
+			if (!newFilename.equals(filename)) {
+				closeChannel();
+				filename = newFilename;
+			}
+			this.rotateBytes = rotateBytes;
+			this.rotateMillis = rotateMillis;
+		});
+	}
+
+	/**
+	 * Wait until everything queued so far has been written.
+	 */
+	public void flush() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		queue.add((Runnable) latch::countDown);
+		latch.await();
+	}
+
+	/**
+	 * Write and sync everything queued, then close the file and stop the writer thread.
+	 */
+	public void close() {
+		queue.add(STOP);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		final List<Object> batch = new ArrayList<>();
+		final ByteArrayOutputStream lines = new ByteArrayOutputStream();
+		final byte[] separator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+		boolean running = true;
+		while (running) {
+			try {
+				final Object first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (first != null) {
+					batch.add(first);
+					queue.drainTo(batch, MAX_BATCH - 1);
+				}
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			for (Object item : batch) {
+				if (item instanceof String) {
+					lines.writeBytes(((String) item).getBytes(StandardCharsets.UTF_8));
+					lines.writeBytes(separator);
+				} else if (item instanceof byte[]) {
+					lines.writeBytes((byte[]) item);
+				} else if (item == STOP) {
+					running = false;
+				} else {
+					// commands are run in order with the lines around them
+					writeLines(lines);
+					sync(true);
+					((Runnable) item).run();
+				}
+			}
+			batch.clear();
+			writeLines(lines);
+			sync(fsyncPolicy == FsyncPolicy.BATCH);
+			rotateIfDue();
+		}
+		sync(true);
+		closeChannel();
+	}
+
+	private void writeLines(final @NotNull ByteArrayOutputStream lines) {
+		if (lines.size() == 0) {
+			return;
+		}
+		try {
+			final FileChannel out = openChannel();
+			final ByteBuffer bytes = ByteBuffer.wrap(lines.toByteArray());
+			while (bytes.hasRemaining()) {
+				size += out.write(bytes);
+			}
+			unsynced = true;
+		} catch (IOException e) {
+			logger.error("Error writing to result log {}: {}", filename, e.getMessage());
+			closeChannel();
+		}
+		lines.reset();
+	}
+
+	private void sync(final boolean now) {
+		if (!unsynced || channel == null || fsyncPolicy == FsyncPolicy.NONE) {
+			return;
+		}
+		final long time = System.currentTimeMillis();
+		if (now || time - lastSync >= fsyncIntervalMillis) {
+			try {
+				channel.force(false);
+			} catch (IOException e) {
+				logger.error("Error syncing result log {}: {}", filename, e.getMessage());
+			}
+			lastSync = time;
+			unsynced = false;
+		}
+	}
+
+	private void rotateIfDue() {
+		if (channel == null || size == 0) {
+			return;
+		}
+		final boolean full = rotateBytes > 0 && size >= rotateBytes;
+		final boolean old = rotateMillis > 0 && System.currentTimeMillis() - openedAt >= rotateMillis;
+		if (!full && !old) {
+			return;
+		}
+		sync(true);
+		closeChannel();
+		final Path current = Paths.get(filename);
+		final String suffix = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+		Path rotated = Paths.get(filename + "." + suffix);
+		for (int i = 1; Files.exists(rotated); ++i) {
+			rotated = Paths.get(filename + "." + suffix + "-" + i);
+		}
+		try {
+			Files.move(current, rotated);
+			logger.info("Result log {} rotated to {}", filename, rotated);
+		} catch (IOException e) {
+			logger.error("Error rotating result log {}: {}", filename, e.getMessage());
+		}
+	}
+
+	private @NotNull FileChannel openChannel() throws IOException {
+		if (channel == null) {
+			final Path path = Paths.get(filename);
+			logger.debug("{} used as result log file", path.toAbsolutePath());
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+			size = channel.size();
+			openedAt = System.currentTimeMillis();
+		}
+		return channel;
+	}
+
+	private void closeChannel() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				logger.error("Error closing result log {}: {}", filename, e.getMessage());
+			}
+			channel = null;
+		}
+	}
+}
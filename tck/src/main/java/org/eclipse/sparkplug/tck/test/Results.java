@@ -14,15 +14,18 @@
 
 package org.eclipse.sparkplug.tck.test;
 
-import static org.eclipse.sparkplug.tck.test.common.Constants.NOT_EXECUTED;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_CONFIG_TOPIC;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_LOG_TOPIC;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_RESULTS_CONFIG_TOPIC;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_RESULTS_TOPIC;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_RESULT_EVENTS_TOPIC;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -34,11 +37,13 @@ import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.MqttTopic;
 import org.eclipse.sparkplug.tck.test.common.Constants;
+import org.eclipse.sparkplug.tck.test.common.ResultRegistry;
 import org.jboss.test.audit.annotations.SpecVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.services.ManagedExtensionExecutorService;
 import com.hivemq.extension.sdk.api.services.Services;
 import com.hivemq.extension.sdk.api.services.admin.AdminService;
@@ -60,6 +65,15 @@ public class Results implements MqttCallbackExtended {
 	// private String username = "admin";
 	// private String password = "changeme";
 	private String filename = SPARKPLUG_TCKRESULTS_LOG;
+	private final @NotNull ResultLogWriter resultLog = ResultLogWriter.fromSystemProperties(SPARKPLUG_TCKRESULTS_LOG);
+
+	// the result events, as JSON lines and optionally in binary too, beside the text log
+	private final @NotNull ResultLogWriter eventLog =
+			ResultLogWriter.fromSystemProperties(eventsFilename(SPARKPLUG_TCKRESULTS_LOG, ".jsonl"));
+	private final @Nullable ResultLogWriter binaryEventLog = Boolean.getBoolean("sparkplug.tck.results.binary")
+			? ResultLogWriter.fromSystemProperties(eventsFilename(SPARKPLUG_TCKRESULTS_LOG, ".bin"))
+			: null;
+	private final @NotNull ResultAggregator aggregator = new ResultAggregator();
 
 	private MqttTopic log_topic = null;
 	private MqttClient client = null;
@@ -129,6 +143,7 @@ public class Results implements MqttCallbackExtended {
 		try {
 			client.subscribe(TCK_RESULTS_CONFIG_TOPIC, 2);
 			client.subscribe(TCK_RESULTS_TOPIC, 2);
+			client.subscribe(TCK_RESULT_EVENTS_TOPIC, 2);
 			client.subscribe(TCK_CONFIG_TOPIC, 2);
 			logger.debug(clientId + ": subscribed");
 		} catch (MqttException e) {
@@ -157,16 +172,10 @@ public class Results implements MqttCallbackExtended {
 																											// message
 				checkOrCreateNewResultLog(message);
 			} else if (topic.equals(TCK_RESULTS_TOPIC)) {
-				try {
-					logger.debug("{}: {} used as log file.", clientId, (new File(filename).getAbsolutePath()));
-					FileWriter resultFileWriter = new FileWriter(filename, true);
-					resultFileWriter.write(new String(message.getPayload()) + System.lineSeparator());
-					resultFileWriter.close();
-				} catch (IOException e) {
-					logger.error("An error occurred. {} ", e.getMessage());
-					e.printStackTrace();
-				}
-
+				// written by the result log thread, in batches
+				resultLog.write(new String(message.getPayload()));
+			} else if (topic.equals(TCK_RESULT_EVENTS_TOPIC)) {
+				writeResultEvents(message);
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -178,13 +187,40 @@ public class Results implements MqttCallbackExtended {
 		// System.out.println("Published message: " + token);
 	}
 
+	/*
+	 * NEW_RESULT-LOG <filename> [rotate-bytes=<n>] [rotate-seconds=<n>]
+	 *
+	 * The rotate options set when the log is renamed with a timestamp suffix and a new one started. They default to
+	 * the sparkplug.tck.results.rotateBytes and rotateSeconds system properties.
+	 */
 	private void checkOrCreateNewResultLog(MqttMessage message) throws IOException {
 		final String cmd = "NEW_RESULT-LOG ";
 		final String payload = new String(message.getPayload());
 		final int index = payload.toUpperCase().indexOf(cmd);
 
 		if (index >= 0 && payload.length() >= cmd.length()) {
-			final String newFilename = payload.substring(cmd.length());
+			String newFilename = payload.substring(cmd.length()).trim();
+			long rotateBytes = Long.getLong("sparkplug.tck.results.rotateBytes", 0L);
+			long rotateSeconds = Long.getLong("sparkplug.tck.results.rotateSeconds", 0L);
+			String[] words = newFilename.split(" ");
+			int options = words.length;
+			while (options > 1 && words[options - 1].contains("=")) {
+				String[] option = words[--options].split("=", 2);
+				try {
+					if (option[0].equalsIgnoreCase("rotate-bytes")) {
+						rotateBytes = Long.parseLong(option[1]);
+					} else if (option[0].equalsIgnoreCase("rotate-seconds")) {
+						rotateSeconds = Long.parseLong(option[1]);
+					} else {
+						logger.error("{}: Unknown result log option: {} ", clientId, words[options]);
+					}
+				} catch (NumberFormatException e) {
+					logger.error("{}: Invalid result log option: {} ", clientId, words[options]);
+				}
+			}
+			if (options < words.length) {
+				newFilename = String.join(" ", Arrays.copyOf(words, options));
+			}
 			logger.info("{}: Setting new result log file: {} ", clientId, newFilename);
 			if (!filename.equals(newFilename)) {
 				File testFile = new File(newFilename);
@@ -196,39 +232,112 @@ public class Results implements MqttCallbackExtended {
 							newFilename, filename);
 				}
 			}
+			resultLog.setFile(filename, rotateBytes, rotateSeconds * 1000L);
+			eventLog.setFile(eventsFilename(filename, ".jsonl"), rotateBytes, rotateSeconds * 1000L);
+			if (binaryEventLog != null) {
+				binaryEventLog.setFile(eventsFilename(filename, ".bin"), rotateBytes, rotateSeconds * 1000L);
+			}
 			logger.debug("{}: Set new result log file: {} ", clientId, filename);
 		}
 	}
 
+	/*
+	 * The result event log for a result log is named after it: SparkplugTCKresults.log has SparkplugTCKresults.jsonl
+	 */
+	private static @NotNull String eventsFilename(final @NotNull String logFilename, final @NotNull String suffix) {
+		final int dot = logFilename.lastIndexOf('.');
+		final int separator = Math.max(logFilename.lastIndexOf('/'), logFilename.lastIndexOf(File.separatorChar));
+		return (dot > separator + 1 ? logFilename.substring(0, dot) : logFilename) + suffix;
+	}
+
+	private void writeResultEvents(final @NotNull MqttMessage message) throws IOException {
+		final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		final DataOutputStream binaryOut = new DataOutputStream(binary);
+		for (String line : new String(message.getPayload(), StandardCharsets.UTF_8).split("\n")) {
+			if (line.isBlank()) {
+				continue;
+			}
+			final ResultEvent event = ResultEvent.fromJson(line);
+			eventLog.write(line);
+			if (binaryEventLog != null) {
+				event.writeTo(binaryOut);
+			}
+			aggregator.add(event);
+		}
+		if (binaryEventLog != null && binary.size() > 0) {
+			binaryEventLog.write(binary.toByteArray());
+		}
+	}
+
+	/**
+	 * @return the counts of all the results reported since the TCK started
+	 */
+	public @NotNull ResultAggregator getAggregator() {
+		return aggregator;
+	}
+
+	/**
+	 * Write out any results still queued for the logs, and close them.
+	 */
+	public void shutdown() {
+		resultLog.close();
+		eventLog.close();
+		if (binaryEventLog != null) {
+			binaryEventLog.close();
+		}
+		if (aggregator.getEventCount() > 0) {
+			logger.info("{}: result totals{}{}", clientId, System.lineSeparator(), aggregator.getSummary());
+		}
+	}
+
 	public static StringBuilder getSummary(final @NotNull Map<String, String> results) {
-		final StringBuilder summary = new StringBuilder();
-
-		String overall = results.entrySet().isEmpty() ? Constants.EMPTY : Constants.NOT_EXECUTED;
-		boolean incomplete = false;
-		for (final Map.Entry<String, String> reportResult : results.entrySet()) {
-			if (reportResult.getValue().equals(NOT_EXECUTED)) {
-				if (reportResult.getKey().startsWith("Monitor:") || reportResult.getKey().startsWith("MQTTListener")) {
-					continue;
+		final Summary summary = new Summary(results.isEmpty());
+		if (results instanceof ResultRegistry) {
+			// the registry knows the state of each result without looking at its text
+			((ResultRegistry) results).forEachResult(summary::add);
+		} else {
+			for (final Map.Entry<String, String> reportResult : results.entrySet()) {
+				summary.add(reportResult.getKey(), ResultRegistry.State.of(reportResult.getValue()),
+						reportResult.getValue());
+			}
+		}
+		return summary.finish();
+	}
+
+	private static class Summary {
+		private final StringBuilder summary = new StringBuilder();
+		private String overall;
+		private boolean incomplete = false;
+
+		Summary(final boolean empty) {
+			overall = empty ? Constants.EMPTY : Constants.NOT_EXECUTED;
+		}
+
+		void add(final @NotNull String key, final @NotNull ResultRegistry.State state, final @NotNull String text) {
+			if (state == ResultRegistry.State.NOT_EXECUTED) {
+				if (key.startsWith("Monitor:") || key.startsWith("MQTTListener")) {
+					return;
 				}
 				incomplete = true;
 			}
 
-			summary.append(reportResult.getKey()).append(": ").append(reportResult.getValue()).append(";")
-					.append(System.lineSeparator());
+			summary.append(key).append(": ").append(text).append(";").append(System.lineSeparator());
 
 			if (!overall.equals(Constants.FAIL)) { // don't overwrite an overall fail status
-				if (reportResult.getValue().startsWith(Constants.PASS)) {
+				if (state == ResultRegistry.State.PASS) {
 					overall = Constants.PASS;
-				} else if (reportResult.getValue().startsWith(Constants.FAIL)) {
+				} else if (state == ResultRegistry.State.FAIL) {
 					overall = Constants.FAIL;
 				}
 			}
 		}
 
-		if (incomplete) {
-			overall += " but INCOMPLETE";
+		StringBuilder finish() {
+			if (incomplete) {
+				overall += " but INCOMPLETE";
+			}
+			summary.append("OVERALL: ").append(overall).append(";").append(System.lineSeparator());
+			return summary;
 		}
-		summary.append("OVERALL: ").append(overall).append(";").append(System.lineSeparator());
-		return summary;
 	}
 }
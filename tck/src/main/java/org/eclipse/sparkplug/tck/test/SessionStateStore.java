@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * The session state the Monitor keeps about the Sparkplug clients it sees, in a form that can be shared by several
+ * analysis threads.
+ *
+ * Everything known about one edge node, including its devices, is held in a single {@link EdgeNodeState} keyed by
+ * "group_id:edge_node_id". The fields of an EdgeNodeState may only be touched while holding the lock returned by
+ * {@link #lockFor(String)} for its key. Locks are striped, so edge nodes on different stripes never contend, and the
+ * same lock is used for host application ids.
+ *
+ * The remaining maps relate clients, hosts and ids to each other and are only ever updated with single atomic
+ * operations.
+ */
+class SessionStateStore {
+
+	private static final int STRIPES = 64; // a power of two
+
+	private final @NotNull Object[] stripes = new Object[STRIPES];
+
+	private final @NotNull ConcurrentHashMap<String, EdgeNodeState> edgeNodes = new ConcurrentHashMap<>();
+
+	// clientid to edge_node_id
+	final @NotNull ConcurrentHashMap<String, String> clientids = new ConcurrentHashMap<>();
+
+	// host application id to timestamp
+	final @NotNull ConcurrentHashMap<String, Long> hostTimestamps = new ConcurrentHashMap<>();
+
+	// host application id to MQTT client id
+	final @NotNull ConcurrentHashMap<String, String> hostClientids = new ConcurrentHashMap<>();
+
+	// device/edge ids lowercase to original
+	final @NotNull ConcurrentHashMap<String, String> lowerGroupIds = new ConcurrentHashMap<>();
+	final @NotNull ConcurrentHashMap<String, String> lowerEdgeIds = new ConcurrentHashMap<>();
+	final @NotNull ConcurrentHashMap<String, String> lowerDeviceIds = new ConcurrentHashMap<>();
+
+	SessionStateStore() {
+		for (int i = 0; i < STRIPES; ++i) {
+			stripes[i] = new Object();
+		}
+	}
+
+	/**
+	 * @param key an edge node key, group_id:edge_node_id, or a host application id
+	 * @return the lock which guards the state for that key
+	 */
+	@NotNull
+	Object lockFor(final @NotNull String key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return stripes[h & (STRIPES - 1)];
+	}
+
+	/**
+	 * @return the state for an edge node, created empty if this is the first time it has been seen
+	 */
+	@NotNull
+	EdgeNodeState edgeNode(final @NotNull String edgeNodeId) {
+		return edgeNodes.computeIfAbsent(edgeNodeId, k -> new EdgeNodeState());
+	}
+
+	/**
+	 * @return the state for an edge node, or null if it has never been seen
+	 */
+	@Nullable
+	EdgeNodeState findEdgeNode(final @NotNull String edgeNodeId) {
+		return edgeNodes.get(edgeNodeId);
+	}
+
+	/**
+	 * @return the number of entries in each map, by name
+	 */
+	@NotNull
+	Map<String, Integer> sizes() {
+		final Map<String, Integer> sizes = new LinkedHashMap<>();
+		sizes.put("edgeNodes", edgeNodes.size());
+		sizes.put("clientIds", clientids.size());
+		sizes.put("hostTimestamps", hostTimestamps.size());
+		sizes.put("hostClientIds", hostClientids.size());
+		sizes.put("groupIds", lowerGroupIds.size());
+		sizes.put("edgeNodeIds", lowerEdgeIds.size());
+		sizes.put("deviceIds", lowerDeviceIds.size());
+		return sizes;
+	}
+
+	/**
+	 * The edge node is online when it has a client id, and a device set once it has sent an NBIRTH.
+	 */
+	static class EdgeNodeState {
+		// the MQTT client id which owns the current session, or null
+		@Nullable
+		String clientId = null;
+
+		// device ids which are born, or null if the edge node has not been born
+		@Nullable
+		Set<String> devices = null;
+
+		// last bdSeq seen in a will message
+		@Nullable
+		Long bdSeq = null;
+
+		// last sequence number seen on any message from the edge node or its devices
+		@Nullable
+		Long seq = null;
+
+		// the metrics declared by the last NBIRTH
+		@Nullable
+		BirthCatalog birth = null;
+
+		// the last value reported for each metric in the birth
+		@Nullable
+		LastValueCache lastValues = null;
+
+		final @NotNull Map<String, DeviceState> deviceStates = new HashMap<>();
+
+		void born(final @NotNull String clientId) {
+			this.clientId = clientId;
+			this.devices = new HashSet<>();
+		}
+
+		void died() {
+			this.clientId = null;
+			this.devices = null;
+		}
+
+		@NotNull
+		DeviceState device(final @NotNull String deviceId) {
+			return deviceStates.computeIfAbsent(deviceId, k -> new DeviceState());
+		}
+
+		@Nullable
+		DeviceState findDevice(final @NotNull String deviceId) {
+			return deviceStates.get(deviceId);
+		}
+	}
+
+	static class DeviceState {
+		// the metrics declared by the last DBIRTH
+		@Nullable
+		BirthCatalog birth = null;
+
+		// the last value reported for each metric in the birth
+		@Nullable
+		LastValueCache lastValues = null;
+	}
+}
@@ -13,13 +13,27 @@
 
 package org.eclipse.sparkplug.tck.test;
 
+import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_METRICS_TOPIC;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_RESULTS_TOPIC;
+import static org.eclipse.sparkplug.tck.test.common.Utils.tokenize;
 
 import java.lang.reflect.Constructor;
 import java.nio.ByteBuffer;
-import java.util.TreeMap;
-
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.eclipse.sparkplug.tck.jfr.TestEvent;
+import org.eclipse.sparkplug.tck.metrics.TCKMetrics;
+import org.eclipse.sparkplug.tck.test.common.ConnectPacketSnapshot;
 import org.eclipse.sparkplug.tck.test.common.Constants.Profile;
+import org.eclipse.sparkplug.tck.test.common.PublishEnvelope;
+import org.eclipse.sparkplug.tck.test.common.PublishPacketSnapshot;
+import org.eclipse.sparkplug.tck.test.common.ResultRegistry;
+import org.eclipse.sparkplug.tck.test.common.TopicTrie;
 import org.eclipse.sparkplug.tck.utility.EdgeNode;
 import org.eclipse.sparkplug.tck.utility.HostApplication;
 import org.slf4j.Logger;
@@ -47,11 +61,17 @@ public class TCK {
 
 	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
 
-	private @Nullable TCKTest current = null;
+	// the longest to wait for queued events to be analysed, in seconds
+	private static final long DRAIN_TIMEOUT = 10;
+
+	private volatile @Nullable TCKTest current = null;
+	private volatile @Nullable TestEvent currentEvent = null;
 	final Results results = new Results();
-	private final Monitor monitor = new Monitor(results);
+	private final TCKMetrics metrics = TCKMetrics.fromSystemProperties();
+	private final Monitor monitor = new Monitor(results, metrics);
 	private final HostApplication hostApps = new HostApplication();
 	private final EdgeNode edgeNode = new EdgeNode();
+	private final AnalysisExecutor analysis = AnalysisExecutor.fromSystemProperties();
 
 	public class Utilities {
 		private Monitor monitor;
@@ -85,7 +105,13 @@ public class TCK {
 	 * don't neatly fit into a single test scenario, or apply all the time, so it runs alongside all Host and Edge
 	 * tests.
 	 */
-	private @NotNull Boolean hasMonitor = true;
+	private volatile @NotNull Boolean hasMonitor = true;
+
+	/*
+	 * The topic filters of the current test and the Monitor, rebuilt whenever a test starts or ends, so that each
+	 * publish is looked up once to find which of them want it.
+	 */
+	private volatile @NotNull TopicTrie<TCKTest> routes = routes(null, true);
 
 	public void MQTTLog(String message) {
 		final PublishService publishService = Services.publishService();
@@ -96,9 +122,31 @@ public class TCK {
 
 	private boolean listenerRunning = false;
 
+	private @Nullable ScheduledFuture<?> metricsPublisher = null;
+
 	public TCK() {
 		results.initialize(new String[0]);
 
+		metrics.register();
+		if (metrics.getInterval() > 0) {
+			metricsPublisher = Services.extensionExecutorService().scheduleAtFixedRate(this::publishMetrics,
+					metrics.getInterval(), metrics.getInterval(), TimeUnit.SECONDS);
+		}
+	}
+
+	public @NotNull TCKMetrics getMetrics() {
+		return metrics;
+	}
+
+	private void publishMetrics() {
+		try {
+			final Publish publish = Builders.publish().topic(TCK_METRICS_TOPIC).qos(Qos.AT_MOST_ONCE)
+					.payload(ByteBuffer.wrap(metrics.toJson().getBytes(StandardCharsets.UTF_8))).build();
+			Services.publishService().publish(publish);
+		} catch (final Exception e) {
+			// thrown out of a scheduled task, it would stop any more being published
+			logger.error("Could not publish the TCK metrics", e);
+		}
 	}
 
 	public void newTest(final @NotNull Profile profile, final @NotNull String test, final @NotNull String[] parms) {
@@ -109,26 +157,46 @@ public class TCK {
 			final Class testClass =
 					Class.forName("org.eclipse.sparkplug.tck.test." + profile.name().toLowerCase() + "." + test);
 
+			TCKTest started;
 			try {
 				final Class[] types = { this.getClass(), String[].class };
 				final Constructor constructor = testClass.getConstructor(types);
 				final Object[] parameters = { this, parms };
-				current = (TCKTest) constructor.newInstance(parameters);
+				started = (TCKTest) constructor.newInstance(parameters);
 			} catch (NoSuchMethodException e) {
 				try {
 					final Class[] types = { this.getClass(), String[].class, Results.Config.class };
 					final Constructor constructor = testClass.getConstructor(types);
 					final Object[] parameters = { this, parms, results.getConfig() };
-					current = (TCKTest) constructor.newInstance(parameters);
+					started = (TCKTest) constructor.newInstance(parameters);
 				} catch (NoSuchMethodException f) {
 					final Class[] types = { this.getClass(), Utilities.class, String[].class, Results.Config.class };
 					final Constructor constructor = testClass.getConstructor(types);
 					final Object[] parameters = { this, utilities, parms, results.getConfig() };
-					current = (TCKTest) constructor.newInstance(parameters);
+					started = (TCKTest) constructor.newInstance(parameters);
 				}
 			}
 
-			hasMonitor = !profile.equals(Profile.BROKER);
+			started.setStarted(profile, test);
+			final boolean withMonitor = !profile.equals(Profile.BROKER);
+
+			// the routes are complete before the test can receive anything through them
+			final TopicTrie<TCKTest> testRoutes;
+			try {
+				testRoutes = routes(started, withMonitor);
+			} catch (IllegalArgumentException e) {
+				logger.error("Error starting test " + profile.name().toLowerCase() + "." + test + ": "
+						+ e.getMessage());
+				MQTTLog("OVERALL: NOT EXECUTED"); // Ensure the test ends
+				return;
+			}
+			hasMonitor = withMonitor;
+			routes = testRoutes;
+			current = started;
+
+			final TestEvent event = new TestEvent(profile.name(), test, String.join(" ", parms));
+			event.begin();
+			currentEvent = event;
 
 			if (hasMonitor) {
 				monitor.startTest();
@@ -148,86 +216,180 @@ public class TCK {
 		endTest("");
 	}
 
+	/**
+	 * Act on a message from the console on the test control topic: NEW_TEST profile testname &lt;parameters&gt; or
+	 * END_TEST. Anything else is ignored.
+	 */
+	public void control(final @NotNull String payload) {
+		String cmd = "NEW_TEST";
+		if (payload.toUpperCase().startsWith(cmd)) {
+			final String[] strings = tokenize(payload.trim());
+			if (strings.length < 3) {
+				throw new RuntimeException("New test syntax is: NEW_TEST profile testname <parameters>");
+			}
+
+			final int no_parms = strings.length - 3;
+			final String[] parms = new String[no_parms];
+			if (no_parms > 0) {
+				System.arraycopy(strings, 3, parms, 0, no_parms);
+			}
+			drainAnalysis();
+			newTest(Profile.valueOf(strings[1].toUpperCase()), strings[2], parms);
+		} else {
+			cmd = "END_TEST";
+			if (payload.toUpperCase().trim().equals(cmd)) {
+				endTest();
+			}
+		}
+	}
+
 	public void endTest(String info) {
-		if (current != null) {
-			logger.info("Test end requested for " + current.getName() + " " + info);
-			final TreeMap<String, String> testResults = new TreeMap<>();
-
-			if (!hasMonitor) {
-				current.endTest(testResults);
-			} else {
-				testResults.putAll(monitor.getResults());
-				current.endTest(testResults);
-				monitor.endTest(null);
+		if (!analysis.isLane()) {
+			// a test ending itself is already on a lane, and may hold up the others by being locked
+			drainAnalysis();
+		}
+		final TCKTest test = current;
+		if (test != null) {
+			logger.info("Test end requested for " + test.getName() + " " + info);
+			final ResultRegistry testResults = new ResultRegistry();
+
+			synchronized (test) {
+				if (current != test) {
+					return; // already ended on another analysis lane
+				}
+				if (!hasMonitor) {
+					test.endTest(testResults);
+				} else {
+					testResults.putAll(monitor.getResults());
+					test.endTest(testResults);
+					monitor.endTest(null);
+				}
+				current = null;
+				routes = routes(null, hasMonitor);
+				final TestEvent event = currentEvent;
+				currentEvent = null;
+				if (event != null) {
+					event.commit();
+				}
 			}
-			current = null;
 		} else {
 			logger.info("Test end requested but no test active");
 		}
 	}
 
 	public void onMqttConnectionStart(ConnectionStartInput connectionStartInput) {
-		if (current != null) {
-			current.onMqttConnectionStart(connectionStartInput);
-		}
-		if (hasMonitor) {
-			monitor.onMqttConnectionStart(connectionStartInput);
-		}
+		final String clientId = connectionStartInput.getClientInformation().getClientId();
+		analysis.submit(clientId, () -> dispatch(test -> test.onMqttConnectionStart(connectionStartInput)));
 	}
 
 	public void onAuthenticationSuccessful(AuthenticationSuccessfulInput authenticationSuccessfulInput) {
-		if (current != null) {
-			current.onAuthenticationSuccessful(authenticationSuccessfulInput);
-		}
-		if (hasMonitor) {
-			monitor.onAuthenticationSuccessful(authenticationSuccessfulInput);
-		}
+		final String clientId = authenticationSuccessfulInput.getClientInformation().getClientId();
+		analysis.submit(clientId,
+				() -> dispatch(test -> test.onAuthenticationSuccessful(authenticationSuccessfulInput)));
 	}
 
 	public void onDisconnect(DisconnectEventInput disconnectEventInput) {
-		if (current != null) {
-			current.onDisconnect(disconnectEventInput);
-		}
-		if (hasMonitor) {
-			monitor.onDisconnect(disconnectEventInput);
-		}
+		final String clientId = disconnectEventInput.getClientInformation().getClientId();
+		analysis.submitDisconnect(clientId, () -> dispatch(test -> test.onDisconnect(disconnectEventInput)));
 	}
 
 	public void connect(final @NotNull String clientId, final @NotNull ConnectPacket packet) {
-		if (current != null) {
-			current.connect(clientId, packet);
+		final String willTopic = packet.getWillPublish().map(PublishPacket::getTopic).orElse(null);
+		final ConnectPacket copy = analysis.isInline() ? packet : new ConnectPacketSnapshot(packet);
+		analysis.submitConnect(clientId, willTopic, () -> dispatch(test -> test.connect(clientId, copy)));
+	}
+
+	public void disconnect(final @NotNull String clientId, final @NotNull DisconnectPacket packet) {
+		analysis.submit(clientId, () -> dispatch(test -> test.disconnect(clientId, packet)));
+	}
+
+	public void subscribe(final @NotNull String clientId, final @NotNull SubscribePacket packet) {
+		analysis.submit(clientId, () -> dispatch(test -> test.subscribe(clientId, packet)));
+	}
+
+	/*
+	 * A publish on a topic neither the current test nor the Monitor asked for is dropped after one lookup in the
+	 * routes. Any other belongs to the broker, so it is copied before being queued for analysis. The same envelope
+	 * is seen by the current test and the Monitor, so the payload is decoded only once however many of them look at
+	 * it.
+	 */
+	public void publish(final @NotNull String clientId, final @NotNull PublishPacket packet) {
+		final Set<TCKTest> receivers = routes.match(packet.getTopic());
+		if (receivers.isEmpty()) {
+			return;
 		}
-		if (hasMonitor) {
-			monitor.connect(clientId, packet);
+		final PublishEnvelope envelope = new PublishEnvelope(clientId,
+				analysis.isInline() ? packet : new PublishPacketSnapshot(packet), metrics.decode());
+		analysis.submitPublish(clientId, packet.getTopic(), () -> publish(envelope, receivers));
+	}
+
+	private void publish(final @NotNull PublishEnvelope envelope, final @NotNull Set<TCKTest> receivers) {
+		final String clientId = envelope.getClientId();
+		final PublishPacket packet = envelope.getPacket();
+		logger.debug("CLIENT_ID={} :: TOPIC: {} :: current={}", clientId, packet.getTopic(),
+				current != null ? current.getName() : "null");
+		envelope.beginDispatch();
+		try {
+			dispatch(receivers::contains, test -> test.publish(clientId, packet));
+		} finally {
+			envelope.endDispatch();
 		}
 	}
 
-	public void disconnect(final @NotNull String clientId, final @NotNull DisconnectPacket packet) {
-		if (current != null) {
-			current.disconnect(clientId, packet);
+	private @NotNull TopicTrie<TCKTest> routes(final @Nullable TCKTest test, final boolean withMonitor) {
+		final TopicTrie<TCKTest> routes = new TopicTrie<>();
+		if (test != null) {
+			routes.addAll(test.getTopicFilters(), test);
 		}
-		if (hasMonitor) {
-			monitor.disconnect(clientId, packet);
+		if (withMonitor) {
+			routes.addAll(monitor.getTopicFilters(), monitor);
 		}
+		return routes;
 	}
 
-	public void subscribe(final @NotNull String clientId, final @NotNull SubscribePacket packet) {
-		if (current != null) {
-			current.subscribe(clientId, packet);
+	private void dispatch(final @NotNull Consumer<TCKTest> event) {
+		dispatch(test -> true, event);
+	}
+
+	/*
+	 * Hand an event to the current test and, unless this is a broker test, the Monitor, if they are to receive it.
+	 * Events can arrive from several analysis lanes at once. The tests are written to handle one at a time, so each
+	 * is locked while it does, but the Monitor keeps its state per edge node and can take events from all lanes
+	 * together.
+	 */
+	private void dispatch(final @NotNull Predicate<TCKTest> receives, final @NotNull Consumer<TCKTest> event) {
+		final TCKTest test = current;
+		if (test != null && receives.test(test)) {
+			synchronized (test) {
+				event.accept(test);
+			}
 		}
-		if (hasMonitor) {
-			monitor.subscribe(clientId, packet);
+		if (hasMonitor && receives.test(monitor)) {
+			event.accept(monitor);
 		}
 	}
 
-	public void publish(final @NotNull String clientId, final @NotNull PublishPacket packet) {
-		logger.debug("CLIENT_ID={} :: TOPIC: {} :: current={}", clientId, packet.getTopic(),
-				current != null ? current.getName() : "null");
-		if (current != null) {
-			current.publish(clientId, packet);
+	/**
+	 * Wait for the analysis of every event received so far to complete. Called before a test is started or ended,
+	 * so that no earlier events are credited to the wrong test or left out of its results.
+	 */
+	public void drainAnalysis() {
+		try {
+			if (!analysis.drain(DRAIN_TIMEOUT, TimeUnit.SECONDS)) {
+				logger.warn("Analysis not complete after {} seconds, continuing", DRAIN_TIMEOUT);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Interrupted waiting for analysis to complete");
 		}
-		if (hasMonitor) {
-			monitor.publish(clientId, packet);
+	}
+
+	public void shutdown() {
+		if (metricsPublisher != null) {
+			metricsPublisher.cancel(false);
 		}
+		metrics.unregister();
+		analysis.shutdown(DRAIN_TIMEOUT, TimeUnit.SECONDS);
+		results.shutdown();
 	}
 }
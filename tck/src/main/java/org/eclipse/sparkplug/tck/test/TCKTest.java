@@ -16,17 +16,22 @@ package org.eclipse.sparkplug.tck.test;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_CONSOLE_PROMPT_TOPIC;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_LOG_TOPIC;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_RESULTS_TOPIC;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TCK_RESULT_EVENTS_TOPIC;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
+import org.eclipse.sparkplug.tck.test.common.Constants.Profile;
+import org.eclipse.sparkplug.tck.test.common.ResultRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.events.client.parameters.AuthenticationSuccessfulInput;
 import com.hivemq.extension.sdk.api.events.client.parameters.ConnectionStartInput;
 import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
@@ -47,7 +52,11 @@ import com.hivemq.extension.sdk.api.services.publish.PublishService;
 public abstract class TCKTest {
 
 	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
-	protected final @NotNull Map<String, String> testResults = new TreeMap<>();
+	protected final @NotNull Map<String, String> testResults = new ResultRegistry();
+
+	// how the test was asked for, set by the TCK once it is created
+	private volatile @Nullable Profile profile = null;
+	private volatile @Nullable String test = null;
 
 	public void onMqttConnectionStart(ConnectionStartInput connectionStartInput) {
 	}
@@ -66,6 +75,16 @@ public abstract class TCKTest {
 
 	public abstract void publish(String clientId, PublishPacket packet);
 
+	/**
+	 * The topic filters of the publishes this test is to be given. They are read once, when the test has been
+	 * created, and compiled into the TCK's topic trie, so publishes on any other topic never reach the test.
+	 *
+	 * @return MQTT topic filters, by default # for every publish
+	 */
+	public @NotNull List<String> getTopicFilters() {
+		return List.of("#");
+	}
+
 	public abstract String getName();
 
 	public abstract Map<String, String> getResults();
@@ -74,6 +93,14 @@ public abstract class TCKTest {
 
 	public abstract void endTest(Map<String, String> results);
 
+	/**
+	 * Record the profile and test class name the test was started with, which label its result events.
+	 */
+	public void setStarted(final @NotNull Profile profile, final @NotNull String test) {
+		this.profile = profile;
+		this.test = test;
+	}
+
 	public void log(String message) {
 		logger.info("TCKTest log: " + message);
 		final PublishService publishService = Services.publishService();
@@ -101,5 +128,40 @@ public abstract class TCKTest {
 		final Publish message = Builders.publish().topic(TCK_RESULTS_TOPIC).qos(Qos.AT_LEAST_ONCE)
 				.payload(ByteBuffer.wrap(summary.toString().getBytes())).build();
 		publishService.publish(message);
+
+		publishResultEvents(results);
+	}
+
+	/*
+	 * The same results as the summary, one JSON line each, for Results to write to the result event log.
+	 */
+	private void publishResultEvents(final @NotNull Map<String, String> results) {
+		// a test not started by the TCK is labelled from its class, which is in the package of its profile
+		final String packageName = getClass().getPackageName();
+		final String profile = this.profile != null
+				? this.profile.name().toLowerCase()
+				: packageName.substring(packageName.lastIndexOf('.') + 1);
+		final String test = this.test != null ? this.test : getClass().getSimpleName();
+		final long time = System.currentTimeMillis();
+
+		final StringBuilder events = new StringBuilder();
+		final ResultRegistry.ResultVisitor visitor = (key, state, text) -> {
+			final String requirement = key.startsWith("Monitor:") ? key.substring("Monitor:".length()) : key;
+			events.append(new ResultEvent(time, profile, test, requirement, state, text).toJson()).append('\n');
+		};
+		if (results instanceof ResultRegistry) {
+			((ResultRegistry) results).forEachResult(visitor);
+		} else {
+			for (final Map.Entry<String, String> result : results.entrySet()) {
+				visitor.visit(result.getKey(), ResultRegistry.State.of(result.getValue()), result.getValue());
+			}
+		}
+		if (events.length() == 0) {
+			return;
+		}
+
+		final Publish message = Builders.publish().topic(TCK_RESULT_EVENTS_TOPIC).qos(Qos.AT_LEAST_ONCE)
+				.payload(ByteBuffer.wrap(events.toString().getBytes(StandardCharsets.UTF_8))).build();
+		Services.publishService().publish(message);
 	}
 }
\ No newline at end of file
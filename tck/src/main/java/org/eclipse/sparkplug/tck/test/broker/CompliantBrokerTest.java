@@ -26,6 +26,11 @@ import static org.eclipse.sparkplug.tck.test.common.Utils.setResult;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.sparkplug.tck.sparkplug.Sections;
@@ -111,26 +116,55 @@ public class CompliantBrokerTest extends TCKTest {
 	public static void checkCompliance(final String host, final int port, final Map<String, String> testResults) {
 		logger.info("{} - Start", Sections.CONFORMANCE_MQTT_SERVER);
 
-		logger.debug("Check Req: {} ", ID_CONFORMANCE_MQTT_QOS0);
 		BrokerConformanceFeatureTester brokerConformanceFeatureTester =
 				new BrokerConformanceFeatureTester(host, port, null, null, null, TIME_OUT);
 
-		QosTestResult qos0 = brokerConformanceFeatureTester.testQos(MqttQos.AT_MOST_ONCE, 3);
-		testResults.put(ID_CONFORMANCE_MQTT_QOS0, setResult(qos0.getReceivedPublishes() > 0, CONFORMANCE_MQTT_QOS0));
-
-		logger.debug("Check Req: {} ", ID_CONFORMANCE_MQTT_QOS1);
-		QosTestResult qos1 = brokerConformanceFeatureTester.testQos(MqttQos.AT_LEAST_ONCE, 3);
-		testResults.put(ID_CONFORMANCE_MQTT_QOS1, setResult(qos1.getReceivedPublishes() > 0, CONFORMANCE_MQTT_QOS1));
-
-		logger.debug("Check Req: {} ", ID_CONFORMANCE_MQTT_WILL_MESSAGES);
-		Mqtt3ConnAck connack = brokerConformanceFeatureTester.testConnectWithWill();
-		boolean valid = connack != null && !connack.getReturnCode().isError();
-		testResults.put(ID_CONFORMANCE_MQTT_WILL_MESSAGES, setResult(valid, CONFORMANCE_MQTT_WILL_MESSAGES));
+		// the checks are independent, each with clients of its own, so they run side by side
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			logger.debug("Check Req: {} ", ID_CONFORMANCE_MQTT_QOS0);
+			CompletableFuture<QosTestResult> qos0 = CompletableFuture
+					.supplyAsync(() -> brokerConformanceFeatureTester.testQos(MqttQos.AT_MOST_ONCE, 3), executor);
+
+			logger.debug("Check Req: {} ", ID_CONFORMANCE_MQTT_QOS1);
+			CompletableFuture<QosTestResult> qos1 = CompletableFuture
+					.supplyAsync(() -> brokerConformanceFeatureTester.testQos(MqttQos.AT_LEAST_ONCE, 3), executor);
+
+			logger.debug("Check Req: {} ", ID_CONFORMANCE_MQTT_WILL_MESSAGES);
+			CompletableFuture<Mqtt3ConnAck> connack =
+					CompletableFuture.supplyAsync(brokerConformanceFeatureTester::testConnectWithWill, executor);
+
+			logger.debug("Check Req: {} ", ID_CONFORMANCE_MQTT_RETAINED);
+			CompletableFuture<ComplianceTestResult> retain =
+					CompletableFuture.supplyAsync(brokerConformanceFeatureTester::testRetain, executor);
+
+			testResults.put(ID_CONFORMANCE_MQTT_QOS0,
+					setResult(result(qos0, ID_CONFORMANCE_MQTT_QOS0).map(r -> r.getReceivedPublishes() > 0)
+							.orElse(false), CONFORMANCE_MQTT_QOS0));
+			testResults.put(ID_CONFORMANCE_MQTT_QOS1,
+					setResult(result(qos1, ID_CONFORMANCE_MQTT_QOS1).map(r -> r.getReceivedPublishes() > 0)
+							.orElse(false), CONFORMANCE_MQTT_QOS1));
+			testResults.put(ID_CONFORMANCE_MQTT_WILL_MESSAGES,
+					setResult(result(connack, ID_CONFORMANCE_MQTT_WILL_MESSAGES)
+							.map(r -> !r.getReturnCode().isError()).orElse(false), CONFORMANCE_MQTT_WILL_MESSAGES));
+			testResults.put(ID_CONFORMANCE_MQTT_RETAINED,
+					setResult(result(retain, ID_CONFORMANCE_MQTT_RETAINED).map(r -> r == ComplianceTestResult.OK)
+							.orElse(false), CONFORMANCE_MQTT_RETAINED));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
 
-		logger.debug("Check Req: {} ", ID_CONFORMANCE_MQTT_RETAINED);
-		ComplianceTestResult retain = brokerConformanceFeatureTester.testRetain();
-		testResults.put(ID_CONFORMANCE_MQTT_RETAINED,
-				setResult(retain == ComplianceTestResult.OK, CONFORMANCE_MQTT_RETAINED));
+	/*
+	 * The result of a check, or empty if it failed with an exception
+	 */
+	private static <T> Optional<T> result(CompletableFuture<T> check, String id) {
+		try {
+			return Optional.ofNullable(check.join());
+		} catch (CompletionException e) {
+			logger.error("Check Req: {} failed", id, e.getCause());
+			return Optional.empty();
+		}
 	}
 
 	@Override
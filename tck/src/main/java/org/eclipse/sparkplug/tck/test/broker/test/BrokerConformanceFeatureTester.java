@@ -40,7 +40,6 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Strings;
 import com.hivemq.client.mqtt.MqttClientSslConfig;
 import com.hivemq.client.mqtt.MqttGlobalPublishFilter;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
@@ -61,6 +60,8 @@ public class BrokerConformanceFeatureTester {
 	private static final int MAX_TOPIC_LENGTH = 65535;
 	private static final int MAX_CLIENT_ID_LENGTH = 65535;
 	private static final Logger Logger = LoggerFactory.getLogger("Sparkplug");
+	private static final ByteBuffer EMPTY_PAYLOAD = ByteBuffer.allocate(0);
+	private static final AtomicInteger clientCount = new AtomicInteger(0);
 	private final String host;
 	private final int port;
 	private final String username;
@@ -69,7 +70,8 @@ public class BrokerConformanceFeatureTester {
 	private final int timeOut;
 	private int maxTopicLength = -1;
 	private int maxClientIdLength = -1;
-	private MqttQos maxQos = MqttQos.EXACTLY_ONCE;
+	// checks may run concurrently, each on clients of its own
+	private volatile MqttQos maxQos = MqttQos.EXACTLY_ONCE;
 
 	public BrokerConformanceFeatureTester(final @NotNull String host, final @NotNull Integer port,
 			final @Nullable String username, final @Nullable ByteBuffer password,
@@ -318,9 +320,8 @@ public class BrokerConformanceFeatureTester {
 
 		disconnectIfConnected(publisher, subscriber);
 
-		if (totalReceived.get() > 0 && qos.ordinal() > maxQos.ordinal()) {
-			Logger.debug(" .        COMPLIANCE CHECK: Setting maxQos from {} to {} for the next tests", maxQos, qos);
-			maxQos = qos;
+		if (totalReceived.get() > 0) {
+			raiseMaxQos(qos);
 		}
 
 		Logger.debug(" .        COMPLIANCE CHECK: Result of testing qos {}: Received {} / {} publishes", qos,
@@ -333,199 +334,118 @@ public class BrokerConformanceFeatureTester {
 		Logger.debug(" .        COMPLIANCE CHECK: Testing payload size until max. payload size of {} bytes", maxSize);
 
 		final List<Tuple<Integer, ComplianceTestResult>> testResults = new LinkedList<>();
-		final String topic =
-				(maxTopicLength == -1 ? TopicUtils.generateTopicUUID() : TopicUtils.generateTopicUUID(maxTopicLength));
-
-		final boolean maxTestSuccess = testPayload(topic, testResults, maxSize);
-		if (maxTestSuccess) {
-			Logger.debug(" .        COMPLIANCE CHECK: Result of testing max. payload size: {} bytes", maxSize);
-			return new PayloadTestResults(maxSize, testResults);
-		} else { // Binary search the payload size
-			int top = maxSize;
-			int bottom = 0;
-			int mid = -1;
-			while (bottom <= top) {
-				mid = (bottom + top) / 2;
-				final boolean success = testPayload(topic, testResults, mid);
-				if (success) {
-					bottom = mid + 1;
-				} else {
-					top = mid - 1;
+		// each probe publishes to a level named by its payload size below this root, so the root leaves room for the
+		// longest of those within the broker's maximum topic length
+		final int sizeLevelLength = 1 + String.valueOf(Math.max(maxSize, 0)).length();
+		final String topic = (maxTopicLength == -1 ? TopicUtils.generateTopicUUID()
+				: TopicUtils.generateTopicUUID(Math.max(maxTopicLength - sizeLevelLength, 1)));
+
+		// every probe publishes a prefix of the same buffer, on the same connections
+		final ByteBuffer payloads = ByteBuffer.allocateDirect(Math.max(maxSize, 0));
+		while (payloads.hasRemaining()) {
+			payloads.put((byte) ONE_BYTE.charAt(0));
+		}
+		payloads.flip();
+
+		try (final Prober prober = new Prober(topic)) {
+			final boolean maxTestSuccess = testPayload(prober, payloads, testResults, maxSize);
+			if (maxTestSuccess) {
+				Logger.debug(" .        COMPLIANCE CHECK: Result of testing max. payload size: {} bytes", maxSize);
+				return new PayloadTestResults(maxSize, testResults);
+			} else { // Binary search the payload size
+				int top = maxSize;
+				int bottom = 0;
+				int mid = -1;
+				while (bottom <= top) {
+					mid = (bottom + top) / 2;
+					final boolean success = testPayload(prober, payloads, testResults, mid);
+					if (success) {
+						bottom = mid + 1;
+					} else {
+						top = mid - 1;
+					}
 				}
-			}
 
-			Logger.debug(" .        COMPLIANCE CHECK: Result of testing max. payload size: {} bytes", mid);
-			return new PayloadTestResults(mid, testResults);
+				Logger.debug(" .        COMPLIANCE CHECK: Result of testing max. payload size: {} bytes", mid);
+				return new PayloadTestResults(mid, testResults);
+			}
 		}
 	}
 
-	private boolean testPayload(final @NotNull String topic,
+	private boolean testPayload(final @NotNull Prober prober, final @NotNull ByteBuffer payloads,
 			final @NotNull List<Tuple<Integer, ComplianceTestResult>> testResults, final int payloadSize) {
 		Logger.debug(" .        COMPLIANCE CHECK: Testing payload with {} bytes", payloadSize);
-		final Mqtt3Client publisher = buildClient("ConformanceTestPublisher");
-		final Mqtt3Client subscriber = buildClient("ConformanceTestSubscriber");
-		final String currentPayload = Strings.repeat(ONE_BYTE, payloadSize);
-		final Mqtt3Publish publish =
-				Mqtt3Publish.builder().topic(topic).qos(maxQos).payload(currentPayload.getBytes()).build();
-
-		subscriber.toBlocking().connect();
+		final ByteBuffer currentPayload = payloads.duplicate();
+		currentPayload.limit(payloadSize);
+		final String topic = prober.topicRoot + "/" + payloadSize;
 
-		Logger.debug(" .        COMPLIANCE CHECK: Subscribing to topic {} with qos {}", topic, maxQos);
-		subscriber.toBlocking().subscribeWith().topicFilter(topic).qos(maxQos).send();
-		final Mqtt3Publishes publishes = subscriber.toBlocking().publishes(MqttGlobalPublishFilter.SUBSCRIBED);
-
-		try {
-			publisher.toBlocking().connect();
-			Logger.debug(" .        COMPLIANCE CHECK: Publishing payload with {} bytes to topic {} with qos {}",
-					payloadSize, topic, maxQos);
-			publisher.toBlocking().publish(publish);
-		} catch (final Exception ex) {
-			Logger.error("Failed to publish with payload of {} bytes", currentPayload.getBytes().length, ex);
-			testResults.add(new Tuple<>(payloadSize, ComplianceTestResult.PUBLISH_FAILED));
-			disconnectIfConnected(publisher, subscriber);
-			return false;
+		final ComplianceTestResult result = prober.probe(topic, currentPayload.slice().asReadOnlyBuffer());
+		if (result != ComplianceTestResult.OK) {
+			Logger.debug(" .        COMPLIANCE CHECK: Result of testing payload with {} bytes: {}", payloadSize, result);
 		}
-
-		try {
-			final Optional<Mqtt3Publish> receive = publishes.receive(timeOut, TimeUnit.SECONDS);
-			if (!receive.isPresent()) {
-				disconnectIfConnected(publisher, subscriber);
-				Logger.debug(" .        COMPLIANCE CHECK: Timed out while waiting for publish with {} bytes",
-						currentPayload.getBytes().length);
-				testResults.add(new Tuple<>(payloadSize, ComplianceTestResult.TIME_OUT));
-				disconnectIfConnected(publisher, subscriber);
-				return false;
-			} else if (!Arrays.equals(receive.get().getPayloadAsBytes(), currentPayload.getBytes())) {
-				disconnectIfConnected(publisher, subscriber);
-				Logger.debug(" .        COMPLIANCE CHECK: Received wrong payload for publish with {} bytes",
-						currentPayload.getBytes().length);
-				testResults.add(new Tuple<>(payloadSize, ComplianceTestResult.WRONG_PAYLOAD));
-				disconnectIfConnected(publisher, subscriber);
-				return false;
-			}
-		} catch (InterruptedException e) {
-			Logger.error("Interrupted while waiting for subscriber to receive payload with length {} bytes",
-					currentPayload.getBytes().length, e);
-			testResults.add(new Tuple<>(payloadSize, ComplianceTestResult.INTERRUPTED));
-			disconnectIfConnected(publisher, subscriber);
-			return false;
-		}
-
-		disconnectIfConnected(publisher, subscriber);
-
-		testResults.add(new Tuple<>(payloadSize, ComplianceTestResult.OK));
-		return true;
+		testResults.add(new Tuple<>(payloadSize, result));
+		return result == ComplianceTestResult.OK;
 	}
 
 	public @NotNull TopicLengthTestResults testTopicLength() {
 		Logger.debug(" .        COMPLIANCE CHECK: Testing topic length");
 
 		final List<Tuple<Integer, ComplianceTestResult>> testResults = new LinkedList<>();
-		final boolean maxTopicLengthSuccess = testTopic(testResults, MAX_TOPIC_LENGTH);
-		if (maxTopicLengthSuccess) {
-			Logger.debug(" .        COMPLIANCE CHECK: Result of testing max. topic length: {} bytes", MAX_TOPIC_LENGTH);
-			return new TopicLengthTestResults(MAX_TOPIC_LENGTH, testResults);
-		} else { // Binary search the right topic length
-			int top = MAX_TOPIC_LENGTH;
-			int bottom = 0;
-			int mid = -1;
-
-			while (bottom <= top) {
-				mid = (bottom + top) / 2;
-				if (mid == 0)
-					return new TopicLengthTestResults(0, testResults);
-				final boolean success = testTopic(testResults, mid);
-				if (success) {
-					bottom = mid + 1;
-				} else {
-					top = mid - 1;
+		// every probe subscribes and publishes to a prefix of the same name, on the same connections
+		final String topics = ONE_BYTE.repeat(MAX_TOPIC_LENGTH);
+
+		try (final Prober prober = new Prober(null)) {
+			final boolean maxTopicLengthSuccess = testTopic(prober, topics, testResults, MAX_TOPIC_LENGTH);
+			if (maxTopicLengthSuccess) {
+				Logger.debug(" .        COMPLIANCE CHECK: Result of testing max. topic length: {} bytes",
+						MAX_TOPIC_LENGTH);
+				return new TopicLengthTestResults(MAX_TOPIC_LENGTH, testResults);
+			} else { // Binary search the right topic length
+				int top = MAX_TOPIC_LENGTH;
+				int bottom = 0;
+				int mid = -1;
+
+				while (bottom <= top) {
+					mid = (bottom + top) / 2;
+					if (mid == 0)
+						return new TopicLengthTestResults(0, testResults);
+					final boolean success = testTopic(prober, topics, testResults, mid);
+					if (success) {
+						bottom = mid + 1;
+					} else {
+						top = mid - 1;
+					}
 				}
-			}
 
-			Logger.debug(" .        COMPLIANCE CHECK: Result of testing max. topic length: {} bytes", mid);
-			Logger.debug(" .        COMPLIANCE CHECK: Setting max. topic length to {} for the next tests", mid);
-			setMaxTopicLength(mid);
-			return new TopicLengthTestResults(mid, testResults);
+				Logger.debug(" .        COMPLIANCE CHECK: Result of testing max. topic length: {} bytes", mid);
+				Logger.debug(" .        COMPLIANCE CHECK: Setting max. topic length to {} for the next tests", mid);
+				setMaxTopicLength(mid);
+				return new TopicLengthTestResults(mid, testResults);
+			}
 		}
 	}
 
-	private boolean testTopic(final @NotNull List<Tuple<Integer, ComplianceTestResult>> testResults,
-			final int topicSize) {
+	private boolean testTopic(final @NotNull Prober prober, final @NotNull String topics,
+			final @NotNull List<Tuple<Integer, ComplianceTestResult>> testResults, final int topicSize) {
 		Logger.debug(" .        COMPLIANCE CHECK: Testing topic with length of {} bytes", topicSize);
 
-		final Mqtt3Client publisher = buildClient("ConformanceTestPublisher");
-		final Mqtt3Client subscriber = buildClient("ConformanceTestSubscriber");
-
-		final String currentTopicName = Strings.repeat(ONE_BYTE, topicSize);
-		final Mqtt3Publish publish =
-				Mqtt3Publish.builder().topic(currentTopicName).qos(maxQos).payload(currentTopicName.getBytes()).build();
-		final Mqtt3Subscribe subscribe = Mqtt3Subscribe.builder().topicFilter(currentTopicName).qos(maxQos).build();
-
-		subscriber.toBlocking().connect();
-		final Mqtt3Publishes publishes = subscriber.toBlocking().publishes(MqttGlobalPublishFilter.SUBSCRIBED);
-
-		// Test subscribe to topic
-		try {
-			Logger.debug(" .        COMPLIANCE CHECK: Subscribing to topic with {} bytes with qos {}", topicSize,
-					maxQos);
-			subscriber.toBlocking().subscribe(subscribe);
-		} catch (final Exception ex) {
-			Logger.error("Failed to subscribe to topic with a length of {} bytes", currentTopicName.getBytes().length,
-					ex);
-			testResults.add(new Tuple<>(topicSize, ComplianceTestResult.SUBSCRIBE_FAILED));
-			return false;
-		}
-
-		// Test publish to topic
-		try {
-			publisher.toBlocking().connect();
-			Logger.debug(" .        COMPLIANCE CHECK: Publishing to topic with {} bytes with qos {}", topicSize,
-					maxQos);
-			publisher.toBlocking().publish(publish);
-		} catch (final Exception ex) {
-			Logger.error("Failed to publish to topic with {} bytes", currentTopicName.getBytes().length, ex);
-			testResults.add(new Tuple<>(topicSize, ComplianceTestResult.PUBLISH_FAILED));
-			return false;
-		} finally {
-			disconnectIfConnected(publisher);
-		}
-
-		// Subscriber retrieves payload
-		try {
-			final Optional<Mqtt3Publish> receive = publishes.receive(timeOut, TimeUnit.SECONDS);
-			if (!receive.isPresent()) {
-				Logger.debug(" .        COMPLIANCE CHECK: Timed out while waiting to receive a publish from topic {}",
-						currentTopicName);
-				testResults.add(new Tuple<>(topicSize, ComplianceTestResult.TIME_OUT));
-				disconnectIfConnected(subscriber, publisher);
-				return false;
-			} else if (!Arrays.equals(receive.get().getPayloadAsBytes(), currentTopicName.getBytes())) {
-				Logger.debug(" .        COMPLIANCE CHECK: Received wrong payload for publish to topic {}",
-						currentTopicName);
-				testResults.add(new Tuple<>(topicSize, ComplianceTestResult.WRONG_PAYLOAD));
-				disconnectIfConnected(subscriber, publisher);
-				return false;
-			}
-		} catch (InterruptedException e) {
-			Logger.error("Interrupted while waiting to receive publish to topic with {} bytes",
-					currentTopicName.getBytes().length, e);
-			testResults.add(new Tuple<>(topicSize, ComplianceTestResult.INTERRUPTED));
-			return false;
-		} finally {
-			disconnectIfConnected(subscriber);
+		final String currentTopicName = topics.substring(0, topicSize);
+		final ComplianceTestResult result = prober.probeTopic(currentTopicName);
+		if (result != ComplianceTestResult.OK) {
+			Logger.debug(" .        COMPLIANCE CHECK: Result of testing topic with {} bytes: {}", topicSize, result);
 		}
-
-		// Everything successful
-		testResults.add(new Tuple<>(topicSize, ComplianceTestResult.OK));
-		return true;
+		testResults.add(new Tuple<>(topicSize, result));
+		return result == ComplianceTestResult.OK;
 	}
 
 	public @NotNull ClientIdLengthTestResults testClientIdLength() {
 		Logger.debug(" .        COMPLIANCE CHECK: Testing max. client identifier length");
 
 		final List<Tuple<Integer, String>> connectResults = new LinkedList<>();
+		// each probe needs a connection of its own, as the identifier is what is being probed
+		final String identifiers = ONE_BYTE.repeat(MAX_CLIENT_ID_LENGTH);
 
-		final boolean maxClientIdSuccess = testClientIdLength(connectResults, MAX_CLIENT_ID_LENGTH);
+		final boolean maxClientIdSuccess = testClientIdLength(connectResults, identifiers, MAX_CLIENT_ID_LENGTH);
 		if (maxClientIdSuccess) {
 			maxClientIdLength = MAX_CLIENT_ID_LENGTH;
 			Logger.debug(" .        COMPLIANCE CHECK: Result of testing max. client identifier length: {} bytes",
@@ -537,7 +457,7 @@ public class BrokerConformanceFeatureTester {
 			int mid = -1;
 			while (bottom <= top) {
 				mid = (bottom + top) / 2;
-				final boolean success = testClientIdLength(connectResults, mid);
+				final boolean success = testClientIdLength(connectResults, identifiers, mid);
 				if (success) {
 					bottom = mid + 1;
 				} else {
@@ -555,10 +475,10 @@ public class BrokerConformanceFeatureTester {
 	}
 
 	private boolean testClientIdLength(final @NotNull List<Tuple<Integer, String>> connectResults,
-			final int clientIdLength) {
+			final @NotNull String identifiers, final int clientIdLength) {
 		Logger.debug(" .        COMPLIANCE CHECK: Testing client identifier with a length of {} bytes", clientIdLength);
 
-		final String currentIdentifier = Strings.repeat(ONE_BYTE, clientIdLength);
+		final String currentIdentifier = identifiers.substring(0, clientIdLength);
 		final Mqtt3Client currClient = getClientBuilder("ConformanceTestClient").identifier(currentIdentifier).build();
 
 		try {
@@ -708,9 +628,20 @@ public class BrokerConformanceFeatureTester {
 		maxQos = qos;
 	}
 
+	private synchronized void raiseMaxQos(final @NotNull MqttQos qos) {
+		if (qos.ordinal() > maxQos.ordinal()) {
+			Logger.debug(" .        COMPLIANCE CHECK: Setting maxQos from {} to {} for the next tests", maxQos, qos);
+			maxQos = qos;
+		}
+	}
+
 	// Helpers
+
+	/*
+	 * The identifiers are numbered so that checks running at the same time don't take over each other's sessions
+	 */
 	private @NotNull Mqtt3Client buildClient(String identifier) {
-		return getClientBuilder(identifier).build();
+		return getClientBuilder(identifier + "-" + clientCount.incrementAndGet()).build();
 	}
 
 	private @NotNull Mqtt3ClientBuilder getClientBuilder(String identifier) {
@@ -736,4 +667,117 @@ public class BrokerConformanceFeatureTester {
 			}
 		}
 	}
+
+	/*
+	 * A publisher and subscriber kept connected across the probes of a test. With a topic root the subscriber
+	 * subscribes once to everything below it, otherwise to each probed topic in turn. A broker may close the
+	 * connections after a probe it rejects, so they are reopened if needed before each probe.
+	 */
+	private class Prober implements AutoCloseable {
+		private final @Nullable String topicRoot;
+		private @Nullable Mqtt3Client publisher = null;
+		private @Nullable Mqtt3Client subscriber = null;
+		private @Nullable Mqtt3Publishes publishes = null;
+
+		Prober(final @Nullable String topicRoot) {
+			this.topicRoot = topicRoot;
+		}
+
+		private void connect() {
+			if (publisher != null && publisher.getState().isConnected() && subscriber.getState().isConnected()) {
+				return;
+			}
+			close();
+			publisher = buildClient("ConformanceTestPublisher");
+			subscriber = buildClient("ConformanceTestSubscriber");
+
+			subscriber.toBlocking().connect();
+			publishes = subscriber.toBlocking().publishes(MqttGlobalPublishFilter.SUBSCRIBED);
+			if (topicRoot != null) {
+				Logger.debug(" .        COMPLIANCE CHECK: Subscribing to topic {}/# with qos {}", topicRoot, maxQos);
+				subscriber.toBlocking().subscribeWith().topicFilter(topicRoot + "/#").qos(maxQos).send();
+			}
+			publisher.toBlocking().connect();
+		}
+
+		/*
+		 * Publish the payload to the topic and wait for the subscriber to receive it
+		 */
+		@NotNull
+		ComplianceTestResult probe(final @NotNull String topic, final @NotNull ByteBuffer payload) {
+			connect();
+			try {
+				Logger.debug(" .        COMPLIANCE CHECK: Publishing payload with {} bytes to topic with {} bytes with qos {}",
+						payload.remaining(), topic.length(), maxQos);
+				publisher.toBlocking().publishWith().topic(topic).qos(maxQos).payload(payload.duplicate()).send();
+			} catch (final Exception ex) {
+				Logger.error("Failed to publish payload of {} bytes to topic with {} bytes", payload.remaining(),
+						topic.length(), ex);
+				return ComplianceTestResult.PUBLISH_FAILED;
+			}
+
+			final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeOut);
+			try {
+				while (true) {
+					final long remaining = deadline - System.nanoTime();
+					final Optional<Mqtt3Publish> receive =
+							remaining > 0 ? publishes.receive(remaining, TimeUnit.NANOSECONDS) : Optional.empty();
+					if (!receive.isPresent()) {
+						return ComplianceTestResult.TIME_OUT;
+					}
+					// skip anything left over from an earlier probe which timed out
+					if (receive.get().getTopic().toString().equals(topic)) {
+						return receive.get().getPayload().orElse(EMPTY_PAYLOAD).equals(payload)
+								? ComplianceTestResult.OK
+								: ComplianceTestResult.WRONG_PAYLOAD;
+					}
+				}
+			} catch (InterruptedException e) {
+				Logger.error("Interrupted while waiting for subscriber to receive payload with length {} bytes",
+						payload.remaining(), e);
+				return ComplianceTestResult.INTERRUPTED;
+			}
+		}
+
+		/*
+		 * Subscribe to the topic, publish the topic name to it and wait for the subscriber to receive it
+		 */
+		@NotNull
+		ComplianceTestResult probeTopic(final @NotNull String topic) {
+			connect();
+			try {
+				Logger.debug(" .        COMPLIANCE CHECK: Subscribing to topic with {} bytes with qos {}",
+						topic.length(), maxQos);
+				subscriber.toBlocking().subscribeWith().topicFilter(topic).qos(maxQos).send();
+			} catch (final Exception ex) {
+				Logger.error("Failed to subscribe to topic with a length of {} bytes", topic.length(), ex);
+				return ComplianceTestResult.SUBSCRIBE_FAILED;
+			}
+			try {
+				return probe(topic, ByteBuffer.wrap(topic.getBytes()));
+			} finally {
+				if (subscriber.getState().isConnected()) {
+					try {
+						subscriber.toBlocking().unsubscribeWith().topicFilter(topic).send();
+					} catch (final Exception ex) {
+						Logger.debug(" .        COMPLIANCE CHECK: Failed to unsubscribe from topic with {} bytes",
+								topic.length(), ex);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void close() {
+			if (publishes != null) {
+				publishes.close();
+				publishes = null;
+			}
+			if (publisher != null) {
+				disconnectIfConnected(publisher, subscriber);
+				publisher = null;
+				subscriber = null;
+			}
+		}
+	}
 }
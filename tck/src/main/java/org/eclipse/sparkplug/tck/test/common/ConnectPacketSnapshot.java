@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test.common;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
+import com.hivemq.extension.sdk.api.packets.connect.WillPublishPacket;
+import com.hivemq.extension.sdk.api.packets.general.MqttVersion;
+import com.hivemq.extension.sdk.api.packets.general.UserProperties;
+
+/**
+ * An immutable copy of an inbound connect packet, so that it can be analysed after the interceptor which received it
+ * has returned to the broker. The will message, password and authentication data are copied, everything else is held
+ * by reference.
+ */
+public class ConnectPacketSnapshot implements ConnectPacket {
+
+	private final @NotNull MqttVersion mqttVersion;
+	private final @NotNull String clientId;
+	private final boolean cleanStart;
+	private final @NotNull Optional<WillPublishPacket> willPublish;
+	private final long sessionExpiryInterval;
+	private final int keepAlive;
+	private final int receiveMaximum;
+	private final long maximumPacketSize;
+	private final int topicAliasMaximum;
+	private final boolean requestProblemInformation;
+	private final boolean requestResponseInformation;
+	private final @NotNull Optional<String> userName;
+	private final @Nullable byte[] password;
+	private final @NotNull Optional<String> authenticationMethod;
+	private final @Nullable byte[] authenticationData;
+	private final @NotNull UserProperties userProperties;
+
+	/**
+	 * A will message with its payload copied.
+	 */
+	private static class WillPublishPacketSnapshot extends PublishPacketSnapshot implements WillPublishPacket {
+		private final long willDelay;
+
+		WillPublishPacketSnapshot(final @NotNull WillPublishPacket packet) {
+			super(packet);
+			this.willDelay = packet.getWillDelay();
+		}
+
+		@Override
+		public long getWillDelay() {
+			return willDelay;
+		}
+	}
+
+	public ConnectPacketSnapshot(final @NotNull ConnectPacket packet) {
+		this.mqttVersion = packet.getMqttVersion();
+		this.clientId = packet.getClientId();
+		this.cleanStart = packet.getCleanStart();
+		this.willPublish = packet.getWillPublish().<WillPublishPacket>map(WillPublishPacketSnapshot::new);
+		this.sessionExpiryInterval = packet.getSessionExpiryInterval();
+		this.keepAlive = packet.getKeepAlive();
+		this.receiveMaximum = packet.getReceiveMaximum();
+		this.maximumPacketSize = packet.getMaximumPacketSize();
+		this.topicAliasMaximum = packet.getTopicAliasMaximum();
+		this.requestProblemInformation = packet.getRequestProblemInformation();
+		this.requestResponseInformation = packet.getRequestResponseInformation();
+		this.userName = packet.getUserName();
+		this.password = packet.getPassword().map(PublishPacketSnapshot::copy).orElse(null);
+		this.authenticationMethod = packet.getAuthenticationMethod();
+		this.authenticationData = packet.getAuthenticationData().map(PublishPacketSnapshot::copy).orElse(null);
+		this.userProperties = packet.getUserProperties();
+	}
+
+	@Override
+	public @NotNull MqttVersion getMqttVersion() {
+		return mqttVersion;
+	}
+
+	@Override
+	public @NotNull String getClientId() {
+		return clientId;
+	}
+
+	@Override
+	public boolean getCleanStart() {
+		return cleanStart;
+	}
+
+	@Override
+	public @NotNull Optional<WillPublishPacket> getWillPublish() {
+		return willPublish;
+	}
+
+	@Override
+	public long getSessionExpiryInterval() {
+		return sessionExpiryInterval;
+	}
+
+	@Override
+	public int getKeepAlive() {
+		return keepAlive;
+	}
+
+	@Override
+	public int getReceiveMaximum() {
+		return receiveMaximum;
+	}
+
+	@Override
+	public long getMaximumPacketSize() {
+		return maximumPacketSize;
+	}
+
+	@Override
+	public int getTopicAliasMaximum() {
+		return topicAliasMaximum;
+	}
+
+	@Override
+	public boolean getRequestProblemInformation() {
+		return requestProblemInformation;
+	}
+
+	@Override
+	public boolean getRequestResponseInformation() {
+		return requestResponseInformation;
+	}
+
+	@Override
+	public @NotNull Optional<String> getUserName() {
+		return userName;
+	}
+
+	@Override
+	public @NotNull Optional<ByteBuffer> getPassword() {
+		return PublishPacketSnapshot.wrap(password);
+	}
+
+	@Override
+	public @NotNull Optional<String> getAuthenticationMethod() {
+		return authenticationMethod;
+	}
+
+	@Override
+	public @NotNull Optional<ByteBuffer> getAuthenticationData() {
+		return PublishPacketSnapshot.wrap(authenticationData);
+	}
+
+	@Override
+	public @NotNull UserProperties getUserProperties() {
+		return userProperties;
+	}
+}
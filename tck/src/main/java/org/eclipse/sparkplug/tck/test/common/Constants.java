@@ -40,9 +40,11 @@ public class Constants {
 	public static final String TCK_CONSOLE_PROMPT_TOPIC = "SPARKPLUG_TCK/CONSOLE_PROMPT";
 	public static final String TCK_CONSOLE_TEST_CONTROL_TOPIC = "SPARKPLUG_TCK/TEST_CONTROL";
 	public static final String TCK_RESULTS_TOPIC = "SPARKPLUG_TCK/RESULT";
+	public static final String TCK_RESULT_EVENTS_TOPIC = "SPARKPLUG_TCK/RESULT_EVENTS";
 	public static final String TCK_RESULTS_CONFIG_TOPIC = "SPARKPLUG_TCK/RESULT_CONFIG";
 	public static final String TCK_CONFIG_TOPIC = "SPARKPLUG_TCK/CONFIG";
 	public static final String TCK_CONSOLE_REPLY_TOPIC = "SPARKPLUG_TCK/CONSOLE_REPLY";
+	public static final String TCK_METRICS_TOPIC = "SPARKPLUG_TCK/METRICS";
 
 	public static final String TCK_HOST_CONTROL = "SPARKPLUG_TCK/HOST_CONTROL";
 	public static final String SPARKPLUG_AWARE_ROOT = "$sparkplug/certificates/";
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test.common;
+
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DBIRTH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DCMD;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DDATA;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DDEATH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NBIRTH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NCMD;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NDATA;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NDEATH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_STATE;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_ROOT_SP_BV_1_0;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.sparkplug.impl.exception.model.TopicLevels;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * An MQTT topic split into its levels by {@link TopicLevels}, with its Sparkplug elements.
+ *
+ * The Sparkplug elements of the topic - group id, message type, edge node id, device id and host application id -
+ * are extracted once and interned, so the same String instance is handed out every time an id is seen, and each
+ * edge node is represented by one {@link EdgeNode} object however many topics refer to it.
+ *
+ * Parsed topics are cached by {@link #parse(String)}. A Sparkplug client publishes on a small set of topics over and
+ * over again, so after the first message on each topic, parsing is a hash lookup. The cache and the interned ids are
+ * cleared together when the cache fills, so a broker seeing ever more topics doesn't hold on to them all.
+ */
+public class ParsedTopic extends TopicLevels {
+
+	// the cache is cleared if it ever gets this big, rather than keeping topics in order of use
+	private static final int MAX_CACHED = 100000;
+
+	private static final @NotNull ConcurrentHashMap<String, ParsedTopic> cache = new ConcurrentHashMap<>();
+	private static final @NotNull ConcurrentHashMap<String, String> ids = new ConcurrentHashMap<>();
+	private static final @NotNull ConcurrentHashMap<String, EdgeNode> edgeNodes = new ConcurrentHashMap<>();
+
+	// always the same instances, whatever has been cleared
+	private static final @NotNull Map<String, String> constants = Map.of(TOPIC_ROOT_SP_BV_1_0, TOPIC_ROOT_SP_BV_1_0,
+			TOPIC_PATH_STATE, TOPIC_PATH_STATE, TOPIC_PATH_NBIRTH, TOPIC_PATH_NBIRTH, TOPIC_PATH_NDEATH,
+			TOPIC_PATH_NDEATH, TOPIC_PATH_NDATA, TOPIC_PATH_NDATA, TOPIC_PATH_NCMD, TOPIC_PATH_NCMD, TOPIC_PATH_DBIRTH,
+			TOPIC_PATH_DBIRTH, TOPIC_PATH_DDEATH, TOPIC_PATH_DDEATH, TOPIC_PATH_DDATA, TOPIC_PATH_DDATA,
+			TOPIC_PATH_DCMD, TOPIC_PATH_DCMD);
+
+	/**
+	 * One Sparkplug edge node, identified by its group id and edge node id.
+	 */
+	public static final class EdgeNode {
+		private final @NotNull String groupId;
+		private final @NotNull String edgeNodeId;
+		private final @NotNull String key;
+
+		private EdgeNode(final @NotNull String groupId, final @NotNull String edgeNodeId, final @NotNull String key) {
+			this.groupId = groupId;
+			this.edgeNodeId = edgeNodeId;
+			this.key = key;
+		}
+
+		public @NotNull String getGroupId() {
+			return groupId;
+		}
+
+		public @NotNull String getEdgeNodeId() {
+			return edgeNodeId;
+		}
+
+		/**
+		 * @return group_id:edge_node_id, which is unique to the edge node
+		 */
+		public @NotNull String getKey() {
+			return key;
+		}
+
+		@Override
+		public String toString() {
+			return key;
+		}
+	}
+
+	private final boolean sparkplugB;
+	private final @Nullable String groupId;
+	private final @Nullable String messageType;
+	private final @Nullable String edgeNodeId;
+	private final @Nullable String deviceId;
+	private final @Nullable String hostApplicationId;
+	private final @Nullable EdgeNode edgeNode;
+
+	private ParsedTopic(final @NotNull String topic) {
+		super(topic);
+
+		final int count = getLevelCount();
+		sparkplugB = levelEquals(0, TOPIC_ROOT_SP_BV_1_0);
+		if (sparkplugB && count == 3 && levelEquals(1, TOPIC_PATH_STATE)) {
+			hostApplicationId = intern(2);
+			groupId = null;
+			messageType = TOPIC_PATH_STATE;
+			edgeNodeId = null;
+			deviceId = null;
+			edgeNode = null;
+		} else {
+			hostApplicationId = null;
+			groupId = count >= 2 ? intern(1) : null;
+			messageType = count >= 3 ? intern(2) : null;
+			edgeNodeId = count >= 4 ? intern(3) : null;
+			deviceId = count >= 5 ? intern(4) : null;
+			edgeNode = sparkplugB && edgeNodeId != null ? edgeNode(groupId, edgeNodeId) : null;
+		}
+	}
+
+	/**
+	 * Parse a topic, or fetch the result of parsing it before.
+	 */
+	public static @NotNull ParsedTopic parse(final @NotNull String topic) {
+		ParsedTopic parsed = cache.get(topic);
+		if (parsed == null) {
+			if (cache.size() >= MAX_CACHED) {
+				// topics already handed out keep their ids, later ones get new instances
+				cache.clear();
+				ids.clear();
+				edgeNodes.clear();
+			}
+			parsed = new ParsedTopic(topic);
+			cache.putIfAbsent(topic, parsed);
+		}
+		return parsed;
+	}
+
+	private @NotNull String intern(final int level) {
+		final String id = getLevel(level);
+		final String constant = constants.get(id);
+		if (constant != null) {
+			return constant;
+		}
+		final String existing = ids.putIfAbsent(id, id);
+		return existing == null ? id : existing;
+	}
+
+	private static @NotNull EdgeNode edgeNode(final @NotNull String groupId, final @NotNull String edgeNodeId) {
+		final String key = groupId + ":" + edgeNodeId;
+		return edgeNodes.computeIfAbsent(key, k -> new EdgeNode(groupId, edgeNodeId, k));
+	}
+
+	/**
+	 * @return whether the topic is in the spBv1.0 namespace
+	 */
+	public boolean isSparkplugB() {
+		return sparkplugB;
+	}
+
+	/**
+	 * @return whether this is a Sparkplug B host application STATE topic
+	 */
+	public boolean isState() {
+		return hostApplicationId != null;
+	}
+
+	/**
+	 * @return the second level of the topic, which is the group id for Sparkplug edge node and device topics
+	 */
+	public @Nullable String getGroupId() {
+		return groupId;
+	}
+
+	/**
+	 * @return the third level of the topic, which is the message type for Sparkplug edge node and device topics, or
+	 *         STATE for a host application STATE topic
+	 */
+	public @Nullable String getMessageType() {
+		return messageType;
+	}
+
+	/**
+	 * @return the fourth level of the topic, which is the edge node id for Sparkplug edge node and device topics
+	 */
+	public @Nullable String getEdgeNodeId() {
+		return edgeNodeId;
+	}
+
+	/**
+	 * @return the fifth level of the topic, which is the device id for Sparkplug device topics
+	 */
+	public @Nullable String getDeviceId() {
+		return deviceId;
+	}
+
+	public @Nullable String getHostApplicationId() {
+		return hostApplicationId;
+	}
+
+	/**
+	 * @return the edge node of a Sparkplug B edge node or device topic, or null for any other topic
+	 */
+	public @Nullable EdgeNode getEdgeNode() {
+		return edgeNode;
+	}
+
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test.common;
+
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_ROOT_SP_BV_1_0;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.sparkplug.impl.exception.SparkplugException;
+import org.eclipse.sparkplug.impl.exception.message.PayloadView;
+import org.eclipse.sparkplug.impl.exception.model.Topic;
+import org.eclipse.sparkplug.tck.jfr.PayloadDecodeEvent;
+import org.eclipse.sparkplug.tck.metrics.LatencyHistogram;
+import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.PayloadOrBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+
+/**
+ * One inbound publish as seen by the TCK, built once by the publish interceptor and shared by the current test and
+ * the Monitor.
+ *
+ * The topic and the Sparkplug payload are only parsed the first time they are asked for, and then cached, so however
+ * many listeners look at a message the protobuf decode happens at most once. While the envelope is being dispatched
+ * it is also registered for the dispatching thread, which lets {@link Utils#getSparkplugPayload(PublishPacket)} hand
+ * back the cached payload to tests which only have the packet.
+ */
+public class PublishEnvelope {
+
+	private static final @NotNull Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	private static final ThreadLocal<PublishEnvelope> dispatching = new ThreadLocal<>();
+
+	private final @NotNull String clientId;
+	private final @NotNull PublishPacket packet;
+	private final @Nullable ByteBuffer buffer;
+	private final @Nullable LatencyHistogram decodeTimes;
+
+	private boolean topicParsed = false;
+	private @Nullable Topic topic = null;
+
+	private boolean payloadDecoded = false;
+	private @Nullable PayloadOrBuilder payload = null;
+
+	private boolean payloadViewed = false;
+	private @Nullable PayloadView payloadView = null;
+
+	public PublishEnvelope(final @NotNull String clientId, final @NotNull PublishPacket packet) {
+		this(clientId, packet, null);
+	}
+
+	/**
+	 * @param decodeTimes where to record the time taken by each payload decode, or null not to time them
+	 */
+	public PublishEnvelope(final @NotNull String clientId, final @NotNull PublishPacket packet,
+			final @Nullable LatencyHistogram decodeTimes) {
+		this.clientId = clientId;
+		this.packet = packet;
+		this.buffer = packet.getPayload().map(ByteBuffer::asReadOnlyBuffer).orElse(null);
+		this.decodeTimes = decodeTimes;
+	}
+
+	public @NotNull String getClientId() {
+		return clientId;
+	}
+
+	public @NotNull PublishPacket getPacket() {
+		return packet;
+	}
+
+	public @NotNull String getTopicString() {
+		return packet.getTopic();
+	}
+
+	/**
+	 * @return a read-only view of the raw payload, positioned at its start, or null if the publish has no payload
+	 */
+	public @Nullable ByteBuffer getBuffer() {
+		return buffer == null ? null : buffer.duplicate();
+	}
+
+	/**
+	 * @return the parsed Sparkplug topic, or null if the topic is not a valid Sparkplug B topic
+	 */
+	public synchronized @Nullable Topic getTopic() {
+		if (!topicParsed) {
+			topicParsed = true;
+			if (packet.getTopic().startsWith(TOPIC_ROOT_SP_BV_1_0)) {
+				try {
+					topic = Topic.parseTopic(packet.getTopic());
+				} catch (SparkplugException e) {
+					topic = null;
+				}
+			}
+		}
+		return topic;
+	}
+
+	/**
+	 * The payload is decoded through the view, which keeps it, so the Monitor reading the metrics from the view and a
+	 * test asking for the whole payload share the one decode.
+	 *
+	 * @return the decoded Sparkplug B payload, or null if this is not a Sparkplug B message or it could not be decoded
+	 */
+	public synchronized @Nullable PayloadOrBuilder getPayload() {
+		if (!payloadDecoded) {
+			payloadDecoded = true;
+			final PayloadView view = getPayloadView();
+			if (view != null) {
+				final PayloadDecodeEvent event = new PayloadDecodeEvent();
+				event.begin();
+				final long start = System.nanoTime();
+				try {
+					payload = view.toPayload();
+				} catch (InvalidProtocolBufferException e) {
+					logger.error("Payload Exception", e);
+					payload = null;
+				}
+				recordDecode(start, event, false, payload != null);
+			}
+		}
+		return payload;
+	}
+
+	/**
+	 * @return a lazy view of the Sparkplug B payload, for checks which do not need the whole payload decoded, or null
+	 *         if this is not a Sparkplug B message or the payload is not valid protobuf
+	 */
+	public synchronized @Nullable PayloadView getPayloadView() {
+		if (!payloadViewed) {
+			payloadViewed = true;
+			if (buffer != null && packet.getTopic().startsWith(TOPIC_ROOT_SP_BV_1_0)) {
+				final PayloadDecodeEvent event = new PayloadDecodeEvent();
+				event.begin();
+				final long start = System.nanoTime();
+				try {
+					payloadView = PayloadView.of(buffer.duplicate());
+				} catch (InvalidProtocolBufferException e) {
+					logger.error("Payload Exception", e);
+					payloadView = null;
+				}
+				recordDecode(start, event, true, payloadView != null);
+			}
+		}
+		return payloadView;
+	}
+
+	private void recordDecode(final long start, final @NotNull PayloadDecodeEvent event, final boolean view,
+			final boolean valid) {
+		if (decodeTimes != null) {
+			decodeTimes.record(System.nanoTime() - start);
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.setView(view);
+			event.setValid(valid);
+			event.commit(clientId, packet.getTopic(), buffer.remaining());
+		}
+	}
+
+	/**
+	 * Make this envelope the one being dispatched on the calling thread, until {@link #endDispatch()} is called.
+	 */
+	public void beginDispatch() {
+		dispatching.set(this);
+	}
+
+	public void endDispatch() {
+		dispatching.remove();
+	}
+
+	/**
+	 * @param packet a publish packet
+	 * @return the envelope currently being dispatched on this thread if it wraps the given packet, otherwise null
+	 */
+	public static @Nullable PublishEnvelope dispatching(final @NotNull PublishPacket packet) {
+		final PublishEnvelope envelope = dispatching.get();
+		return (envelope != null && envelope.packet == packet) ? envelope : null;
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test.common;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.general.UserProperties;
+import com.hivemq.extension.sdk.api.packets.publish.PayloadFormatIndicator;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+
+/**
+ * An immutable copy of an inbound publish packet, so that it can be analysed after the interceptor which received it
+ * has returned to the broker. The payload and correlation data are copied, everything else is held by reference.
+ */
+public class PublishPacketSnapshot implements PublishPacket {
+
+	private final boolean dupFlag;
+	private final @NotNull Qos qos;
+	private final boolean retain;
+	private final @NotNull String topic;
+	private final int packetId;
+	private final @NotNull Optional<PayloadFormatIndicator> payloadFormatIndicator;
+	private final @NotNull Optional<Long> messageExpiryInterval;
+	private final @NotNull Optional<String> responseTopic;
+	private final @Nullable byte[] correlationData;
+	private final @NotNull List<Integer> subscriptionIdentifiers;
+	private final @NotNull Optional<String> contentType;
+	private final @Nullable byte[] payload;
+	private final @NotNull UserProperties userProperties;
+	private final long timestamp;
+
+	public PublishPacketSnapshot(final @NotNull PublishPacket packet) {
+		this.dupFlag = packet.getDupFlag();
+		this.qos = packet.getQos();
+		this.retain = packet.getRetain();
+		this.topic = packet.getTopic();
+		this.packetId = packet.getPacketId();
+		this.payloadFormatIndicator = packet.getPayloadFormatIndicator();
+		this.messageExpiryInterval = packet.getMessageExpiryInterval();
+		this.responseTopic = packet.getResponseTopic();
+		this.correlationData = packet.getCorrelationData().map(PublishPacketSnapshot::copy).orElse(null);
+		this.subscriptionIdentifiers = List.copyOf(packet.getSubscriptionIdentifiers());
+		this.contentType = packet.getContentType();
+		this.payload = packet.getPayload().map(PublishPacketSnapshot::copy).orElse(null);
+		this.userProperties = packet.getUserProperties();
+		this.timestamp = packet.getTimestamp();
+	}
+
+	static byte[] copy(final @NotNull ByteBuffer buffer) {
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+
+	static Optional<ByteBuffer> wrap(final @Nullable byte[] bytes) {
+		return bytes == null ? Optional.empty() : Optional.of(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+	}
+
+	@Override
+	public boolean getDupFlag() {
+		return dupFlag;
+	}
+
+	@Override
+	public @NotNull Qos getQos() {
+		return qos;
+	}
+
+	@Override
+	public boolean getRetain() {
+		return retain;
+	}
+
+	@Override
+	public @NotNull String getTopic() {
+		return topic;
+	}
+
+	@Override
+	public int getPacketId() {
+		return packetId;
+	}
+
+	@Override
+	public @NotNull Optional<PayloadFormatIndicator> getPayloadFormatIndicator() {
+		return payloadFormatIndicator;
+	}
+
+	@Override
+	public @NotNull Optional<Long> getMessageExpiryInterval() {
+		return messageExpiryInterval;
+	}
+
+	@Override
+	public @NotNull Optional<String> getResponseTopic() {
+		return responseTopic;
+	}
+
+	@Override
+	public @NotNull Optional<ByteBuffer> getCorrelationData() {
+		return wrap(correlationData);
+	}
+
+	@Override
+	public @NotNull List<Integer> getSubscriptionIdentifiers() {
+		return subscriptionIdentifiers;
+	}
+
+	@Override
+	public @NotNull Optional<String> getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public @NotNull Optional<ByteBuffer> getPayload() {
+		return wrap(payload);
+	}
+
+	@Override
+	public @NotNull UserProperties getUserProperties() {
+		return userProperties;
+	}
+
+	@Override
+	public long getTimestamp() {
+		return timestamp;
+	}
+}
@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test.common;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * The results of a test, keyed by requirement id.
+ *
+ * Every requirement id in {@link Requirements#IDS} is given a fixed index, and the results are held in arrays by that
+ * index: the state of each result as a byte, and its text only when it has some. So recording or checking a result
+ * is an array access, a pass stores no text at all, and the text of a failure is only put together when it is read.
+ * Keys which are not requirement ids, such as the "Monitor:" labelled ones, are given the next free index the first
+ * time they are seen.
+ *
+ * This is a Map so that it can be used wherever the tests used a TreeMap, and like a TreeMap it iterates in key
+ * order. All methods synchronize on the registry, as the Utils setResult methods do.
+ */
+public class ResultRegistry extends AbstractMap<String, String> {
+
+	/**
+	 * The state of one result. The text of a result starts with the name of its state, except for OTHER.
+	 */
+	public enum State {
+		PASS(Constants.PASS),
+		FAIL(Constants.FAIL),
+		MAYBE(Constants.MAYBE),
+		NOT_EXECUTED(Constants.NOT_EXECUTED),
+		OTHER("");
+
+		private final @NotNull String text;
+
+		State(final @NotNull String text) {
+			this.text = text;
+		}
+
+		/**
+		 * @return the text of a result which is just this state, such as "NOT EXECUTED"
+		 */
+		public @NotNull String getText() {
+			return text;
+		}
+
+		/**
+		 * @return the state of a result from its text
+		 */
+		public static @NotNull State of(final @NotNull String result) {
+			if (result.startsWith(Constants.PASS)) {
+				return PASS;
+			} else if (result.startsWith(Constants.FAIL)) {
+				return FAIL;
+			} else if (result.startsWith(Constants.MAYBE)) {
+				return MAYBE;
+			} else if (result.startsWith(Constants.NOT_EXECUTED)) {
+				return NOT_EXECUTED;
+			}
+			return OTHER;
+		}
+	}
+
+	private static final @NotNull State[] STATES = State.values();
+
+	/*
+	 * The index of every key seen so far, shared by all registries.
+	 */
+	private static final @NotNull ConcurrentHashMap<String, Integer> indexes = new ConcurrentHashMap<>();
+	private static volatile @NotNull Keys keys;
+
+	private static final class Keys {
+		private final @NotNull String[] names; // by index
+		private final @NotNull int[] order; // indexes sorted by name
+
+		private Keys(final @NotNull String[] names) {
+			this.names = names;
+			final Integer[] order = new Integer[names.length];
+			for (int i = 0; i < order.length; ++i) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+			this.order = Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+		}
+	}
+
+	static {
+		final String[] ids = Arrays.stream(Requirements.IDS).distinct().sorted().toArray(String[]::new);
+		for (int i = 0; i < ids.length; ++i) {
+			indexes.put(ids[i], i);
+		}
+		keys = new Keys(ids);
+	}
+
+	private static int indexOf(final @Nullable Object key) {
+		final Integer index = key == null ? null : indexes.get(key);
+		return index == null ? -1 : index;
+	}
+
+	private static int register(final @NotNull String key) {
+		final int index = indexOf(key);
+		return index >= 0 ? index : registerNew(key);
+	}
+
+	private static synchronized int registerNew(final @NotNull String key) {
+		final Integer existing = indexes.get(key);
+		if (existing != null) {
+			return existing;
+		}
+		final int index = keys.names.length;
+		final String[] names = Arrays.copyOf(keys.names, index + 1);
+		names[index] = key;
+		keys = new Keys(names);
+		indexes.put(key, index);
+		return index;
+	}
+
+	private byte[] states; // 0 for no result, otherwise State ordinal + 1
+	private String[] texts; // the full text, when it has been given or built
+	private String[] descriptions; // for failures, the requirement text
+	private StackTraceElement[] locations; // for failures, where the check was made
+	private int count = 0;
+
+	public ResultRegistry() {
+		final int size = keys.names.length;
+		states = new byte[size];
+		texts = new String[size];
+		descriptions = new String[size];
+		locations = new StackTraceElement[size];
+	}
+
+	private void ensureCapacity(final int index) {
+		if (index >= states.length) {
+			final int size = Math.max(index + 1, states.length + 16);
+			states = Arrays.copyOf(states, size);
+			texts = Arrays.copyOf(texts, size);
+			descriptions = Arrays.copyOf(descriptions, size);
+			locations = Arrays.copyOf(locations, size);
+		}
+	}
+
+	private boolean has(final int index) {
+		return index >= 0 && index < states.length && states[index] != 0;
+	}
+
+	private void set(final int index, final @NotNull State state, final @Nullable String text,
+			final @Nullable String description, final @Nullable StackTraceElement location) {
+		ensureCapacity(index);
+		if (states[index] == 0) {
+			++count;
+		}
+		states[index] = (byte) (state.ordinal() + 1);
+		texts[index] = text;
+		descriptions[index] = description;
+		locations[index] = location;
+	}
+
+	private @NotNull String textAt(final int index) {
+		String text = texts[index];
+		if (text == null) {
+			final State state = STATES[states[index] - 1];
+			if (descriptions[index] == null) {
+				text = state.text;
+			} else if (locations[index] == null) {
+				text = state.text + " " + descriptions[index];
+			} else {
+				text = state.text + " " + descriptions[index] + " (" + locations[index] + ")";
+			}
+			texts[index] = text;
+		}
+		return text;
+	}
+
+	/**
+	 * @return the state of the result for a requirement, or null if there is none
+	 */
+	public synchronized @Nullable State getState(final @NotNull String key) {
+		final int index = indexOf(key);
+		return has(index) ? STATES[states[index] - 1] : null;
+	}
+
+	/**
+	 * Record a pass, without any text.
+	 */
+	public synchronized void pass(final @NotNull String key) {
+		set(register(key), State.PASS, null, null, null);
+	}
+
+	/**
+	 * Record a failed check. The text of the result is only put together if it is read.
+	 *
+	 * @param state FAIL or MAYBE
+	 * @param description the text of the requirement
+	 * @param location where the check was made, or null if not known
+	 */
+	public synchronized void fail(final @NotNull String key, final @NotNull State state,
+			final @NotNull String description, final @Nullable StackTraceElement location) {
+		set(register(key), state, null, description, location);
+	}
+
+	/**
+	 * Copy one result from another registry, under a different key.
+	 */
+	public void copy(final @NotNull ResultRegistry from, final @NotNull String fromKey, final @NotNull String key) {
+		final int fromIndex = indexOf(fromKey);
+		final int index = register(key);
+		synchronized (from) {
+			if (!from.has(fromIndex)) {
+				return;
+			}
+			final State state = STATES[from.states[fromIndex] - 1];
+			final String text = from.texts[fromIndex];
+			final String description = from.descriptions[fromIndex];
+			final StackTraceElement location = from.locations[fromIndex];
+			synchronized (this) {
+				set(index, state, text, description, location);
+			}
+		}
+	}
+
+	@Override
+	public synchronized int size() {
+		return count;
+	}
+
+	@Override
+	public synchronized boolean containsKey(final @Nullable Object key) {
+		return has(indexOf(key));
+	}
+
+	@Override
+	public synchronized @Nullable String get(final @Nullable Object key) {
+		final int index = indexOf(key);
+		return has(index) ? textAt(index) : null;
+	}
+
+	@Override
+	public synchronized @Nullable String put(final @NotNull String key, final @NotNull String value) {
+		final int index = register(key);
+		final String previous = has(index) ? textAt(index) : null;
+		final State state = State.of(value);
+		// the bare state names are the common case and need no text
+		set(index, state, value.equals(state.text) ? null : value, null, null);
+		return previous;
+	}
+
+	@Override
+	public synchronized @Nullable String remove(final @Nullable Object key) {
+		final int index = indexOf(key);
+		if (!has(index)) {
+			return null;
+		}
+		final String previous = textAt(index);
+		states[index] = 0;
+		texts[index] = null;
+		descriptions[index] = null;
+		locations[index] = null;
+		--count;
+		return previous;
+	}
+
+	@Override
+	public synchronized void clear() {
+		Arrays.fill(states, (byte) 0);
+		Arrays.fill(texts, null);
+		Arrays.fill(descriptions, null);
+		Arrays.fill(locations, null);
+		count = 0;
+	}
+
+	@Override
+	public void putAll(final @NotNull Map<? extends String, ? extends String> map) {
+		if (!(map instanceof ResultRegistry)) {
+			super.putAll(map);
+			return;
+		}
+		final ResultRegistry from = (ResultRegistry) map;
+		synchronized (from) {
+			synchronized (this) {
+				ensureCapacity(from.states.length - 1);
+				for (int i = 0; i < from.states.length; ++i) {
+					if (from.states[i] != 0) {
+						set(i, STATES[from.states[i] - 1], from.texts[i], from.descriptions[i], from.locations[i]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The results in key order. The set is a snapshot taken when it is created.
+	 */
+	@Override
+	public synchronized @NotNull Set<Entry<String, String>> entrySet() {
+		@SuppressWarnings("unchecked")
+		final Entry<String, String>[] entries = new Entry[count];
+		int n = 0;
+		final Keys current = keys;
+		for (int index : current.order) {
+			if (has(index)) {
+				entries[n++] = new SimpleImmutableEntry<>(current.names[index], textAt(index));
+			}
+		}
+		return new AbstractSet<>() {
+			@Override
+			public @NotNull Iterator<Entry<String, String>> iterator() {
+				return new Iterator<>() {
+					private int next = 0;
+
+					@Override
+					public boolean hasNext() {
+						return next < entries.length;
+					}
+
+					@Override
+					public Entry<String, String> next() {
+						if (next >= entries.length) {
+							throw new NoSuchElementException();
+						}
+						return entries[next++];
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return entries.length;
+			}
+		};
+	}
+
+	/**
+	 * Receives each result in turn from {@link #forEachResult(ResultVisitor)}.
+	 */
+	public interface ResultVisitor {
+		void visit(@NotNull String key, @NotNull State state, @NotNull String text);
+	}
+
+	/**
+	 * Visit the results in key order, with their states, so that callers need not work out the state from the text.
+	 */
+	public synchronized void forEachResult(final @NotNull ResultVisitor visitor) {
+		final Keys current = keys;
+		for (int index : current.order) {
+			if (has(index)) {
+				visitor.visit(current.names[index], STATES[states[index] - 1], textAt(index));
+			}
+		}
+	}
+}
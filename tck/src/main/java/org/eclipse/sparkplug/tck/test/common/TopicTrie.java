@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.test.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
+
+/**
+ * MQTT topic filters, with the + and # wildcards, held as a tree of topic levels, each filter with the value it was
+ * added with.
+ *
+ * Matching a topic walks down the tree one level at a time, following the level itself and any + below it, and
+ * collecting the values of any # on the way. The cost is set by the number of levels in the topic, not the number of
+ * filters, and a topic which matches nothing usually stops at the first level.
+ *
+ * As in MQTT, a topic beginning with $ is not matched by a wildcard in the first level, and a # also matches its
+ * parent level, so a/# matches a.
+ *
+ * A trie is built once then only matched against, so it needs no locking as long as it is handed to the threads
+ * matching against it safely, through a volatile field for example.
+ */
+public class TopicTrie<T> {
+
+	private static final @NotNull String SINGLE_LEVEL = "+";
+	private static final @NotNull String MULTI_LEVEL = "#";
+
+	private static class Node<T> {
+		private final @NotNull Map<String, Node<T>> children = new HashMap<>();
+		private @Nullable Node<T> singleLevel = null;
+		// values of filters ending at this level, and of filters ending in a # below it
+		private final @NotNull List<T> values = new ArrayList<>();
+		private final @NotNull List<T> multiLevel = new ArrayList<>();
+	}
+
+	private final @NotNull Node<T> root = new Node<>();
+	private int size = 0;
+
+	/**
+	 * @param filter an MQTT topic filter
+	 * @param value what {@link #match(String)} returns for a topic the filter matches
+	 * @throws IllegalArgumentException if the filter isn't valid, which it isn't if it is empty or a wildcard is not
+	 *             a level on its own, or # is not the last level
+	 */
+	public void add(final @NotNull String filter, final @NotNull T value) {
+		if (filter.isEmpty()) {
+			throw new IllegalArgumentException("Empty topic filter");
+		}
+		final String[] levels = filter.split("/", -1);
+		Node<T> node = root;
+		for (int i = 0; i < levels.length; i++) {
+			final String level = levels[i];
+			if (level.equals(MULTI_LEVEL)) {
+				if (i != levels.length - 1) {
+					throw new IllegalArgumentException("# is not the last level of topic filter " + filter);
+				}
+				node.multiLevel.add(value);
+				size++;
+				return;
+			}
+			if (level.equals(SINGLE_LEVEL)) {
+				if (node.singleLevel == null) {
+					node.singleLevel = new Node<>();
+				}
+				node = node.singleLevel;
+			} else if (level.contains(SINGLE_LEVEL) || level.contains(MULTI_LEVEL)) {
+				throw new IllegalArgumentException("Wildcard is not a whole level of topic filter " + filter);
+			} else {
+				node = node.children.computeIfAbsent(level, k -> new Node<>());
+			}
+		}
+		node.values.add(value);
+		size++;
+	}
+
+	public void addAll(final @NotNull Iterable<String> filters, final @NotNull T value) {
+		for (String filter : filters) {
+			add(filter, value);
+		}
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param topic a topic name, without wildcards
+	 * @return the values of every filter the topic matches, each once, or an empty set
+	 */
+	public @NotNull Set<T> match(final @NotNull String topic) {
+		final Set<T> matches = new LinkedHashSet<>();
+		match(root, topic, 0, !topic.startsWith("$"), matches);
+		return matches.isEmpty() ? Collections.emptySet() : matches;
+	}
+
+	public boolean matches(final @NotNull String topic) {
+		return !match(topic).isEmpty();
+	}
+
+	/*
+	 * Match the levels of the topic from start on, or none if start is past its end.
+	 */
+	private static <T> void match(final @NotNull Node<T> node, final @NotNull String topic, final int start,
+			final boolean wildcards, final @NotNull Set<T> matches) {
+		if (wildcards) {
+			matches.addAll(node.multiLevel);
+		}
+		if (start > topic.length()) {
+			matches.addAll(node.values);
+			return;
+		}
+		final int end = topic.indexOf('/', start);
+		final int next = end < 0 ? topic.length() + 1 : end + 1;
+		final Node<T> child = node.children.get(end < 0 ? topic.substring(start) : topic.substring(start, end));
+		if (child != null) {
+			match(child, topic, next, true, matches);
+		}
+		if (wildcards && node.singleLevel != null) {
+			match(node.singleLevel, topic, next, true, matches);
+		}
+	}
+}
@@ -19,6 +19,7 @@ import static org.eclipse.sparkplug.tck.test.common.Constants.NOT_EXECUTED;
 import static org.eclipse.sparkplug.tck.test.common.Constants.PASS;
 import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_ROOT_SP_BV_1_0;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -32,6 +33,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.eclipse.sparkplug.impl.exception.message.PayloadView;
 import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.DataType;
 import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload;
 import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload.Metric;
@@ -44,6 +46,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
 import com.hivemq.extension.sdk.api.services.Services;
 import com.hivemq.extension.sdk.api.services.publish.RetainedPublish;
@@ -64,82 +67,176 @@ public class Utils {
 		});
 	}
 
+	// walks only as far as the first frame outside this class, so a failure costs a few frames, not a whole stack
+	private static final @NotNull StackWalker stackWalker = StackWalker.getInstance();
+
 	public static @NotNull String setResult(boolean bValid, String requirement) {
-		return setResultWithStackTrace(bValid, requirement, 2);
+		return bValid ? PASS : failure(FAIL, requirement);
 	}
 
-	private static @NotNull String setResultWithStackTrace(boolean bValid, String requirement, int element) {
-		if (!bValid) {
-			StackTraceElement[] elements = (new Exception()).getStackTrace();
-			if (elements != null && elements.length > element) {
-				final String result = FAIL + " " + requirement + " (" + elements[element] + ")";
-				logger.debug(result);
-				return result;
-			} else {
-				return FAIL + " " + requirement;
-			}
+	public static @NotNull String setShouldResult(boolean bValid, String requirement) {
+		return bValid ? PASS : MAYBE + " " + requirement;
+	}
+
+	/*
+	 * The result text for a failed check, with the location of the check which failed
+	 */
+	private static @NotNull String failure(final @NotNull String state, final String requirement) {
+		final StackTraceElement location = callSite();
+		if (location == null) {
+			return state + " " + requirement;
 		}
-		return PASS;
+		final String result = state + " " + requirement + " (" + location + ")";
+		logger.debug(result);
+		return result;
 	}
 
-	private static @NotNull String setShouldResultWithStackTrace(boolean bValid, String requirement, int element) {
-		if (!bValid) {
-			StackTraceElement[] elements = (new Exception()).getStackTrace();
-			if (elements != null && elements.length > element) {
-				final String result = MAYBE + " " + requirement + " (" + elements[element] + ")";
-				logger.debug(result);
-				return result;
-			} else {
-				return MAYBE + " " + requirement;
-			}
+	private static @Nullable StackTraceElement callSite() {
+		return stackWalker.walk(frames -> frames.filter(frame -> !frame.getClassName().equals(Utils.class.getName()))
+				.findFirst().map(StackWalker.StackFrame::toStackTraceElement).orElse(null));
+	}
+
+	/*
+	 * Record a result in a ResultRegistry, where a failure is kept without being turned into text
+	 */
+	private static void record(final @NotNull ResultRegistry results, final boolean result,
+			final @NotNull String req_id, final @NotNull ResultRegistry.State state, final String req_desc) {
+		if (result) {
+			results.pass(req_id);
+		} else {
+			results.fail(req_id, state, req_desc, callSite());
 		}
-		return PASS;
 	}
 
-	public static @NotNull String setShouldResult(boolean bValid, String requirement) {
-		return bValid ? PASS : MAYBE + " " + requirement;
+	/**
+	 * @return whether a result is one that a later result for the same requirement must not replace
+	 */
+	private static boolean isTerminal(final @Nullable String current, final @NotNull String state) {
+		return current != null && current.startsWith(state);
 	}
 
 	public static @NotNull boolean setShouldResult(Map<String, String> results, boolean result, String req_id,
 			String req_desc) {
-		results.put(req_id, setShouldResultWithStackTrace(result, req_desc, 2));
+		if (results instanceof ResultRegistry) {
+			record((ResultRegistry) results, result, req_id, ResultRegistry.State.MAYBE, req_desc);
+		} else {
+			results.put(req_id, result ? PASS : failure(MAYBE, req_desc));
+		}
 		return result;
 	}
 
 	public static @NotNull boolean setResult(Map<String, String> results, boolean result, String req_id,
 			String req_desc) {
-		results.put(req_id, setResultWithStackTrace(result, req_desc, 2));
+		if (results instanceof ResultRegistry) {
+			record((ResultRegistry) results, result, req_id, ResultRegistry.State.FAIL, req_desc);
+		} else {
+			results.put(req_id, result ? PASS : failure(FAIL, req_desc));
+		}
 		return result;
 	}
 
+	/**
+	 * Record the result of a check unless the requirement has already failed. Once it has, nothing more is done, so
+	 * repeating a check which keeps failing is cheap.
+	 */
 	public static @NotNull boolean setResultIfNotFail(Map<String, String> results, boolean result, String req_id,
 			String req_desc) {
-		if (results.get(req_id) == null || !results.get(req_id).equals(FAIL)) {
-			results.put(req_id, setResultWithStackTrace(result, req_desc, 2));
+		// the check and update must be atomic if the map is shared, as the Monitor's is
+		synchronized (results) {
+			if (results instanceof ResultRegistry) {
+				final ResultRegistry registry = (ResultRegistry) results;
+				if (registry.getState(req_id) != ResultRegistry.State.FAIL) {
+					record(registry, result, req_id, ResultRegistry.State.FAIL, req_desc);
+				}
+				return result;
+			}
+			final String current = results.get(req_id);
+			if (isTerminal(current, FAIL)) {
+				return result;
+			}
+			if (result) {
+				if (!PASS.equals(current)) {
+					results.put(req_id, PASS);
+				}
+			} else {
+				results.put(req_id, failure(FAIL, req_desc));
+			}
 		}
 		return result;
 	}
 
+	/**
+	 * Record the result of a check which should pass, unless the requirement has already been marked MAYBE or has
+	 * failed.
+	 */
 	public static @NotNull boolean setShouldResultIfNotFail(Map<String, String> results, boolean result, String req_id,
 			String req_desc) {
-		if (results.get(req_id) == null || !results.get(req_id).equals(MAYBE)) {
-			results.put(req_id, setShouldResult(result, req_desc));
+		synchronized (results) {
+			if (results instanceof ResultRegistry) {
+				final ResultRegistry registry = (ResultRegistry) results;
+				final ResultRegistry.State current = registry.getState(req_id);
+				if (current != ResultRegistry.State.MAYBE && current != ResultRegistry.State.FAIL) {
+					if (result) {
+						registry.pass(req_id);
+					} else {
+						registry.fail(req_id, ResultRegistry.State.MAYBE, req_desc, null);
+					}
+				}
+				return result;
+			}
+			final String current = results.get(req_id);
+			if (isTerminal(current, MAYBE) || isTerminal(current, FAIL)) {
+				return result;
+			}
+			if (result) {
+				if (!PASS.equals(current)) {
+					results.put(req_id, PASS);
+				}
+			} else {
+				results.put(req_id, setShouldResult(false, req_desc));
+			}
 		}
 		return result;
 	}
 
 	public static PayloadOrBuilder decode(ByteBuffer payload) {
-		byte[] array = new byte[payload.remaining()];
-		payload.get(array);
 		try {
-			return Payload.parseFrom(array);
-		} catch (InvalidProtocolBufferException e) {
+			// parse from the buffer rather than a copy of it
+			final PayloadOrBuilder decoded = Payload.parseFrom(PayloadView.input(payload, 0, payload.remaining()));
+			payload.position(payload.limit());
+			return decoded;
+		} catch (IOException e) {
 			logger.error("Payload Exception", e);
 			return null;
 		}
 	}
 
+	/**
+	 * @return a lazy view of the Sparkplug B payload of a publish, or null if it is not a Sparkplug B message or its
+	 *         payload is not valid protobuf
+	 */
+	public static PayloadView getPayloadView(PublishPacket packet) {
+		final PublishEnvelope envelope = PublishEnvelope.dispatching(packet);
+		if (envelope != null) {
+			return envelope.getPayloadView();
+		}
+		final ByteBuffer payload = packet.getPayload().orElse(null);
+		if (payload != null && packet.getTopic().startsWith(TOPIC_ROOT_SP_BV_1_0)) {
+			try {
+				return PayloadView.of(payload);
+			} catch (InvalidProtocolBufferException e) {
+				logger.error("Payload Exception", e);
+			}
+		}
+		return null;
+	}
+
 	public static PayloadOrBuilder getSparkplugPayload(PublishPacket packet) {
+		// reuse the decode already done for this publish by another listener, if there was one
+		final PublishEnvelope envelope = PublishEnvelope.dispatching(packet);
+		if (envelope != null) {
+			return envelope.getPayload();
+		}
 		final ByteBuffer payload = packet.getPayload().orElseGet(null);
 		if (payload != null && packet.getTopic().startsWith(TOPIC_ROOT_SP_BV_1_0)) {
 			return decode(payload);
@@ -364,10 +461,17 @@ public class Utils {
 	}
 
 	public static boolean checkUTC(long timestamp, long UTCwindow) {
+		return checkUTC(timestamp, new Date().getTime(), UTCwindow);
+	}
+
+	/*
+	 * Check the timestamp against a given time rather than the time now, for messages which
+	 * were captured earlier and are being checked afterwards.
+	 */
+	public static boolean checkUTC(long timestamp, long now, long UTCwindow) {
 		boolean result = false;
 
-		Date now = new Date();
-		long diff = now.getTime() - timestamp;
+		long diff = now - timestamp;
 
 		if (diff == 0) {
 			result = true; // Exactly the same so we're good.
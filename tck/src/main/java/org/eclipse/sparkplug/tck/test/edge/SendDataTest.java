@@ -88,17 +88,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Predicate;
 
 import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.sparkplug.impl.exception.message.PayloadView;
 import org.eclipse.sparkplug.tck.sparkplug.Sections;
 import org.eclipse.sparkplug.tck.test.Results;
 import org.eclipse.sparkplug.tck.test.TCK;
 import org.eclipse.sparkplug.tck.test.TCK.Utilities;
 import org.eclipse.sparkplug.tck.test.TCKTest;
+import org.eclipse.sparkplug.tck.test.common.ParsedTopic;
 import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.DataType;
 import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload;
 import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload.Metric;
@@ -120,6 +121,7 @@ import org.slf4j.LoggerFactory;
  *  
  */
 
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
 import com.hivemq.extension.sdk.api.packets.connect.WillPublishPacket;
@@ -230,6 +232,17 @@ public class SendDataTest extends TCKTest {
 		return testResults;
 	}
 
+	/*
+	 * Births and data from any edge node, so that data on the wrong topic is seen and failed
+	 */
+	@Override
+	public @NotNull List<String> getTopicFilters() {
+		return List.of(TOPIC_ROOT_SP_BV_1_0 + "/+/" + TOPIC_PATH_NBIRTH + "/#",
+				TOPIC_ROOT_SP_BV_1_0 + "/+/" + TOPIC_PATH_DBIRTH + "/#",
+				TOPIC_ROOT_SP_BV_1_0 + "/+/" + TOPIC_PATH_NDATA + "/#",
+				TOPIC_ROOT_SP_BV_1_0 + "/+/" + TOPIC_PATH_DDATA + "/#");
+	}
+
 	@Override
 	public void connect(String clientId, ConnectPacket packet) {
 		/* Determine if this the connect packet for the Edge node under test.
@@ -267,9 +280,9 @@ public class SendDataTest extends TCKTest {
 		}
 
 		String cmd = "";
-		String[] levels = packet.getTopic().split("/");
-		if (levels.length >= 3) {
-			cmd = levels[2];
+		ParsedTopic topic = ParsedTopic.parse(packet.getTopic());
+		if (topic.getMessageType() != null) {
+			cmd = topic.getMessageType();
 			logger.info("Looking for {}", cmd);
 		}
 
@@ -339,7 +352,7 @@ public class SendDataTest extends TCKTest {
 		testResults.put(ID_PAYLOADS_NDATA_RETAIN, setResult(isValidNOTRetain, PAYLOADS_NDATA_RETAIN));
 
 		// payload related tests
-		PayloadOrBuilder inboundPayload = Utils.getSparkplugPayload(packet);
+		PayloadView inboundPayload = Utils.getPayloadView(packet);
 		Boolean[] bValid = checkValidPayload(inboundPayload);
 
 		logger.debug("Check Req: {} Every NDATA message MUST include a sequence number.", ID_PAYLOADS_NDATA_SEQ);
@@ -378,23 +391,7 @@ public class SendDataTest extends TCKTest {
 
 		// check templates
 		String sparkplugDescriptor = groupId + "/" + edgeNodeId;
-		for (Metric metric : inboundPayload.getMetricsList()) {
-			String currentMetricName = metric.getName();
-			if (!metric.hasName() && metric.hasAlias()) {
-				currentMetricName = edgeAliasMaps.get(sparkplugDescriptor).get(metric.getAlias());
-				logger.debug("Got currentMetricName from alias: {} -> {}", metric.getAlias(), currentMetricName);
-			}
-			if (metric.hasDatatype()) {
-				DataType datatype = DataType.forNumber(metric.getDatatype());
-				if (datatype == DataType.Template && metric.hasTemplateValue()) {
-					checkInstance(sparkplugDescriptor, currentMetricName, metric.getTemplateValue(), TOPIC_PATH_DDATA);
-				}
-			}
-			if (metric.hasTimestamp()) {
-				setResultIfNotFail(testResults, checkUTC(metric.getTimestamp(), config.UTCwindow),
-						ID_PAYLOADS_METRIC_TIMESTAMP_IN_UTC, PAYLOADS_METRIC_TIMESTAMP_IN_UTC);
-			}
-		}
+		checkMetrics(sparkplugDescriptor, inboundPayload);
 	}
 
 	@SpecAssertion(
@@ -447,7 +444,7 @@ public class SendDataTest extends TCKTest {
 		testResults.put(ID_PAYLOADS_DDATA_RETAIN, setResult(isValidNOTRetain, PAYLOADS_DDATA_RETAIN));
 
 		// payload related tests
-		PayloadOrBuilder inboundPayload = Utils.getSparkplugPayload(packet);
+		PayloadView inboundPayload = Utils.getPayloadView(packet);
 		Boolean[] bValid = checkValidPayload(inboundPayload);
 
 		logger.debug("Check Req: {} Every DDATA message MUST include a sequence number.", ID_PAYLOADS_DDATA_SEQ);
@@ -486,26 +483,44 @@ public class SendDataTest extends TCKTest {
 
 		// check templates
 		String sparkplugDescriptor = groupId + "/" + edgeNodeId + "/" + deviceId;
-		for (Metric metric : inboundPayload.getMetricsList()) {
-			String currentMetricName = metric.getName();
-			if (!metric.hasName() && metric.hasAlias()) {
-				currentMetricName = edgeAliasMaps.get(sparkplugDescriptor).get(metric.getAlias());
-				logger.debug("Got currentMetricName from alias: {} -> {}", metric.getAlias(), currentMetricName);
+		checkMetrics(sparkplugDescriptor, inboundPayload);
+	}
+
+	/*
+	 * Check the metrics of a data message one at a time. Only the headers of each metric are read, and a metric is
+	 * only decoded in full if it is a template instance, so a large historical batch is never held in memory at once.
+	 */
+	private void checkMetrics(String sparkplugDescriptor, PayloadView payload) {
+		if (payload == null) {
+			return;
+		}
+		for (int i = 0; i < payload.getMetricCount(); i++) {
+			String currentMetricName = payload.hasMetricName(i) ? payload.getMetricName(i) : "";
+			if (!payload.hasMetricName(i) && payload.hasMetricAlias(i)) {
+				currentMetricName = edgeAliasMaps.get(sparkplugDescriptor).get(payload.getMetricAlias(i));
+				logger.debug("Got currentMetricName from alias: {} -> {}", payload.getMetricAlias(i),
+						currentMetricName);
 			}
-			if (metric.hasDatatype()) {
-				DataType datatype = DataType.forNumber(metric.getDatatype());
-				if (datatype == DataType.Template && metric.hasTemplateValue()) {
-					checkInstance(sparkplugDescriptor, metric.getName(), metric.getTemplateValue(), TOPIC_PATH_DDATA);
+			if (payload.hasMetricDatatype(i)
+					&& DataType.forNumber(payload.getMetricDatatype(i)) == DataType.Template) {
+				try {
+					Metric metric = payload.getMetric(i);
+					if (metric.hasTemplateValue()) {
+						checkInstance(sparkplugDescriptor, currentMetricName, metric.getTemplateValue(),
+								TOPIC_PATH_DDATA);
+					}
+				} catch (InvalidProtocolBufferException e) {
+					logger.error("Invalid metric {} in data payload", currentMetricName, e);
 				}
 			}
-			if (metric.hasTimestamp()) {
-				setResultIfNotFail(testResults, checkUTC(metric.getTimestamp(), config.UTCwindow),
+			if (payload.hasMetricTimestamp(i)) {
+				setResultIfNotFail(testResults, checkUTC(payload.getMetricTimestamp(i), config.UTCwindow),
 						ID_PAYLOADS_METRIC_TIMESTAMP_IN_UTC, PAYLOADS_METRIC_TIMESTAMP_IN_UTC);
 			}
 		}
 	}
 
-	private Boolean[] checkValidPayload(PayloadOrBuilder payload) {
+	private Boolean[] checkValidPayload(PayloadView payload) {
 		Boolean[] bValidPayload = new Boolean[] { false, false, false, false, false };
 
 		if (payload != null) {
@@ -514,15 +529,8 @@ public class SendDataTest extends TCKTest {
 			bValidPayload[1] = (seqNum >= 0 && seqNum <= 255);
 			bValidPayload[2] = payload.hasTimestamp();
 			bValidPayload[3] = payload.hasTimestamp();
-			List<Metric> metrics = payload.getMetricsList();
-
-			ListIterator<Metric> metricIterator = metrics.listIterator();
-			while (metricIterator.hasNext()) {
-				Metric current = metricIterator.next();
-				// TODO: Must include metrics that have changed
-				// if (current.getName().equals(edgeMetric))
-				bValidPayload[4] = true;
-			}
+			// TODO: Must include metrics that have changed
+			bValidPayload[4] = payload.getMetricCount() > 0;
 		}
 		return bValidPayload;
 	}
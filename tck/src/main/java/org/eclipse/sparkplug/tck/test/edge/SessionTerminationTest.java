@@ -55,12 +55,12 @@ import java.util.Map;
 import java.util.Optional;
 
 import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.sparkplug.impl.exception.message.PayloadView;
 import org.eclipse.sparkplug.tck.sparkplug.Sections;
 import org.eclipse.sparkplug.tck.test.Results;
 import org.eclipse.sparkplug.tck.test.TCK;
 import org.eclipse.sparkplug.tck.test.TCK.Utilities;
 import org.eclipse.sparkplug.tck.test.TCKTest;
-import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.PayloadOrBuilder;
 import org.eclipse.sparkplug.tck.test.common.Utils;
 import org.jboss.test.audit.annotations.SpecAssertion;
 import org.jboss.test.audit.annotations.SpecVersion;
@@ -341,7 +341,7 @@ public class SessionTerminationTest extends TCKTest {
 			testResults.put(ID_TOPICS_DDEATH_MQTT, setResult(isValidMQTT, TOPICS_DDEATH_MQTT));
 
 			// payload related tests
-			PayloadOrBuilder payload = Utils.getSparkplugPayload(packet);
+			PayloadView payload = Utils.getPayloadView(packet);
 
 			// The DDEATH MUST include a sequence number in the payload and it MUST have a value of one
 			// greater than the previous MQTT message from the Edge Node contained unless the previous
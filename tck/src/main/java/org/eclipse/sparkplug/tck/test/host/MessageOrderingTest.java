@@ -45,7 +45,6 @@ import static org.eclipse.sparkplug.tck.test.common.Requirements.OPERATIONAL_BEH
 import static org.eclipse.sparkplug.tck.test.common.Utils.checkHostApplicationIsOnline;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -60,6 +59,7 @@ import org.eclipse.sparkplug.tck.test.TCK;
 import org.eclipse.sparkplug.tck.test.TCK.Utilities;
 import org.eclipse.sparkplug.tck.test.TCKTest;
 import org.eclipse.sparkplug.tck.test.common.Constants.TestStatus;
+import org.eclipse.sparkplug.tck.test.common.ResultRegistry;
 import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.Payload.Metric;
 import org.eclipse.sparkplug.tck.test.common.SparkplugBProto.PayloadOrBuilder;
 import org.eclipse.sparkplug.tck.test.common.Utils;
@@ -83,7 +83,7 @@ import com.hivemq.extension.sdk.api.services.publish.PublishService;
 		version = "3.0.0")
 public class MessageOrderingTest extends TCKTest {
 	private static final Logger logger = LoggerFactory.getLogger("Sparkplug");
-	private final @NotNull Map<String, String> testResults = new HashMap<>();
+	private final @NotNull Map<String, String> testResults = new ResultRegistry();
 	private final @NotNull List<String> testIds =
 			List.of(ID_OPERATIONAL_BEHAVIOR_HOST_REORDERING_PARAM, ID_OPERATIONAL_BEHAVIOR_HOST_REORDERING_START,
 					ID_OPERATIONAL_BEHAVIOR_HOST_REORDERING_REBIRTH, ID_OPERATIONAL_BEHAVIOR_HOST_REORDERING_SUCCESS);
@@ -93,6 +93,12 @@ public class MessageOrderingTest extends TCKTest {
 	private @NotNull String hostApplicationId;
 	private @NotNull int reorderTimeout;
 
+	// the topics of the simulated edge node and device, built once from the parameters
+	private @NotNull String nbirthTopic;
+	private @NotNull String dbirthTopic;
+	private @NotNull String ddataTopic;
+	private @NotNull String ncmdTopic;
+
 	private @NotNull String testClientId;
 	private TestStatus state = null;
 	private TCK theTCK = null;
@@ -109,9 +115,6 @@ public class MessageOrderingTest extends TCKTest {
 		theTCK = aTCK;
 		this.utilities = utilities;
 
-		// Ignore sequence number failures because we're intentionally triggering out of order messages
-		utilities.getMonitor().setIgnoreSeqNumCheck(true);
-
 		if (params.length < 5) {
 			log("Not enough parameters: " + Arrays.toString(params));
 			log(getName() + "Parameters must be: hostApplicationId, groupId edgeNodeId deviceId reorderTimeout");
@@ -122,6 +125,16 @@ public class MessageOrderingTest extends TCKTest {
 		edgeNodeId = params[2];
 		deviceId = params[3];
 		reorderTimeout = Integer.valueOf(params[4]); // in milliseconds
+		if (!isTopicLevel(groupId) || !isTopicLevel(edgeNodeId) || !isTopicLevel(deviceId)) {
+			log(getName() + ": groupId, edgeNodeId and deviceId must not be empty or contain /, + or #: "
+					+ Arrays.toString(params));
+			throw new IllegalArgumentException();
+		}
+		nbirthTopic = TOPIC_ROOT_SP_BV_1_0 + "/" + groupId + "/" + TOPIC_PATH_NBIRTH + "/" + edgeNodeId;
+		dbirthTopic =
+				TOPIC_ROOT_SP_BV_1_0 + "/" + groupId + "/" + TOPIC_PATH_DBIRTH + "/" + edgeNodeId + "/" + deviceId;
+		ddataTopic = TOPIC_ROOT_SP_BV_1_0 + "/" + groupId + "/" + TOPIC_PATH_DDATA + "/" + edgeNodeId + "/" + deviceId;
+		ncmdTopic = TOPIC_ROOT_SP_BV_1_0 + "/" + groupId + "/" + TOPIC_PATH_NCMD + "/" + edgeNodeId;
 		logger.info(
 				"Parameters are HostApplicationId: {}, GroupId: {}, EdgeNodeId: {}, DeviceId: {} Reorder Timeout: {}",
 				hostApplicationId, groupId, edgeNodeId, deviceId, reorderTimeout);
@@ -133,6 +146,9 @@ public class MessageOrderingTest extends TCKTest {
 			throw new IllegalStateException();
 		}
 
+		// Ignore sequence number failures because we're intentionally triggering out of order messages
+		utilities.getMonitor().setIgnoreSeqNumCheck(true);
+
 		// First start the simulated edge node
 		// Delay the start because
 		executorService.schedule(new Runnable() {
@@ -149,6 +165,11 @@ public class MessageOrderingTest extends TCKTest {
 		state = TestStatus.EXPECT_NODE_BIRTH;
 	}
 
+	// whether the id can be one level of the topics the test subscribes to
+	private static boolean isTopicLevel(String id) {
+		return !id.isEmpty() && id.indexOf('/') < 0 && id.indexOf('+') < 0 && id.indexOf('#') < 0;
+	}
+
 	@Override
 	public void endTest(Map<String, String> results) {
 		try {
@@ -178,6 +199,11 @@ public class MessageOrderingTest extends TCKTest {
 		return testResults;
 	}
 
+	@Override
+	public @NotNull List<String> getTopicFilters() {
+		return List.of(nbirthTopic, dbirthTopic, ddataTopic, ncmdTopic);
+	}
+
 	@Override
 	public void connect(String clientId, ConnectPacket packet) {
 
@@ -219,8 +245,8 @@ public class MessageOrderingTest extends TCKTest {
 	public void publish(String clientId, PublishPacket packet) {
 		logger.info("{} - PUBLISH - topic: {}, state: {} ", getName(), packet.getTopic(), state);
 
-		if (packet.getTopic()
-				.equals(TOPIC_ROOT_SP_BV_1_0 + "/" + groupId + "/" + TOPIC_PATH_NBIRTH + "/" + edgeNodeId)) {
+		final String topic = packet.getTopic();
+		if (topic.equals(nbirthTopic)) {
 			// the edge node birth
 			if (state == TestStatus.EXPECT_NODE_BIRTH) {
 				logger.info("{} node birth received", getName());
@@ -232,8 +258,7 @@ public class MessageOrderingTest extends TCKTest {
 				logger.error("{} node birth received at wrong time", getName());
 				theTCK.endTest();
 			}
-		} else if (packet.getTopic().equals(
-				TOPIC_ROOT_SP_BV_1_0 + "/" + groupId + "/" + TOPIC_PATH_DBIRTH + "/" + edgeNodeId + "/" + deviceId)) {
+		} else if (topic.equals(dbirthTopic)) {
 			// device id birth
 			if (state == TestStatus.EXPECT_DEVICE_BIRTH) {
 				logger.info("{} device birth received", getName());
@@ -257,11 +282,9 @@ public class MessageOrderingTest extends TCKTest {
 				logger.error("{} device birth received at wrong time", getName());
 				theTCK.endTest();
 			}
-		} else if (packet.getTopic().equals(
-				TOPIC_ROOT_SP_BV_1_0 + "/" + groupId + "/" + TOPIC_PATH_DDATA + "/" + edgeNodeId + "/" + deviceId)) {
+		} else if (topic.equals(ddataTopic)) {
 
-		} else if (packet.getTopic()
-				.equals(TOPIC_ROOT_SP_BV_1_0 + "/" + groupId + "/" + TOPIC_PATH_NCMD + "/" + edgeNodeId)) {
+		} else if (topic.equals(ncmdTopic)) {
 			if (state == TestStatus.EXPECT_NODE_REBIRTH) {
 				// this should be a device rebirth as a result of a missing message
 
@@ -38,6 +38,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
@@ -85,6 +86,10 @@ public class EdgeNode {
 
 	private static final String HW_VERSION = "Emulated Hardware";
 	private static final String SW_VERSION = "v1.0.0";
+
+	/* how long to wait for the retained STATE message of the host application */
+	private static final long HOST_STATE_TIMEOUT_MS = 500;
+
 	private String brokerURI = "tcp://localhost:1883";
 
 	private String group_id = null;
@@ -144,35 +149,33 @@ public class EdgeNode {
 
 		edge.connect(options);
 
-		edge.subscribe(Constants.TOPIC_ROOT_STATE + "/"
-				+ hostApplicationId); /* look for status of the host application we are to use */
+		/* look for status of the host application we are to use */
+		String stateTopic = Constants.TOPIC_ROOT_STATE + "/" + hostApplicationId;
+		edge.subscribe(stateTopic);
 
 		/* wait for retained message indicating state of host application under test */
-		int count = 0;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(HOST_STATE_TIMEOUT_MS);
 		while (true) {
-			MqttMessage msg = edge_listener.getNextMessage();
-
-			if (msg != null) {
-				try {
-					ObjectMapper mapper = new ObjectMapper();
-					StatePayload statePayload = mapper.readValue(new String(msg.getPayload()), StatePayload.class);
-					if (statePayload != null && statePayload.isOnline()) {
-						logger.info("Host application is online");
-						break;
-					} else {
-						logger.info("Error: host application not online");
-						return false;
-					}
-				} catch (Exception e) {
-					logger.info("Failed to handle state topic payload: " + new String(msg.getPayload()));
-				}
-			}
-
-			Thread.sleep(100);
-			if (++count >= 5) {
+			MqttMessage msg =
+					edge_listener.awaitMessage(stateTopic, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			if (msg == null) {
 				logger.info("Error: no host application state");
 				return false;
 			}
+
+			try {
+				ObjectMapper mapper = new ObjectMapper();
+				StatePayload statePayload = mapper.readValue(new String(msg.getPayload()), StatePayload.class);
+				if (statePayload != null && statePayload.isOnline()) {
+					logger.info("Host application is online");
+					break;
+				} else {
+					logger.info("Error: host application not online");
+					return false;
+				}
+			} catch (Exception e) {
+				logger.info("Failed to handle state topic payload: " + new String(msg.getPayload()));
+			}
 		}
 
 		// subscribe to NCMD topic
@@ -556,19 +559,14 @@ public class EdgeNode {
 	}
 
 	class MessageListener implements MqttCallbackExtended {
-		ArrayList<MqttMessage> messages;
+		final MessageQueue<MqttMessage> messages = new MessageQueue<>();
 
-		public MessageListener() {
-			messages = new ArrayList<MqttMessage>();
+		public MqttMessage getNextMessage() {
+			return messages.poll();
 		}
 
-		public MqttMessage getNextMessage() {
-			synchronized (messages) {
-				if (messages.size() == 0) {
-					return null;
-				}
-				return messages.remove(0);
-			}
+		public MqttMessage awaitMessage(String topicFilter, long timeout, TimeUnit unit) throws InterruptedException {
+			return messages.await(topicFilter, timeout, unit);
 		}
 
 		@Override
@@ -587,10 +585,7 @@ public class EdgeNode {
 		public void messageArrived(String topic, MqttMessage message) throws Exception {
 			logger.debug("{} message arrived: {}", getName(), new String(message.getPayload()));
 
-			synchronized (messages) {
-				messages.add(message);
-				messages.notifyAll();
-			}
+			messages.offer(topic, message);
 		}
 	}
 }
@@ -0,0 +1,400 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hivemq.client.mqtt.MqttClient;
+import com.hivemq.client.mqtt.mqtt3.Mqtt3AsyncClient;
+
+/**
+ * A fleet of simulated edge nodes, each with its devices, publishing to a broker at a steady rate so that the Monitor
+ * and host applications can be run under load.
+ *
+ * Each edge node has its own MQTT session, with an NDEATH will, and behaves as the {@link EdgeNode} utility does: an
+ * NBIRTH with bdSeq and Node Control/Rebirth, a DBIRTH for each device, then NDATA and DDATA reporting a share of the
+ * tags by exception, with sequence numbers going round from the NBIRTH. It rebirths when sent a Node Control/Rebirth
+ * NCMD, and can be made to rebirth or die at random, coming back with the next bdSeq.
+ *
+ * The MQTT clients are asynchronous, so one small pool of threads drives the whole fleet. The publish rate achieved,
+ * counted as the broker acknowledges or the client sends, is logged as the fleet runs and at the end.
+ *
+ * Run it with {@link #main(String[])}, configured by the system properties sparkplug.tck.fleet.*; see
+ * {@link #fromSystemProperties()}.
+ */
+public class FleetSimulator {
+
+	private static final Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	private static final String PROPERTY_PREFIX = "sparkplug.tck.fleet.";
+
+	private static final long STOP_TIMEOUT_SECONDS = 10;
+
+	final String host;
+	final int port;
+	final String groupId;
+	final int edgeNodes;
+	final int devices;
+	final int tags;
+	final long intervalMillis;
+	final double changeFraction;
+	final boolean aliases;
+	final double rebirthChance;
+	final double deathChance;
+	final long offlineMillis;
+	private final long durationSeconds;
+	private final long reportSeconds;
+	private final int threads;
+	private final int concurrentConnects;
+
+	private final LongAdder published = new LongAdder();
+	private final LongAdder publishedBytes = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder births = new LongAdder();
+	private final LongAdder deaths = new LongAdder();
+	private final AtomicInteger online = new AtomicInteger();
+
+	private final List<SimulatedEdgeNode> fleet = new ArrayList<>();
+	private ScheduledExecutorService scheduler = null;
+
+	private long startNanos;
+	private long lastReportNanos;
+	private long lastReportPublished;
+
+	private FleetSimulator(FleetSimulatorBuilder builder) {
+		this.host = builder.host;
+		this.port = builder.port;
+		this.groupId = builder.groupId;
+		this.edgeNodes = builder.edgeNodes;
+		this.devices = builder.devices;
+		this.tags = builder.tags;
+		this.intervalMillis = builder.intervalMillis;
+		this.changeFraction = builder.changeFraction;
+		this.aliases = builder.aliases;
+		this.rebirthChance = builder.rebirthChance;
+		this.deathChance = builder.deathChance;
+		this.offlineMillis = builder.offlineMillis;
+		this.durationSeconds = builder.durationSeconds;
+		this.reportSeconds = builder.reportSeconds;
+		this.threads = builder.threads;
+		this.concurrentConnects = builder.concurrentConnects;
+	}
+
+	public static void main(String[] args) throws Exception {
+		fromSystemProperties().run();
+	}
+
+	/**
+	 * A fleet configured by system properties, each defaulting to the value in brackets:
+	 * <ul>
+	 * <li>sparkplug.tck.fleet.host, .port - the broker [localhost, 1883]</li>
+	 * <li>sparkplug.tck.fleet.group - the group id of all the edge nodes [Fleet]</li>
+	 * <li>sparkplug.tck.fleet.nodes - the number of edge nodes [100]</li>
+	 * <li>sparkplug.tck.fleet.devices - the number of devices of each edge node [10]</li>
+	 * <li>sparkplug.tck.fleet.tags - the number of tags of each edge node and device [20]</li>
+	 * <li>sparkplug.tck.fleet.interval - the milliseconds between the data reports of an edge node [1000]</li>
+	 * <li>sparkplug.tck.fleet.changes - the fraction of tags changed in each report [0.1]</li>
+	 * <li>sparkplug.tck.fleet.aliases - whether data messages use aliases rather than names [true]</li>
+	 * <li>sparkplug.tck.fleet.rebirth - the chance of an edge node rebirthing instead of a report [0]</li>
+	 * <li>sparkplug.tck.fleet.death - the chance of an edge node dying instead of a report [0]</li>
+	 * <li>sparkplug.tck.fleet.offline - the milliseconds a dead edge node stays offline [5000]</li>
+	 * <li>sparkplug.tck.fleet.duration - the seconds to run for, 0 for until the process is stopped [60]</li>
+	 * <li>sparkplug.tck.fleet.report - the seconds between logging the publish rate [10]</li>
+	 * <li>sparkplug.tck.fleet.threads - the threads driving the fleet [the number of processors]</li>
+	 * <li>sparkplug.tck.fleet.connects - the most connects in progress at once while starting [100]</li>
+	 * </ul>
+	 */
+	public static FleetSimulator fromSystemProperties() {
+		FleetSimulatorBuilder builder = new FleetSimulatorBuilder();
+		builder.host(System.getProperty(PROPERTY_PREFIX + "host", builder.host))
+				.port(Integer.getInteger(PROPERTY_PREFIX + "port", builder.port))
+				.groupId(System.getProperty(PROPERTY_PREFIX + "group", builder.groupId))
+				.edgeNodes(Integer.getInteger(PROPERTY_PREFIX + "nodes", builder.edgeNodes))
+				.devices(Integer.getInteger(PROPERTY_PREFIX + "devices", builder.devices))
+				.tags(Integer.getInteger(PROPERTY_PREFIX + "tags", builder.tags))
+				.intervalMillis(Long.getLong(PROPERTY_PREFIX + "interval", builder.intervalMillis))
+				.changeFraction(doubleProperty("changes", builder.changeFraction))
+				.aliases(Boolean.parseBoolean(System.getProperty(PROPERTY_PREFIX + "aliases", "true")))
+				.rebirthChance(doubleProperty("rebirth", builder.rebirthChance))
+				.deathChance(doubleProperty("death", builder.deathChance))
+				.offlineMillis(Long.getLong(PROPERTY_PREFIX + "offline", builder.offlineMillis))
+				.durationSeconds(Long.getLong(PROPERTY_PREFIX + "duration", builder.durationSeconds))
+				.reportSeconds(Long.getLong(PROPERTY_PREFIX + "report", builder.reportSeconds))
+				.threads(Integer.getInteger(PROPERTY_PREFIX + "threads", builder.threads))
+				.concurrentConnects(Integer.getInteger(PROPERTY_PREFIX + "connects", builder.concurrentConnects));
+		return builder.createFleetSimulator();
+	}
+
+	private static double doubleProperty(String name, double defaultValue) {
+		String value = System.getProperty(PROPERTY_PREFIX + name);
+		return value == null ? defaultValue : Double.parseDouble(value);
+	}
+
+	/**
+	 * Starts the fleet, runs it for the configured duration and stops it.
+	 */
+	public void run() throws InterruptedException {
+		start();
+		try {
+			if (durationSeconds > 0) {
+				Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+			} else {
+				Thread.currentThread().join();
+			}
+		} finally {
+			stop();
+		}
+	}
+
+	/**
+	 * Connects and births the edge nodes, a limited number at a time, and starts their reports.
+	 */
+	public synchronized void start() throws InterruptedException {
+		if (scheduler != null) {
+			return;
+		}
+		logger.info("Fleet: starting {} edge nodes with {} devices each and {} tags each, reporting every {} ms",
+				edgeNodes, devices, tags, intervalMillis);
+		scheduler = Executors.newScheduledThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "Sparkplug TCK fleet");
+			thread.setDaemon(true);
+			return thread;
+		});
+		startNanos = lastReportNanos = System.nanoTime();
+
+		Semaphore connects = new Semaphore(concurrentConnects);
+		for (int i = 0; i < edgeNodes; i++) {
+			SimulatedEdgeNode edgeNode = new SimulatedEdgeNode(this, "Node" + i);
+			fleet.add(edgeNode);
+			connects.acquire();
+			edgeNode.connect().whenComplete((result, error) -> connects.release());
+		}
+		connects.acquire(concurrentConnects);
+		logger.info("Fleet: {} of {} edge nodes online after {} ms", online.get(), edgeNodes,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+		// spread the reports of the edge nodes over the interval
+		for (SimulatedEdgeNode edgeNode : fleet) {
+			scheduler.scheduleAtFixedRate(edgeNode::tick, ThreadLocalRandom.current().nextLong(intervalMillis),
+					intervalMillis, TimeUnit.MILLISECONDS);
+		}
+		scheduler.scheduleAtFixedRate(this::report, reportSeconds, reportSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops the reports and takes the edge nodes offline, each with an NDEATH.
+	 */
+	public synchronized void stop() {
+		if (scheduler == null) {
+			return;
+		}
+		scheduler.shutdownNow();
+		CompletableFuture<?>[] stopped = new CompletableFuture<?>[fleet.size()];
+		for (int i = 0; i < stopped.length; i++) {
+			stopped[i] = fleet.get(i).stop();
+		}
+		try {
+			CompletableFuture.allOf(stopped).get(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (Exception e) {
+			logger.warn("Fleet: not all edge nodes disconnected cleanly: {}", e.toString());
+		}
+		long elapsedNanos = System.nanoTime() - startNanos;
+		logger.info("Fleet: stopped after {} s: {} messages published, {}/s, {} kB/s, {} failed, {} births, {} deaths",
+				TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), published.sum(), rate(published.sum(), elapsedNanos),
+				rate(publishedBytes.sum() / 1024, elapsedNanos), failed.sum(), births.sum(), deaths.sum());
+		fleet.clear();
+		scheduler = null;
+	}
+
+	private void report() {
+		long now = System.nanoTime();
+		long total = published.sum();
+		logger.info("Fleet: {} messages/s, {} edge nodes online, {} failed, {} births, {} deaths",
+				rate(total - lastReportPublished, now - lastReportNanos), online.get(), failed.sum(), births.sum(),
+				deaths.sum());
+		lastReportNanos = now;
+		lastReportPublished = total;
+	}
+
+	private static long rate(long count, long nanos) {
+		return nanos > 0 ? count * TimeUnit.SECONDS.toNanos(1) / nanos : 0;
+	}
+
+	/**
+	 * @return the number of messages published so far
+	 */
+	public long getPublished() {
+		return published.sum();
+	}
+
+	Mqtt3AsyncClient newClient(String clientId) {
+		return MqttClient.builder().useMqttVersion3().identifier(clientId).serverHost(host).serverPort(port)
+				.buildAsync();
+	}
+
+	void published(int bytes, Throwable error) {
+		if (error == null) {
+			published.increment();
+			publishedBytes.add(bytes);
+		} else {
+			failed.increment();
+		}
+	}
+
+	void born() {
+		births.increment();
+	}
+
+	void online(boolean isOnline) {
+		if (isOnline) {
+			online.incrementAndGet();
+		} else {
+			online.decrementAndGet();
+		}
+	}
+
+	void died() {
+		deaths.increment();
+	}
+
+	/**
+	 * A builder for creating a {@link FleetSimulator} instance.
+	 */
+	public static class FleetSimulatorBuilder {
+
+		private String host = "localhost";
+		private int port = 1883;
+		private String groupId = "Fleet";
+		private int edgeNodes = 100;
+		private int devices = 10;
+		private int tags = 20;
+		private long intervalMillis = 1000;
+		private double changeFraction = 0.1;
+		private boolean aliases = true;
+		private double rebirthChance = 0;
+		private double deathChance = 0;
+		private long offlineMillis = 5000;
+		private long durationSeconds = 60;
+		private long reportSeconds = 10;
+		private int threads = Runtime.getRuntime().availableProcessors();
+		private int concurrentConnects = 100;
+
+		public FleetSimulatorBuilder host(String host) {
+			this.host = host;
+			return this;
+		}
+
+		public FleetSimulatorBuilder port(int port) {
+			this.port = port;
+			return this;
+		}
+
+		public FleetSimulatorBuilder groupId(String groupId) {
+			this.groupId = groupId;
+			return this;
+		}
+
+		public FleetSimulatorBuilder edgeNodes(int edgeNodes) {
+			this.edgeNodes = edgeNodes;
+			return this;
+		}
+
+		public FleetSimulatorBuilder devices(int devices) {
+			this.devices = devices;
+			return this;
+		}
+
+		public FleetSimulatorBuilder tags(int tags) {
+			this.tags = tags;
+			return this;
+		}
+
+		public FleetSimulatorBuilder intervalMillis(long intervalMillis) {
+			this.intervalMillis = intervalMillis;
+			return this;
+		}
+
+		public FleetSimulatorBuilder changeFraction(double changeFraction) {
+			this.changeFraction = changeFraction;
+			return this;
+		}
+
+		public FleetSimulatorBuilder aliases(boolean aliases) {
+			this.aliases = aliases;
+			return this;
+		}
+
+		public FleetSimulatorBuilder rebirthChance(double rebirthChance) {
+			this.rebirthChance = rebirthChance;
+			return this;
+		}
+
+		public FleetSimulatorBuilder deathChance(double deathChance) {
+			this.deathChance = deathChance;
+			return this;
+		}
+
+		public FleetSimulatorBuilder offlineMillis(long offlineMillis) {
+			this.offlineMillis = offlineMillis;
+			return this;
+		}
+
+		public FleetSimulatorBuilder durationSeconds(long durationSeconds) {
+			this.durationSeconds = durationSeconds;
+			return this;
+		}
+
+		public FleetSimulatorBuilder reportSeconds(long reportSeconds) {
+			this.reportSeconds = reportSeconds;
+			return this;
+		}
+
+		public FleetSimulatorBuilder threads(int threads) {
+			this.threads = threads;
+			return this;
+		}
+
+		public FleetSimulatorBuilder concurrentConnects(int concurrentConnects) {
+			this.concurrentConnects = concurrentConnects;
+			return this;
+		}
+
+		/**
+		 * @throws IllegalArgumentException if a count, interval or chance is out of range
+		 */
+		public FleetSimulator createFleetSimulator() {
+			if (edgeNodes < 1 || devices < 0 || tags < 0 || intervalMillis < 1 || reportSeconds < 1 || threads < 1
+					|| concurrentConnects < 1) {
+				throw new IllegalArgumentException("Invalid fleet size or timing");
+			}
+			if (changeFraction < 0 || changeFraction > 1 || rebirthChance < 0 || rebirthChance > 1 || deathChance < 0
+					|| deathChance > 1) {
+				throw new IllegalArgumentException("Invalid fleet change, rebirth or death chance");
+			}
+			return new FleetSimulator(this);
+		}
+	}
+}
@@ -13,7 +13,8 @@
 
 package org.eclipse.sparkplug.tck.utility;
 
-import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
@@ -236,26 +237,30 @@ public class HostApplication {
 
 	}
 
+	/*
+	 * The oldest message received, or null if there is none
+	 */
 	public Message getNextMessage() {
-		return listener.getNextMessage();
+		return listener.messages.poll();
 	}
 
-	class MessageListener implements MqttCallbackExtended {
+	/*
+	 * The oldest message received on a topic matching the filter, or the next one to arrive
+	 */
+	public CompletableFuture<Message> nextMessage(String topicFilter) {
+		return listener.messages.next(topicFilter);
+	}
 
-		ArrayList<Message> messages;
+	/*
+	 * Wait for a message on a topic matching the filter, returning null if none arrives in time
+	 */
+	public Message awaitMessage(String topicFilter, long timeout, TimeUnit unit) throws InterruptedException {
+		return listener.messages.await(topicFilter, timeout, unit);
+	}
 
-		public MessageListener() {
-			messages = new ArrayList<Message>();
-		}
+	class MessageListener implements MqttCallbackExtended {
 
-		public Message getNextMessage() {
-			synchronized (messages) {
-				if (messages.size() == 0) {
-					return null;
-				}
-				return messages.remove(0);
-			}
-		}
+		final MessageQueue<Message> messages = new MessageQueue<>();
 
 		@Override
 		public void connectComplete(boolean reconnect, String serverURI) {
@@ -280,10 +285,7 @@ public class HostApplication {
 		public void messageArrived(String topic, MqttMessage message) throws Exception {
 			// log("message arrived: " + new String(message.getPayload()));
 
-			synchronized (messages) {
-				messages.add(new Message(topic, message));
-				messages.notifyAll();
-			}
+			messages.offer(topic, new Message(topic, message));
 		}
 	}
 
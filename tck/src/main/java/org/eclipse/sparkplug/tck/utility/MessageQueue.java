@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.utility;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.paho.client.mqttv3.MqttTopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * The messages received by a utility client, in order of arrival.
+ *
+ * The queue is bounded: when it is full the oldest message is dropped, so that a client nobody reads from
+ * can't grow without limit and the MQTT callback thread never blocks. Messages can be taken in order
+ * with poll(), or waited for by topic filter with next() and await(). A message arriving while someone is
+ * waiting for its topic is handed straight to the first such waiter and is not queued.
+ */
+class MessageQueue<T> {
+
+	private static final Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	static final int DEFAULT_CAPACITY = 1000;
+
+	private final int capacity;
+	private final ArrayDeque<Entry<T>> messages;
+	private final List<Waiter<T>> waiters = new ArrayList<>();
+	private long dropped = 0;
+
+	MessageQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	MessageQueue(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Invalid message queue capacity: " + capacity);
+		}
+		this.capacity = capacity;
+		messages = new ArrayDeque<>(Math.min(capacity, 64));
+	}
+
+	/**
+	 * Add a message which has arrived on the given topic
+	 */
+	synchronized void offer(String topic, T message) {
+		Iterator<Waiter<T>> it = waiters.iterator();
+		while (it.hasNext()) {
+			Waiter<T> waiter = it.next();
+			if (MqttTopic.isMatched(waiter.topicFilter, topic)) {
+				it.remove();
+				// a waiter which has just timed out can't take the message
+				if (waiter.future.complete(message)) {
+					return;
+				}
+			}
+		}
+		if (messages.size() == capacity) {
+			messages.poll();
+			if (dropped++ == 0) {
+				logger.warn("Message queue full at {} messages, dropping the oldest", capacity);
+			}
+		}
+		messages.add(new Entry<>(topic, message));
+	}
+
+	/**
+	 * @return the oldest message, or null if there is none
+	 */
+	synchronized T poll() {
+		Entry<T> entry = messages.poll();
+		return entry == null ? null : entry.message;
+	}
+
+	/**
+	 * @return a future for the oldest queued message matching the topic filter, or failing that the next one
+	 *         to arrive
+	 */
+	synchronized CompletableFuture<T> next(String topicFilter) {
+		Iterator<Entry<T>> it = messages.iterator();
+		while (it.hasNext()) {
+			Entry<T> entry = it.next();
+			if (MqttTopic.isMatched(topicFilter, entry.topic)) {
+				it.remove();
+				return CompletableFuture.completedFuture(entry.message);
+			}
+		}
+		Waiter<T> waiter = new Waiter<>(topicFilter);
+		waiters.add(waiter);
+		// forget the waiter if the caller gives up on it
+		waiter.future.whenComplete((message, error) -> {
+			if (error != null) {
+				remove(waiter);
+			}
+		});
+		return waiter.future;
+	}
+
+	/**
+	 * Wait for a message matching the topic filter
+	 *
+	 * @return the message, or null if none arrived within the timeout
+	 */
+	T await(String topicFilter, long timeout, TimeUnit unit) throws InterruptedException {
+		CompletableFuture<T> future = next(topicFilter);
+		try {
+			return future.get(timeout, unit);
+		} catch (TimeoutException e) {
+			future.cancel(false);
+			// the message may have arrived just before the cancel
+			return future.isCancelled() ? null : future.getNow(null);
+		} catch (InterruptedException e) {
+			future.cancel(false);
+			throw e;
+		} catch (ExecutionException e) {
+			return null;
+		}
+	}
+
+	synchronized int size() {
+		return messages.size();
+	}
+
+	/**
+	 * @return the number of messages dropped because the queue was full
+	 */
+	synchronized long getDropped() {
+		return dropped;
+	}
+
+	private synchronized void remove(Waiter<T> waiter) {
+		waiters.remove(waiter);
+	}
+
+	private static class Entry<T> {
+		final String topic;
+		final T message;
+
+		Entry(String topic, T message) {
+			this.topic = topic;
+			this.message = message;
+		}
+	}
+
+	private static class Waiter<T> {
+		final String topicFilter;
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		Waiter(String topicFilter) {
+			this.topicFilter = topicFilter;
+		}
+	}
+}
@@ -0,0 +1,342 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.sparkplug.tck.utility;
+
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DBIRTH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_DDATA;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NBIRTH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NCMD;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NDATA;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_PATH_NDEATH;
+import static org.eclipse.sparkplug.tck.test.common.Constants.TOPIC_ROOT_SP_BV_1_0;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.sparkplug.impl.exception.SparkplugException;
+import org.eclipse.sparkplug.impl.exception.message.SparkplugBPayloadDecoder;
+import org.eclipse.sparkplug.impl.exception.message.SparkplugBPayloadEncoder;
+import org.eclipse.sparkplug.impl.exception.model.Metric;
+import org.eclipse.sparkplug.impl.exception.model.Metric.MetricBuilder;
+import org.eclipse.sparkplug.impl.exception.model.MetricDataType;
+import org.eclipse.sparkplug.impl.exception.model.SparkplugBPayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt3.Mqtt3AsyncClient;
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
+
+/**
+ * One edge node of a {@link FleetSimulator}, with its devices and its own MQTT session.
+ *
+ * The reports, commands and connection callbacks of an edge node come on different threads, so all that changes its
+ * session is synchronized on it.
+ */
+class SimulatedEdgeNode {
+
+	private static final Logger logger = LoggerFactory.getLogger("Sparkplug");
+
+	private static final String BD_SEQ = "bdSeq";
+	private static final String REBIRTH = "Node Control/Rebirth";
+
+	private static final MetricDataType[] TAG_TYPES = { MetricDataType.Int32, MetricDataType.Double,
+			MetricDataType.Boolean, MetricDataType.Int64, MetricDataType.Float, MetricDataType.String };
+
+	private final FleetSimulator fleet;
+	private final String edgeNodeId;
+	private final String ndataTopic;
+	private final String ndeathTopic;
+	private final String[] deviceIds;
+	private final Tags nodeTags;
+	private final Tags[] deviceTags;
+	private final SparkplugBPayloadEncoder encoder = new SparkplugBPayloadEncoder(true);
+
+	private Mqtt3AsyncClient client = null;
+	private boolean connecting = false;
+	private boolean online = false;
+	private long offlineUntil = 0;
+	private long bdSeq = 0;
+	private long seq = 0;
+
+	SimulatedEdgeNode(FleetSimulator fleet, String edgeNodeId) {
+		this.fleet = fleet;
+		this.edgeNodeId = edgeNodeId;
+		this.ndataTopic = topic(TOPIC_PATH_NDATA, null);
+		this.ndeathTopic = topic(TOPIC_PATH_NDEATH, null);
+		nodeTags = new Tags("Node", 0);
+		deviceIds = new String[fleet.devices];
+		deviceTags = new Tags[fleet.devices];
+		for (int i = 0; i < fleet.devices; i++) {
+			deviceIds[i] = "Device" + i;
+			// aliases are unique within the edge node, devices included
+			deviceTags[i] = new Tags("Device", (long) (i + 1) * fleet.tags);
+		}
+	}
+
+	private String topic(String messageType, String deviceId) {
+		String topic = TOPIC_ROOT_SP_BV_1_0 + "/" + fleet.groupId + "/" + messageType + "/" + edgeNodeId;
+		return deviceId == null ? topic : topic + "/" + deviceId;
+	}
+
+	/**
+	 * Connects with an NDEATH will of the current bdSeq, subscribes to NCMD and publishes the births.
+	 *
+	 * @return a future completed when the edge node is online, or has failed to come online
+	 */
+	synchronized CompletableFuture<?> connect() {
+		connecting = true;
+		byte[] death;
+		try {
+			death = deathPayload();
+		} catch (Exception e) {
+			connecting = false;
+			return CompletableFuture.failedFuture(e);
+		}
+		Mqtt3AsyncClient newClient = fleet.newClient("Sparkplug TCK fleet " + fleet.groupId + " " + edgeNodeId);
+		client = newClient;
+		return newClient.connectWith().cleanSession(true).keepAlive(30).willPublish().topic(ndeathTopic)
+				.payload(death).qos(MqttQos.AT_LEAST_ONCE).applyWillPublish().send()
+				.thenCompose(connack -> newClient.subscribeWith().topicFilter(topic(TOPIC_PATH_NCMD, null))
+						.qos(MqttQos.AT_LEAST_ONCE).callback(this::command).send())
+				.whenComplete((suback, error) -> {
+					synchronized (this) {
+						connecting = false;
+						if (error != null) {
+							logger.error("Fleet: edge node {} failed to connect: {}", edgeNodeId, error.getMessage());
+							offlineUntil = System.currentTimeMillis() + fleet.offlineMillis;
+						} else if (client == newClient) {
+							online = true;
+							fleet.online(true);
+							birth();
+						}
+					}
+				});
+	}
+
+	/**
+	 * Reports the changed tags, or rebirths or dies by chance, or comes back online once its time offline is up.
+	 */
+	synchronized void tick() {
+		try {
+			if (!online) {
+				if (!connecting && System.currentTimeMillis() >= offlineUntil) {
+					connect();
+				}
+				return;
+			}
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			if (random.nextDouble() < fleet.deathChance) {
+				die();
+			} else if (random.nextDouble() < fleet.rebirthChance) {
+				birth();
+			} else {
+				report();
+			}
+		} catch (Exception e) {
+			// an exception would end the reports of this edge node
+			logger.error("Fleet: edge node {} failed", edgeNodeId, e);
+		}
+	}
+
+	/**
+	 * Takes the edge node offline with an NDEATH, as a graceful disconnect does.
+	 *
+	 * @return a future completed when the edge node has disconnected
+	 */
+	synchronized CompletableFuture<?> stop() {
+		return online ? die() : CompletableFuture.completedFuture(null);
+	}
+
+	private void birth() {
+		seq = 0;
+		List<Metric> metrics = new ArrayList<>(fleet.tags + 2);
+		try {
+			metrics.add(new MetricBuilder(BD_SEQ, MetricDataType.Int64, null).longValue(bdSeq).createMetric());
+			metrics.add(new MetricBuilder(REBIRTH, MetricDataType.Boolean, null).booleanValue(false).createMetric());
+			nodeTags.addTo(metrics, true);
+			publish(topic(TOPIC_PATH_NBIRTH, null), new SparkplugBPayload(new Date(), metrics, nextSeq()));
+			for (int i = 0; i < deviceIds.length; i++) {
+				List<Metric> deviceMetrics = new ArrayList<>(fleet.tags);
+				deviceTags[i].addTo(deviceMetrics, true);
+				publish(topic(TOPIC_PATH_DBIRTH, deviceIds[i]),
+						new SparkplugBPayload(new Date(), deviceMetrics, nextSeq()));
+			}
+			fleet.born();
+		} catch (SparkplugException e) {
+			logger.error("Fleet: edge node {} failed to birth", edgeNodeId, e);
+		}
+	}
+
+	private void report() throws SparkplugException {
+		List<Metric> metrics = nodeTags.change();
+		if (!metrics.isEmpty()) {
+			publish(ndataTopic, new SparkplugBPayload(new Date(), metrics, nextSeq()));
+		}
+		for (int i = 0; i < deviceIds.length; i++) {
+			metrics = deviceTags[i].change();
+			if (!metrics.isEmpty()) {
+				publish(topic(TOPIC_PATH_DDATA, deviceIds[i]), new SparkplugBPayload(new Date(), metrics, nextSeq()));
+			}
+		}
+	}
+
+	private CompletableFuture<?> die() {
+		online = false;
+		fleet.online(false);
+		fleet.died();
+		Mqtt3AsyncClient oldClient = client;
+		client = null;
+		CompletableFuture<?> disconnected;
+		try {
+			byte[] death = deathPayload();
+			disconnected = oldClient.publishWith().topic(ndeathTopic).payload(death).qos(MqttQos.AT_LEAST_ONCE)
+					.send().handle((publish, error) -> {
+						fleet.published(death.length, error);
+						return null;
+					}).thenCompose(ignored -> oldClient.disconnect());
+		} catch (Exception e) {
+			logger.error("Fleet: edge node {} failed to publish NDEATH", edgeNodeId, e);
+			disconnected = oldClient.disconnect();
+		}
+		bdSeq = (bdSeq + 1) % 256;
+		offlineUntil = System.currentTimeMillis() + fleet.offlineMillis;
+		return disconnected;
+	}
+
+	/*
+	 * Rebirths when asked to by a host application
+	 */
+	private void command(Mqtt3Publish publish) {
+		try {
+			SparkplugBPayload payload =
+					new SparkplugBPayloadDecoder(false, false, 0).buildFromByteArray(publish.getPayloadAsBytes());
+			for (Metric metric : payload.getMetrics()) {
+				if (REBIRTH.equals(metric.getName()) && metric.getDataType() == MetricDataType.Boolean
+						&& Boolean.TRUE.equals(metric.getValue())) {
+					synchronized (this) {
+						if (online) {
+							logger.debug("Fleet: edge node {} rebirth requested", edgeNodeId);
+							birth();
+						}
+					}
+				}
+			}
+		} catch (Exception e) {
+			logger.error("Fleet: edge node {} failed to handle NCMD", edgeNodeId, e);
+		}
+	}
+
+	private byte[] deathPayload() throws Exception {
+		List<Metric> metrics = new ArrayList<>(1);
+		metrics.add(new MetricBuilder(BD_SEQ, MetricDataType.Int64, null).longValue(bdSeq).createMetric());
+		return encoder.getBytes(new SparkplugBPayload(new Date(), metrics));
+	}
+
+	private void publish(String topic, SparkplugBPayload payload) {
+		byte[] bytes;
+		try {
+			bytes = encoder.getBytes(payload);
+		} catch (Exception e) {
+			logger.error("Fleet: edge node {} failed to encode a payload for {}", edgeNodeId, topic, e);
+			fleet.published(0, e);
+			return;
+		}
+		client.publishWith().topic(topic).payload(bytes).qos(MqttQos.AT_MOST_ONCE).send()
+				.whenComplete((publish, error) -> fleet.published(bytes.length, error));
+	}
+
+	private long nextSeq() {
+		long next = seq;
+		seq = (seq + 1) % 256;
+		return next;
+	}
+
+	/*
+	 * The tags of the edge node or of one device, their values held unboxed as in the metrics
+	 */
+	private class Tags {
+		private final String[] names;
+		private final long alias;
+		private final long[] values;
+
+		Tags(String prefix, long alias) {
+			names = new String[fleet.tags];
+			values = new long[fleet.tags];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = prefix + "/" + TAG_TYPES[i % TAG_TYPES.length] + "/" + i;
+			}
+			this.alias = alias;
+		}
+
+		void addTo(List<Metric> metrics, boolean isBirth) throws SparkplugException {
+			for (int i = 0; i < names.length; i++) {
+				metrics.add(metric(i, isBirth));
+			}
+		}
+
+		/*
+		 * Changes a run of the tags, from a random one, and returns them as metrics
+		 */
+		List<Metric> change() throws SparkplugException {
+			int count = (int) Math.round(names.length * fleet.changeFraction);
+			if (count == 0 && fleet.changeFraction > 0 && names.length > 0) {
+				count = 1;
+			}
+			List<Metric> metrics = new ArrayList<>(count);
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int first = count > 0 ? random.nextInt(names.length) : 0;
+			for (int i = 0; i < count; i++) {
+				int tag = (first + i) % names.length;
+				// an odd step, so that the Boolean tags change too
+				values[tag] += 1 + 2 * random.nextInt(5);
+				metrics.add(metric(tag, false));
+			}
+			return metrics;
+		}
+
+		private Metric metric(int tag, boolean isBirth) throws SparkplugException {
+			MetricDataType type = TAG_TYPES[tag % TAG_TYPES.length];
+			// the name and alias are given in births, and only the alias in data messages
+			MetricBuilder builder = new MetricBuilder(isBirth || !fleet.aliases ? names[tag] : null, type, null);
+			if (fleet.aliases) {
+				builder.alias(alias + tag);
+			}
+			long value = values[tag];
+			switch (type) {
+				case Int32:
+					builder.intValue((int) value);
+					break;
+				case Int64:
+					builder.longValue(value);
+					break;
+				case Double:
+					builder.doubleValue(value / 10.0);
+					break;
+				case Float:
+					builder.floatValue(value / 10.0f);
+					break;
+				case Boolean:
+					builder.booleanValue((value & 1) != 0);
+					break;
+				default:
+					builder.value(Long.toString(value));
+			}
+			return builder.createMetric();
+		}
+	}
+}